@@ -66,6 +66,22 @@ class IdlParsingTest
             Messages.UNIQUE_MAIN_MODULE)
     }
 
+    @Test
+    def void testEventDataUsedByMultipleEvents()
+    {
+        val result = parseHelper.parse('''
+            module Test {
+                struct EventData {};
+                interface Foo[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    event FirstEvent [guid = 9BFE9AB7-3AA6-441F-82D7-D1A27F6321CE] (EventData);
+                    event SecondEvent [guid = 1E2B3F07-1F4E-4F52-9C3B-6A9F3D2C2C11] (EventData);
+                };
+            }
+        ''')
+        result.assertError(IdlPackage.Literals.EVENT_DECLARATION, null,
+            "Event type EventData is already used in another event")
+    }
+
     @Test
     def void testNonEmptyNonMainModuleOuter()
     {
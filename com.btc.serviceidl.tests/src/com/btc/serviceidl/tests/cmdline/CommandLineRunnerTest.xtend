@@ -17,7 +17,16 @@ import static org.junit.Assert.*
 import java.io.BufferedReader
 import java.io.InputStreamReader
 import org.junit.Ignore
+import com.btc.serviceidl.generator.GeneratorClient
+import com.btc.serviceidl.generator.GeneratorServer
 import com.btc.serviceidl.generator.Main
+import com.btc.serviceidl.generator.java.ParentPOMGenerator
+import java.io.ByteArrayOutputStream
+import java.io.PrintStream
+import java.net.ConnectException
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
 import java.util.Arrays
 import java.nio.file.Files
 import com.google.common.collect.Sets
@@ -89,6 +98,12 @@ class CommandLineRunnerTest
             missing.empty && extra.empty)
     }
 
+    static def assertParentPOMModules(Iterable<String> expected, java.nio.file.Path path)
+    {
+        assertSetEquals(expected,
+            ParentPOMGenerator.readModules(new String(Files.readAllBytes(path.resolve("java/pom.xml")))))
+    }
+
     static def assertExpectedFiles(Iterable<String> expected, java.nio.file.Path path)
     {
         val files = path.toFile.listFilesRecursively.map[new Path(it.toString.replace(path + File.separator, ""))]
@@ -316,13 +331,279 @@ class CommandLineRunnerTest
     }
 
     @Test
-    def void testTryMultipleInputFiles()
+    def void testMultipleInputFiles()
     {
         val derivedFile = new File(TEST_DATA_DIR + "import-derived.idl")
         val importedFile = new File(TEST_DATA_DIR + "import-imported.idl")
         val path = Files.createTempDirectory("test-gen")
-        assertEquals(1, Main.mainBackend(
-            Arrays.asList(derivedFile.absolutePath, importedFile.absolutePath, "-outputPath", path.toString)))
+        assertEquals(0, Main.mainBackend(
+            Arrays.asList(derivedFile.absolutePath, importedFile.absolutePath, "-javaOutputPath",
+                path.toString + "/java", "-threads", "2")))
+
+        assertExpectedFiles(
+            #["java/pom.xml", "java/com.btc.prins.derived.common/pom.xml",
+                "java/com.btc.prins.derived.common/src/main/java/com/btc/prins/derived/common/ServiceFaultHandlerFactory.java",
+                "java/com.btc.prins.derived.common/src/main/java/com/btc/prins/derived/common/StructureReferencingImport.java",
+                "java/com.btc.prins.derived.protobuf/pom.xml",
+                "java/com.btc.prins.derived.protobuf/src/main/java/com/btc/prins/derived/protobuf/TypesCodec.java",
+                "java/com.btc.prins.derived.protobuf/src/main/proto/Types.proto",
+                "java/com.btc.prins.imported.common/pom.xml",
+                "java/com.btc.prins.imported.common/src/main/java/com/btc/prins/imported/common/ServiceFaultHandlerFactory.java",
+                "java/com.btc.prins.imported.protobuf/pom.xml",
+                "java/com.btc.prins.imported.protobuf/src/main/java/com/btc/prins/imported/protobuf/TypesCodec.java",
+                "java/com.btc.prins.imported.protobuf/src/main/proto/Types.proto"], path)
+        assertParentPOMModules(#["com.btc.prins.derived.common", "com.btc.prins.derived.protobuf",
+            "com.btc.prins.imported.common", "com.btc.prins.imported.protobuf"], path)
+    }
+
+    @Test
+    def void testParallelGenerationIsDeterministic()
+    {
+        val inputs = #["import-derived.idl", "import-imported.idl", "failable.idl"].map [
+            new File(TEST_DATA_DIR + it).absolutePath
+        ]
+        val path = Files.createTempDirectory("test-gen")
+        for (run : #["sequential", "parallel1", "parallel2"])
+        {
+            val args = newArrayList
+            args.addAll(inputs)
+            args.addAll("-outputPath", path.resolve(run).toString, "-threads",
+                if (run == "sequential") "1" else "4")
+            assertEquals(0, Main.mainBackend(args))
+        }
+
+        val expected = path.resolve("sequential")
+        val expectedFiles = expected.toFile.listFilesRecursively.map[expected.relativize(it.toPath)].toList
+        assertFalse(expectedFiles.empty)
+        for (run : #["parallel1", "parallel2"])
+        {
+            val actual = path.resolve(run)
+            assertSetEquals(expectedFiles, actual.toFile.listFilesRecursively.map[actual.relativize(it.toPath)])
+            for (file : expectedFiles)
+                assertEquals(file.toString, new String(Files.readAllBytes(expected.resolve(file))),
+                    new String(Files.readAllBytes(actual.resolve(file))))
+        }
+    }
+
+    @Test
+    def void testMultipleInputFilesWithCacheFile()
+    {
+        val path = Files.createTempDirectory("test-gen")
+        val derivedFile = path.resolve("import-derived.idl")
+        val importedFile = path.resolve("import-imported.idl")
+        Files.copy(new File(TEST_DATA_DIR + "import-derived.idl").toPath, derivedFile)
+        Files.copy(new File(TEST_DATA_DIR + "import-imported.idl").toPath, importedFile)
+        val args = Arrays.asList(derivedFile.toString, importedFile.toString, "-javaOutputPath",
+            path.toString + "/java", "-cacheFile", path.resolve("generation.cache").toString)
+        assertEquals(0, Main.mainBackend(args))
+
+        // only the changed input is generated again, but the parent POM still lists the modules of both inputs
+        Files.write(derivedFile, (new String(Files.readAllBytes(derivedFile)) + "\n").bytes)
+        assertEquals(0, Main.mainBackend(args))
+        assertParentPOMModules(#["com.btc.prins.derived.common", "com.btc.prins.derived.protobuf",
+            "com.btc.prins.imported.common", "com.btc.prins.imported.protobuf"], path)
+
+        // a deleted parent POM is written again, even though both inputs are skipped
+        assertTrue(path.resolve("java/pom.xml").toFile.delete)
+        assertEquals(0, Main.mainBackend(args))
+        assertParentPOMModules(#["com.btc.prins.derived.common", "com.btc.prins.derived.protobuf",
+            "com.btc.prins.imported.common", "com.btc.prins.imported.protobuf"], path)
+    }
+
+    @Test
+    def void testSkipUnchangedInputWithCacheFile()
+    {
+        val file = new File(TEST_DATA_DIR + "base.idl")
+        val path = Files.createTempDirectory("test-gen")
+        val cacheFile = path.resolve("generation.cache")
+        val args = Arrays.asList(file.absolutePath, "-javaOutputPath", path.toString + "/java", "-cacheFile",
+            cacheFile.toString)
+        assertEquals(0, Main.mainBackend(args))
+        assertTrue(cacheFile.toFile.exists)
+
+        // an unchanged input is skipped entirely as long as its outputs are unchanged as well
+        assertTrue(args.isSkipped)
+
+        // a deleted or modified output is generated again
+        val pom = path.resolve("java/pom.xml").toFile
+        val contents = Files.readAllBytes(pom.toPath)
+        assertTrue(pom.delete)
+        assertFalse(args.isSkipped)
+        assertTrue(pom.exists)
+        Files.write(pom.toPath, "modified".bytes)
+        assertFalse(args.isSkipped)
+        assertArrayEquals(contents, Files.readAllBytes(pom.toPath))
+        assertTrue(args.isSkipped)
+
+        // without the cache, the input is generated again
+        assertEquals(0, Main.mainBackend(Arrays.asList(file.absolutePath, "-javaOutputPath", path.toString + "/java")))
+        assertTrue(pom.exists)
+    }
+
+    @Test
+    def void testRegenerateInputWithChangedConfigurationFile()
+    {
+        val path = Files.createTempDirectory("test-gen")
+        val file = path.resolve("base.idl")
+        Files.copy(new File(TEST_DATA_DIR + "base.idl").toPath, file)
+        val args = Arrays.asList(file.toString, "-javaOutputPath", path.toString + "/java", "-cacheFile",
+            path.resolve("generation.cache").toString)
+        assertEquals(0, Main.mainBackend(args))
+        assertTrue(args.isSkipped)
+
+        // adding or changing a configuration file of the input invalidates its cache entry
+        val configurationFile = path.resolve("base.idl.generator")
+        Files.write(configurationFile, "generatorOptions=metrics=true\n".bytes)
+        assertFalse(args.isSkipped)
+        assertTrue(args.isSkipped)
+
+        Files.write(configurationFile, "generatorOptions=metrics=false\n".bytes)
+        assertFalse(args.isSkipped)
+    }
+
+    /**
+     * Runs the generator and returns whether it skipped its input as unchanged.
+     */
+    private static def boolean isSkipped(Iterable<String> args)
+    {
+        val output = new ByteArrayOutputStream
+        val originalOut = System.out
+        System.setOut(new PrintStream(output, true))
+        try
+        {
+            assertEquals(0, Main.mainBackend(args))
+        }
+        finally
+        {
+            System.setOut(originalOut)
+        }
+        output.toString.contains("Skipping unchanged input")
+    }
+
+    @Test
+    def void testGeneratorServerWithClient()
+    {
+        val file = new File(TEST_DATA_DIR + "base.idl")
+        val path = Files.createTempDirectory("test-gen")
+        val port = new ServerSocket(0) => [close]
+        val serverThread = new Thread([Main.mainBackend(#["-" + Main.OPTION_SERVER, port.localPort.toString])])
+        serverThread.start
+        awaitConnectable(port.localPort)
+
+        // the output of the request is sent to the client only, and not to the console of the server
+        val output = new ByteArrayOutputStream
+        val serverOutput = new ByteArrayOutputStream
+        val originalOut = System.out
+        System.setOut(new PrintStream(serverOutput, true))
+        try
+        {
+            assertEquals(0, GeneratorClient.clientBackend(
+                #[port.localPort.toString, file.absolutePath, "-javaOutputPath", path.toString + "/java"],
+                new PrintStream(output)))
+        }
+        finally
+        {
+            System.setOut(originalOut)
+        }
+        assertTrue(output.toString.contains("Code generation finished."))
+        assertFalse(serverOutput.toString.contains("Code generation finished."))
+        assertTrue(path.resolve("java/pom.xml").toFile.exists)
+
+        assertEquals(0, GeneratorClient.clientBackend(#[port.localPort.toString, GeneratorServer.SHUTDOWN_REQUEST],
+            new PrintStream(new ByteArrayOutputStream)))
+        serverThread.join
+    }
+
+    @Test
+    def void testGeneratorServerSurvivesFailedRequest()
+    {
+        val server = new GeneratorServer(0, [ args, output |
+            if (args.head == "fail")
+                throw new StackOverflowError
+            output.println("Processed " + args.head)
+            0
+        ])
+        val serverThread = new Thread([server.serve])
+        serverThread.start
+
+        val failedOutput = new ByteArrayOutputStream
+        assertEquals(Main.EXIT_CODE_GENERATION_FAILED,
+            GeneratorClient.clientBackend(#[server.port.toString, "fail"], new PrintStream(failedOutput)))
+        assertTrue(failedOutput.toString.contains("StackOverflowError"))
+
+        val output = new ByteArrayOutputStream
+        assertEquals(0, GeneratorClient.clientBackend(#[server.port.toString, "next"], new PrintStream(output)))
+        assertTrue(output.toString.contains("Processed next"))
+
+        assertEquals(0, GeneratorClient.clientBackend(#[server.port.toString, GeneratorServer.SHUTDOWN_REQUEST],
+            new PrintStream(new ByteArrayOutputStream)))
+        serverThread.join
+    }
+
+    @Test
+    def void testGeneratorServerReusesImports()
+    {
+        val path = Files.createTempDirectory("test-gen")
+        val derivedFile = new File(TEST_DATA_DIR + "import-derived.idl")
+        val importedFile = path.resolve("import-imported.idl")
+        Files.copy(new File(TEST_DATA_DIR + "import-imported.idl").toPath, importedFile)
+
+        val port = new ServerSocket(0) => [close]
+        val serverThread = new Thread([Main.mainBackend(#["-" + Main.OPTION_SERVER, port.localPort.toString])])
+        serverThread.start
+        awaitConnectable(port.localPort)
+
+        val request = #[port.localPort.toString, derivedFile.absolutePath, "-import", importedFile.toString,
+            "-javaOutputPath", path.toString + "/java"]
+        val firstOutput = new ByteArrayOutputStream
+        assertEquals(0, GeneratorClient.clientBackend(request, new PrintStream(firstOutput)))
+        assertFalse(firstOutput.toString.contains("Reusing"))
+
+        // the second request is served from the import files loaded by the first one
+        val pom = path.resolve("java/com.btc.prins.derived.common/pom.xml").toFile
+        assertTrue(pom.delete)
+        val secondOutput = new ByteArrayOutputStream
+        assertEquals(0, GeneratorClient.clientBackend(request, new PrintStream(secondOutput)))
+        assertTrue(secondOutput.toString.contains("Reusing 1 loaded import file(s)."))
+        assertTrue(secondOutput.toString.contains("Code generation finished."))
+        assertTrue(pom.exists)
+
+        // a modified import file is loaded again
+        assertTrue(importedFile.toFile.setLastModified(importedFile.toFile.lastModified + 2000))
+        val thirdOutput = new ByteArrayOutputStream
+        assertEquals(0, GeneratorClient.clientBackend(request, new PrintStream(thirdOutput)))
+        assertFalse(thirdOutput.toString.contains("Reusing"))
+
+        assertEquals(0, GeneratorClient.clientBackend(#[port.localPort.toString, GeneratorServer.SHUTDOWN_REQUEST],
+            new PrintStream(new ByteArrayOutputStream)))
+        serverThread.join
+    }
+
+    private static def void awaitConnectable(int port)
+    {
+        for (var attempt = 0;; attempt++)
+        {
+            try
+            {
+                // an empty request is answered with an error, but keeps the server running
+                new Socket(InetAddress.loopbackAddress, port).close
+                return
+            }
+            catch (ConnectException ex)
+            {
+                if (attempt == 100)
+                    throw ex
+                Thread.sleep(100)
+            }
+        }
+    }
+
+    @Test
+    def void testInvalidThreadCount()
+    {
+        val file = new File(TEST_DATA_DIR + "base.idl")
+        val path = Files.createTempDirectory("test-gen")
+        assertEquals(1, Main.mainBackend(Arrays.asList(file.absolutePath, "-outputPath", path.toString, "-threads", "0")))
 
         assertExpectedFiles(#[], path)
     }
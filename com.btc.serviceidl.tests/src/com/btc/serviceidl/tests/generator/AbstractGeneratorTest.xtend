@@ -13,12 +13,14 @@ package com.btc.serviceidl.tests.generator
 import com.btc.serviceidl.generator.DefaultGenerationSettingsProvider
 import com.btc.serviceidl.generator.IGenerationSettingsProvider
 import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.idl.IDLSpecification
 import java.util.HashSet
 import java.util.Map
 import java.util.Map.Entry
 import java.util.Set
+import java.util.regex.Pattern
 import javax.inject.Inject
 import org.eclipse.xtext.generator.GeneratorContext
 import org.eclipse.xtext.generator.IGenerator2
@@ -42,6 +44,22 @@ class AbstractGeneratorTest
 
     def void checkGenerators(CharSequence input, Set<ArtifactNature> artifactNatures, Set<ProjectType> projectTypes,
         String cppProjectSystem, Iterable<Entry<String, String>> versions, int fileCount, Map<String, String> contents)
+    {
+        checkGenerators(input, artifactNatures, projectTypes, cppProjectSystem, versions, null, fileCount, contents)
+    }
+
+    def void checkGenerators(CharSequence input, Set<ArtifactNature> artifactNatures, Set<ProjectType> projectTypes,
+        String cppProjectSystem, Iterable<Entry<String, String>> versions,
+        Iterable<Entry<String, String>> generatorOptions, int fileCount, Map<String, String> contents)
+    {
+        val fsa = generate(input, artifactNatures, projectTypes, cppProjectSystem, versions, generatorOptions)
+        assertEquals(fileCount, fsa.textFiles.size)
+        contents.forEach([k, v|checkFile(fsa, k, v)])
+    }
+
+    def InMemoryFileSystemAccess generate(CharSequence input, Set<ArtifactNature> artifactNatures,
+        Set<ProjectType> projectTypes, String cppProjectSystem, Iterable<Entry<String, String>> versions,
+        Iterable<Entry<String, String>> generatorOptions)
     {
         val spec = input.parse
         val fsa = new InMemoryFileSystemAccess
@@ -52,12 +70,39 @@ class AbstractGeneratorTest
         overrides.languages = new HashSet<ArtifactNature>(artifactNatures)
         overrides.cppProjectSystem = cppProjectSystem
         overrides.versions = versions
+        overrides.generatorOptions = generatorOptions
         defaultGenerationSettingsProvider.configureOverrides(overrides)
 
         underTest.doGenerate(spec.eResource, fsa, new GeneratorContext)
         println(fsa.textFiles.keySet.join("\n"))
-        assertEquals(fileCount, fsa.textFiles.size)
-        contents.forEach([k, v|checkFile(fsa, k, v)])
+        fsa
+    }
+
+    /**
+     * Checks that the API enumeration emitted into the file ending with apiFileSuffix declares each value at the
+     * position given by its number in the emitted .proto file, which the enum codecs rely on.
+     */
+    def void checkEnumOrdinals(InMemoryFileSystemAccess fsa, String enumName, String apiFileSuffix)
+    {
+        val apiValues = fsa.enumBody(apiFileSuffix, "enum\\s+(?:class\\s+)?" + enumName).split(",").map[trim].toList
+        val protobufNumbers = <String, Integer>newHashMap
+        val matcher = Pattern.compile("(\\w+)\\s*=\\s*(\\d+)\\s*;").matcher(fsa.enumBody(".proto", "enum\\s+" + enumName))
+        while (matcher.find)
+            protobufNumbers.put(matcher.group(1), Integer.valueOf(matcher.group(2)))
+
+        assertFalse(apiValues.empty)
+        assertEquals(apiValues.size, protobufNumbers.size)
+        apiValues.forEach [ value, ordinal |
+            assertEquals(value, ordinal + GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET, protobufNumbers.get(value) as int)
+        ]
     }
 
+    private static def String enumBody(InMemoryFileSystemAccess fsa, String fileSuffix, String enumPattern)
+    {
+        val file = fsa.textFiles.entrySet.findFirst[key.endsWith(fileSuffix)]
+        assertNotNull("No generated file ending with " + fileSuffix, file)
+        val matcher = Pattern.compile(enumPattern + "\\s*\\{([^}]*)\\}").matcher(file.value)
+        assertTrue("No enumeration " + enumPattern + " in " + file.key, matcher.find)
+        matcher.group(1)
+    }
 }
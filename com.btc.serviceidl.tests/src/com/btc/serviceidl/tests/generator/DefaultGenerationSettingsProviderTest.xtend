@@ -13,6 +13,7 @@ package com.btc.serviceidl.tests.generator
 import com.btc.serviceidl.generator.DefaultGenerationSettings
 import com.btc.serviceidl.generator.DefaultGenerationSettingsProvider
 import com.btc.serviceidl.generator.DefaultGenerationSettingsProvider.OptionalGenerationSettings
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.Main
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.PackageInfo
@@ -107,13 +108,13 @@ class DefaultGenerationSettingsProviderTest
     {
         val defaultGenerationSettingsProvider = new DefaultGenerationSettingsProvider
         defaultGenerationSettingsProvider.configureGenerationSettings(null,
-            #{}, #{Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS -> "foo"}.entrySet, null, null, null,
+            #{}, #{GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS -> "foo"}.entrySet, null, null, null,
             null)
         assertTrue(defaultGenerationSettingsProvider.getSettings(TestData.basic.parse.eResource).hasGeneratorOption(
-                Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS))
+                GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS))
         assertEquals("foo",
             defaultGenerationSettingsProvider.getSettings(TestData.basic.parse.eResource).getGeneratorOption(
-                Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS))
+                GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS))
     }
 
     @Test
@@ -10,6 +10,8 @@
  **********************************************************************/
 package com.btc.serviceidl.tests.generator.cpp
 
+import com.btc.serviceidl.generator.DefaultGenerationSettingsProvider
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.IGenerationSettingsProvider
 import com.btc.serviceidl.generator.Main
 import com.btc.serviceidl.generator.common.ArtifactNature
@@ -29,6 +31,9 @@ import org.eclipse.xtext.testing.XtextRunner
 import org.junit.Test
 import org.junit.runner.RunWith
 
+import static extension com.btc.serviceidl.tests.TestExtensions.*
+import static org.junit.Assert.*
+
 @RunWith(XtextRunner)
 @InjectWith(IdlInjectorProvider)
 class CppGeneratorTest extends AbstractGeneratorTest
@@ -224,7 +229,7 @@ class CppGeneratorTest extends AbstractGeneratorTest
     def void testFullWithSkeletonCmake()
     {
         val fileCount = 49
-        val projectTypes = ProjectType.values.toSet
+        val projectTypes = DefaultGenerationSettingsProvider.FULL_WITH_SKELETON_PERSISTENT_PROJECT_SET
 
         val contents = ImmutableMap.of(ArtifactNature.CPP.label + "conanfile.py", '''
             from conan_template import *
@@ -547,6 +552,313 @@ class CppGeneratorTest extends AbstractGeneratorTest
             #{"cpp.servicecomm" -> "0.11"}.entrySet, fileCount, contents)
     }
 
+    @Test
+    def void testDispatcherSwitchesOnRequestCase()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    GetName() returns string;
+                    sync SetName(in string name) returns void;
+                };
+            }
+        '''
+        val directory = ArtifactNature.CPP.label + "modules/foo/Dispatcher/"
+
+        val fsa = generateCpp(input, setOf(ProjectType.DISPATCHER), null)
+
+        val header = fsa.textFiles.get(directory + "include/CSvcDispatcher.h").toString.normalize
+        assertTrue(header.contains('''
+            BTC::ServiceComm::Commons::ConstMessagePartPtr HandleGetNameRequest( foo::Protobuf::SvcRequest const& protoBufRequest );
+            BTC::ServiceComm::Commons::ConstMessagePartPtr HandleSetNameRequest( foo::Protobuf::SvcRequest const& protoBufRequest );
+        '''.toString.normalize))
+
+        val source = fsa.textFiles.get(directory + "source/CSvcDispatcher.cpp").toString
+        assertTrue(source.normalize.contains('''
+            switch ( protoBufRequest->request_case() )
+            {
+            case foo::Protobuf::SvcRequest::kGetNameRequest:
+               return HandleGetNameRequest( *protoBufRequest );
+            case foo::Protobuf::SvcRequest::kSetNameRequest:
+               return HandleSetNameRequest( *protoBufRequest );
+            default:
+               break;
+            }
+        '''.toString.normalize))
+        assertTrue(source.normalize.contains(
+            "BTC::ServiceComm::Commons::ConstMessagePartPtr CSvcDispatcher::HandleGetNameRequest( foo::Protobuf::SvcRequest const& protoBufRequest )"))
+        assertFalse(source.contains("has_get_name_request"))
+    }
+
+    @Test
+    def void testDispatcherWithMetrics()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    sync SetName(in string name) returns void;
+                };
+            }
+        '''
+        val directory = ArtifactNature.CPP.label + "modules/foo/Dispatcher/"
+
+        val fsa = generateCpp(input, setOf(ProjectType.DISPATCHER), #{GeneratorOptions.METRICS -> "true"}.entrySet)
+
+        val header = fsa.textFiles.get(directory + "include/CSvcDispatcher.h").toString.normalize
+        assertTrue(header.contains('''
+            virtual void Record( char const* operation, Phase phase, std::chrono::nanoseconds duration ) = 0;
+        '''.toString.normalize))
+        assertTrue(header.contains('''
+            ,BTC::Commons::Core::AutoPtr< IMetrics > metrics = BTC::Commons::Core::AutoPtr< IMetrics >()
+        '''.toString.normalize))
+
+        val source = fsa.textFiles.get(directory + "source/CSvcDispatcher.cpp").toString.normalize
+        assertTrue(source.contains('''
+            case foo::Protobuf::SvcRequest::kSetNameRequest:
+               RecordMetrics( "SetName", IMetrics::Phase::Parse, parseStart );
+               return HandleSetNameRequest( *protoBufRequest );
+        '''.toString.normalize))
+        assertTrue(source.contains('''
+            auto name( concreteRequest.name() );
+            // decode request <--
+            phaseStart = RecordMetrics( "SetName", IMetrics::Phase::Decode, phaseStart );
+        '''.toString.normalize))
+        assertTrue(source.contains('''
+            phaseStart = RecordMetrics( "SetName", IMetrics::Phase::Encode, phaseStart );
+            auto responseMessage( BTC::ServiceComm::ProtobufUtil::ProtobufSupport::ProtobufToMessagePart(
+                  GetMessagePartPool()
+                 ,*response ) );
+            RecordMetrics( "SetName", IMetrics::Phase::Serialize, phaseStart );
+            return responseMessage;
+        '''.toString.normalize))
+        assertTrue(source.contains('''
+            if (m_metrics)
+               m_metrics->Record( operation, phase, std::chrono::duration_cast< std::chrono::nanoseconds >(end - start) );
+        '''.toString.normalize))
+
+        val plain = generateCpp(input, setOf(ProjectType.DISPATCHER), null)
+        assertFalse(plain.textFiles.get(directory + "include/CSvcDispatcher.h").toString.contains("Metrics"))
+        assertFalse(plain.textFiles.get(directory + "source/CSvcDispatcher.cpp").toString.contains("Metrics"))
+    }
+
+    @Test
+    def void testProxyWithQueryCache()
+    {
+        val input = '''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    sync query GetValue(in string key, out int32 revision) returns int32;
+                    query GetNames(in string prefix) returns sequence<string>;
+                };
+            }
+        '''
+        val directory = ArtifactNature.CPP.label + "modules/foo/Proxy/"
+
+        val fsa = generateCpp(input, setOf(ProjectType.PROXY),
+            #{GeneratorOptions.QUERY_CACHE_SIZE -> "100", GeneratorOptions.QUERY_CACHE_TTL_MILLIS -> "500"}.entrySet)
+
+        assertTrue(fsa.textFiles.get(directory + "include/CTestProxy.h").toString.normalize.contains('''
+            class CQueryCache;
+            BTC::Commons::Core::UniquePtr< CQueryCache > m_queryCache;
+        '''.toString.normalize))
+        val source = fsa.textFiles.get(directory + "source/CTestProxy.cpp").toString.normalize
+        assertTrue(source.contains('''
+            , m_queryCache( BTC::Commons::Core::CreateUnique< CQueryCache >( 100, std::chrono::milliseconds( 500 ) ) )
+        '''.toString.normalize))
+        assertTrue(source.contains('''
+            typedef std::shared_ptr< foo::Protobuf::TestResponse const > ResponsePtr;
+        '''.toString.normalize))
+        // blocking queries share calls in flight, and each decodes the cached response on its own
+        assertTrue(source.contains('''
+            auto const decode = [&]( CQueryCache::ResponsePtr const& response ) -> int32_t
+            {
+               // decode response -->
+               auto const& concreteResponse( response->get_value_response() );
+               // handle [out] parameters
+               revision = concreteResponse.revision();
+               return concreteResponse.get_value();
+               // decode response <--
+            };
+
+            // identical queries are answered from the cache
+            return decode( m_queryCache->Get( request->SerializeAsString(), [&]
+            {
+               return RequestAsyncUnmarshal< CQueryCache::ResponsePtr >( *request, &CQueryCache::Share ).Get();
+            } ) );
+        '''.toString.normalize))
+        // asynchronous queries use received responses, and add their own
+        assertTrue(source.contains('''
+            auto requestBytes( request->SerializeAsString() );
+            if (auto const response = m_queryCache->Find( requestBytes ))
+               return BTC::Commons::CoreExtras::MakeReadyFuture( decode( response ) );
+
+            return RequestAsyncUnmarshal< BTC::Commons::Core::ForwardConstIterator< std::string > >( *request, [this, requestBytes, decode]( BTC::Commons::Core::UniquePtr< foo::Protobuf::TestResponse > response )
+            {
+               auto const sharedResponse( CQueryCache::Share( std::move(response) ) );
+               m_queryCache->Put( requestBytes, sharedResponse );
+               return decode( sharedResponse );
+            } );
+        '''.toString.normalize))
+
+        val plain = generateCpp(input, setOf(ProjectType.PROXY), null)
+        assertFalse(plain.textFiles.get(directory + "source/CTestProxy.cpp").toString.contains("QueryCache"))
+    }
+
+    @Test
+    def void testDirectSequenceDecoding()
+    {
+        val input = '''
+            module foo
+            {
+                struct Row { string name; uuid id; };
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] { GetRows() returns sequence<Row>; };
+            }
+        '''
+        val codecFile = ArtifactNature.CPP.label + "modules/foo/Protobuf/include/SvcCodec.h"
+
+        val direct = generateCpp(input, setOf(ProjectType.PROTOBUF),
+            #{GeneratorOptions.CPP_DIRECT_SEQUENCE_DECODING -> "true"}.entrySet).textFiles.get(codecFile).
+            toString
+        assertTrue(direct.normalize.contains('''
+            inline BTC::Commons::Core::ForwardConstIterator< BTC::Commons::CoreExtras::UUID > DecodeUUID(google::protobuf::RepeatedPtrField< std::string > const& protobufInput)
+            {
+               BTC::Commons::Core::AutoPtr< BTC::Commons::CoreStd::Collection< BTC::Commons::CoreExtras::UUID > > entries( new BTC::Commons::CoreStd::Collection< BTC::Commons::CoreExtras::UUID >() );
+               entries->Reserve( protobufInput.size() );
+
+               std::for_each( protobufInput.begin(), protobufInput.end(), [ &entries ]( std::string const& protobufEntry )
+               {  entries->Add( DecodeUUID(protobufEntry) ); } );
+
+               return BTC::Commons::CoreExtras::MakeOwningForwardConstIterator< BTC::Commons::CoreExtras::UUID >( entries.Move() );
+            }
+        '''.toString.normalize))
+        assertFalse(direct.contains("CreateDefaultAsyncInsertable"))
+
+        val buffered = generateCpp(input, setOf(ProjectType.PROTOBUF), null).textFiles.get(codecFile).toString
+        assertTrue(buffered.contains("CreateDefaultAsyncInsertable"))
+        assertFalse(buffered.contains("entries->Add( DecodeUUID(protobufEntry) );"))
+    }
+
+    @Test
+    def void testFailableCodec()
+    {
+        val input = '''
+            module foo
+            {
+                struct Entry { string name; };
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    GetEntries() returns sequence<failable Entry>;
+                    GetIds() returns sequence<failable uuid>;
+                };
+            }
+        '''
+
+        val codec = generateCpp(input, setOf(ProjectType.PROTOBUF), null).textFiles.get(
+            ArtifactNature.CPP.label + "modules/foo/Protobuf/include/SvcCodec.h").toString
+        assertTrue(codec.normalize.contains('''
+            foo::Common::Entry DecodeFailable(foo::Protobuf::Failable_foo_Svc_Foo_Entry const& protobufInput);
+        '''.toString.normalize))
+        assertTrue(codec.normalize.contains('''
+            inline foo::Common::Entry DecodeFailable(foo::Protobuf::Failable_foo_Svc_Foo_Entry const& protobufEntry)
+            {
+               return foo::Protobuf::TypesCodec::Decode(protobufEntry.value());
+            }
+
+            inline void EncodeFailable(foo::Common::Entry const& apiInput, foo::Protobuf::Failable_foo_Svc_Foo_Entry * const protobufOutput)
+            {
+               foo::Protobuf::TypesCodec::Encode(apiInput, protobufOutput->mutable_value());
+            }
+            inline BTC::Commons::CoreExtras::UUID DecodeFailable(foo::Protobuf::Failable_foo_Svc_Uuid const& protobufEntry)
+            {
+               return foo::Protobuf::SvcCodec::DecodeUUID(protobufEntry.value());
+            }
+
+            inline void EncodeFailable(BTC::Commons::CoreExtras::UUID const& apiInput, foo::Protobuf::Failable_foo_Svc_Uuid * const protobufOutput)
+            {
+               Encode(apiInput, protobufOutput->mutable_value());
+            }
+        '''.toString.normalize))
+    }
+
+    @Test
+    def void testEnumOrdinalsMatchProtobufNumbers()
+    {
+        val fsa = generateCpp('''
+            module foo
+            {
+                enum Color { red, green, blue };
+            }
+        ''', setOf(ProjectType.COMMON, ProjectType.PROTOBUF), null)
+
+        fsa.checkEnumOrdinals("Color", "/Types.h")
+    }
+
+    @Test
+    def void testBenchmark()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    struct Item { string key; };
+                    GetItems() returns sequence<Item>;
+                    sync SetName(in string name) returns void;
+                };
+            }
+        '''
+
+        val fsa = generateCpp(input, setOf(ProjectType.BENCHMARK), null)
+        val benchmark = fsa.textFiles.entrySet.findFirst[key.endsWith("/SvcBenchmark.cpp")].value.toString
+        assertTrue(benchmark.contains("benchmark/benchmark.h"))
+        assertTrue(benchmark.normalize.contains('''
+            return BTC::Commons::CoreExtras::MakeReadyFuture( BTC::Commons::CoreExtras::MakeOwningForwardConstIterator< foo::ServiceAPI::Item >( BTC::Commons::Core::CreateAuto< BTC::Commons::CoreStd::Collection< foo::ServiceAPI::Item > >() ) );
+        '''.toString.normalize))
+        assertTrue(benchmark.normalize.contains('''
+            void Svc_EncodeItem( benchmark::State& state )
+            {
+               foo::ServiceAPI::Item const plain{};
+               for (auto _ : state)
+               {
+                  foo::Protobuf::Item encoded;
+                  foo::Protobuf::SvcCodec::Encode( plain, &encoded );
+                  benchmark::DoNotOptimize( encoded );
+               }
+            }
+            BENCHMARK( Svc_EncodeItem );
+        '''.toString.normalize))
+        assertTrue(benchmark.normalize.contains('''
+            void Svc_DispatchSetName( benchmark::State& state )
+            {
+               SvcBenchmarkContainer container;
+
+               foo::Protobuf::SvcRequest request;
+               auto * const concreteRequest( request.mutable_set_name_request() );
+               std::string const name{};
+               concreteRequest->set_name(name);
+               auto const requestPart( BTC::ServiceComm::ProtobufUtil::ProtobufSupport::ProtobufToMessagePart( container.GetMessagePartPool(), request ) );
+               BTC::ServiceComm::Commons::EndpointIdentity const clientIdentity;
+
+               for (auto _ : state)
+                  benchmark::DoNotOptimize( container.GetDispatcher().ProcessRequest( requestPart, clientIdentity ) );
+            }
+            BENCHMARK( Svc_DispatchSetName );
+        '''.toString.normalize))
+        assertTrue(benchmark.contains("request.mutable_get_items_request();"))
+        assertFalse(fsa.textFiles.keySet.exists[endsWith("/SvcBenchmark.h")])
+    }
+
+    private def generateCpp(CharSequence input, Set<ProjectType> projectTypes,
+        Iterable<Entry<String, String>> generatorOptions)
+    {
+        generate(input, setOf(ArtifactNature.CPP), projectTypes, Main.OPTION_VALUE_CPP_PROJECT_SYSTEM_PRINS_VCXPROJ,
+            null, generatorOptions)
+    }
+
     def void checkGenerators(CharSequence input, Set<ProjectType> projectTypes, String cppProjectSystem,
         Iterable<Entry<String, String>> versions, int fileCount, Map<String, String> contents)
     {
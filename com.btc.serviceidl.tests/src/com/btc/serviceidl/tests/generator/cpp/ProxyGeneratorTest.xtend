@@ -12,8 +12,8 @@ package com.btc.serviceidl.tests.generator.cpp
 
 import com.btc.serviceidl.generator.DefaultGenerationSettingsProvider
 import com.btc.serviceidl.generator.DefaultGenerationSettingsProvider.OptionalGenerationSettings
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.IGenerationSettingsProvider
-import com.btc.serviceidl.generator.Main
 import com.btc.serviceidl.generator.common.ParameterBundle
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.cpp.CppConstants
@@ -35,6 +35,8 @@ import org.eclipse.xtext.testing.util.ParseHelper
 import org.junit.Test
 import org.junit.runner.RunWith
 
+import static org.junit.Assert.assertTrue
+
 import static extension com.btc.serviceidl.util.Extensions.*
 import static extension com.btc.serviceidl.util.Util.*
 
@@ -45,6 +47,13 @@ class ProxyGeneratorTest extends AbstractGeneratorTest
     @Inject extension ParseHelper<IDLSpecification>
 
     private def testWithSettings(OptionalGenerationSettings additionalSettings)
+    {
+        generateProxy(TestData.basic.parse, additionalSettings)
+
+    // TODO currently this is only a smoke test
+    }
+
+    private def generateProxy(IDLSpecification input, OptionalGenerationSettings additionalSettings)
     {
         val qualifiedNameProvider = new DefaultDeclarativeQualifiedNameProvider
         val projectSet = new CMakeProjectSet
@@ -53,24 +62,20 @@ class ProxyGeneratorTest extends AbstractGeneratorTest
         val projectReferences = newArrayList
         val cabLibs = newArrayList
         val smartPointerMap = newHashMap
-        val input = TestData.basic.parse
         val mainModule = input.effectiveMainModule
         val paramBundle = new ParameterBundle(mainModule.moduleStack, ProjectType.PROXY)
         val proxyGenerator = new ProxyGenerator(
             new TypeResolver(qualifiedNameProvider, projectSet, moduleStructureStrategy, generationSettings,
                 projectReferences, cabLibs, smartPointerMap), generationSettings, paramBundle)
 
-        val contents = proxyGenerator.generateImplementationFileBody(
-            mainModule.moduleComponents.filter(InterfaceDeclaration).head)
-
-    // TODO currently this is only a smoke test
+        proxyGenerator.generateImplementationFileBody(mainModule.moduleComponents.filter(InterfaceDeclaration).head)
     }
 
     @Test
     def void testWithTimeoutOverride()
     {
         val additionalSettings = new OptionalGenerationSettings()
-        additionalSettings.generatorOptions = #{Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS -> "42"}.entrySet
+        additionalSettings.generatorOptions = #{GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS -> "42"}.entrySet
 
         testWithSettings(additionalSettings)
     }
@@ -79,10 +84,26 @@ class ProxyGeneratorTest extends AbstractGeneratorTest
     def void testWithTimeoutOverride_V0_10()
     {
         val additionalSettings = new OptionalGenerationSettings()
-        additionalSettings.generatorOptions = #{Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS -> "42"}.entrySet
+        additionalSettings.generatorOptions = #{GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS -> "42"}.entrySet
         additionalSettings.versions = #{CppConstants.SERVICECOMM_VERSION_KIND -> ServiceCommVersion.V0_10.label}.
             entrySet
 
         testWithSettings(additionalSettings)
     }
+
+    @Test
+    def void testReserveFromTypicalSequenceLength()
+    {
+        val input = '''
+            module foo
+            {
+                struct Bar { int32 x; };
+                interface Svc { Put(in sequence<Bar> [typical sequence length = 32] bars) returns void; };
+            }
+        '''.parse
+
+        val contents = generateProxy(input, new OptionalGenerationSettings())
+
+        assertTrue(contents.toString.contains("concreteRequest->mutable_bars()->Reserve( 32 );"))
+    }
 }
@@ -10,6 +10,7 @@
  **********************************************************************/
 package com.btc.serviceidl.tests.generator.dotnet
 
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.tests.IdlInjectorProvider
@@ -19,13 +20,16 @@ import java.util.Arrays
 import java.util.Calendar
 import java.util.HashSet
 import java.util.Map
+import java.util.Map.Entry
 import java.util.Set
 import org.eclipse.xtext.testing.InjectWith
 import org.eclipse.xtext.testing.XtextRunner
 import org.junit.Test
 import org.junit.runner.RunWith
 
-import static com.btc.serviceidl.tests.TestExtensions.*
+import static org.junit.Assert.*
+
+import static extension com.btc.serviceidl.tests.TestExtensions.*
 
 @RunWith(XtextRunner)
 @InjectWith(IdlInjectorProvider)
@@ -253,6 +257,291 @@ class DotNetGeneratorTest extends AbstractGeneratorTest
             fileCount, contents)
     }
 
+    @Test
+    def void testDispatcherDelegatesToRequestHandlers()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    GetName() returns string;
+                    sync SetName(in string name) returns void;
+                };
+            }
+        '''
+
+        val dispatcher = generateDotNet(input, setOf(ProjectType.DISPATCHER), null).textFiles.get(
+            ArtifactNature.DOTNET.label + "foo.NET/Dispatcher/SvcDispatcher.cs").toString
+        assertTrue(dispatcher.normalize.contains('''
+            public override Byte[] ProcessRequest(byte[] requestBuffer, IPeerIdentity peerIdentity)
+            {
+               var request = foo.NET.Protobuf.SvcRequest.ParseFrom(requestBuffer);
+
+               if (request.HasGetNameRequest)
+                  return HandleGetNameRequest(request);
+               else if (request.HasSetNameRequest)
+                  return HandleSetNameRequest(request);
+
+               throw new InvalidRequestReceivedException("Unknown or invalid request");
+            }
+
+            private byte[] HandleGetNameRequest(foo.NET.Protobuf.SvcRequest request)
+            {
+               // call actual method
+               var result = _dispatchee.GetName
+                  (
+                  ).Result; // retrieve the result in order to trigger exceptions
+
+               // deliver response
+               var responseBuilder = foo.NET.Protobuf.SvcResponse.Types.GetNameResponse.CreateBuilder()
+                  .SetGetName(result)
+                  ;
+
+               var response = foo.NET.Protobuf.SvcResponse.CreateBuilder().SetGetNameResponse(responseBuilder).Build();
+               return response.ToByteArray();
+            }
+
+            private byte[] HandleSetNameRequest(foo.NET.Protobuf.SvcRequest request)
+            {
+               // call actual method
+               _dispatchee.SetName
+                  (
+                     request.SetNameRequest.Name
+                  );
+
+               // deliver response
+               var responseBuilder = foo.NET.Protobuf.SvcResponse.Types.SetNameResponse.CreateBuilder()
+                  ;
+
+               var response = foo.NET.Protobuf.SvcResponse.CreateBuilder().SetSetNameResponse(responseBuilder).Build();
+               return response.ToByteArray();
+            }
+        '''.toString.normalize))
+    }
+
+    @Test
+    def void testDispatcherWithMetrics()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    sync SetName(in string name) returns void;
+                };
+            }
+        '''
+
+        val fsa = generateDotNet(input, setOf(ProjectType.SERVICE_API, ProjectType.DISPATCHER),
+            #{GeneratorOptions.METRICS -> "true"}.entrySet)
+        val dispatcher = fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/Dispatcher/SvcDispatcher.cs").
+            toString
+        assertTrue(dispatcher.normalize.contains('''
+            public SvcDispatcher(ISvc dispatchee, ProtoBufServerHelper protoBufHelper, IServiceMetrics metrics = null)
+        '''.toString.normalize))
+        assertTrue(dispatcher.normalize.contains('''
+            if (request.HasSetNameRequest)
+            {
+               RecordMetrics("SetName", ServiceMetricsPhase.Parse, parseStart);
+               return HandleSetNameRequest(request);
+            }
+        '''.toString.normalize))
+        assertTrue(dispatcher.normalize.contains('''
+            var phaseStart = Stopwatch.GetTimestamp();
+            var name = request.SetNameRequest.Name;
+            phaseStart = RecordMetrics("SetName", ServiceMetricsPhase.Decode, phaseStart);
+
+            // call actual method
+            _dispatchee.SetName
+               (
+                  name
+               );
+            phaseStart = RecordMetrics("SetName", ServiceMetricsPhase.Invoke, phaseStart);
+        '''.toString.normalize))
+        assertTrue(dispatcher.normalize.contains('''
+            phaseStart = RecordMetrics("SetName", ServiceMetricsPhase.Encode, phaseStart);
+            var serializedResponse = response.ToByteArray();
+            RecordMetrics("SetName", ServiceMetricsPhase.Serialize, phaseStart);
+            return serializedResponse;
+        '''.toString.normalize))
+        assertTrue(fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/ServiceAPI/IServiceMetrics.cs").toString.
+            contains("void Record(string operation, ServiceMetricsPhase phase, TimeSpan duration);"))
+
+        val plain = generateDotNet(input, setOf(ProjectType.SERVICE_API, ProjectType.DISPATCHER), null)
+        assertFalse(plain.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/Dispatcher/SvcDispatcher.cs").toString.
+            contains("Metrics"))
+        assertFalse(plain.textFiles.containsKey(ArtifactNature.DOTNET.label + "foo.NET/ServiceAPI/IServiceMetrics.cs"))
+    }
+
+    @Test
+    def void testClientConsoleLoad()
+    {
+        val fsa = generateDotNet('''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    PutNames(in sequence<string>[typical sequence length = 3] names) returns void;
+                    sync GetCount(in string key, out int32 count) returns int32;
+                };
+            }
+        ''', setOf(ProjectType.CLIENT_CONSOLE), null)
+        val program = fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/ClientConsole/Program.cs").toString
+
+        // the input parameters are built once per operation, outside of the measured call
+        assertTrue(program.normalize.contains('''
+            var operations = new Dictionary<string, Action>();
+            {
+               var key = string.Empty;
+               operations.Add("GetCount", () =>
+               {
+                  var count = default(int);
+                  proxy.GetCount(key, out count);
+               });
+            }
+            {
+               var names = Enumerable.Repeat<string>(string.Empty, 3).ToList();
+               operations.Add("PutNames", () =>
+               {
+                  proxy.PutNames(names).Wait();
+               });
+            }
+        '''.toString.normalize))
+        // the latencies are counted in a histogram of fixed size instead of being kept
+        assertTrue(program.normalize.contains('''
+            private readonly long[] _buckets = new long[(64 - SubBucketBits) * SubBucketCount];
+            public long Count;
+            public long Errors;
+
+            public void Record(long latencyTicks, bool failed)
+            {
+               _buckets[BucketOf(Math.Max(0, latencyTicks))]++;
+        '''.toString.normalize))
+        assertFalse(program.contains("new List<long>"))
+    }
+
+    @Test
+    def void testProxyWithQueryCacheServiceComm06()
+    {
+        val fsa = generate('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    sync query GetValue(in string key, out int32 revision) returns int32;
+                };
+            }
+        ''', setOf(ArtifactNature.DOTNET), setOf(ProjectType.PROXY), null, #{"dotnet.servicecomm" -> "0.6"}.entrySet,
+            #{GeneratorOptions.QUERY_CACHE_SIZE -> "100"}.entrySet)
+
+        val proxy = fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/Proxy/TestProxy.cs").toString.normalize
+        // the message buffers are consumed when parsed, so the parsed responses are cached
+        assertTrue(proxy.contains('''
+            private readonly QueryCache<foo.NET.Protobuf.TestResponse> _queryCache = new QueryCache<foo.NET.Protobuf.TestResponse>(100, 1000);
+        '''.toString.normalize))
+        assertTrue(proxy.contains('''
+            var requestBytes = protobufRequest.ToByteArray();
+            var result = _queryCache.Get(requestBytes, () => _serviceReference.RequestAsync(new MessageBuffer(requestBytes))
+               .ContinueWith(task => foo.NET.Protobuf.TestResponse.ParseFrom(task.Result.PopFront()), TaskContinuationOptions.ExecuteSynchronously)).ContinueWith(task =>
+            {
+               foo.NET.Protobuf.TestResponse response = task.Result;
+               // handle [out] parameters
+               revisionPlaceholder = response.GetValueResponse.Revision;
+               return response.GetValueResponse.GetValue;
+            });
+        '''.toString.normalize))
+        assertTrue(fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/Proxy/QueryCache.cs").toString.contains(
+            "public Task<TResponse> Get(byte[] request, Func<Task<TResponse>> call)"))
+    }
+
+    @Test
+    def void testCodecPresizesDecodedSequences()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    GetName() returns string;
+                };
+            }
+        '''
+
+        val codec = generateDotNet(input, setOf(ProjectType.PROTOBUF), null).textFiles.get(
+            ArtifactNature.DOTNET.label + "foo.NET/Protobuf/SvcCodec.cs").toString
+        assertTrue(codec.normalize.contains('''
+            private static List<TOut> newList<TOut, TIn>(IEnumerable<TIn> data)
+            {
+               var collection = data as ICollection<TIn>;
+               return collection != null ? new List<TOut>(collection.Count) : new List<TOut>();
+            }
+        '''.toString.normalize))
+        assertTrue(codec.normalize.contains('''
+            public static IEnumerable<TOut> decodeEnumerable<TOut, TIn>(IEnumerable<TIn> encodedData)
+            {
+               var plainData = newList<TOut, TIn>(encodedData);
+               foreach (var item in encodedData)
+                  plainData.Add((TOut) decode(item));
+               return plainData;
+            }
+        '''.toString.normalize))
+        assertFalse(codec.contains(".ToList()"))
+    }
+
+    @Test
+    def void testEnumOrdinalsMatchProtobufNumbers()
+    {
+        val fsa = generateDotNet('''
+            module foo
+            {
+                enum Color { red, green, blue };
+            }
+        ''', setOf(ProjectType.COMMON, ProjectType.PROTOBUF), null)
+
+        fsa.checkEnumOrdinals("Color", "/Types.cs")
+    }
+
+    @Test
+    def void testBenchmark()
+    {
+        val input = '''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    struct Item { string key; };
+                    GetName(in Item item) returns string;
+                };
+            }
+        '''
+
+        val fsa = generateDotNet(input, setOf(ProjectType.BENCHMARK), null)
+        val benchmark = fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/Benchmark/SvcBenchmark.cs").toString
+        assertTrue(benchmark.normalize.contains('''
+            [Benchmark]
+            public object EncodeItem()
+            {
+               return foo.NET.Protobuf.SvcCodec.encode(_plainItem);
+            }
+        '''.toString.normalize))
+        assertTrue(benchmark.normalize.contains('''
+            [Benchmark]
+            public byte[] DispatchGetName()
+            {
+               return _dispatcher.ProcessRequest(_getNameRequest, null);
+            }
+        '''.toString.normalize))
+        assertTrue(fsa.textFiles.get(ArtifactNature.DOTNET.label + "foo.NET/Benchmark/Program.cs").toString.contains(
+            "BenchmarkSwitcher.FromAssembly(typeof(Program).Assembly).Run(args);"))
+        assertTrue(fsa.textFiles.entrySet.findFirst[key.endsWith("Benchmark.csproj")].value.toString.contains(
+            "<OutputType>Exe</OutputType>"))
+    }
+
+    private def generateDotNet(CharSequence input, Set<ProjectType> projectTypes,
+        Iterable<Entry<String, String>> generatorOptions)
+    {
+        generate(input, setOf(ArtifactNature.DOTNET), projectTypes, null, null, generatorOptions)
+    }
+
     def void checkGenerators(CharSequence input, Set<ProjectType> projectTypes, int fileCount,
         Map<String, String> contents)
     {
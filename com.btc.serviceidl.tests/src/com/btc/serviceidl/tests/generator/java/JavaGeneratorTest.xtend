@@ -10,16 +10,22 @@
  **********************************************************************/
 package com.btc.serviceidl.tests.generator.java
 
+import com.btc.serviceidl.generator.GeneratorOptions
+import com.btc.serviceidl.generator.Main
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.tests.IdlInjectorProvider
 import com.btc.serviceidl.tests.generator.AbstractGeneratorTest
 import com.btc.serviceidl.tests.testdata.TestData
 import com.google.common.collect.ImmutableMap
+import java.net.URLClassLoader
+import java.nio.file.Files
 import java.util.Arrays
 import java.util.HashSet
 import java.util.Map
 import java.util.Set
+import java.util.UUID
+import javax.tools.ToolProvider
 import org.eclipse.xtext.generator.IFileSystemAccess
 import org.eclipse.xtext.testing.InjectWith
 import org.eclipse.xtext.testing.XtextRunner
@@ -27,6 +33,8 @@ import org.junit.Test
 import org.junit.runner.RunWith
 
 import static com.btc.serviceidl.tests.TestExtensions.*
+import static org.junit.Assert.*
+import static org.junit.Assume.*
 
 @RunWith(XtextRunner)
 @InjectWith(IdlInjectorProvider)
@@ -45,12 +53,12 @@ import com.btc.cab.servicecomm.api.IError;
 import com.foo.common.ComplexPower;
 import com.foo.common.ServiceFaultHandlerFactory;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import java.lang.reflect.Method;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 public class TypesCodec {
@@ -68,20 +76,22 @@ public class TypesCodec {
    
    @SuppressWarnings("unchecked")
    public static<TOut, TIn> Collection<TOut> encode(Collection<TIn> plainData) {
-      return
-         plainData
-         .stream()
-         .map(item -> (TOut) encode(item))
-         .collect(Collectors.toList());
+      // the elements of a sequence have a single type, so UUIDs are recognized by the first one
+      if (!plainData.isEmpty() && plainData.iterator().next() instanceof UUID)
+         return (Collection<TOut>) encodeUUIDs((Collection<UUID>) plainData);
+      
+      Collection<TOut> encodedData = new ArrayList<>(plainData.size());
+      for (TIn item : plainData)
+         encodedData.add((TOut) encode(item));
+      return encodedData;
    }
    
    public static<TOut, TIn> Collection<TOut> encodeFailable(Collection<CompletableFuture<TIn>> plainData, Class<TOut> targetType)
    {
-      return
-         plainData
-         .stream()
-         .map(item -> encodeFailableWrapper(item, targetType) )
-         .collect(Collectors.toList());
+      Collection<TOut> encodedData = new ArrayList<>(plainData.size());
+      for (CompletableFuture<TIn> item : plainData)
+         encodedData.add(encodeFailableWrapper(item, targetType));
+      return encodedData;
    }
    
    private static<TOut, TIn> TOut encodeFailableWrapper(CompletableFuture<TIn> failableData, Class<TOut> targetType)
@@ -92,21 +102,42 @@ public class TypesCodec {
    
    @SuppressWarnings("unchecked")
    public static<TOut, TIn> Collection<TOut> decode(Collection<TIn> encodedData) {
-      return
-         encodedData
-         .stream()
-         .map(item -> (item instanceof ByteString) ? (TOut) decode( (ByteString) item) : (TOut) decode(item))
-         .collect(Collectors.toList());
+      if (!encodedData.isEmpty() && encodedData.iterator().next() instanceof ByteString)
+         return (Collection<TOut>) decodeUUIDs((Collection<ByteString>) encodedData);
+      
+      Collection<TOut> plainData = new ArrayList<>(encodedData.size());
+      for (TIn item : encodedData)
+         plainData.add((TOut) decode(item));
+      return plainData;
+   }
+   
+   public static Collection<ByteString> encodeUUIDs(Collection<UUID> plainData) {
+      Collection<ByteString> encodedData = new ArrayList<>(plainData.size());
+      for (UUID item : plainData)
+         encodedData.add(encode(item));
+      return encodedData;
+   }
+   
+   public static Collection<UUID> decodeUUIDs(Collection<ByteString> encodedData) {
+      Collection<UUID> plainData = new ArrayList<>(encodedData.size());
+      for (ByteString item : encodedData)
+         plainData.add(decode(item));
+      return plainData;
    }
    
    public static ByteString encode(UUID plainData) {
       
-      byte[] rawBytes = ByteBuffer.allocate(16)
-         .putLong(plainData.getMostSignificantBits())
-         .putLong(plainData.getLeastSignificantBits())
-         .array();
+      long mostSignificantBits = plainData.getMostSignificantBits();
+      long leastSignificantBits = plainData.getLeastSignificantBits();
+      byte[] rawBytes = new byte[16];
+      for (int i = 0; i < 8; i++)
+      {
+         rawBytes[GUID_BYTE_ORDER[i]] = (byte) (mostSignificantBits >>> (56 - 8 * i));
+         rawBytes[GUID_BYTE_ORDER[i + 8]] = (byte) (leastSignificantBits >>> (56 - 8 * i));
+      }
 
-      return ByteString.copyFrom( switchByteOrder(rawBytes) );
+      // the array is not referenced anywhere else, so it does not need to be copied
+      return UnsafeByteOperations.unsafeWrap(rawBytes);
    }
    
    @SuppressWarnings( {"boxing", "unchecked"} )
@@ -154,11 +185,10 @@ public class TypesCodec {
    @SuppressWarnings("unchecked")
    public static<TOut, TIn> Collection<CompletableFuture<TOut>> decodeFailable(Collection<TIn> encodedData)
    {
-      return
-         encodedData
-         .stream()
-         .map( item -> (CompletableFuture<TOut>) decodeFailableWrapper(item) )
-         .collect(Collectors.toList());
+      Collection<CompletableFuture<TOut>> plainData = new ArrayList<>(encodedData.size());
+      for (TIn item : encodedData)
+         plainData.add(decodeFailableWrapper(item));
+      return plainData;
    }
    
    private static<TOut, TIn> CompletableFuture<TOut> decodeFailableWrapper(TIn encodedData)
@@ -208,40 +238,27 @@ public class TypesCodec {
    }
    
    public static UUID decode(ByteString encodedData) {
-      ByteBuffer byteBuffer = ByteBuffer.wrap(switchByteOrder(encodedData.toByteArray()));
-      return new UUID(byteBuffer.getLong(), byteBuffer.getLong());
+      long mostSignificantBits = 0;
+      long leastSignificantBits = 0;
+      for (int i = 0; i < 8; i++)
+      {
+         mostSignificantBits = (mostSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i]) & 0xff);
+         leastSignificantBits = (leastSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i + 8]) & 0xff);
+      }
+      return new UUID(mostSignificantBits, leastSignificantBits);
    }
    
    /**
-    * Utility function to change the endianness of the given GUID bytes.
+    * Position of each byte of a Java UUID (in big-endian order) within the encoded GUID. The encoded
+    * GUID has the format AAAAAAAA-BBBB-CCCC-DDDD-EEEEEEEEEEEE, where the AAAAAAAA, BBBB and CCCC groups
+    * are in little-endian order. Swapping the bytes is its own inverse, so this is used in both directions.
     */
-   private static byte[] switchByteOrder(byte[] rawBytes) {
-      
-      // raw GUID data have this format: AAAAAAAA-BBBB-CCCC-DDDD-EEEEEEEEEEEE
-      byte[] switchedBytes = new byte[16];
-
-      // switch AAAAAAAA bytes
-      switchedBytes[0] = rawBytes[3];
-      switchedBytes[1] = rawBytes[2];
-      switchedBytes[2] = rawBytes[1];
-      switchedBytes[3] = rawBytes[0];
-
-      // switch BBBB bytes
-      switchedBytes[4] = rawBytes[5];
-      switchedBytes[5] = rawBytes[4];
-
-      // switch CCCC bytes
-      switchedBytes[6] = rawBytes[7];
-      switchedBytes[7] = rawBytes[6];
-
-      // switch EEEEEEEEEEEE bytes
-      for (int i = 8; i < 16; i++)
-         switchedBytes[i] = rawBytes[i];
-
-      return switchedBytes;
-   }
+   private static final int[] GUID_BYTE_ORDER = { 3, 2, 1, 0, 5, 4, 7, 6, 8, 9, 10, 11, 12, 13, 14, 15 };
    
-   @SuppressWarnings("boxing")
+   /**
+    * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+    * instead, which are bound at compile time.
+    */
    public static Object encode(Object plainData) {
    
       if (plainData == null)
@@ -251,35 +268,50 @@ public class TypesCodec {
          return encode( (UUID) plainData );
 
       if (plainData instanceof ComplexPower)
-      {
-         ComplexPower typedData = (ComplexPower) plainData;
-         com.foo.protobuf.Types.ComplexPower.Builder builder
-            = com.foo.protobuf.Types.ComplexPower.newBuilder();
-         builder.setPMw(typedData.getP_MW());
-         return builder.build();
-      }
+         return encode( (ComplexPower) plainData );
       
       return plainData;
    }
    
-   @SuppressWarnings("boxing")
+   /**
+    * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+    * instead, which are bound at compile time.
+    */
    public static Object decode(Object encodedData) {
    
       if (encodedData == null)
          throw new NullPointerException();
    
       if (encodedData instanceof com.foo.protobuf.Types.ComplexPower)
-      {
-         com.foo.protobuf.Types.ComplexPower typedData = (com.foo.protobuf.Types.ComplexPower) encodedData;
-         Double p_MW = typedData.getPMw();
-         
-         return new ComplexPower (
-            p_MW
-         );
-      }
+         return decode( (com.foo.protobuf.Types.ComplexPower) encodedData );
       
       return encodedData;
    }
+   
+   @SuppressWarnings("boxing")
+   public static com.foo.protobuf.Types.ComplexPower encode(ComplexPower typedData) {
+   
+      if (typedData == null)
+         throw new NullPointerException();
+   
+      com.foo.protobuf.Types.ComplexPower.Builder builder
+         = com.foo.protobuf.Types.ComplexPower.newBuilder();
+      builder.setPMw(typedData.getP_MW());
+      return builder.build();
+   }
+   
+   @SuppressWarnings("boxing")
+   public static ComplexPower decode(com.foo.protobuf.Types.ComplexPower typedData) {
+   
+      if (typedData == null)
+         throw new NullPointerException();
+   
+      Double p_MW = typedData.getPMw();
+      
+      return new ComplexPower (
+         p_MW
+      );
+   }
 }
         ''')
 
@@ -633,6 +665,2813 @@ public class TypesCodec {
         checkGenerators(TestData.basic, setOf(ProjectType.PROTOBUF), fileCount, contents)
     }
 
+    @Test
+    def void testBenchmark()
+    {
+        val fileCount = 3
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.benchmark/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/benchmark/TestBenchmark.java", '''
+            package com.foo.test.benchmark;
+
+            import com.btc.cab.servicecomm.protobuf.ProtobufSerializer;
+            import com.foo.test.dispatcher.TestDispatcher;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.ModificationEvent;
+            import java.util.Optional;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Future;
+            import org.openjdk.jmh.annotations.Benchmark;
+            import org.openjdk.jmh.annotations.Scope;
+            import org.openjdk.jmh.annotations.Setup;
+            import org.openjdk.jmh.annotations.State;
+
+            /**
+             * Measures the encoding and decoding of the data types of Test and the round trip
+             * of requests through the generated dispatcher, without any transport. Run e.g. with
+             * mvn compile exec:java -Dexec.mainClass=org.openjdk.jmh.Main
+             */
+            @State(Scope.Benchmark)
+            public class TestBenchmark {
+
+               private ModificationEvent plainModificationEvent;
+               private com.foo.test.protobuf.Test.ModificationEvent encodedModificationEvent;
+               private TestDispatcher dispatcher;
+               private byte[] doSomethingRequest;
+
+               @Setup
+               public void setUp() throws Exception {
+                  plainModificationEvent = new ModificationEvent("", Optional.empty());
+                  encodedModificationEvent = (com.foo.test.protobuf.Test.ModificationEvent) com.foo.test.protobuf.TestCodec.encode(plainModificationEvent);
+                  dispatcher = new TestDispatcher(new BenchmarkDispatchee(), new ProtobufSerializer());
+                  doSomethingRequest = makeDoSomethingRequest();
+               }
+
+               @Benchmark
+               public Object encodeModificationEvent() {
+                  return com.foo.test.protobuf.TestCodec.encode(plainModificationEvent);
+               }
+
+               @Benchmark
+               public Object decodeModificationEvent() {
+                  return com.foo.test.protobuf.TestCodec.decode(encodedModificationEvent);
+               }
+
+               @Benchmark
+               public com.foo.test.protobuf.Test.TestResponse dispatchDoSomething() throws Exception {
+                  return com.foo.test.protobuf.Test.TestResponse.parseFrom(dispatcher.processRequest(doSomethingRequest, null, null));
+               }
+
+               private static byte[] makeDoSomethingRequest() {
+                  ModificationEvent modificationEvent = new ModificationEvent("", Optional.empty());
+                  com.foo.test.protobuf.Test.TestRequest.DoSomethingRequest requestDoSomething = com.foo.test.protobuf.Test.TestRequest.DoSomethingRequest.newBuilder()
+                  .setModificationEvent((com.foo.test.protobuf.Test.ModificationEvent) com.foo.test.protobuf.TestCodec.encode(modificationEvent))
+                  .build();
+
+                  return com.foo.test.protobuf.Test.TestRequest.newBuilder()
+                     .setDoSomethingRequest(requestDoSomething)
+                     .build()
+                     .toByteArray();
+               }
+
+               /**
+                * Returns default values immediately, such that only the dispatching and the encoding are measured.
+                */
+               private static class BenchmarkDispatchee implements ITest {
+
+                  @Override
+                  public Future<Void> doSomething(
+                     final ModificationEvent modificationEvent
+                  ) throws Exception {
+                     return CompletableFuture.completedFuture(null);
+                  }
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    struct ModificationEvent {
+                        string key;
+                        optional string value;
+                    };
+
+                    DoSomething(in ModificationEvent modificationEvent) returns void;
+                };
+            }
+        ''', setOf(ProjectType.BENCHMARK), fileCount, contents)
+    }
+
+    @Test
+    def void testClientConsole()
+    {
+        val fileCount = 3
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.svc.clientconsole/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/svc/clientconsole/Program.java", '''
+            package com.foo.svc.clientconsole;
+
+            import com.btc.cab.servicecomm.api.IClientEndpoint;
+            import com.btc.cab.servicecomm.singlequeue.api.IConnectionFactory;
+            import com.btc.cab.servicecomm.singlequeue.core.ClientEndpointFactory;
+            import com.btc.cab.servicecomm.singlequeue.jeromq.JeroMqClientConnectionFactory;
+            import com.foo.svc.proxy.SvcProxyFactory;
+            import com.foo.svc.serviceapi.ISvc;
+            import java.util.ArrayList;
+            import java.util.Collection;
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.LinkedHashMap;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.Vector;
+            import java.util.concurrent.ThreadLocalRandom;
+            import java.util.concurrent.TimeUnit;
+            import java.util.concurrent.locks.LockSupport;
+            import org.slf4j.Logger;
+            import org.slf4j.LoggerFactory;
+
+            public class Program {
+
+               private final static String connectionString = "tcp://127.0.0.1:5555";
+               private static final Logger logger = LoggerFactory.getLogger(Program.class);
+
+               public static void main(String[] args) {
+
+                  LoadOptions loadOptions;
+                  try {
+                     loadOptions = LoadOptions.parse(args);
+                  } catch (IllegalArgumentException e) {
+                     logger.error(e.getMessage() + "\n" + LoadOptions.USAGE);
+                     return;
+                  }
+
+                  IClientEndpoint client = null;
+                  ISvc proxy = null;
+
+                  logger.info("Client trying to connect to " + connectionString);
+                  IConnectionFactory connectionFactory = new JeroMqClientConnectionFactory(
+                            );
+
+                  try {
+                    client = new ClientEndpointFactory(
+                         connectionFactory).create(connectionString);
+                  } catch (Exception e)
+                  {
+                     logger.error("Client could not start! Is there a server running on tcp://127.0.0.1:5555? Error: " + e.toString());
+                  }
+
+                  logger.info("Client started...");
+                  try {
+                     proxy = SvcProxyFactory.createDirectProtobufProxy(client);
+                  } catch (Exception e) {
+                     logger.error("Could not create proxy! Error: " + e.toString());
+                  }
+
+                  if (proxy != null && loadOptions != null)
+                  {
+                     logger.info("Start generating load...");
+                     generateLoad(proxy, loadOptions);
+                  }
+                  else if (proxy != null)
+                  {
+                     logger.info("Start calling proxy methods...");
+                     callAllProxyMethods(proxy);
+                  }
+
+                  if (client != null)
+                  {
+                     logger.info("Client closing...");
+                     try { client.close(); } catch (Exception e) { logger.error("Exception while closing client", e); }
+                  }
+
+                  logger.info("Exit...");
+                  System.exit(0);
+               }
+
+               private static void callAllProxyMethods(ISvc proxy) {
+
+                  int errorCount = 0;
+                  int callCount = 0;
+                  try
+                  {
+                     callCount++;
+                     String key = "";
+                     Integer count = 0;
+                  Object result = proxy.getCount(key, count);
+                  logger.info("Result of ISvc.getCount: " + result.toString());
+                  }
+                  catch (Exception e)
+                  {
+                     errorCount++;
+                     logger.error("Result of ISvc.getCount: " + e.toString());
+                  }
+                  try
+                  {
+                     callCount++;
+                     Collection<String> names = new Vector<String>(3);
+                  proxy.putNames(names).get();
+                  logger.info("Result of ISvc.putNames: void");
+                  }
+                  catch (Exception e)
+                  {
+                     errorCount++;
+                     logger.error("Result of ISvc.putNames: " + e.toString());
+                  }
+
+                  logger.info("READY! Overall result: " + callCount + " function calls, " + errorCount + " errors.");
+               }
+
+               private static void generateLoad(ISvc proxy, LoadOptions options) {
+
+                  Map<String, LoadOperation> operations = new LinkedHashMap<>();
+                  {
+                     String key = "";
+                     operations.put("GetCount", () -> {
+                        Integer count = 0;
+                        proxy.getCount(key, count);
+                     });
+                  }
+                  {
+                     Collection<String> names = new Vector<String>(Collections.nCopies(3, ""));
+                     operations.put("PutNames", () -> {
+                        proxy.putNames(names).get();
+                     });
+                  }
+
+                  try {
+                     new LoadDriver(options, operations).run();
+                  } catch (InterruptedException e) {
+                     Thread.currentThread().interrupt();
+                     logger.error("Load generation was interrupted");
+                  } catch (IllegalArgumentException e) {
+                     logger.error(e.getMessage());
+                  }
+               }
+
+               @FunctionalInterface
+               private interface LoadOperation {
+                  void call() throws Exception;
+               }
+
+               /**
+                  Options of the load generation mode, which is enabled by --load. Without a --mix, all operations
+                  are called with the same weight.
+               */
+               private static final class LoadOptions {
+
+                  static final String USAGE = "Usage: [--load [--concurrency=<threads>] [--duration=<seconds>] "
+                     + "[--rate=<calls per second, 0 for unlimited>] [--mix=<operation>:<weight>,...]]";
+
+                  int concurrency = 1;
+                  long durationSeconds = 10;
+                  double rate = 0;
+                  final Map<String, Integer> mix = new LinkedHashMap<>();
+
+                  /**
+                     Unknown arguments are ignored, such that the console accepts the arguments of its launcher.
+
+                     @return the options, or null if the load generation mode is not enabled
+                     @throws IllegalArgumentException if the value of an option is invalid
+                  */
+                  static LoadOptions parse(String[] args) {
+                     LoadOptions options = new LoadOptions();
+                     boolean load = false;
+                     for (String arg : args) {
+                        String[] keyValue = arg.split("=", 2);
+                        try {
+                           switch (keyValue[0]) {
+                              case "--load":
+                                 load = true;
+                                 break;
+                              case "--concurrency":
+                                 options.concurrency = Integer.parseInt(keyValue[1]);
+                                 break;
+                              case "--duration":
+                                 options.durationSeconds = Long.parseLong(keyValue[1]);
+                                 break;
+                              case "--rate":
+                                 options.rate = Double.parseDouble(keyValue[1]);
+                                 break;
+                              case "--mix":
+                                 for (String entry : keyValue[1].split(",")) {
+                                    String[] nameWeight = entry.split(":", 2);
+                                    options.mix.put(nameWeight[0], nameWeight.length > 1 ? Integer.parseInt(nameWeight[1]) : 1);
+                                 }
+                                 break;
+                              default:
+                                 logger.warn("Ignoring unknown argument: " + arg);
+                                 break;
+                           }
+                        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                           throw new IllegalArgumentException("Invalid argument: " + arg);
+                        }
+                     }
+
+                     if (options.concurrency < 1 || options.durationSeconds < 1 || options.rate < 0)
+                        throw new IllegalArgumentException("Concurrency and duration must be positive, rate must not be negative");
+
+                     return load ? options : null;
+                  }
+               }
+
+               /**
+                  Calls the operations from concurrent workers, and reports the throughput and the latency
+                  percentiles of each operation. With a target rate, the latency is measured from the time a call
+                  was scheduled, so that a slow service does not hide its queueing delay by slowing down the load.
+               */
+               private static final class LoadDriver {
+
+                  private final LoadOptions _options;
+                  private final Map<String, LoadOperation> _operations;
+                  private final List<String> _schedule = new ArrayList<>();
+
+                  LoadDriver(LoadOptions options, Map<String, LoadOperation> operations) {
+                     _options = options;
+                     _operations = operations;
+
+                     for (String name : options.mix.keySet()) {
+                        if (!operations.containsKey(name))
+                           throw new IllegalArgumentException("Unknown operation in mix: " + name);
+                     }
+                     for (String name : operations.keySet()) {
+                        int weight = options.mix.isEmpty() ? 1 : options.mix.getOrDefault(name, 0);
+                        for (int i = 0; i < weight; i++)
+                           _schedule.add(name);
+                     }
+                     if (_schedule.isEmpty())
+                        throw new IllegalArgumentException("No operation to call");
+                  }
+
+                  void run() throws InterruptedException {
+                     long intervalNanos = _options.rate > 0 ? (long) (_options.concurrency * 1e9 / _options.rate) : 0;
+                     long start = System.nanoTime();
+                     long deadline = start + TimeUnit.SECONDS.toNanos(_options.durationSeconds);
+
+                     List<Map<String, LatencyRecorder>> recorders = new ArrayList<>();
+                     List<Thread> workers = new ArrayList<>();
+                     for (int i = 0; i < _options.concurrency; i++) {
+                        Map<String, LatencyRecorder> workerRecorders = new HashMap<>();
+                        long firstCall = start + i * intervalNanos / _options.concurrency;
+                        recorders.add(workerRecorders);
+                        workers.add(new Thread(() -> work(firstCall, intervalNanos, deadline, workerRecorders)));
+                     }
+                     for (Thread worker : workers)
+                        worker.start();
+                     for (Thread worker : workers)
+                        worker.join();
+                     double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+                     LatencyRecorder total = new LatencyRecorder();
+                     for (String name : _operations.keySet()) {
+                        LatencyRecorder merged = new LatencyRecorder();
+                        for (Map<String, LatencyRecorder> workerRecorders : recorders) {
+                           if (workerRecorders.containsKey(name))
+                              merged.add(workerRecorders.get(name));
+                        }
+                        if (merged.count > 0) {
+                           report(name, merged, elapsedSeconds);
+                           total.add(merged);
+                        }
+                     }
+                     report("Overall", total, elapsedSeconds);
+                  }
+
+                  private void work(long firstCall, long intervalNanos, long deadline, Map<String, LatencyRecorder> recorders) {
+                     long scheduled = firstCall;
+                     while (true) {
+                        long callStart;
+                        if (intervalNanos > 0) {
+                           long wait;
+                           while ((wait = scheduled - System.nanoTime()) > 0)
+                              LockSupport.parkNanos(wait);
+                           callStart = scheduled;
+                           scheduled += intervalNanos;
+                        } else {
+                           callStart = System.nanoTime();
+                        }
+                        if (callStart >= deadline)
+                           break;
+
+                        String name = _schedule.get(ThreadLocalRandom.current().nextInt(_schedule.size()));
+                        boolean failed = false;
+                        try {
+                           _operations.get(name).call();
+                        } catch (Exception e) {
+                           failed = true;
+                        }
+                        recorders.computeIfAbsent(name, key -> new LatencyRecorder()).record(System.nanoTime() - callStart, failed);
+                     }
+                  }
+
+                  private static void report(String name, LatencyRecorder recorder, double elapsedSeconds) {
+                     logger.info(String.format("%s: %d calls, %d errors, %.1f calls/s, latency p50 %.1f us, p99 %.1f us, p999 %.1f us",
+                        name, recorder.count, recorder.errors, recorder.count / elapsedSeconds,
+                        recorder.percentile(0.5) / 1e3, recorder.percentile(0.99) / 1e3, recorder.percentile(0.999) / 1e3));
+                  }
+               }
+
+               /**
+                  Counts the latencies in a histogram of fixed size, with 16 linear buckets per power of two
+                  nanoseconds, such that a percentile is reported with a relative error of at most 1/16.
+               */
+               private static final class LatencyRecorder {
+                  private static final int SUB_BUCKET_BITS = 4;
+                  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+                  final long[] buckets = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT];
+                  long count;
+                  long errors;
+
+                  void record(long latencyNanos, boolean failed) {
+                     buckets[bucketOf(Math.max(0, latencyNanos))]++;
+                     count++;
+                     if (failed)
+                        errors++;
+                  }
+
+                  void add(LatencyRecorder other) {
+                     for (int i = 0; i < buckets.length; i++)
+                        buckets[i] += other.buckets[i];
+                     count += other.count;
+                     errors += other.errors;
+                  }
+
+                  /**
+                     @return the upper bound of the bucket which holds the latency of the given quantile
+                  */
+                  long percentile(double quantile) {
+                     long rank = Math.max(1, (long) Math.ceil(quantile * count));
+                     long seen = 0;
+                     for (int i = 0; i < buckets.length; i++) {
+                        seen += buckets[i];
+                        if (seen >= rank)
+                           return upperBoundOf(i);
+                     }
+                     return 0;
+                  }
+
+                  private static int bucketOf(long latencyNanos) {
+                     if (latencyNanos < SUB_BUCKET_COUNT)
+                        return (int) latencyNanos;
+                     int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(latencyNanos);
+                     int shift = exponent - SUB_BUCKET_BITS;
+                     return (shift + 1) * SUB_BUCKET_COUNT + (int) (latencyNanos >>> shift) - SUB_BUCKET_COUNT;
+                  }
+
+                  private static long upperBoundOf(int bucket) {
+                     if (bucket < SUB_BUCKET_COUNT)
+                        return bucket;
+                     int shift = bucket / SUB_BUCKET_COUNT - 1;
+                     long lowerBound = (long) (bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+                     return lowerBound + (1L << shift) - 1;
+                  }
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    PutNames(in sequence<string>[typical sequence length = 3] names) returns void;
+                    sync GetCount(in string key, out int32 count) returns int32;
+                };
+            }
+        ''', setOf(ProjectType.CLIENT_CONSOLE), fileCount, contents)
+    }
+
+    @Test
+    def void testClientConsoleLatencyPercentiles()
+    {
+        val compiler = ToolProvider.systemJavaCompiler
+        assumeNotNull(compiler)
+
+        val program = generate('''
+            module foo
+            {
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] { sync GetCount() returns int32; };
+            }
+        ''', setOf(ArtifactNature.JAVA), setOf(ProjectType.CLIENT_CONSOLE), null, null, null).textFiles.entrySet.
+            findFirst[key.endsWith("/Program.java")].value.toString
+
+        val directory = Files.createTempDirectory("latencyrecorder")
+        val source = Files.write(directory.resolve("Recorders.java"), '''
+            public class Recorders {
+               «program.extractMember("private static final class LatencyRecorder")»
+
+               public static long[] percentiles(long[] firstLatencies, long[] secondLatencies) {
+                  LatencyRecorder first = new LatencyRecorder();
+                  for (long latency : firstLatencies)
+                     first.record(latency, false);
+                  LatencyRecorder second = new LatencyRecorder();
+                  for (long latency : secondLatencies)
+                     second.record(latency, true);
+                  first.add(second);
+                  LatencyRecorder extremes = new LatencyRecorder();
+                  extremes.record(-1, false);
+                  extremes.record(Long.MAX_VALUE, false);
+                  return new long[] { first.count, first.errors, first.percentile(0.5), first.percentile(0.99),
+                     first.percentile(0.999), extremes.percentile(0.5), extremes.percentile(1.0) };
+               }
+            }
+        '''.toString.bytes)
+        assertEquals(0, compiler.run(null, null, null, "-d", directory.toString, source.toString))
+
+        val loader = new URLClassLoader(#[directory.toUri.toURL])
+        val percentiles = loader.loadClass("Recorders").getMethod("percentiles", typeof(long[]), typeof(long[]))
+        // 1 us to 1 ms in steps of 1 us, split into two recorders to cover merging
+        val first = newLongArrayOfSize(500)
+        val second = newLongArrayOfSize(500)
+        for (i : 0 ..< 500)
+        {
+            first.set(i, (i + 1) * 2000L)
+            second.set(i, i * 2000L + 1000L)
+        }
+        val result = percentiles.invoke(null, first, second) as long[]
+        assertEquals(1000L, result.get(0))
+        assertEquals(500L, result.get(1))
+        // the reported percentile is the upper bound of its bucket, which exceeds the exact value by at most 1/16
+        for (expected : #[500_000L, 990_000L, 999_000L].indexed)
+        {
+            val actual = result.get(2 + expected.key)
+            assertTrue(expected.value + ": " + actual, actual >= expected.value && actual <= expected.value * 17 / 16)
+        }
+        // negative latencies are clamped to 0, and the largest one must not overflow the histogram
+        assertEquals(0L, result.get(5))
+        assertEquals(Long.MAX_VALUE, result.get(6))
+        loader.close
+    }
+
+    @Test
+    def void testProxy()
+    {
+        val fileCount = 4
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.proxy/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/proxy/TestProxy.java", '''
+            package com.foo.test.proxy;
+
+            import com.btc.cab.servicecomm.api.IClientEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceReference;
+            import com.btc.cab.servicecomm.protobuf.CompositeDeserializer;
+            import com.btc.cab.servicecomm.protobuf.ProtobufSerializer;
+            import com.btc.cab.servicecomm.serialization.IDeserializer;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.btc.cab.servicecomm.util.ClientEndpointExtensions;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import java.util.HashMap;
+            import java.util.Map;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CompletionException;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Future;
+
+            public class TestProxy implements ITest, AutoCloseable {
+
+               private final IClientEndpoint _endpoint;
+               private final IServiceReference _serviceReference;
+               private final ISerializer _serializer;
+               private final IDeserializer _deserializer;
+               private final Executor _executor;
+               private ExecutorService _ownedExecutor;
+
+               /**
+                  Creates the proxy with an executor of its own to wait for replies, which {@link #close} shuts down.
+               */
+               public TestProxy(IClientEndpoint endpoint) throws Exception {
+                  this(endpoint, newReplyExecutor());
+                  _ownedExecutor = (ExecutorService) _executor;
+               }
+
+               /**
+                  @param executor executor used to wait for replies if the endpoint does not deliver them as
+                  a completion stage; each outstanding call occupies one of its threads, so it must not be
+                  bounded below the number of concurrent calls. Blocking calls are executed on the thread of
+                  the caller in any case. The executor is left to the caller by {@link #close}.
+               */
+               public TestProxy(IClientEndpoint endpoint, Executor executor) throws Exception {
+                  _endpoint = endpoint;
+                  _executor = executor;
+
+                  _serviceReference = _endpoint
+               .connectService(ITest.TypeGuid);
+
+                  _serializer = 
+                    new ProtobufSerializer()
+                    ;
+                   _deserializer = initializeDeserializer();
+
+                  // ServiceFaultHandler
+                  _serviceReference
+               .getServiceFaultHandlerManager()
+               .registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+
+               private IDeserializer initializeDeserializer() {
+                   IDeserializer dummyDeserializer =
+                       new IDeserializer() {
+                         @Override
+                         public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                           return null;
+                         }
+                       };
+                   Map<Class<?>, IDeserializer> deserializerMap = new HashMap<>();
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestRequest.class, dummyDeserializer);
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestResponse.class, dummyDeserializer);
+
+
+                   return new CompositeDeserializer(deserializerMap);
+                 }
+
+               /**
+                  @see com.foo.test.serviceapi.ITest#getValue
+               */
+               @Override
+               public Integer getValue(
+                  final String key
+               ) throws Exception {
+                  com.foo.test.protobuf.Test.TestRequest.GetValueRequest requestGetValue = 
+                     com.foo.test.protobuf.Test.TestRequest.GetValueRequest.newBuilder()
+                     .setKey(key)
+                  .build();
+
+                  com.foo.test.protobuf.Test.TestRequest request = com.foo.test.protobuf.Test.TestRequest.newBuilder()
+                 .setGetValueRequest(requestGetValue)
+                 .build();
+
+                  Future<byte[]> requestFuture 
+                    = ClientEndpointExtensions.
+                      requestAsync
+                      (_endpoint, _serviceReference, _serializer, request);
+                  CompletableFuture<Integer> resultFuture = awaitReply(requestFuture).thenApply(bytes -> {
+                     try {
+                      com.foo.test.protobuf.Test.TestResponse response = com.foo.test.protobuf.Test.TestResponse.parseFrom(bytes);
+                        com.foo.test.protobuf.Test.TestResponse.GetValueResponse responseGetValue = response.getGetValueResponse();
+                        Integer result = responseGetValue.getGetValue();
+                  return result;
+                     } catch (Exception e) {
+                        throw new CompletionException(e);
+                     }
+                  });
+
+                  return resultFuture.get();
+               }
+
+               /**
+                  Waits for the reply on the calling thread, which blocks anyway for synchronous operations.
+               */
+               private static CompletableFuture<byte[]> awaitReply(Future<byte[]> requestFuture) throws InterruptedException {
+                  CompletableFuture<byte[]> reply = new CompletableFuture<>();
+                  try {
+                     reply.complete(requestFuture.get());
+                  } catch (ExecutionException e) {
+                     reply.completeExceptionally(e.getCause());
+                  }
+                  return reply;
+               }
+
+               /**
+                  Waiting for a reply occupies a thread until the reply arrives, so the pool is not bounded,
+                  such that calls do not queue up behind outstanding ones; idle threads terminate after a
+                  minute.
+               */
+               private static ExecutorService newReplyExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestProxy-reply-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+               
+               /**
+                  Shuts down the executor which this proxy created to wait for replies, once the outstanding
+                  calls have received their replies.
+               */
+               @Override
+               public void close() {
+                  if (_ownedExecutor != null)
+                     _ownedExecutor.shutdown();
+               }
+
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    sync query GetValue(in string key) returns int32;
+                };
+            }
+        ''', setOf(ProjectType.PROXY), fileCount, contents)
+    }
+
+    @Test
+    def void testProxyWithQueryCache()
+    {
+        val fileCount = 5
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.proxy/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/proxy/TestProxy.java", '''
+            package com.foo.test.proxy;
+
+            import com.btc.cab.servicecomm.api.IClientEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceReference;
+            import com.btc.cab.servicecomm.protobuf.CompositeDeserializer;
+            import com.btc.cab.servicecomm.protobuf.ProtobufSerializer;
+            import com.btc.cab.servicecomm.serialization.IDeserializer;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.btc.cab.servicecomm.util.ClientEndpointExtensions;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import java.util.HashMap;
+            import java.util.Map;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CompletionException;
+            import java.util.concurrent.CompletionStage;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Future;
+
+            public class TestProxy implements ITest, AutoCloseable {
+               
+               private final IClientEndpoint _endpoint;
+               private final IServiceReference _serviceReference;
+               private final ISerializer _serializer;
+               private final IDeserializer _deserializer;
+               private final Executor _executor;
+               private ExecutorService _ownedExecutor;
+               private final QueryCache _queryCache = new QueryCache(100, 1000L);
+               
+               /**
+                  Creates the proxy with an executor of its own to wait for replies, which {@link #close} shuts down.
+               */
+               public TestProxy(IClientEndpoint endpoint) throws Exception {
+                  this(endpoint, newReplyExecutor());
+                  _ownedExecutor = (ExecutorService) _executor;
+               }
+               
+               /**
+                  @param executor executor used to wait for replies if the endpoint does not deliver them as
+                  a completion stage; each outstanding call occupies one of its threads, so it must not be
+                  bounded below the number of concurrent calls. Blocking calls are executed on the thread of
+                  the caller in any case. The executor is left to the caller by {@link #close}.
+               */
+               public TestProxy(IClientEndpoint endpoint, Executor executor) throws Exception {
+                  _endpoint = endpoint;
+                  _executor = executor;
+
+                  _serviceReference = _endpoint
+               .connectService(ITest.TypeGuid);
+
+                  _serializer = 
+                    new ProtobufSerializer()
+                    ;
+                   _deserializer = initializeDeserializer();
+
+                  // ServiceFaultHandler
+                  _serviceReference
+               .getServiceFaultHandlerManager()
+               .registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+               
+               private IDeserializer initializeDeserializer() {
+                   IDeserializer dummyDeserializer =
+                       new IDeserializer() {
+                         @Override
+                         public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                           return null;
+                         }
+                       };
+                   Map<Class<?>, IDeserializer> deserializerMap = new HashMap<>();
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestRequest.class, dummyDeserializer);
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestResponse.class, dummyDeserializer);
+               
+                              
+                   return new CompositeDeserializer(deserializerMap);
+                 }
+               
+               /**
+                  @see com.foo.test.serviceapi.ITest#getValue
+               */
+               @Override
+               public Integer getValue(
+                  final String key
+               ) throws Exception {
+                  com.foo.test.protobuf.Test.TestRequest.GetValueRequest requestGetValue = 
+                     com.foo.test.protobuf.Test.TestRequest.GetValueRequest.newBuilder()
+                     .setKey(key)
+                  .build();
+                  
+                  com.foo.test.protobuf.Test.TestRequest request = com.foo.test.protobuf.Test.TestRequest.newBuilder()
+                 .setGetValueRequest(requestGetValue)
+                 .build();
+                  
+                  // identical queries are answered from the cache
+                  Future<byte[]> requestFuture = _queryCache.get(request.toByteString(), () -> toCompletableFuture(
+                     ClientEndpointExtensions.requestAsync(_endpoint, _serviceReference, _serializer, request)));
+                  CompletableFuture<Integer> resultFuture = awaitReply(requestFuture).thenApply(bytes -> {
+                     try {
+                      com.foo.test.protobuf.Test.TestResponse response = com.foo.test.protobuf.Test.TestResponse.parseFrom(bytes);
+                        com.foo.test.protobuf.Test.TestResponse.GetValueResponse responseGetValue = response.getGetValueResponse();
+                        Integer result = responseGetValue.getGetValue();
+                  return result;
+                     } catch (Exception e) {
+                        throw new CompletionException(e);
+                     }
+                  });
+               
+                  return resultFuture.get();
+               }
+               
+               /**
+                  Chains onto the reply without blocking if the endpoint delivers it as a completion stage,
+                  otherwise waits for the reply on the executor of this proxy.
+               */
+               @SuppressWarnings("unchecked")
+               private CompletableFuture<byte[]> toCompletableFuture(Future<byte[]> requestFuture) {
+                  if (requestFuture instanceof CompletionStage)
+                     return ((CompletionStage<byte[]>) requestFuture).toCompletableFuture();
+                  
+                  return CompletableFuture.supplyAsync(() -> {
+                     try {
+                        return requestFuture.get();
+                     } catch (ExecutionException e) {
+                        throw new CompletionException(e.getCause());
+                     } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                     }
+                  }, _executor);
+               }
+               
+               /**
+                  Waits for the reply on the calling thread, which blocks anyway for synchronous operations.
+               */
+               private static CompletableFuture<byte[]> awaitReply(Future<byte[]> requestFuture) throws InterruptedException {
+                  CompletableFuture<byte[]> reply = new CompletableFuture<>();
+                  try {
+                     reply.complete(requestFuture.get());
+                  } catch (ExecutionException e) {
+                     reply.completeExceptionally(e.getCause());
+                  }
+                  return reply;
+               }
+
+               /**
+                  Waiting for a reply occupies a thread until the reply arrives, so the pool is not bounded,
+                  such that calls do not queue up behind outstanding ones; idle threads terminate after a
+                  minute.
+               */
+               private static ExecutorService newReplyExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestProxy-reply-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+               
+               /**
+                  Shuts down the executor which this proxy created to wait for replies, once the outstanding
+                  calls have received their replies.
+               */
+               @Override
+               public void close() {
+                  if (_ownedExecutor != null)
+                     _ownedExecutor.shutdown();
+               }
+
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    sync query GetValue(in string key) returns int32;
+                };
+            }
+        ''', new HashSet<ArtifactNature>(Arrays.asList(ArtifactNature.JAVA)), setOf(ProjectType.PROXY), null, null,
+            #{GeneratorOptions.QUERY_CACHE_SIZE -> "100"}.entrySet, fileCount, contents)
+    }
+
+    @Test
+    def void testProxyWithKeyedEvent()
+    {
+        val fileCount = 4
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.proxy/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/proxy/TestProxy.java", '''
+            package com.foo.test.proxy;
+
+            import com.btc.cab.commons.IObserver;
+            import com.btc.cab.servicecomm.api.EventKind;
+            import com.btc.cab.servicecomm.api.IClientEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceReference;
+            import com.btc.cab.servicecomm.protobuf.CompositeDeserializer;
+            import com.btc.cab.servicecomm.protobuf.MarshallingDeserializer;
+            import com.btc.cab.servicecomm.protobuf.ProtobufSerializer;
+            import com.btc.cab.servicecomm.serialization.IDeserializer;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.btc.cab.servicecomm.util.EventRegistryExtensions;
+            import com.foo.common.Quote;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import java.io.Closeable;
+            import java.nio.charset.StandardCharsets;
+            import java.util.ArrayList;
+            import java.util.HashMap;
+            import java.util.LinkedHashSet;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.Set;
+            import java.util.UUID;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+
+            public class TestProxy implements ITest, AutoCloseable {
+               
+               private final IClientEndpoint _endpoint;
+               private final IServiceReference _serviceReference;
+               private final ISerializer _serializer;
+               private final IDeserializer _deserializer;
+               private final Executor _executor;
+               private ExecutorService _ownedExecutor;
+               
+               /**
+                  Creates the proxy with an executor of its own to wait for replies, which {@link #close} shuts down.
+               */
+               public TestProxy(IClientEndpoint endpoint) throws Exception {
+                  this(endpoint, newReplyExecutor());
+                  _ownedExecutor = (ExecutorService) _executor;
+               }
+               
+               /**
+                  @param executor executor used to wait for replies if the endpoint does not deliver them as
+                  a completion stage; each outstanding call occupies one of its threads, so it must not be
+                  bounded below the number of concurrent calls. Blocking calls are executed on the thread of
+                  the caller in any case. The executor is left to the caller by {@link #close}.
+               */
+               public TestProxy(IClientEndpoint endpoint, Executor executor) throws Exception {
+                  _endpoint = endpoint;
+                  _executor = executor;
+
+                  _serviceReference = _endpoint
+               .connectService(ITest.TypeGuid);
+
+                  _serializer = 
+                    new ProtobufSerializer()
+                    ;
+                   _deserializer = initializeDeserializer();
+
+                  // ServiceFaultHandler
+                  _serviceReference
+               .getServiceFaultHandlerManager()
+               .registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+               
+               private IDeserializer initializeDeserializer() {
+                   IDeserializer dummyDeserializer =
+                       new IDeserializer() {
+                         @Override
+                         public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                           return null;
+                         }
+                       };
+                   Map<Class<?>, IDeserializer> deserializerMap = new HashMap<>();
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestRequest.class, dummyDeserializer);
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestResponse.class, dummyDeserializer);
+               
+                   MarshallingDeserializer<Quote, byte[]> netProtoBufStream =
+                       new MarshallingDeserializer<>(new UnmarshalProtobufFunction());
+                   
+                   deserializerMap.put(Quote.class, netProtoBufStream);
+                              
+                   return new CompositeDeserializer(deserializerMap);
+                 }
+               
+
+               /**
+                  Waiting for a reply occupies a thread until the reply arrives, so the pool is not bounded,
+                  such that calls do not queue up behind outstanding ones; idle threads terminate after a
+                  minute.
+               */
+               private static ExecutorService newReplyExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestProxy-reply-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+               
+               /**
+                  Shuts down the executor which this proxy created to wait for replies, once the outstanding
+                  calls have received their replies.
+               */
+               @Override
+               public void close() {
+                  if (_ownedExecutor != null)
+                     _ownedExecutor.shutdown();
+               }
+               
+               /**
+                  @see com.btc.cab.commons.IObservable#subscribe
+               */
+               @Override
+               public Closeable subscribe(IObserver<Quote> observer) throws Exception {
+                  _endpoint.getEventRegistry().createEventRegistration(
+                        Quote.EventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE,
+                        Quote.EventTypeGuid.toString());
+                  return EventRegistryExtensions.subscribe(_endpoint.getEventRegistry()
+                        .getSubscriberManager(), _deserializer,
+                        Quote.EventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer);
+               }
+               
+               /**
+                  Subscribes to the event types of the given keys, to which the publisher sends the matching events only.
+               */
+               @Override
+               public Closeable subscribe(IObserver<Quote> observer, Iterable<KeyType> keys) throws Exception {
+                  Set<UUID> keyEventTypeGuids = new LinkedHashSet<>();
+                  for (KeyType key : keys)
+                     keyEventTypeGuids.add(makeKeyEventTypeGuid(key));
+               
+                  List<Closeable> subscriptions = new ArrayList<>();
+                  for (UUID keyEventTypeGuid : keyEventTypeGuids) {
+                     _endpoint.getEventRegistry().createEventRegistration(
+                           keyEventTypeGuid,
+                           EventKind.EVENTKINDPUBLISHSUBSCRIBE,
+                           keyEventTypeGuid.toString());
+                     subscriptions.add(EventRegistryExtensions.subscribe(_endpoint.getEventRegistry()
+                           .getSubscriberManager(), _deserializer,
+                           keyEventTypeGuid,
+                           EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer));
+                  }
+                  return () -> {
+                     for (Closeable subscription : subscriptions)
+                        subscription.close();
+                  };
+               }
+               
+               /**
+                  Derives the event type under which the publisher sends the events of the given key, from the FNV-1a hash
+                  of the key values.
+               */
+               private static UUID makeKeyEventTypeGuid(KeyType key) {
+                  long hash = 0xcbf29ce484222325L;
+                  hash = hashKey(hash, key.getSymbol());
+                  hash = hashKey(hash, key.getVenue(), 4);
+                  return new UUID(Quote.EventTypeGuid.getMostSignificantBits(),
+                        Quote.EventTypeGuid.getLeastSignificantBits() ^ hash);
+               }
+               
+               private static long hashKey(long hash, String value) {
+                  for (byte b : value.getBytes(StandardCharsets.UTF_8))
+                     hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+                  return hash * 0x100000001b3L; // terminating zero byte
+               }
+               
+               private static long hashKey(long hash, long value, int size) {
+                  for (int i = 0; i < size; ++i)
+                     hash = (hash ^ ((value >>> (8 * i)) & 0xff)) * 0x100000001b3L;
+                  return hash;
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                struct Quote { string symbol; int32 venue; double price; };
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    event [guid=3A1834DB-50F9-4BD9-97EF-69F0B80FF79D] (Quote) subscribe with (string symbol, int32 venue);
+                };
+            }
+        ''', setOf(ProjectType.PROXY), fileCount, contents)
+    }
+
+    @Test
+    def void testProxyWithEventBatching()
+    {
+        val fileCount = 4
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.proxy/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/proxy/TestProxy.java", '''
+            package com.foo.test.proxy;
+
+            import com.btc.cab.commons.IObserver;
+            import com.btc.cab.servicecomm.api.EventKind;
+            import com.btc.cab.servicecomm.api.IClientEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceReference;
+            import com.btc.cab.servicecomm.protobuf.CompositeDeserializer;
+            import com.btc.cab.servicecomm.protobuf.MarshallingDeserializer;
+            import com.btc.cab.servicecomm.protobuf.ProtobufSerializer;
+            import com.btc.cab.servicecomm.serialization.IDeserializer;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.btc.cab.servicecomm.util.EventRegistryExtensions;
+            import com.foo.common.Quote;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import com.google.protobuf.InvalidProtocolBufferException;
+            import java.io.Closeable;
+            import java.util.HashMap;
+            import java.util.Map;
+            import java.util.UUID;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+
+            public class TestProxy implements ITest, AutoCloseable {
+               
+               private final IClientEndpoint _endpoint;
+               private final IServiceReference _serviceReference;
+               private final ISerializer _serializer;
+               private final IDeserializer _deserializer;
+               private final Executor _executor;
+               private ExecutorService _ownedExecutor;
+               
+               /**
+                  Creates the proxy with an executor of its own to wait for replies, which {@link #close} shuts down.
+               */
+               public TestProxy(IClientEndpoint endpoint) throws Exception {
+                  this(endpoint, newReplyExecutor());
+                  _ownedExecutor = (ExecutorService) _executor;
+               }
+               
+               /**
+                  @param executor executor used to wait for replies if the endpoint does not deliver them as
+                  a completion stage; each outstanding call occupies one of its threads, so it must not be
+                  bounded below the number of concurrent calls. Blocking calls are executed on the thread of
+                  the caller in any case. The executor is left to the caller by {@link #close}.
+               */
+               public TestProxy(IClientEndpoint endpoint, Executor executor) throws Exception {
+                  _endpoint = endpoint;
+                  _executor = executor;
+
+                  _serviceReference = _endpoint
+               .connectService(ITest.TypeGuid);
+
+                  _serializer = 
+                    new ProtobufSerializer()
+                    ;
+                   _deserializer = initializeDeserializer();
+
+                  // ServiceFaultHandler
+                  _serviceReference
+               .getServiceFaultHandlerManager()
+               .registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+               
+               private IDeserializer initializeDeserializer() {
+                   IDeserializer dummyDeserializer =
+                       new IDeserializer() {
+                         @Override
+                         public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                           return null;
+                         }
+                       };
+                   Map<Class<?>, IDeserializer> deserializerMap = new HashMap<>();
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestRequest.class, dummyDeserializer);
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestResponse.class, dummyDeserializer);
+               
+                   MarshallingDeserializer<Quote, byte[]> netProtoBufStream =
+                       new MarshallingDeserializer<>(new UnmarshalProtobufFunction());
+                   
+                   deserializerMap.put(Quote.class, netProtoBufStream);
+                              
+                   return new CompositeDeserializer(deserializerMap);
+                 }
+               
+
+               /**
+                  Waiting for a reply occupies a thread until the reply arrives, so the pool is not bounded,
+                  such that calls do not queue up behind outstanding ones; idle threads terminate after a
+                  minute.
+               */
+               private static ExecutorService newReplyExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestProxy-reply-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+               
+               /**
+                  Shuts down the executor which this proxy created to wait for replies, once the outstanding
+                  calls have received their replies.
+               */
+               @Override
+               public void close() {
+                  if (_ownedExecutor != null)
+                     _ownedExecutor.shutdown();
+               }
+               
+               /**
+                  @see com.btc.cab.commons.IObservable#subscribe
+               */
+               @Override
+               public Closeable subscribe(IObserver<Quote> observer) throws Exception {
+                  _endpoint.getEventRegistry().createEventRegistration(
+                        Quote.EventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE,
+                        Quote.EventTypeGuid.toString());
+                  Closeable subscription = EventRegistryExtensions.subscribe(_endpoint.getEventRegistry()
+                        .getSubscriberManager(), _deserializer,
+                        Quote.EventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer);
+                  Closeable batchSubscription = subscribeBatches(observer);
+                  return () -> {
+                     subscription.close();
+                     batchSubscription.close();
+                  };
+               }
+               
+               /**
+                  Subscribes to the batches of events, which batching publishers send under a separate event type.
+               */
+               private Closeable subscribeBatches(IObserver<Quote> observer) throws Exception {
+                  UUID batchEventTypeGuid = new UUID(Quote.EventTypeGuid.getMostSignificantBits(),
+                        ~Quote.EventTypeGuid.getLeastSignificantBits());
+                  _endpoint.getEventRegistry().createEventRegistration(
+                        batchEventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE,
+                        batchEventTypeGuid.toString());
+                  IDeserializer batchDeserializer = new IDeserializer() {
+                     @Override
+                     @SuppressWarnings("unchecked")
+                     public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                        try {
+                           return (T) com.foo.test.protobuf.Test.QuoteBatch.parseFrom(inputStream);
+                        } catch (InvalidProtocolBufferException e) {
+                           throw new IllegalArgumentException(e);
+                        }
+                     }
+                  };
+                  return EventRegistryExtensions.subscribe(_endpoint.getEventRegistry()
+                        .getSubscriberManager(), batchDeserializer,
+                        batchEventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE, new IObserver<com.foo.test.protobuf.Test.QuoteBatch>() {
+                           @Override
+                           public void onNext(com.foo.test.protobuf.Test.QuoteBatch batch) {
+                              for (com.foo.protobuf.Types.Quote event : batch.getEventsList())
+                                 observer.onNext((Quote) com.foo.protobuf.TypesCodec.decode(event));
+                           }
+               
+                           @Override
+                           public void onError(Exception error) {
+                              observer.onError(error);
+                           }
+               
+                           @Override
+                           public void onCompleted() {
+                              observer.onCompleted();
+                           }
+                        });
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                struct Quote { string symbol; double price; };
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    event [guid=3A1834DB-50F9-4BD9-97EF-69F0B80FF79D] (Quote);
+                };
+            }
+        ''', new HashSet<ArtifactNature>(Arrays.asList(ArtifactNature.JAVA)), setOf(ProjectType.PROXY), null, null,
+            #{GeneratorOptions.EVENT_BATCH_WINDOW_MILLIS -> "5"}.entrySet, fileCount, contents)
+    }
+
+    @Test
+    def void testProxyWithChunkedResult()
+    {
+        val fileCount = 5
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.proxy/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/proxy/TestProxy.java", '''
+            package com.foo.test.proxy;
+
+            import com.btc.cab.servicecomm.api.IClientEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceReference;
+            import com.btc.cab.servicecomm.protobuf.CompositeDeserializer;
+            import com.btc.cab.servicecomm.protobuf.ProtobufSerializer;
+            import com.btc.cab.servicecomm.serialization.IDeserializer;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.btc.cab.servicecomm.util.ClientEndpointExtensions;
+            import com.foo.common.Row;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import java.util.Collection;
+            import java.util.HashMap;
+            import java.util.Map;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CompletionException;
+            import java.util.concurrent.CompletionStage;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Future;
+
+            public class TestProxy implements ITest, AutoCloseable {
+               
+               private final IClientEndpoint _endpoint;
+               private final IServiceReference _serviceReference;
+               private final ISerializer _serializer;
+               private final IDeserializer _deserializer;
+               private final Executor _executor;
+               private ExecutorService _ownedExecutor;
+               
+               /**
+                  Creates the proxy with an executor of its own to wait for replies, which {@link #close} shuts down.
+               */
+               public TestProxy(IClientEndpoint endpoint) throws Exception {
+                  this(endpoint, newReplyExecutor());
+                  _ownedExecutor = (ExecutorService) _executor;
+               }
+               
+               /**
+                  @param executor executor used to wait for replies if the endpoint does not deliver them as
+                  a completion stage; each outstanding call occupies one of its threads, so it must not be
+                  bounded below the number of concurrent calls. Blocking calls are executed on the thread of
+                  the caller in any case. The executor is left to the caller by {@link #close}.
+               */
+               public TestProxy(IClientEndpoint endpoint, Executor executor) throws Exception {
+                  _endpoint = endpoint;
+                  _executor = executor;
+
+                  _serviceReference = _endpoint
+               .connectService(ITest.TypeGuid);
+
+                  _serializer = 
+                    new ProtobufSerializer()
+                    ;
+                   _deserializer = initializeDeserializer();
+
+                  // ServiceFaultHandler
+                  _serviceReference
+               .getServiceFaultHandlerManager()
+               .registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+               
+               private IDeserializer initializeDeserializer() {
+                   IDeserializer dummyDeserializer =
+                       new IDeserializer() {
+                         @Override
+                         public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                           return null;
+                         }
+                       };
+                   Map<Class<?>, IDeserializer> deserializerMap = new HashMap<>();
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestRequest.class, dummyDeserializer);
+                   deserializerMap.put(com.foo.test.protobuf.Test.TestResponse.class, dummyDeserializer);
+               
+                              
+                   return new CompositeDeserializer(deserializerMap);
+                 }
+               
+               /**
+                  @see com.foo.test.serviceapi.ITest#getRows
+               */
+               @Override
+               public Future<Collection<Row>> getRows(
+                  final String filter
+               ) throws Exception {
+                  com.foo.test.protobuf.Test.TestRequest.GetRowsRequest requestGetRows = 
+                     com.foo.test.protobuf.Test.TestRequest.GetRowsRequest.newBuilder()
+                     .setFilter(filter)
+                     .setChunkCursor(0)
+                  .build();
+                  
+                  com.foo.test.protobuf.Test.TestRequest request = com.foo.test.protobuf.Test.TestRequest.newBuilder()
+                 .setGetRowsRequest(requestGetRows)
+                 .build();
+                  
+                  Future<byte[]> requestFuture 
+                    = ClientEndpointExtensions.
+                      requestAsync
+                      (_endpoint, _serviceReference, _serializer, request);
+                  CompletableFuture<Collection<Row>> resultFuture = toCompletableFuture(requestFuture).thenApply(bytes -> {
+                     try {
+                      com.foo.test.protobuf.Test.TestResponse response = com.foo.test.protobuf.Test.TestResponse.parseFrom(bytes);
+                        com.foo.test.protobuf.Test.TestResponse.GetRowsResponse responseGetRows = response.getGetRowsResponse();
+                        Collection<Row> result = new ChunkedCollection<>(com.foo.protobuf.TypesCodec.decode(responseGetRows.getGetRowsList()),
+                           responseGetRows.getChunkCursor(), cursor -> fetchGetRowsChunk(requestGetRows, cursor));
+                  return result;
+                     } catch (Exception e) {
+                        throw new CompletionException(e);
+                     }
+                  });
+               
+                  return resultFuture;
+               }
+               
+               /**
+                  Requests the chunk of the result of getRows under the given cursor.
+               */
+               private CompletableFuture<ChunkedCollection.Chunk<Row>> fetchGetRowsChunk(com.foo.test.protobuf.Test.TestRequest.GetRowsRequest requestGetRows, long cursor) throws Exception {
+                  com.foo.test.protobuf.Test.TestRequest request = com.foo.test.protobuf.Test.TestRequest.newBuilder()
+                     .setGetRowsRequest(requestGetRows.toBuilder().setChunkCursor(cursor))
+                     .build();
+                  return toCompletableFuture(ClientEndpointExtensions.requestAsync(
+                     _endpoint, _serviceReference, _serializer, request)).thenApply(bytes -> {
+                     try {
+                        com.foo.test.protobuf.Test.TestResponse.GetRowsResponse responseGetRows = com.foo.test.protobuf.Test.TestResponse.parseFrom(bytes).getGetRowsResponse();
+                        return new ChunkedCollection.Chunk<>(com.foo.protobuf.TypesCodec.decode(responseGetRows.getGetRowsList()),
+                           responseGetRows.getChunkCursor());
+                     } catch (Exception e) {
+                        throw new CompletionException(e);
+                     }
+                  });
+               }
+               
+               /**
+                  Chains onto the reply without blocking if the endpoint delivers it as a completion stage,
+                  otherwise waits for the reply on the executor of this proxy.
+               */
+               @SuppressWarnings("unchecked")
+               private CompletableFuture<byte[]> toCompletableFuture(Future<byte[]> requestFuture) {
+                  if (requestFuture instanceof CompletionStage)
+                     return ((CompletionStage<byte[]>) requestFuture).toCompletableFuture();
+                  
+                  return CompletableFuture.supplyAsync(() -> {
+                     try {
+                        return requestFuture.get();
+                     } catch (ExecutionException e) {
+                        throw new CompletionException(e.getCause());
+                     } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                     }
+                  }, _executor);
+               }
+               
+               /**
+                  Waiting for a reply occupies a thread until the reply arrives, so the pool is not bounded,
+                  such that calls do not queue up behind outstanding ones; idle threads terminate after a
+                  minute.
+               */
+               private static ExecutorService newReplyExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestProxy-reply-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+               
+               /**
+                  Shuts down the executor which this proxy created to wait for replies, once the outstanding
+                  calls have received their replies.
+               */
+               @Override
+               public void close() {
+                  if (_ownedExecutor != null)
+                     _ownedExecutor.shutdown();
+               }
+
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                struct Row { string name; };
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    GetRows(in string filter) returns sequence<Row>[chunk size = 100];
+                };
+            }
+        ''', setOf(ProjectType.PROXY), fileCount, contents)
+    }
+
+    @Test
+    def void testDispatcher()
+    {
+        val fileCount = 3
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.dispatcher/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/dispatcher/TestDispatcher.java", '''
+            package com.foo.test.dispatcher;
+
+            import com.btc.cab.servicecomm.api.IServerEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceDispatcher;
+            import com.btc.cab.servicecomm.api.IServiceFaultHandlerManager;
+            import com.btc.cab.servicecomm.api.exceptions.InvalidMessageReceivedException;
+            import com.btc.cab.servicecomm.common.IPeerIdentity;
+            import com.btc.cab.servicecomm.faulthandling.ServiceFaultHandlerManager;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CompletionException;
+            import java.util.concurrent.CompletionStage;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Future;
+
+            public class TestDispatcher implements IServiceDispatcher {
+
+               private final ITest _dispatchee;
+
+               private final ISerializer _serializer;
+
+               private final IServiceFaultHandlerManager _faultHandlerManager;
+
+               private final Executor _executor;
+
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer
+               ) {
+               this(dispatchee, serializer, newResultExecutor());
+               }
+
+               /**
+                  @param executor executor used to wait for the results of asynchronous operations if the
+                  dispatchee does not return them as a completion stage; each outstanding result occupies one
+                  of its threads
+               */
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer,
+               Executor executor
+               ) {
+               _dispatchee = dispatchee;
+               _executor = executor;
+               _serializer = serializer;
+
+                  // ServiceFaultHandlerManager
+                  _faultHandlerManager = new ServiceFaultHandlerManager();
+
+                  // ServiceFaultHandler
+                  _faultHandlerManager.registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+
+               /**
+                  @see com.btc.cab.servicecomm.api.IServiceDispatcher#processRequest
+               */
+               @Override
+               public byte[] processRequest(
+                  byte[] requestBuffer, IPeerIdentity peerIdentity, IServerEndpoint serverEndpoint) throws Exception {
+
+                  byte[] requestByte = 
+                  requestBuffer
+                              ;
+                  com.foo.test.protobuf.Test.TestRequest request
+                     = com.foo.test.protobuf.Test.TestRequest.parseFrom(requestByte);
+
+                  switch (request.getRequestCase())
+                  {
+                     case GET_VALUE_REQUEST:
+                        return awaitResponse(handleGetValue(request.getGetValueRequest()));
+                     default:
+                        break;
+                  }
+
+                  // request could not be processed
+                  throw new InvalidMessageReceivedException("Unknown or invalid request");
+               }
+
+               private CompletableFuture<byte[]> handleGetValue(com.foo.test.protobuf.Test.TestRequest.GetValueRequest request) throws Exception {
+
+                  // call actual method
+                  return toCompletableFuture(_dispatchee.getValue
+                  (
+                  request.getKey()
+                  )).thenApply(result -> {
+                     try {
+                        return encodeGetValueResponse(result);
+                     } catch (Exception e) {
+                        throw new CompletionException(e);
+                     }
+                  });
+               }
+
+               private byte[] encodeGetValueResponse(Integer result) throws Exception {
+                  // deliver response
+                  com.foo.test.protobuf.Test.TestResponse.GetValueResponse methodResponse
+                     = com.foo.test.protobuf.Test.TestResponse.GetValueResponse.newBuilder()
+                     .setGetValue(result)
+                     .build();
+
+                  com.foo.test.protobuf.Test.TestResponse response
+                     = com.foo.test.protobuf.Test.TestResponse.newBuilder()
+                     .setGetValueResponse(methodResponse)
+                     .build();
+
+                  return _serializer.serialize(response);
+               }
+
+               /**
+                  Waits for the response to an asynchronous operation, as ServiceComm takes the response from
+                  processRequest. The response is encoded by the thread which completes the result.
+               */
+               private static <T> T awaitResponse(CompletableFuture<T> response) throws Exception {
+                  try {
+                     return response.join();
+                  } catch (CompletionException e) {
+                     throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+                  }
+               }
+
+               /**
+                  Continues on the result of the dispatchee without blocking if it is a completion stage,
+                  otherwise waits for the result on the executor of this dispatcher.
+               */
+               @SuppressWarnings("unchecked")
+               private <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+                  if (future instanceof CompletionStage)
+                     return ((CompletionStage<T>) future).toCompletableFuture();
+
+                  return CompletableFuture.supplyAsync(() -> {
+                     try {
+                        return future.get();
+                     } catch (ExecutionException e) {
+                        throw new CompletionException(e.getCause());
+                     } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                     }
+                  }, _executor);
+               }
+
+               /**
+                  Waiting for a result which is not a completion stage occupies a thread until the result is
+                  available, so the pool is not bounded; idle threads terminate after a minute.
+               */
+               private static ExecutorService newResultExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestDispatcher-result-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+
+               /**
+               @see com.btc.cab.servicecomm.api.IServiceDispatcher#getServiceFaultHandlerManager
+               */
+               @Override
+               public IServiceFaultHandlerManager getServiceFaultHandlerManager() {
+                  return _faultHandlerManager;
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    query GetValue(in string key) returns int32;
+                };
+            }
+        ''', setOf(ProjectType.DISPATCHER), fileCount, contents)
+    }
+
+    @Test
+    def void testDispatcherWithMetrics()
+    {
+        val fileCount = 3
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.dispatcher/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/dispatcher/TestDispatcher.java", '''
+            package com.foo.test.dispatcher;
+
+            import com.btc.cab.servicecomm.api.IServerEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceDispatcher;
+            import com.btc.cab.servicecomm.api.IServiceFaultHandlerManager;
+            import com.btc.cab.servicecomm.api.exceptions.InvalidMessageReceivedException;
+            import com.btc.cab.servicecomm.common.IPeerIdentity;
+            import com.btc.cab.servicecomm.faulthandling.ServiceFaultHandlerManager;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.foo.test.serviceapi.IServiceMetrics;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CompletionException;
+            import java.util.concurrent.CompletionStage;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Future;
+
+            public class TestDispatcher implements IServiceDispatcher {
+               
+               private final ITest _dispatchee;
+
+               private final ISerializer _serializer;
+
+               private final IServiceFaultHandlerManager _faultHandlerManager;
+               
+               private final Executor _executor;
+               
+               private final IServiceMetrics _metrics;
+               
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer
+               ) {
+               this(dispatchee, serializer, newResultExecutor());
+               }
+               
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer,
+               Executor executor
+               ) {
+               this(dispatchee, serializer, executor, IServiceMetrics.NONE);
+               }
+               
+               /**
+                  @param executor executor used to wait for the results of asynchronous operations if the
+                  dispatchee does not return them as a completion stage; each outstanding result occupies one
+                  of its threads
+                  @param metrics receives the duration of each phase of the dispatched operations
+               */
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer,
+               Executor executor,
+               IServiceMetrics metrics
+               ) {
+               _dispatchee = dispatchee;
+               _executor = executor;
+               _metrics = metrics;
+               _serializer = serializer;
+
+                  // ServiceFaultHandlerManager
+                  _faultHandlerManager = new ServiceFaultHandlerManager();
+
+                  // ServiceFaultHandler
+                  _faultHandlerManager.registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+               
+               /**
+                  @see com.btc.cab.servicecomm.api.IServiceDispatcher#processRequest
+               */
+               @Override
+               public byte[] processRequest(
+                  byte[] requestBuffer, IPeerIdentity peerIdentity, IServerEndpoint serverEndpoint) throws Exception {
+                  
+                  byte[] requestByte = 
+                  requestBuffer
+                              ;
+                  long parseStart = System.nanoTime();
+                  com.foo.test.protobuf.Test.TestRequest request
+                     = com.foo.test.protobuf.Test.TestRequest.parseFrom(requestByte);
+                  long parseDuration = System.nanoTime() - parseStart;
+                  
+                  switch (request.getRequestCase())
+                  {
+                     case GET_VALUE_REQUEST:
+                        _metrics.record("GetValue", IServiceMetrics.Phase.PARSE, parseDuration);
+                        return awaitResponse(handleGetValue(request.getGetValueRequest()));
+                     default:
+                        break;
+                  }
+                  
+                  // request could not be processed
+                  throw new InvalidMessageReceivedException("Unknown or invalid request");
+               }
+               
+               private CompletableFuture<byte[]> handleGetValue(com.foo.test.protobuf.Test.TestRequest.GetValueRequest request) throws Exception {
+                  
+                  // decode [in] parameters
+                  long decodeStart = System.nanoTime();
+                  String key = request.getKey();
+                  _metrics.record("GetValue", IServiceMetrics.Phase.DECODE, System.nanoTime() - decodeStart);
+                  long invokeStart = System.nanoTime();
+                  
+                  // call actual method
+                  return toCompletableFuture(_dispatchee.getValue
+                  (
+                  key
+                  )).thenApply(result -> {
+                     _metrics.record("GetValue", IServiceMetrics.Phase.INVOKE, System.nanoTime() - invokeStart);
+                     try {
+                        return encodeGetValueResponse(result);
+                     } catch (Exception e) {
+                        throw new CompletionException(e);
+                     }
+                  });
+               }
+               
+               private byte[] encodeGetValueResponse(Integer result) throws Exception {
+                  long encodeStart = System.nanoTime();
+                  
+                  // deliver response
+                  com.foo.test.protobuf.Test.TestResponse.GetValueResponse methodResponse
+                     = com.foo.test.protobuf.Test.TestResponse.GetValueResponse.newBuilder()
+                     .setGetValue(result)
+                     .build();
+                  
+                  com.foo.test.protobuf.Test.TestResponse response
+                     = com.foo.test.protobuf.Test.TestResponse.newBuilder()
+                     .setGetValueResponse(methodResponse)
+                     .build();
+                  
+                  long serializeStart = System.nanoTime();
+                  _metrics.record("GetValue", IServiceMetrics.Phase.ENCODE, serializeStart - encodeStart);
+                  
+                  byte[] responseBuffer = _serializer.serialize(response);
+                  _metrics.record("GetValue", IServiceMetrics.Phase.SERIALIZE, System.nanoTime() - serializeStart);
+                  return responseBuffer;
+               }
+               
+               /**
+                  Waits for the response to an asynchronous operation, as ServiceComm takes the response from
+                  processRequest. The response is encoded by the thread which completes the result.
+               */
+               private static <T> T awaitResponse(CompletableFuture<T> response) throws Exception {
+                  try {
+                     return response.join();
+                  } catch (CompletionException e) {
+                     throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+                  }
+               }
+               
+               /**
+                  Continues on the result of the dispatchee without blocking if it is a completion stage,
+                  otherwise waits for the result on the executor of this dispatcher.
+               */
+               @SuppressWarnings("unchecked")
+               private <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+                  if (future instanceof CompletionStage)
+                     return ((CompletionStage<T>) future).toCompletableFuture();
+                  
+                  return CompletableFuture.supplyAsync(() -> {
+                     try {
+                        return future.get();
+                     } catch (ExecutionException e) {
+                        throw new CompletionException(e.getCause());
+                     } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                     }
+                  }, _executor);
+               }
+               
+               /**
+                  Waiting for a result which is not a completion stage occupies a thread until the result is
+                  available, so the pool is not bounded; idle threads terminate after a minute.
+               */
+               private static ExecutorService newResultExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestDispatcher-result-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+
+               /**
+               @see com.btc.cab.servicecomm.api.IServiceDispatcher#getServiceFaultHandlerManager
+               */
+               @Override
+               public IServiceFaultHandlerManager getServiceFaultHandlerManager() {
+                  return _faultHandlerManager;
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    query GetValue(in string key) returns int32;
+                };
+            }
+        ''', new HashSet<ArtifactNature>(Arrays.asList(ArtifactNature.JAVA)), setOf(ProjectType.DISPATCHER), null,
+            null, #{GeneratorOptions.METRICS -> "true"}.entrySet, fileCount, contents)
+    }
+
+    @Test
+    def void testDispatcherWithZeroCopy()
+    {
+        val fileCount = 3
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.test.dispatcher/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/test/dispatcher/TestDispatcher.java", '''
+            package com.foo.test.dispatcher;
+
+            import com.btc.cab.servicecomm.api.IServerEndpoint;
+            import com.btc.cab.servicecomm.api.IServiceDispatcher;
+            import com.btc.cab.servicecomm.api.IServiceFaultHandlerManager;
+            import com.btc.cab.servicecomm.api.exceptions.InvalidMessageReceivedException;
+            import com.btc.cab.servicecomm.common.IPeerIdentity;
+            import com.btc.cab.servicecomm.faulthandling.ServiceFaultHandlerManager;
+            import com.btc.cab.servicecomm.serialization.ISerializer;
+            import com.foo.test.serviceapi.ITest;
+            import com.foo.test.serviceapi.TestServiceFaultHandlerFactory;
+            import com.google.protobuf.CodedInputStream;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+
+            public class TestDispatcher implements IServiceDispatcher {
+               
+               private final ITest _dispatchee;
+
+               private final ISerializer _serializer;
+
+               private final IServiceFaultHandlerManager _faultHandlerManager;
+               
+               private final Executor _executor;
+               
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer
+               ) {
+               this(dispatchee, serializer, newResultExecutor());
+               }
+               
+               /**
+                  @param executor executor used to wait for the results of asynchronous operations if the
+                  dispatchee does not return them as a completion stage; each outstanding result occupies one
+                  of its threads
+               */
+               public TestDispatcher(ITest dispatchee, 
+               ISerializer serializer,
+               Executor executor
+               ) {
+               _dispatchee = dispatchee;
+               _executor = executor;
+               _serializer = serializer;
+
+                  // ServiceFaultHandlerManager
+                  _faultHandlerManager = new ServiceFaultHandlerManager();
+
+                  // ServiceFaultHandler
+                  _faultHandlerManager.registerHandler(TestServiceFaultHandlerFactory.createServiceFaultHandler());
+               }
+               
+               /**
+                  @see com.btc.cab.servicecomm.api.IServiceDispatcher#processRequest
+               */
+               @Override
+               public byte[] processRequest(
+                  byte[] requestBuffer, IPeerIdentity peerIdentity, IServerEndpoint serverEndpoint) throws Exception {
+                  
+                  byte[] requestByte = 
+                  requestBuffer
+                              ;
+                  com.foo.test.protobuf.Test.TestRequest request
+                     = com.foo.test.protobuf.Test.TestRequest.parseFrom(newAliasingInput(requestByte));
+                  
+                  switch (request.getRequestCase())
+                  {
+                     case GET_VALUE_REQUEST:
+                        return handleGetValue(request.getGetValueRequest());
+                     default:
+                        break;
+                  }
+                  
+                  // request could not be processed
+                  throw new InvalidMessageReceivedException("Unknown or invalid request");
+               }
+               
+               private byte[] handleGetValue(com.foo.test.protobuf.Test.TestRequest.GetValueRequest request) throws Exception {
+                  
+                  // call actual method
+                  Integer result = _dispatchee.getValue
+                  (
+                  request.getKey()
+                  );
+                  
+                  return encodeGetValueResponse(result);
+               }
+               
+               private byte[] encodeGetValueResponse(Integer result) throws Exception {
+                  // deliver response
+                  com.foo.test.protobuf.Test.TestResponse.GetValueResponse methodResponse
+                     = com.foo.test.protobuf.Test.TestResponse.GetValueResponse.newBuilder()
+                     .setGetValue(result)
+                     .build();
+                  
+                  com.foo.test.protobuf.Test.TestResponse response
+                     = com.foo.test.protobuf.Test.TestResponse.newBuilder()
+                     .setGetValueResponse(methodResponse)
+                     .build();
+                  
+                  return response.toByteArray();
+               }
+               
+               /**
+                  Waiting for a result which is not a completion stage occupies a thread until the result is
+                  available, so the pool is not bounded; idle threads terminate after a minute.
+               */
+               private static ExecutorService newResultExecutor() {
+                  return Executors.newCachedThreadPool(runnable -> {
+                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                     thread.setName("TestDispatcher-result-" + thread.getName());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
+               }
+               
+               /**
+                  Opens the buffer for parsing without copying the bytes fields of the message, which refer to
+                  the buffer instead; the buffer must not be modified afterwards.
+               */
+               private static CodedInputStream newAliasingInput(byte[] buffer) {
+                  CodedInputStream input = CodedInputStream.newInstance(buffer);
+                  input.enableAliasing(true);
+                  return input;
+               }
+
+               /**
+               @see com.btc.cab.servicecomm.api.IServiceDispatcher#getServiceFaultHandlerManager
+               */
+               @Override
+               public IServiceFaultHandlerManager getServiceFaultHandlerManager() {
+                  return _faultHandlerManager;
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo {
+                interface Test[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E] {
+                    sync GetValue(in string key) returns int32;
+                };
+            }
+        ''', new HashSet<ArtifactNature>(Arrays.asList(ArtifactNature.JAVA)), setOf(ProjectType.DISPATCHER), null,
+            null, #{GeneratorOptions.JAVA_ZERO_COPY -> "true"}.entrySet, fileCount, contents)
+    }
+
+    @Test
+    def void testEnumCodec()
+    {
+        val fileCount = 4
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.protobuf/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/protobuf/TypesCodec.java", '''
+            package com.foo.protobuf;
+
+            import com.btc.cab.servicecomm.api.IError;
+            import com.foo.common.Color;
+            import com.foo.common.ServiceFaultHandlerFactory;
+            import com.google.protobuf.ByteString;
+            import com.google.protobuf.UnsafeByteOperations;
+            import java.lang.reflect.Method;
+            import java.util.ArrayList;
+            import java.util.Collection;
+            import java.util.UUID;
+            import java.util.concurrent.CompletableFuture;
+            import org.apache.commons.lang3.exception.ExceptionUtils;
+
+            public class TypesCodec {
+
+               private static IError encodeException(Exception e)
+               {
+                  Exception cause = (Exception) ExceptionUtils.getRootCause(e);
+                  return ServiceFaultHandlerFactory.createError(cause);
+               }
+
+               private static Exception decodeException(String errorType, String message, String stackTrace)
+               {
+                  return ServiceFaultHandlerFactory.createException(errorType, message, stackTrace);
+               }
+
+               @SuppressWarnings("unchecked")
+               public static<TOut, TIn> Collection<TOut> encode(Collection<TIn> plainData) {
+                  // the elements of a sequence have a single type, so UUIDs are recognized by the first one
+                  if (!plainData.isEmpty() && plainData.iterator().next() instanceof UUID)
+                     return (Collection<TOut>) encodeUUIDs((Collection<UUID>) plainData);
+                  
+                  Collection<TOut> encodedData = new ArrayList<>(plainData.size());
+                  for (TIn item : plainData)
+                     encodedData.add((TOut) encode(item));
+                  return encodedData;
+               }
+
+               public static<TOut, TIn> Collection<TOut> encodeFailable(Collection<CompletableFuture<TIn>> plainData, Class<TOut> targetType)
+               {
+                  Collection<TOut> encodedData = new ArrayList<>(plainData.size());
+                  for (CompletableFuture<TIn> item : plainData)
+                     encodedData.add(encodeFailableWrapper(item, targetType));
+                  return encodedData;
+               }
+
+               private static<TOut, TIn> TOut encodeFailableWrapper(CompletableFuture<TIn> failableData, Class<TOut> targetType)
+               {
+                  try { return encodeFailable(failableData, targetType); }
+                  catch (Exception e) { throw new RuntimeException(e); }
+               }
+
+               @SuppressWarnings("unchecked")
+               public static<TOut, TIn> Collection<TOut> decode(Collection<TIn> encodedData) {
+                  if (!encodedData.isEmpty() && encodedData.iterator().next() instanceof ByteString)
+                     return (Collection<TOut>) decodeUUIDs((Collection<ByteString>) encodedData);
+                  
+                  Collection<TOut> plainData = new ArrayList<>(encodedData.size());
+                  for (TIn item : encodedData)
+                     plainData.add((TOut) decode(item));
+                  return plainData;
+               }
+               
+               public static Collection<ByteString> encodeUUIDs(Collection<UUID> plainData) {
+                  Collection<ByteString> encodedData = new ArrayList<>(plainData.size());
+                  for (UUID item : plainData)
+                     encodedData.add(encode(item));
+                  return encodedData;
+               }
+               
+               public static Collection<UUID> decodeUUIDs(Collection<ByteString> encodedData) {
+                  Collection<UUID> plainData = new ArrayList<>(encodedData.size());
+                  for (ByteString item : encodedData)
+                     plainData.add(decode(item));
+                  return plainData;
+               }
+
+               public static ByteString encode(UUID plainData) {
+
+                  long mostSignificantBits = plainData.getMostSignificantBits();
+                  long leastSignificantBits = plainData.getLeastSignificantBits();
+                  byte[] rawBytes = new byte[16];
+                  for (int i = 0; i < 8; i++)
+                  {
+                     rawBytes[GUID_BYTE_ORDER[i]] = (byte) (mostSignificantBits >>> (56 - 8 * i));
+                     rawBytes[GUID_BYTE_ORDER[i + 8]] = (byte) (leastSignificantBits >>> (56 - 8 * i));
+                  }
+
+                  // the array is not referenced anywhere else, so it does not need to be copied
+                  return UnsafeByteOperations.unsafeWrap(rawBytes);
+               }
+
+               @SuppressWarnings( {"boxing", "unchecked"} )
+               private static<TOut, TIn> TOut encodeFailable(CompletableFuture<TIn> failableData, Class<TOut> targetType) throws Exception
+               {
+                  if (failableData == null)
+                     throw new NullPointerException();
+
+                  if (failableData.isCompletedExceptionally())
+                  {
+                    try
+                    {
+                       failableData.get();
+                    } catch (Exception e) // retrieve and encode underlying exception
+                    {
+                       IError error = encodeException(e);
+                       Method newBuilderMethod = targetType.getDeclaredMethod("newBuilder");
+                       Object builder = newBuilderMethod.invoke(null);
+                       Method setExceptionMethod = builder.getClass().getDeclaredMethod("setException", String.class);
+                       setExceptionMethod.invoke(builder, error.getServerErrorType());
+                       Method setMessageMethod = builder.getClass().getDeclaredMethod("setMessage", String.class);
+                       setMessageMethod.invoke(builder, error.getMessage());
+                       Method setStacktraceMethod = builder.getClass().getDeclaredMethod("setStacktrace", String.class);
+                       setStacktraceMethod.invoke(builder, error.getServerContextInformation());
+                       Method buildMethod = builder.getClass().getDeclaredMethod("build");
+                       return (TOut) buildMethod.invoke(builder);
+                    }
+                  }
+                  else
+                  {
+                    TIn plainData = failableData.get();
+                    Method newBuilderMethod = targetType.getDeclaredMethod("newBuilder");
+                    Object builder = newBuilderMethod.invoke(null);
+                    Method getValueMethod = builder.getClass().getDeclaredMethod("getValue");
+                    Class<?> paramType = getValueMethod.getReturnType();
+                    Method setValueMethod = builder.getClass().getDeclaredMethod("setValue", paramType);
+                    setValueMethod.invoke(builder, encode( plainData ));
+                    Method buildMethod = builder.getClass().getDeclaredMethod("build");
+                    return (TOut) buildMethod.invoke(builder);
+                  }
+
+                  throw new IllegalArgumentException("Unknown target type for encoding: " + targetType.getCanonicalName());
+               }
+
+               @SuppressWarnings("unchecked")
+               public static<TOut, TIn> Collection<CompletableFuture<TOut>> decodeFailable(Collection<TIn> encodedData)
+               {
+                  Collection<CompletableFuture<TOut>> plainData = new ArrayList<>(encodedData.size());
+                  for (TIn item : encodedData)
+                     plainData.add(decodeFailableWrapper(item));
+                  return plainData;
+               }
+
+               private static<TOut, TIn> CompletableFuture<TOut> decodeFailableWrapper(TIn encodedData)
+               {
+                  try { return decodeFailable(encodedData); }
+                  catch (Exception e) { throw new RuntimeException(e); }
+               }
+
+               @SuppressWarnings( {"boxing", "unchecked"} )
+               public static<TOut, TIn> CompletableFuture<TOut> decodeFailable(TIn encodedData) throws Exception
+               {
+                  if (encodedData == null)
+                     throw new NullPointerException();
+
+                  CompletableFuture<TOut> result = new CompletableFuture<TOut>();
+
+                  Method hasValueMethod = encodedData.getClass().getDeclaredMethod("hasValue");
+                  Boolean hasValue = (Boolean) hasValueMethod.invoke(encodedData);
+                  if (hasValue)
+                  {
+                     Method getValueMethod = encodedData.getClass().getDeclaredMethod("getValue");
+                     Object value = getValueMethod.invoke(encodedData);
+                     if (encodedData.getClass().getSimpleName().toLowerCase().endsWith("_uuid")) // it's a failable UUID: explicit handling
+                        result.complete( (TOut) decode( (ByteString) value) );
+                     else
+                        result.complete( (TOut) decode(value) );
+                     return result;
+                  }
+                  else
+                  {
+                     Method hasExceptionMethod = encodedData.getClass().getDeclaredMethod("hasException");
+                     Boolean hasException = (Boolean) hasExceptionMethod.invoke(encodedData);
+                     if (hasException)
+                     {
+                        Method getExceptionMethod = encodedData.getClass().getDeclaredMethod("getException");
+                        String errorType = getExceptionMethod.invoke(encodedData).toString();
+                        Method getMessageMethod = encodedData.getClass().getDeclaredMethod("getMessage");
+                        String message = getMessageMethod.invoke(encodedData).toString();
+                        Method getStacktraceMethod = encodedData.getClass().getDeclaredMethod("getStacktrace");
+                        String stackTrace = getStacktraceMethod.invoke(encodedData).toString();
+                        result.completeExceptionally( decodeException(errorType, message, stackTrace) );
+                        return result;
+                     }
+                  }
+
+                  throw new IllegalArgumentException("Failed to decode the type: " + encodedData.getClass().getCanonicalName());
+               }
+
+               public static UUID decode(ByteString encodedData) {
+                  long mostSignificantBits = 0;
+                  long leastSignificantBits = 0;
+                  for (int i = 0; i < 8; i++)
+                  {
+                     mostSignificantBits = (mostSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i]) & 0xff);
+                     leastSignificantBits = (leastSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i + 8]) & 0xff);
+                  }
+                  return new UUID(mostSignificantBits, leastSignificantBits);
+               }
+
+               /**
+                * Position of each byte of a Java UUID (in big-endian order) within the encoded GUID. The encoded
+                * GUID has the format AAAAAAAA-BBBB-CCCC-DDDD-EEEEEEEEEEEE, where the AAAAAAAA, BBBB and CCCC groups
+                * are in little-endian order. Swapping the bytes is its own inverse, so this is used in both directions.
+                */
+               private static final int[] GUID_BYTE_ORDER = { 3, 2, 1, 0, 5, 4, 7, 6, 8, 9, 10, 11, 12, 13, 14, 15 };
+
+               /**
+                * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+                * instead, which are bound at compile time.
+                */
+               public static Object encode(Object plainData) {
+
+                  if (plainData == null)
+                     throw new NullPointerException();
+
+                  if (plainData instanceof UUID)
+                     return encode( (UUID) plainData );
+
+                  if (plainData instanceof Color)
+                     return encode( (Color) plainData );
+
+                  return plainData;
+               }
+
+               /**
+                * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+                * instead, which are bound at compile time.
+                */
+               public static Object decode(Object encodedData) {
+
+                  if (encodedData == null)
+                     throw new NullPointerException();
+
+                  if (encodedData instanceof com.foo.protobuf.Types.Color)
+                     return decode( (com.foo.protobuf.Types.Color) encodedData );
+
+                  return encodedData;
+               }
+
+               private static final Color[] COLOR_VALUES = Color.values();
+
+               @SuppressWarnings("boxing")
+               public static com.foo.protobuf.Types.Color encode(Color typedData) {
+
+                  if (typedData == null)
+                     throw new NullPointerException();
+
+                  return com.foo.protobuf.Types.Color.forNumber(typedData.ordinal() + 1);
+               }
+
+               @SuppressWarnings("boxing")
+               public static Color decode(com.foo.protobuf.Types.Color typedData) {
+
+                  if (typedData == null)
+                     throw new NullPointerException();
+
+                  return COLOR_VALUES[typedData.getNumber() - 1];
+               }
+            }
+        ''')
+
+        checkGenerators('''
+            module foo
+            {
+                enum Color { red, green, blue };
+            }
+        ''', setOf(ProjectType.PROTOBUF), fileCount, contents)
+    }
+
+    @Test
+    def void testFailableCodec()
+    {
+        val input = '''
+            module foo
+            {
+                struct Entry { string name; };
+                interface Svc[guid=384E277A-C343-4F37-B910-C2CE6B37FC8E]
+                {
+                    GetEntries() returns sequence<failable Entry>;
+                    GetIds() returns sequence<failable uuid>;
+                };
+            }
+        '''
+        val fileCount = 7
+        val baseDirectory = ArtifactNature.JAVA.label + "com.foo.svc.protobuf/"
+        val contents = ImmutableMap.of(baseDirectory + "src/main/java/com/foo/svc/protobuf/SvcCodec.java", '''
+            package com.foo.svc.protobuf;
+
+            import com.btc.cab.servicecomm.api.IError;
+            import com.foo.common.Entry;
+            import com.foo.svc.serviceapi.SvcServiceFaultHandlerFactory;
+            import com.google.protobuf.ByteString;
+            import com.google.protobuf.UnsafeByteOperations;
+            import java.lang.reflect.Method;
+            import java.util.ArrayList;
+            import java.util.Collection;
+            import java.util.UUID;
+            import java.util.concurrent.CompletableFuture;
+            import org.apache.commons.lang3.exception.ExceptionUtils;
+
+            public class SvcCodec {
+   
+               private static IError encodeException(Exception e)
+               {
+                  Exception cause = (Exception) ExceptionUtils.getRootCause(e);
+                  return SvcServiceFaultHandlerFactory.createError(cause);
+               }
+   
+               private static Exception decodeException(String errorType, String message, String stackTrace)
+               {
+                  return SvcServiceFaultHandlerFactory.createException(errorType, message, stackTrace);
+               }
+   
+               @SuppressWarnings("unchecked")
+               public static<TOut, TIn> Collection<TOut> encode(Collection<TIn> plainData) {
+                  // the elements of a sequence have a single type, so UUIDs are recognized by the first one
+                  if (!plainData.isEmpty() && plainData.iterator().next() instanceof UUID)
+                     return (Collection<TOut>) encodeUUIDs((Collection<UUID>) plainData);
+                  
+                  Collection<TOut> encodedData = new ArrayList<>(plainData.size());
+                  for (TIn item : plainData)
+                     encodedData.add((TOut) encode(item));
+                  return encodedData;
+               }
+   
+               public static<TOut, TIn> Collection<TOut> encodeFailable(Collection<CompletableFuture<TIn>> plainData, Class<TOut> targetType)
+               {
+                  Collection<TOut> encodedData = new ArrayList<>(plainData.size());
+                  for (CompletableFuture<TIn> item : plainData)
+                     encodedData.add(encodeFailableWrapper(item, targetType));
+                  return encodedData;
+               }
+   
+               private static<TOut, TIn> TOut encodeFailableWrapper(CompletableFuture<TIn> failableData, Class<TOut> targetType)
+               {
+                  try { return encodeFailable(failableData, targetType); }
+                  catch (Exception e) { throw new RuntimeException(e); }
+               }
+   
+               @SuppressWarnings("unchecked")
+               public static<TOut, TIn> Collection<TOut> decode(Collection<TIn> encodedData) {
+                  if (!encodedData.isEmpty() && encodedData.iterator().next() instanceof ByteString)
+                     return (Collection<TOut>) decodeUUIDs((Collection<ByteString>) encodedData);
+                  
+                  Collection<TOut> plainData = new ArrayList<>(encodedData.size());
+                  for (TIn item : encodedData)
+                     plainData.add((TOut) decode(item));
+                  return plainData;
+               }
+               
+               public static Collection<ByteString> encodeUUIDs(Collection<UUID> plainData) {
+                  Collection<ByteString> encodedData = new ArrayList<>(plainData.size());
+                  for (UUID item : plainData)
+                     encodedData.add(encode(item));
+                  return encodedData;
+               }
+               
+               public static Collection<UUID> decodeUUIDs(Collection<ByteString> encodedData) {
+                  Collection<UUID> plainData = new ArrayList<>(encodedData.size());
+                  for (ByteString item : encodedData)
+                     plainData.add(decode(item));
+                  return plainData;
+               }
+   
+               public static ByteString encode(UUID plainData) {
+      
+                  long mostSignificantBits = plainData.getMostSignificantBits();
+                  long leastSignificantBits = plainData.getLeastSignificantBits();
+                  byte[] rawBytes = new byte[16];
+                  for (int i = 0; i < 8; i++)
+                  {
+                     rawBytes[GUID_BYTE_ORDER[i]] = (byte) (mostSignificantBits >>> (56 - 8 * i));
+                     rawBytes[GUID_BYTE_ORDER[i + 8]] = (byte) (leastSignificantBits >>> (56 - 8 * i));
+                  }
+
+                  // the array is not referenced anywhere else, so it does not need to be copied
+                  return UnsafeByteOperations.unsafeWrap(rawBytes);
+               }
+   
+               @SuppressWarnings( {"boxing", "unchecked"} )
+               private static<TOut, TIn> TOut encodeFailable(CompletableFuture<TIn> failableData, Class<TOut> targetType) throws Exception
+               {
+                  if (failableData == null)
+                     throw new NullPointerException();
+   
+                  if (failableData.isCompletedExceptionally())
+                  {
+                    try
+                    {
+                       failableData.get();
+                    } catch (Exception e) // retrieve and encode underlying exception
+                    {
+                       IError error = encodeException(e);
+                       Method newBuilderMethod = targetType.getDeclaredMethod("newBuilder");
+                       Object builder = newBuilderMethod.invoke(null);
+                       Method setExceptionMethod = builder.getClass().getDeclaredMethod("setException", String.class);
+                       setExceptionMethod.invoke(builder, error.getServerErrorType());
+                       Method setMessageMethod = builder.getClass().getDeclaredMethod("setMessage", String.class);
+                       setMessageMethod.invoke(builder, error.getMessage());
+                       Method setStacktraceMethod = builder.getClass().getDeclaredMethod("setStacktrace", String.class);
+                       setStacktraceMethod.invoke(builder, error.getServerContextInformation());
+                       Method buildMethod = builder.getClass().getDeclaredMethod("build");
+                       return (TOut) buildMethod.invoke(builder);
+                    }
+                  }
+                  else
+                  {
+                    TIn plainData = failableData.get();
+                    Method newBuilderMethod = targetType.getDeclaredMethod("newBuilder");
+                    Object builder = newBuilderMethod.invoke(null);
+                    Method getValueMethod = builder.getClass().getDeclaredMethod("getValue");
+                    Class<?> paramType = getValueMethod.getReturnType();
+                    Method setValueMethod = builder.getClass().getDeclaredMethod("setValue", paramType);
+                    setValueMethod.invoke(builder, encode( plainData ));
+                    Method buildMethod = builder.getClass().getDeclaredMethod("build");
+                    return (TOut) buildMethod.invoke(builder);
+                  }
+      
+                  throw new IllegalArgumentException("Unknown target type for encoding: " + targetType.getCanonicalName());
+               }
+   
+               @SuppressWarnings("unchecked")
+               public static<TOut, TIn> Collection<CompletableFuture<TOut>> decodeFailable(Collection<TIn> encodedData)
+               {
+                  Collection<CompletableFuture<TOut>> plainData = new ArrayList<>(encodedData.size());
+                  for (TIn item : encodedData)
+                     plainData.add(decodeFailableWrapper(item));
+                  return plainData;
+               }
+   
+               private static<TOut, TIn> CompletableFuture<TOut> decodeFailableWrapper(TIn encodedData)
+               {
+                  try { return decodeFailable(encodedData); }
+                  catch (Exception e) { throw new RuntimeException(e); }
+               }
+   
+               @SuppressWarnings( {"boxing", "unchecked"} )
+               public static<TOut, TIn> CompletableFuture<TOut> decodeFailable(TIn encodedData) throws Exception
+               {
+                  if (encodedData == null)
+                     throw new NullPointerException();
+
+                  CompletableFuture<TOut> result = new CompletableFuture<TOut>();
+      
+                  Method hasValueMethod = encodedData.getClass().getDeclaredMethod("hasValue");
+                  Boolean hasValue = (Boolean) hasValueMethod.invoke(encodedData);
+                  if (hasValue)
+                  {
+                     Method getValueMethod = encodedData.getClass().getDeclaredMethod("getValue");
+                     Object value = getValueMethod.invoke(encodedData);
+                     if (encodedData.getClass().getSimpleName().toLowerCase().endsWith("_uuid")) // it's a failable UUID: explicit handling
+                        result.complete( (TOut) decode( (ByteString) value) );
+                     else
+                        result.complete( (TOut) decode(value) );
+                     return result;
+                  }
+                  else
+                  {
+                     Method hasExceptionMethod = encodedData.getClass().getDeclaredMethod("hasException");
+                     Boolean hasException = (Boolean) hasExceptionMethod.invoke(encodedData);
+                     if (hasException)
+                     {
+                        Method getExceptionMethod = encodedData.getClass().getDeclaredMethod("getException");
+                        String errorType = getExceptionMethod.invoke(encodedData).toString();
+                        Method getMessageMethod = encodedData.getClass().getDeclaredMethod("getMessage");
+                        String message = getMessageMethod.invoke(encodedData).toString();
+                        Method getStacktraceMethod = encodedData.getClass().getDeclaredMethod("getStacktrace");
+                        String stackTrace = getStacktraceMethod.invoke(encodedData).toString();
+                        result.completeExceptionally( decodeException(errorType, message, stackTrace) );
+                        return result;
+                     }
+                  }
+      
+                  throw new IllegalArgumentException("Failed to decode the type: " + encodedData.getClass().getCanonicalName());
+               }
+   
+               public static UUID decode(ByteString encodedData) {
+                  long mostSignificantBits = 0;
+                  long leastSignificantBits = 0;
+                  for (int i = 0; i < 8; i++)
+                  {
+                     mostSignificantBits = (mostSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i]) & 0xff);
+                     leastSignificantBits = (leastSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i + 8]) & 0xff);
+                  }
+                  return new UUID(mostSignificantBits, leastSignificantBits);
+               }
+   
+               /**
+                * Position of each byte of a Java UUID (in big-endian order) within the encoded GUID. The encoded
+                * GUID has the format AAAAAAAA-BBBB-CCCC-DDDD-EEEEEEEEEEEE, where the AAAAAAAA, BBBB and CCCC groups
+                * are in little-endian order. Swapping the bytes is its own inverse, so this is used in both directions.
+                */
+               private static final int[] GUID_BYTE_ORDER = { 3, 2, 1, 0, 5, 4, 7, 6, 8, 9, 10, 11, 12, 13, 14, 15 };
+   
+               /**
+                * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+                * instead, which are bound at compile time.
+                */
+               public static Object encode(Object plainData) {
+   
+                  if (plainData == null)
+                     throw new NullPointerException();
+   
+                  if (plainData instanceof UUID)
+                     return encode( (UUID) plainData );
+
+                  return plainData;
+               }
+   
+               /**
+                * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+                * instead, which are bound at compile time.
+                */
+               public static Object decode(Object encodedData) {
+   
+                  if (encodedData == null)
+                     throw new NullPointerException();
+   
+      
+                  return encodedData;
+               }
+   
+               public static Collection<com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry> encodeFailable_foo_Svc_Foo_Entry(Collection<CompletableFuture<Entry>> plainData)
+               {
+                  Collection<com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry> encodedData = new ArrayList<>(plainData.size());
+                  for (CompletableFuture<Entry> item : plainData)
+                     encodedData.add(encodeFailable_foo_Svc_Foo_Entry(item));
+                  return encodedData;
+               }
+   
+               public static com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry encodeFailable_foo_Svc_Foo_Entry(CompletableFuture<Entry> failableData)
+               {
+                  if (failableData == null)
+                     throw new NullPointerException();
+   
+                  com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry.Builder builder = com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry.newBuilder();
+                  if (failableData.isCompletedExceptionally())
+                  {
+                     try
+                     {
+                        failableData.get();
+                     } catch (Exception e) // retrieve and encode underlying exception
+                     {
+                        IError error = encodeException(e);
+                        return builder
+                           .setException(error.getServerErrorType())
+                           .setMessage(error.getMessage())
+                           .setStacktrace(error.getServerContextInformation())
+                           .build();
+                     }
+                  }
+      
+                  return builder.setValue((com.foo.protobuf.Types.Entry) com.foo.protobuf.TypesCodec.encode(failableData.join())).build();
+               }
+   
+               public static Collection<CompletableFuture<Entry>> decodeFailable_foo_Svc_Foo_Entry(Collection<com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry> encodedData)
+               {
+                  Collection<CompletableFuture<Entry>> plainData = new ArrayList<>(encodedData.size());
+                  for (com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry item : encodedData)
+                     plainData.add(decodeFailable_foo_Svc_Foo_Entry(item));
+                  return plainData;
+               }
+   
+               public static CompletableFuture<Entry> decodeFailable_foo_Svc_Foo_Entry(com.foo.svc.protobuf.Svc.Failable_foo_Svc_Foo_Entry encodedData)
+               {
+                  if (encodedData == null)
+                     throw new NullPointerException();
+   
+                  CompletableFuture<Entry> result = new CompletableFuture<Entry>();
+                  if (encodedData.hasValue())
+                     result.complete((Entry) com.foo.protobuf.TypesCodec.decode(encodedData.getValue()));
+                  else if (encodedData.hasException())
+                     result.completeExceptionally(decodeException(encodedData.getException(), encodedData.getMessage(), encodedData.getStacktrace()));
+                  else
+                     throw new IllegalArgumentException("Failed to decode the type: " + encodedData.getClass().getCanonicalName());
+                  return result;
+               }
+   
+               public static Collection<com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid> encodeFailable_foo_Svc_Uuid(Collection<CompletableFuture<UUID>> plainData)
+               {
+                  Collection<com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid> encodedData = new ArrayList<>(plainData.size());
+                  for (CompletableFuture<UUID> item : plainData)
+                     encodedData.add(encodeFailable_foo_Svc_Uuid(item));
+                  return encodedData;
+               }
+   
+               public static com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid encodeFailable_foo_Svc_Uuid(CompletableFuture<UUID> failableData)
+               {
+                  if (failableData == null)
+                     throw new NullPointerException();
+   
+                  com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid.Builder builder = com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid.newBuilder();
+                  if (failableData.isCompletedExceptionally())
+                  {
+                     try
+                     {
+                        failableData.get();
+                     } catch (Exception e) // retrieve and encode underlying exception
+                     {
+                        IError error = encodeException(e);
+                        return builder
+                           .setException(error.getServerErrorType())
+                           .setMessage(error.getMessage())
+                           .setStacktrace(error.getServerContextInformation())
+                           .build();
+                     }
+                  }
+      
+                  return builder.setValue(encode(failableData.join())).build();
+               }
+   
+               public static Collection<CompletableFuture<UUID>> decodeFailable_foo_Svc_Uuid(Collection<com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid> encodedData)
+               {
+                  Collection<CompletableFuture<UUID>> plainData = new ArrayList<>(encodedData.size());
+                  for (com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid item : encodedData)
+                     plainData.add(decodeFailable_foo_Svc_Uuid(item));
+                  return plainData;
+               }
+   
+               public static CompletableFuture<UUID> decodeFailable_foo_Svc_Uuid(com.foo.svc.protobuf.Svc.Failable_foo_Svc_Uuid encodedData)
+               {
+                  if (encodedData == null)
+                     throw new NullPointerException();
+   
+                  CompletableFuture<UUID> result = new CompletableFuture<UUID>();
+                  if (encodedData.hasValue())
+                     result.complete(decode(encodedData.getValue()));
+                  else if (encodedData.hasException())
+                     result.completeExceptionally(decodeException(encodedData.getException(), encodedData.getMessage(), encodedData.getStacktrace()));
+                  else
+                     throw new IllegalArgumentException("Failed to decode the type: " + encodedData.getClass().getCanonicalName());
+                  return result;
+               }
+            }
+        ''')
+
+        checkGenerators(input, setOf(ProjectType.PROTOBUF), fileCount, contents)
+
+        val fsa = generate(input, setOf(ArtifactNature.JAVA), setOf(ProjectType.PROXY, ProjectType.DISPATCHER), null,
+            null, null)
+        val proxy = fsa.textFiles.get(ArtifactNature.JAVA.label +
+            "com.foo.svc.proxy/src/main/java/com/foo/svc/proxy/SvcProxy.java").toString
+        assertTrue(proxy.contains(
+            "Collection<CompletableFuture<Entry>> result = com.foo.svc.protobuf.SvcCodec.decodeFailable_foo_Svc_Foo_Entry(responseGetEntries.getGetEntriesList());"))
+        assertTrue(proxy.contains(
+            "Collection<CompletableFuture<UUID>> result = com.foo.svc.protobuf.SvcCodec.decodeFailable_foo_Svc_Uuid(responseGetIds.getGetIdsList());"))
+        val dispatcher = fsa.textFiles.get(ArtifactNature.JAVA.label +
+            "com.foo.svc.dispatcher/src/main/java/com/foo/svc/dispatcher/SvcDispatcher.java").toString
+        assertTrue(dispatcher.contains(
+            ".addAllGetEntries(com.foo.svc.protobuf.SvcCodec.encodeFailable_foo_Svc_Foo_Entry(result))"))
+        assertTrue(dispatcher.contains(".addAllGetIds(com.foo.svc.protobuf.SvcCodec.encodeFailable_foo_Svc_Uuid(result))"))
+        assertFalse(proxy.contains("getDeclaredMethod") || dispatcher.contains("getDeclaredMethod"))
+    }
+
+    @Test
+    def void testEnumOrdinalsMatchProtobufNumbers()
+    {
+        val fsa = generate('''
+            module foo
+            {
+                enum Color { red, green, blue };
+            }
+        ''', setOf(ArtifactNature.JAVA), setOf(ProjectType.COMMON, ProjectType.PROTOBUF), null, null, null)
+
+        fsa.checkEnumOrdinals("Color", "/Color.java")
+    }
+
+    /**
+     * Compiles the UUID codec emitted into TypesCodec against a minimal stand-in for the ByteString of protobuf,
+     * and checks the encoded bytes against the layout of .NET's Guid.ToByteArray, which the other languages share.
+     */
+    @Test
+    def void testUuidCodecRoundTrip()
+    {
+        val compiler = ToolProvider.systemJavaCompiler
+        assumeNotNull(compiler)
+
+        val codec = generate('''
+            module foo
+            {
+                struct Entry { uuid id; };
+            }
+        ''', setOf(ArtifactNature.JAVA), setOf(ProjectType.PROTOBUF), null, null, null).textFiles.entrySet.findFirst [
+            key.endsWith("/TypesCodec.java")
+        ].value.toString
+
+        val directory = Files.createTempDirectory("uuidcodec")
+        val protobufDirectory = Files.createDirectories(directory.resolve("com/google/protobuf"))
+        val sources = #[
+            Files.write(protobufDirectory.resolve("ByteString.java"), '''
+                package com.google.protobuf;
+
+                public final class ByteString {
+                   private final byte[] bytes;
+                   ByteString(byte[] bytes) { this.bytes = bytes; }
+                   public static ByteString copyFrom(byte[] bytes) { return new ByteString(bytes.clone()); }
+                   public byte byteAt(int index) { return bytes[index]; }
+                   public byte[] toByteArray() { return bytes.clone(); }
+                }
+            '''.toString.bytes),
+            Files.write(protobufDirectory.resolve("UnsafeByteOperations.java"), '''
+                package com.google.protobuf;
+
+                public final class UnsafeByteOperations {
+                   public static ByteString unsafeWrap(byte[] bytes) { return new ByteString(bytes); }
+                }
+            '''.toString.bytes),
+            Files.write(directory.resolve("UuidCodec.java"), '''
+                import com.google.protobuf.ByteString;
+                import com.google.protobuf.UnsafeByteOperations;
+                import java.util.UUID;
+
+                public class UuidCodec {
+                   «codec.extractMember("private static final int[] GUID_BYTE_ORDER")»
+                   «codec.extractMember("public static ByteString encode(UUID plainData)")»
+                   «codec.extractMember("public static UUID decode(ByteString encodedData)")»
+                }
+            '''.toString.bytes)
+        ]
+        assertEquals(0, compiler.run(null, null, null, #["-d", directory.toString] + sources.map[toString]))
+
+        val loader = new URLClassLoader(#[directory.toUri.toURL])
+        val codecClass = loader.loadClass("UuidCodec")
+        val byteStringClass = loader.loadClass("com.google.protobuf.ByteString")
+        val encode = codecClass.getMethod("encode", UUID)
+        val decode = codecClass.getMethod("decode", byteStringClass)
+        val toByteArray = byteStringClass.getMethod("toByteArray")
+        val copyFrom = byteStringClass.getMethod("copyFrom", typeof(byte[]))
+
+        val uuid = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff")
+        val guidBytes = "33221100554477668899aabbccddeeff"
+        val encoded = toByteArray.invoke(encode.invoke(null, uuid)) as byte[]
+        assertEquals(guidBytes, encoded.map[String.format("%02x", it)].join)
+        val rawBytes = newByteArrayOfSize(16)
+        for (i : 0 ..< 16)
+            rawBytes.set(i, Integer.parseInt(guidBytes.substring(2 * i, 2 * i + 2), 16) as byte)
+        assertEquals(uuid, decode.invoke(null, copyFrom.invoke(null, rawBytes)))
+
+        for (other : #[UUID.fromString("ffeeddcc-bbaa-9988-7766-554433221100"), new UUID(0, 0), UUID.randomUUID])
+            assertEquals(other, decode.invoke(null, encode.invoke(null, other)))
+        loader.close
+    }
+
+    /**
+     * Returns the member of the generated source which starts with the given declaration, up to the end of its
+     * body or initializer.
+     */
+    private static def extractMember(String source, String declaration)
+    {
+        val start = source.indexOf(declaration)
+        assertTrue("No member " + declaration, start >= 0)
+        var end = source.indexOf("{", start)
+        var depth = 0
+        do
+        {
+            switch (source.charAt(end))
+            {
+                case Character.valueOf('{'): depth++
+                case Character.valueOf('}'): depth--
+            }
+            end++
+        } while (depth > 0)
+        if (source.charAt(end) == Character.valueOf(';'))
+            end++
+        source.substring(start, end)
+    }
+
     def void checkGenerators(CharSequence input, Set<ProjectType> projectTypes, int fileCount,
         Map<String, String> contents)
     {
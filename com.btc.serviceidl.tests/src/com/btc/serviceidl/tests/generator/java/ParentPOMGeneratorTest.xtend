@@ -24,6 +24,7 @@ import org.junit.Test
 import org.junit.runner.RunWith
 
 import static com.btc.serviceidl.tests.TestExtensions.*
+import static org.junit.Assert.*
 
 @RunWith(XtextRunner)
 @InjectWith(IdlInjectorProvider)
@@ -39,7 +40,8 @@ class ParentPOMGeneratorTest
         val groupId = 'foo'
         val mavenResolver = new MavenResolver(groupId)
         val generationSettings = new DefaultGenerationSettings()
-        val generator = new ParentPOMGenerator(generationSettings, fsa, idl, mavenResolver, groupId)
+        val generator = new ParentPOMGenerator(generationSettings, fsa, idl, mavenResolver.registeredPackages,
+            groupId)
         generator.generate
 
         checkFile(fsa, "java" + "pom.xml", '''<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
@@ -72,4 +74,17 @@ class ParentPOMGeneratorTest
         
         ''')
     }
+
+    @Test
+    def void testReadModules()
+    {
+        val idl = '''module foo { interface Bar {}; }'''.parse
+        val fsa = new InMemoryFileSystemAccess
+        val generator = new ParentPOMGenerator(new DefaultGenerationSettings(), fsa, idl, #["foo.common", "foo.bar.proxy"],
+            'foo')
+        generator.generate
+
+        assertEquals(#["foo.common", "foo.bar.proxy"],
+            ParentPOMGenerator.readModules(fsa.textFiles.get("java" + ParentPOMGenerator.FILE_NAME)))
+    }
 }
@@ -32,6 +32,8 @@ import org.junit.runner.RunWith
 
 import static org.junit.Assert.assertEquals
 
+import static extension com.btc.serviceidl.util.Extensions.*
+
 @RunWith(XtextRunner)
 @InjectWith(IdlInjectorProvider)
 class ProtobufUtilTest
@@ -106,6 +108,26 @@ class ProtobufUtilTest
         assertEquals("com.foo.bar.protobuf.BarOuterClass.BarRequest", result.getFullyQualifiedName());
     }
 
+    @Test
+    def void testResolveFailableEncodeAndDecode()
+    {
+        idl = parseHelper.parse("module Foo { interface Bar { Get(in sequence<failable string> x) returns void; }; }");
+
+        dependencies = new HashSet<MavenDependency>()
+        typeResolver = new TypeResolver(qualifiedNameProvider, dependencies, new MavenResolver("foo"))
+
+        val interfaceDeclaration = fooModule.getModuleComponents().filter(InterfaceDeclaration).findFirst [
+            it.name == "Bar"
+        ]
+        val failableType = interfaceDeclaration.functions.head.parameters.head.paramType.actualType
+        assertEquals("com.foo.bar.protobuf.BarCodec.encodeFailable_Foo_Bar_String",
+            ProtobufUtil.resolveFailableEncode(typeResolver, qualifiedNameProvider, failableType,
+                interfaceDeclaration))
+        assertEquals("com.foo.bar.protobuf.BarCodec.decodeFailable_Foo_Bar_String",
+            ProtobufUtil.resolveFailableDecode(typeResolver, qualifiedNameProvider, failableType,
+                interfaceDeclaration))
+    }
+
     @Test
     def void testAsProtobufNameFromUpperCamel()
     {
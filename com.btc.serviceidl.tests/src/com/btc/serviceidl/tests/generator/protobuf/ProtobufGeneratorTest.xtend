@@ -10,6 +10,7 @@
  **********************************************************************/
 package com.btc.serviceidl.tests.generator.protobuf
 
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.tests.IdlInjectorProvider
@@ -78,7 +79,10 @@ class ProtobufGeneratorTest extends AbstractGeneratorTest
                   repeated BTC.PRINS.Infrastructure.ServiceHost.Demo.API.Protobuf.EntryType entries = 1;
                }
             
-               optional AddEntriesRequest add_entries_request = 1;
+               oneof request
+               {
+                  AddEntriesRequest add_entries_request = 1;
+               }
             }
             
             message DemoXResponse
@@ -94,6 +98,51 @@ class ProtobufGeneratorTest extends AbstractGeneratorTest
         checkGenerators(TestData.full, fileCount, contents)
     }
 
+    @Test
+    def void testFullForEachLanguage()
+    {
+        val fileCount = 27
+        val demoXBody = '''
+            
+            message DemoXRequest
+            {
+               message AddEntriesRequest
+               {
+                  repeated %s.EntryType entries = 1;
+               }
+            
+               oneof request
+               {
+                  AddEntriesRequest add_entries_request = 1;
+               }
+            }
+            
+            message DemoXResponse
+            {
+               message AddEntriesResponse
+               {
+               }
+            
+               optional AddEntriesResponse add_entries_response = 1;
+            }
+        '''
+
+        val contents = ImmutableMap.of(ArtifactNature.JAVA.label +
+            "com.btc.prins.infrastructure.servicehost.demo.api.demox.protobuf/src/main/proto/DemoX.proto", '''
+            syntax = "proto2";
+            package com.btc.prins.infrastructure.servicehost.demo.api.demox.protobuf;
+            import "com.btc.prins.infrastructure.servicehost.demo.api.protobuf/src/main/proto/Types.proto";
+        ''' + String.format(demoXBody, "com.btc.prins.infrastructure.servicehost.demo.api.protobuf"),
+            ArtifactNature.DOTNET.label + "Infrastructure/ServiceHost/Demo/API.NET/Protobuf/gen/DemoX.proto", '''
+            syntax = "proto2";
+            package BTC.PRINS.Infrastructure.ServiceHost.Demo.API.NET.Protobuf;
+            import "Infrastructure/ServiceHost/Demo/API.NET/Protobuf/gen/Types.proto";
+        ''' + String.format(demoXBody, "BTC.PRINS.Infrastructure.ServiceHost.Demo.API.NET.Protobuf"))
+
+        checkGenerators(TestData.full, #[ArtifactNature.CPP, ArtifactNature.JAVA, ArtifactNature.DOTNET].toSet,
+            new HashSet<ProjectType>(Arrays.asList(ProjectType.PROTOBUF)), null, fileCount, contents)
+    }
+
     @Test
     def void testNestedStruct()
     {
@@ -118,7 +167,74 @@ class ProtobufGeneratorTest extends AbstractGeneratorTest
 
         checkGenerators(TestData.getGoodTestCase("struct-nested"), fileCount, contents)
     }
-    
+
+    @Test
+    def void testPackedRepeated()
+    {
+        val fileCount = 6
+
+        val contents = ImmutableMap.of(ArtifactNature.CPP.label + "modules/foo/Protobuf/gen/Types.proto", '''
+            syntax = "proto2";
+            package foo.Protobuf;
+            
+            enum Color
+            {
+               Red = 1;
+               Green = 2;
+            }
+            
+            message Foo
+            {
+               repeated double values = 1 [packed=true];
+               repeated Color colors = 2 [packed=true];
+               repeated string names = 3;
+               repeated bytes ids = 4;
+            }
+        ''')
+
+        checkGenerators('''
+            module foo
+            {
+                struct Foo
+                {
+                    sequence<double> values;
+                    sequence<Color> colors;
+                    sequence<string> names;
+                    sequence<uuid> ids;
+                };
+                enum Color { Red, Green };
+            }
+        ''', #[ArtifactNature.CPP].toSet, new HashSet<ProjectType>(Arrays.asList(ProjectType.PROTOBUF)), null, null,
+            #{GeneratorOptions.PROTOBUF_PACKED_REPEATED -> "true"}.entrySet, fileCount, contents)
+    }
+
+    @Test
+    def void testArenas()
+    {
+        val fileCount = 6
+
+        val contents = ImmutableMap.of(ArtifactNature.CPP.label + "modules/foo/Protobuf/gen/Types.proto", '''
+            syntax = "proto2";
+            package foo.Protobuf;
+            option cc_enable_arenas = true;
+            
+            message Foo
+            {
+               required string name = 1;
+            }
+        ''')
+
+        checkGenerators('''
+            module foo
+            {
+                struct Foo
+                {
+                    string name;
+                };
+            }
+        ''', #[ArtifactNature.CPP].toSet, new HashSet<ProjectType>(Arrays.asList(ProjectType.PROTOBUF)), null, null,
+            #{GeneratorOptions.PROTOBUF_ARENAS -> "true"}.entrySet, fileCount, contents)
+    }
 
     def void checkGenerators(CharSequence input, int fileCount, Map<String, String> contents)
     {
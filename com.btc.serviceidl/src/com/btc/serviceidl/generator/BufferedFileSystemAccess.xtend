@@ -0,0 +1,149 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator
+
+import java.io.InputStream
+import java.util.ArrayList
+import java.util.List
+import org.eclipse.xtend.lib.annotations.Data
+import org.eclipse.xtext.generator.IFileSystemAccess2
+
+/**
+ * Records the files generated for a single resource in memory, so that several resources
+ * can be generated concurrently and their output is written afterwards in a deterministic
+ * order via {@link #writeTo}. Like the FileSystemAccessWrapper, only generating text files
+ * with an explicit outputConfiguration is supported.
+ */
+class BufferedFileSystemAccess implements IFileSystemAccess2
+{
+    @Data
+    static class GeneratedFile
+    {
+        String fileName
+        String outputConfigurationName
+        String contents
+    }
+
+    val List<GeneratedFile> files = new ArrayList<GeneratedFile>
+
+    /**
+     * @return the recorded files, in the order they were generated
+     */
+    def List<GeneratedFile> getFiles()
+    {
+        files.unmodifiableView
+    }
+
+    /**
+     * Writes all recorded files to the given file system access, in the order they were generated.
+     * Files which already exist with the same contents are not written again, so that their timestamps
+     * are kept and downstream builds do not consider them as changed.
+     */
+    def void writeTo(IFileSystemAccess2 fileSystemAccess)
+    {
+        for (file : files)
+        {
+            if (!fileSystemAccess.isUnchanged(file))
+                fileSystemAccess.generateFile(file.fileName, file.outputConfigurationName, file.contents)
+        }
+    }
+
+    /**
+     * Removes a recorded file, such that it is not written by {@link #writeTo}.
+     * 
+     * @return the contents of the removed file, or null if no such file was generated
+     */
+    def String removeFile(String fileName, String outputConfigurationName)
+    {
+        val file = files.findFirst[it.fileName == fileName && it.outputConfigurationName == outputConfigurationName]
+        if (file === null)
+            return null
+
+        files.remove(file)
+        file.contents
+    }
+
+    private static def boolean isUnchanged(IFileSystemAccess2 fileSystemAccess, GeneratedFile file)
+    {
+        fileSystemAccess.isFile(file.fileName, file.outputConfigurationName) &&
+            fileSystemAccess.readTextFile(file.fileName, file.outputConfigurationName).toString == file.contents
+    }
+
+    override generateFile(String fileName, String outputConfigurationName, CharSequence contents)
+    {
+        files.add(new GeneratedFile(fileName, outputConfigurationName, contents.toString))
+    }
+
+    override generateFile(String fileName, CharSequence contents)
+    {
+        throw new UnsupportedOperationException("Output configuration must be specified")
+    }
+
+    override generateFile(String fileName, InputStream contents)
+    {
+        throw new UnsupportedOperationException("Output configuration must be specified")
+    }
+
+    override generateFile(String fileName, String outputConfigurationName, InputStream contents)
+    {
+        throw new UnsupportedOperationException("Generating binary files is not supported")
+    }
+
+    override isFile(String path)
+    {
+        throw new UnsupportedOperationException("Output configuration must be specified")
+    }
+
+    override isFile(String path, String outputConfigurationName)
+    {
+        throw new UnsupportedOperationException("Reading files is not supported")
+    }
+
+    override deleteFile(String fileName)
+    {
+        throw new UnsupportedOperationException("Deleting files is not supported")
+    }
+
+    override deleteFile(String fileName, String outputConfigurationName)
+    {
+        throw new UnsupportedOperationException("Deleting files is not supported")
+    }
+
+    override getURI(String path)
+    {
+        throw new UnsupportedOperationException("Output configuration must be specified")
+    }
+
+    override getURI(String path, String outputConfigurationName)
+    {
+        throw new UnsupportedOperationException("Accessing file URIs is not supported")
+    }
+
+    override readBinaryFile(String fileName)
+    {
+        throw new UnsupportedOperationException("Reading files is not supported")
+    }
+
+    override readBinaryFile(String fileName, String outputConfigurationName)
+    {
+        throw new UnsupportedOperationException("Reading files is not supported")
+    }
+
+    override readTextFile(String fileName)
+    {
+        throw new UnsupportedOperationException("Reading files is not supported")
+    }
+
+    override readTextFile(String fileName, String outputConfigurationName)
+    {
+        throw new UnsupportedOperationException("Reading files is not supported")
+    }
+}
@@ -26,6 +26,7 @@ import com.google.common.base.Objects
 import com.google.common.collect.ImmutableSet
 import com.google.common.collect.Sets
 import java.io.InputStream
+import java.io.PrintStream
 import java.util.AbstractMap
 import java.util.Map
 import java.util.Map.Entry
@@ -91,7 +92,7 @@ class DefaultGenerationSettingsProvider implements IGenerationSettingsProvider
             val result = new OptionalGenerationSettings
             result.languages = ArtifactNature.values.toSet
 
-            result.projectTypes = ProjectType.values.toSet
+            result.projectTypes = FULL_WITH_SKELETON_PERSISTENT_PROJECT_SET
             result.cppProjectSystem = Main.OPTION_VALUE_CPP_PROJECT_SYSTEM_PRINS_VCXPROJ
             result.versions = #{CppConstants.SERVICECOMM_VERSION_KIND -> ServiceCommVersion.V0_12.label,
                 JavaConstants.SERVICECOMM_VERSION_KIND ->
@@ -137,7 +138,12 @@ class DefaultGenerationSettingsProvider implements IGenerationSettingsProvider
 
     override getSettings(Resource resource)
     {
-        val settingsFromFile = resource.findConfigurationFiles.map[readConfigurationFile]
+        getSettings(resource, System.out)
+    }
+
+    override getSettings(Resource resource, PrintStream log)
+    {
+        val settingsFromFile = resource.findConfigurationFiles(log).map[readConfigurationFile]
         getSettings(settingsFromFile)
     }
 
@@ -171,20 +177,36 @@ class DefaultGenerationSettingsProvider implements IGenerationSettingsProvider
 
     public static val CONFIG_FILE_NAME_EXT = "generator"
 
-    static def Iterable<URI> findConfigurationFileURIs(Resource resource, URIConverter handler)
+    /**
+     * @return the configuration files which apply to the given resource if they exist, in the order they are merged
+     */
+    static def Iterable<URI> getConfigurationFileCandidates(Resource resource)
     {
         val folder = resource.URI.trimSegments(1)
-        val candidates = #[folder.appendSegment("." + CONFIG_FILE_NAME_EXT),
-            resource.URI.appendFileExtension(CONFIG_FILE_NAME_EXT)]
-        val files = candidates.filter[handler.exists(it, null)]
-        System.out.println("[INFO] Found configuration files: " + if (files.empty) "<none>" else files.join(", "))
+        #[folder.appendSegment("." + CONFIG_FILE_NAME_EXT), resource.URI.appendFileExtension(CONFIG_FILE_NAME_EXT)]
+    }
+
+    static def Iterable<URI> findConfigurationFileURIs(Resource resource, URIConverter handler)
+    {
+        findConfigurationFileURIs(resource, handler, System.out)
+    }
+
+    static def Iterable<URI> findConfigurationFileURIs(Resource resource, URIConverter handler, PrintStream log)
+    {
+        val files = resource.configurationFileCandidates.filter[handler.exists(it, null)]
+        log.println("[INFO] Found configuration files: " + if (files.empty) "<none>" else files.join(", "))
         files
     }
 
     static def Iterable<InputStream> findConfigurationFiles(Resource resource)
+    {
+        findConfigurationFiles(resource, System.out)
+    }
+
+    static def Iterable<InputStream> findConfigurationFiles(Resource resource, PrintStream log)
     {
         val handler = new ExtensibleURIConverterImpl
-        return resource.findConfigurationFileURIs(handler).map[handler.createInputStream(it, null)]
+        return resource.findConfigurationFileURIs(handler, log).map[handler.createInputStream(it, null)]
     }
 
     static def merge(OptionalGenerationSettings base, OptionalGenerationSettings overrides)
@@ -289,6 +311,7 @@ class DefaultGenerationSettingsProvider implements IGenerationSettingsProvider
     public static val OPTION_VALUE_PROJECT_SET_FULL = "full"
     public static val OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON = "full-with-skeleton"
     public static val OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON_PERSISTENT = "full-with-skeleton-persistent"
+    public static val OPTION_VALUE_PROJECT_SET_FULL_WITH_BENCHMARK = "full-with-benchmark"
 
     public static val Set<ProjectType> API_PROJECT_SET = ImmutableSet.of(ProjectType.SERVICE_API, ProjectType.COMMON)
     public static val Set<ProjectType> CLIENT_PROJECT_SET = Sets.union(API_PROJECT_SET,
@@ -299,8 +322,14 @@ class DefaultGenerationSettingsProvider implements IGenerationSettingsProvider
     public static val Set<ProjectType> SERVER_PROJECT_SET = Sets.union(API_PROJECT_SET,
         ImmutableSet.of(ProjectType.PROTOBUF, ProjectType.DISPATCHER /*, ProjectType.SERVER_RUNNER*/ ))
     public static val Set<ProjectType> FULL_PROJECT_SET = Sets.union(CLIENT_PROJECT_SET, SERVER_PROJECT_SET)
+    // benchmark projects are only generated on request, since they need a benchmark library (JMH, Google Benchmark or
+    // BenchmarkDotNet) that the other projects do not depend on
+    public static val Set<ProjectType> FULL_WITH_SKELETON_PERSISTENT_PROJECT_SET = Sets.difference(
+        ImmutableSet.copyOf(ProjectType.values()), ImmutableSet.of(ProjectType.BENCHMARK))
     public static val Set<ProjectType> FULL_WITH_SKELETON_PROJECT_SET = Sets.difference(
-        ImmutableSet.copyOf(ProjectType.values()), ImmutableSet.of(ProjectType.EXTERNAL_DB_IMPL))
+        FULL_WITH_SKELETON_PERSISTENT_PROJECT_SET, ImmutableSet.of(ProjectType.EXTERNAL_DB_IMPL))
+    public static val Set<ProjectType> FULL_WITH_BENCHMARK_PROJECT_SET = Sets.union(FULL_WITH_SKELETON_PROJECT_SET,
+        ImmutableSet.of(ProjectType.BENCHMARK))
 
     public static val Map<String, Set<ProjectType>> PROJECT_SET_MAPPING = #{
         OPTION_VALUE_PROJECT_SET_API -> API_PROJECT_SET,
@@ -308,7 +337,8 @@ class DefaultGenerationSettingsProvider implements IGenerationSettingsProvider
         OPTION_VALUE_PROJECT_SET_SERVER -> SERVER_PROJECT_SET,
         OPTION_VALUE_PROJECT_SET_FULL -> FULL_PROJECT_SET,
         OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON -> FULL_WITH_SKELETON_PROJECT_SET,
-        OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON_PERSISTENT -> ImmutableSet.copyOf(ProjectType.values())
+        OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON_PERSISTENT -> FULL_WITH_SKELETON_PERSISTENT_PROJECT_SET,
+        OPTION_VALUE_PROJECT_SET_FULL_WITH_BENCHMARK -> FULL_WITH_BENCHMARK_PROJECT_SET
     }
 
     def reset()
@@ -0,0 +1,278 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.resource.impl.ExtensibleURIConverterImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.generator.IFileSystemAccess2;
+
+import com.btc.serviceidl.generator.BufferedFileSystemAccess.GeneratedFile;
+
+/**
+ * On-disk cache of content hashes of the input IDL files, which allows the command-line generator to skip
+ * inputs that did not change since the last run. The hash of an input covers the contents of the input itself,
+ * of all resources it (transitively) references, e.g. imported IDL files, of its .generator configuration files and
+ * a fingerprint of the generation settings given on the command line and of the generator itself. The cache also
+ * records the files generated for each input with the hashes of their contents, so that an input is generated again
+ * if any of its output files was deleted or modified since.
+ */
+public class GenerationCache {
+    private static final String PARENT_POM_MODULES_SUFFIX = "#parentPOMModules";
+    private static final String OUTPUTS_SUFFIX            = "#outputs";
+    private static final String MERGED_PARENT_POM_KEY     = "#mergedParentPOM";
+
+    private static String generatorFingerprint;
+
+    private final File       file;
+    private final Properties entries = new Properties();
+
+    private GenerationCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the cache from the given file. If the file does not exist, the cache is empty.
+     */
+    public static GenerationCache load(File file) throws IOException {
+        GenerationCache cache = new GenerationCache(file);
+        if (file.exists()) {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                cache.entries.load(inputStream);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Writes the cache back to the file it was loaded from.
+     */
+    public synchronized void save() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            entries.store(outputStream, "service IDL generation cache, do not edit");
+        }
+    }
+
+    public synchronized boolean isUpToDate(Resource resource, String hash) {
+        return hash.equals(entries.getProperty(resource.getURI().toString()));
+    }
+
+    public synchronized void put(Resource resource, String hash) {
+        entries.setProperty(resource.getURI().toString(), hash);
+    }
+
+    /**
+     * @return the Maven modules the given input contributed to the Java parent POM when it was last generated, or
+     *         null if they are not known
+     */
+    public synchronized List<String> getParentPOMModules(Resource resource) {
+        String modules = entries.getProperty(resource.getURI().toString() + PARENT_POM_MODULES_SUFFIX);
+        if (modules == null) return null;
+        return modules.isEmpty() ? Collections.emptyList() : Arrays.asList(modules.split(","));
+    }
+
+    public synchronized void putParentPOMModules(Resource resource, List<String> modules) {
+        entries.setProperty(resource.getURI().toString() + PARENT_POM_MODULES_SUFFIX, String.join(",", modules));
+    }
+
+    /**
+     * @return whether the files generated for the given input when it was last generated are known and all of them
+     *         still exist with the same contents
+     */
+    public synchronized boolean areOutputsUnchanged(Resource resource, IFileSystemAccess2 fileSystemAccess) {
+        return areOutputsUnchanged(resource.getURI().toString() + OUTPUTS_SUFFIX, fileSystemAccess);
+    }
+
+    public synchronized void putOutputs(Resource resource, Iterable<GeneratedFile> files) {
+        putOutputs(resource.getURI().toString() + OUTPUTS_SUFFIX, files);
+    }
+
+    /**
+     * Like {@link #areOutputsUnchanged(Resource, IFileSystemAccess2)}, but for the Java parent POM which is merged
+     * from the modules of several inputs.
+     */
+    public synchronized boolean isMergedParentPOMUnchanged(IFileSystemAccess2 fileSystemAccess) {
+        return areOutputsUnchanged(MERGED_PARENT_POM_KEY, fileSystemAccess);
+    }
+
+    public synchronized void putMergedParentPOM(Iterable<GeneratedFile> files) {
+        putOutputs(MERGED_PARENT_POM_KEY, files);
+    }
+
+    private boolean areOutputsUnchanged(String key, IFileSystemAccess2 fileSystemAccess) {
+        String outputs = entries.getProperty(key);
+        if (outputs == null) return false;
+
+        for (String output : outputs.split("\n")) {
+            if (output.isEmpty()) continue;
+
+            // each line is "<hash> <output configuration name> <file name>", the file name may contain spaces
+            String[] parts = output.split(" ", 3);
+            if (parts.length != 3 || !fileSystemAccess.isFile(parts[2], parts[1])
+                    || !parts[0].equals(hashContents(fileSystemAccess.readTextFile(parts[2], parts[1]))))
+                return false;
+        }
+        return true;
+    }
+
+    private void putOutputs(String key, Iterable<GeneratedFile> files) {
+        StringBuilder outputs = new StringBuilder();
+        for (GeneratedFile file : files) {
+            outputs.append(hashContents(file.getContents())).append(' ').append(file.getOutputConfigurationName())
+                    .append(' ').append(file.getFileName()).append('\n');
+        }
+        entries.setProperty(key, outputs.toString());
+    }
+
+    private static String hashContents(CharSequence contents) {
+        MessageDigest digest = createDigest();
+        digest.update(contents.toString().getBytes(StandardCharsets.UTF_8));
+        return toHexString(digest);
+    }
+
+    /**
+     * Computes a hash of the generator itself, i.e. of the JAR file or class directory it is loaded from, such that
+     * the inputs are generated again after the generator changed, even if its version did not. If the location of the
+     * generator is unknown, the fingerprint is unique to this process, so that no input is skipped.
+     */
+    public static synchronized String getGeneratorFingerprint() throws IOException {
+        if (generatorFingerprint == null) {
+            Path location = getGeneratorLocation();
+            if (location == null) {
+                generatorFingerprint = UUID.randomUUID().toString();
+            } else {
+                MessageDigest digest = createDigest();
+                List<Path> files;
+                try (Stream<Path> paths = Files.walk(location)) {
+                    files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(file));
+                }
+                generatorFingerprint = toHexString(digest);
+            }
+        }
+        return generatorFingerprint;
+    }
+
+    private static Path getGeneratorLocation() {
+        if (GenerationCache.class.getProtectionDomain().getCodeSource() == null) return null;
+
+        URL location = GenerationCache.class.getProtectionDomain().getCodeSource().getLocation();
+        try {
+            return location != null && "file".equals(location.getProtocol()) ? Paths.get(location.toURI()) : null;
+        } catch (URISyntaxException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the hash of the given resources, all resources they reference, the given settings files and the given
+     * settings fingerprint. Cross references must have been resolved already. Settings files which do not exist are
+     * hashed as such, so that creating one changes the hash as well.
+     */
+    public static String computeHash(Iterable<Resource> resources, Iterable<URI> settingsFiles,
+            String settingsFingerprint) throws IOException {
+        MessageDigest digest = createDigest();
+        digest.update(settingsFingerprint.getBytes(StandardCharsets.UTF_8));
+        URIConverter settingsFileConverter = new ExtensibleURIConverterImpl();
+        for (URI settingsFile : settingsFiles) {
+            digest.update(settingsFile.toString().getBytes(StandardCharsets.UTF_8));
+            boolean exists = settingsFileConverter.exists(settingsFile, null);
+            digest.update((byte) (exists ? 1 : 0));
+            if (exists) update(digest, settingsFileConverter, settingsFile);
+        }
+        for (Resource current : collectReferencedResources(resources).values()) {
+            digest.update(current.getURI().toString().getBytes(StandardCharsets.UTF_8));
+            update(digest, current.getResourceSet().getURIConverter(), current.getURI());
+        }
+        return toHexString(digest);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toHexString(MessageDigest digest) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private static void update(MessageDigest digest, URIConverter uriConverter, URI uri) throws IOException {
+        try (InputStream inputStream = uriConverter.createInputStream(uri)) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+    }
+
+    /**
+     * @return the given resources and all resources they transitively reference, ordered by their URI
+     */
+    private static SortedMap<String, Resource> collectReferencedResources(Iterable<Resource> resources) {
+        SortedMap<String, Resource> result = new TreeMap<>();
+        Deque<Resource> pending = new ArrayDeque<>();
+        resources.forEach(pending::add);
+        while (!pending.isEmpty()) {
+            Resource current = pending.remove();
+            URI uri = current.getURI();
+            if (result.putIfAbsent(uri.toString(), current) != null) continue;
+
+            for (EObject referenced : EcoreUtil.ExternalCrossReferencer.find(current).keySet()) {
+                Resource referencedResource = referenced.eResource();
+                if (referencedResource != null && referencedResource.getResourceSet() == current.getResourceSet())
+                    pending.add(referencedResource);
+            }
+        }
+        return result;
+    }
+}
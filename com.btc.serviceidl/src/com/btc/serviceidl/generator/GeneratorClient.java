@@ -0,0 +1,81 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Thin client for the {@link GeneratorServer}, which forwards its arguments to a generator running in server mode
+ * on the local machine and exits with the exit code of the generation. It only depends on the JDK, so it starts
+ * quickly.
+ *
+ * Usage: GeneratorClient &lt;port&gt; &lt;arguments of Main&gt; (or -shutdown to stop the server)
+ *
+ * Note that the server resolves relative paths against its own working directory, so paths should be absolute.
+ */
+public class GeneratorClient {
+    public static void main(String[] args) {
+        System.exit(clientBackend(args, System.out));
+    }
+
+    public static int clientBackend(String[] args, PrintStream output) {
+        if (args.length < 2) {
+            System.err.println("Usage: GeneratorClient <port> <generator arguments>");
+            return Main.EXIT_CODE_INVALID_ARGUMENTS;
+        }
+
+        int port;
+        try {
+            port = Integer.parseInt(args[0]);
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid port: " + args[0]);
+            return Main.EXIT_CODE_INVALID_ARGUMENTS;
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintWriter writer = new PrintWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+                writer.print(arg + "\n");
+            }
+            writer.print("\n");
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            // the last line carries the exit code, all preceding lines are the output of the generator
+            String previous = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (previous != null) output.println(previous);
+                previous = line;
+            }
+
+            if (previous == null || !previous.startsWith(GeneratorServer.EXIT_CODE_PREFIX)) {
+                System.err.println("Connection to generator server closed unexpectedly.");
+                return Main.EXIT_CODE_GENERATION_FAILED;
+            }
+            return Integer.parseInt(previous.substring(GeneratorServer.EXIT_CODE_PREFIX.length()));
+        } catch (IOException ex) {
+            System.err.println("Cannot connect to generator server on port " + port + ": " + ex);
+            return Main.EXIT_CODE_GENERATION_FAILED;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator;
+
+/**
+ * Keys of the generator options, which are passed to the generators by {@link IGenerationSettings}. The
+ * generators only depend on these keys, not on the command line which sets them.
+ */
+public final class GeneratorOptions {
+
+    public static final String CPP_PROXY_TIMEOUT_SECONDS    = "cppProxyTimeoutSeconds";
+    public static final String CPP_DIRECT_SEQUENCE_DECODING = "cppDirectSequenceDecoding";
+    public static final String PROTOBUF_PACKED_REPEATED     = "protobufPackedRepeated";
+    public static final String METRICS                      = "metrics";
+    public static final String QUERY_CACHE_SIZE             = "queryCacheSize";
+    public static final String QUERY_CACHE_TTL_MILLIS       = "queryCacheTtlMillis";
+    public static final String EVENT_BATCH_WINDOW_MILLIS    = "eventBatchWindowMillis";
+    public static final String EVENT_BATCH_MAX_EVENTS       = "eventBatchMaxEvents";
+    public static final String EVENT_BATCH_COALESCE         = "eventBatchCoalesce";
+    public static final String JAVA_ZERO_COPY               = "javaZeroCopy";
+    public static final String PROTOBUF_ARENAS              = "protobufArenas";
+
+    private GeneratorOptions() {
+    }
+}
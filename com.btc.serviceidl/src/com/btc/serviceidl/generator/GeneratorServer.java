@@ -0,0 +1,101 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Resident generator which accepts generation requests on a local socket, such that the JVM startup and the
+ * injector creation are paid only once. Requests are processed one after another.
+ *
+ * The protocol is line-based (UTF-8): the client sends the command-line arguments, one per line, terminated by an
+ * empty line. The server replies with the output of the generator, followed by a final line consisting of
+ * {@link #EXIT_CODE_PREFIX} and the exit code. A request consisting of {@link #SHUTDOWN_REQUEST} only stops the
+ * server. The backend reports to the output stream it is given for the request, so that nothing is written to the
+ * console of the server.
+ */
+public class GeneratorServer {
+    public static final String EXIT_CODE_PREFIX = "EXIT ";
+    public static final String SHUTDOWN_REQUEST = "-shutdown";
+
+    private final ServerSocket                serverSocket;
+    private final BiFunction<String[], PrintStream, Integer> backend;
+
+    /**
+     * Binds the server to the given port on the loopback interface. Use port 0 to choose any free port.
+     */
+    public GeneratorServer(int port, BiFunction<String[], PrintStream, Integer> backend) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.backend = backend;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Processes requests until a shutdown request is received.
+     */
+    public void serve() throws IOException {
+        try {
+            boolean shutdown = false;
+            while (!shutdown) {
+                try (Socket socket = serverSocket.accept()) {
+                    shutdown = handle(socket);
+                } catch (IOException ex) {
+                    System.err.println("Error when handling generator request: " + ex);
+                }
+            }
+        } finally {
+            serverSocket.close();
+        }
+    }
+
+    private boolean handle(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        List<String> args = new ArrayList<String>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            args.add(line);
+        }
+
+        PrintStream output = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+        if (args.size() == 1 && args.get(0).equals(SHUTDOWN_REQUEST)) {
+            output.println(EXIT_CODE_PREFIX + Main.EXIT_CODE_GOOD);
+            return true;
+        }
+
+        output.println(EXIT_CODE_PREFIX + process(args.toArray(new String[args.size()]), output));
+        return false;
+    }
+
+    private int process(String[] args, PrintStream output) {
+        try {
+            return backend.apply(args, output);
+        } catch (Throwable ex) {
+            // whatever happens in a request, the server stays available for the next one
+            output.println("Error during code generation: " + ex);
+            ex.printStackTrace(output);
+            return Main.EXIT_CODE_GENERATION_FAILED;
+        }
+    }
+}
@@ -34,4 +34,11 @@ public interface IGenerationSettings extends ITargetVersionProvider {
     boolean hasGeneratorOption(String key);
 
     String getGeneratorOption(String key);
+
+    /**
+     * Returns whether the boolean generator option with the given key is set to true.
+     */
+    default boolean isGeneratorOptionEnabled(String key) {
+        return hasGeneratorOption(key) && Boolean.parseBoolean(getGeneratorOption(key));
+    }
 }
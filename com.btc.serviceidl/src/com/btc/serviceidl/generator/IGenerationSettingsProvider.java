@@ -10,8 +10,17 @@
 **********************************************************************/
 package com.btc.serviceidl.generator;
 
+import java.io.PrintStream;
+
 import org.eclipse.emf.ecore.resource.Resource;
 
 public interface IGenerationSettingsProvider {
     IGenerationSettings getSettings(Resource resource);
+
+    /**
+     * Like {@link #getSettings(Resource)}, but reports any information to the given stream instead of System.out.
+     */
+    default IGenerationSettings getSettings(Resource resource, PrintStream log) {
+        return getSettings(resource);
+    }
 }
@@ -4,6 +4,7 @@
 package com.btc.serviceidl.generator
 
 import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.EventBatchSettings
 import com.btc.serviceidl.generator.common.GuidMapper
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.cpp.CppGenerator
@@ -11,13 +12,10 @@ import com.btc.serviceidl.generator.dotnet.DotNetGenerator
 import com.btc.serviceidl.generator.java.JavaGenerator
 import com.btc.serviceidl.generator.protobuf.ProtobufGenerator
 import com.btc.serviceidl.idl.AbstractContainerDeclaration
-import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.IDLSpecification
-import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.google.inject.Inject
 import java.util.Collections
 import java.util.Map
-import java.util.UUID
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.xtext.generator.IFileSystemAccess2
 import org.eclipse.xtext.generator.IGenerator2
@@ -38,44 +36,27 @@ class IdlGenerator implements IGenerator2
     @Inject IGenerationSettingsProvider generationSettingsProvider
 
     override doGenerate(Resource resource, IFileSystemAccess2 fsa, IGeneratorContext gc)
+    {
+        doGenerate(resource, fsa, generationSettingsProvider.getSettings(resource))
+    }
+
+    /**
+     * Generates the given resource with the given settings, which the caller has already determined for it.
+     */
+    def void doGenerate(Resource resource, IFileSystemAccess2 fsa, IGenerationSettings generationSettings)
     {
         // generate GUIDs: common among C++, Java and .NET!
-        var boolean resourceChanged = false;
-        for (interfaceDeclaration : resource.allContents.toIterable.filter(InterfaceDeclaration))
-        {
-            if (interfaceDeclaration.guid === null)
-            {
-                val uuid = UUID.randomUUID.toString.toUpperCase
-                GuidMapper.put(interfaceDeclaration, uuid)
-                interfaceDeclaration.guid = uuid
-                resourceChanged = true
-            }
-            else
-                GuidMapper.put(interfaceDeclaration, interfaceDeclaration.guid.toUpperCase)
-        }
-        for (event : resource.allContents.toIterable.filter(EventDeclaration))
-        {
-            if (event.guid === null)
-            {
-                val uuid = UUID.randomUUID.toString.toUpperCase
-                GuidMapper.put(event, uuid)
-                event.guid = uuid
-                resourceChanged = true
-            }
-            else
-                GuidMapper.put(event, event.guid.toUpperCase)
-        }
-        if (resourceChanged)
+        if (GuidMapper.assignMissingGuids(resource))
         {
             resource.save(Collections.EMPTY_MAP)
         }
+
         val idl = resource.contents.filter(IDLSpecification).head // only one IDL root module possible
         if (idl === null)
         {
             return
         }
 
-        val generationSettings = generationSettingsProvider.getSettings(resource)
         val projectTypes = generationSettings.projectTypes
         val languages = generationSettings.languages
 
@@ -85,7 +66,10 @@ class IdlGenerator implements IGenerator2
         if (projectTypes.contains(ProjectType.PROTOBUF))
         {
             protobufGenerator = new ProtobufGenerator(resource, fsa, qualifiedNameProvider,
-                generationSettings.moduleStructureStrategy)
+                generationSettings.moduleStructureStrategy,
+                generationSettings.isGeneratorOptionEnabled(GeneratorOptions.PROTOBUF_PACKED_REPEATED),
+                generationSettings.isGeneratorOptionEnabled(GeneratorOptions.PROTOBUF_ARENAS),
+                EventBatchSettings.get(generationSettings).present)
             protobufGenerator.doGenerate(languages)
             protobufArtifacts = protobufGenerator.generatedArtifacts
         }
@@ -93,7 +77,7 @@ class IdlGenerator implements IGenerator2
         if (languages.contains(ArtifactNature.CPP))
         {
             val cppGenerator = new CppGenerator(idl, fsa, qualifiedNameProvider, scopeProvider, generationSettings,
-                protobufGenerator?.getProjectReferences(ArtifactNature.CPP))
+                protobufGenerator?.projectReferences)
             cppGenerator.doGenerate
         }
 
@@ -112,7 +96,7 @@ class IdlGenerator implements IGenerator2
                 qualifiedNameProvider,
                 generationSettings,
                 projectTypes,
-                protobufGenerator?.getProjectReferences(ArtifactNature.DOTNET)
+                protobufGenerator?.projectReferences
             )
             dotnetGenerator.doGenerate
         }
@@ -14,12 +14,22 @@
 package com.btc.serviceidl.generator;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
@@ -33,9 +43,8 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.xtext.EcoreUtil2;
 import org.eclipse.xtext.diagnostics.Severity;
-import org.eclipse.xtext.generator.GeneratorContext;
-import org.eclipse.xtext.generator.GeneratorDelegate;
 import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
 import org.eclipse.xtext.util.CancelIndicator;
 import org.eclipse.xtext.validation.CheckMode;
@@ -44,29 +53,36 @@ import org.eclipse.xtext.validation.Issue;
 
 import com.btc.serviceidl.IdlStandaloneSetup;
 import com.btc.serviceidl.generator.common.ArtifactNature;
+import com.btc.serviceidl.generator.common.GeneratorUtil;
+import com.btc.serviceidl.generator.common.GuidMapper;
 import com.btc.serviceidl.generator.common.PackageInfo;
 import com.btc.serviceidl.generator.common.PackageInfoProvider;
+import com.btc.serviceidl.generator.java.ParentPOMGenerator;
+import com.btc.serviceidl.idl.IDLSpecification;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
 
 public class Main {
 
-    public static final String OPTION_OUTPUT_PATH                                = "outputPath";
-    public static final String OPTION_CPP_OUTPUT_PATH                            = "cppOutputPath";
-    public static final String OPTION_JAVA_OUTPUT_PATH                           = "javaOutputPath";
-    public static final String OPTION_DOTNET_OUTPUT_PATH                         = "dotnetOutputPath";
-    public static final String OPTION_CPP_PROJECT_SYSTEM                         = "cppProjectSystem";
-    public static final String OPTION_VALUE_CPP_PROJECT_SYSTEM_CMAKE             = "cmake";
-    public static final String OPTION_VALUE_CPP_PROJECT_SYSTEM_PRINS_VCXPROJ     = "prins-vcxproj";
-    public static final String OPTION_VERSIONS                                   = "versions";
-    public static final String OPTION_PROJECT_SET                                = "projectSet";
-    public static final String OPTION_MATURITY                                   = "maturity";
-    public static final String OPTION_VALUE_MATURITY_SNAPSHOT                    = "snapshot";
-    public static final String OPTION_VALUE_MATURITY_RELEASE                     = "release";
-    public static final String OPTION_IMPORT                                     = "import";
-    public static final String OPTION_GENERATOR_OPTIONS                          = "generatorOptions";
-    public static final String OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS = "cppProxyTimeoutSeconds";
+    public static final String OPTION_OUTPUT_PATH                                   = "outputPath";
+    public static final String OPTION_CPP_OUTPUT_PATH                               = "cppOutputPath";
+    public static final String OPTION_JAVA_OUTPUT_PATH                              = "javaOutputPath";
+    public static final String OPTION_DOTNET_OUTPUT_PATH                            = "dotnetOutputPath";
+    public static final String OPTION_CPP_PROJECT_SYSTEM                            = "cppProjectSystem";
+    public static final String OPTION_VALUE_CPP_PROJECT_SYSTEM_CMAKE                = "cmake";
+    public static final String OPTION_VALUE_CPP_PROJECT_SYSTEM_PRINS_VCXPROJ        = "prins-vcxproj";
+    public static final String OPTION_VERSIONS                                      = "versions";
+    public static final String OPTION_PROJECT_SET                                   = "projectSet";
+    public static final String OPTION_MATURITY                                      = "maturity";
+    public static final String OPTION_VALUE_MATURITY_SNAPSHOT                       = "snapshot";
+    public static final String OPTION_VALUE_MATURITY_RELEASE                        = "release";
+    public static final String OPTION_IMPORT                                        = "import";
+    public static final String OPTION_THREADS                                       = "threads";
+    public static final String OPTION_CACHE_FILE                                    = "cacheFile";
+    public static final String OPTION_SERVER                                        = "server";
+    public static final String OPTION_GENERATOR_OPTIONS                             = "generatorOptions";
+    public static final String OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS    = GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS;
 
     public static final int EXIT_CODE_GOOD              = 0;
     public static final int EXIT_CODE_GENERATION_FAILED = 1;
@@ -85,17 +101,38 @@ public class Main {
         }
         Injector injector = new IdlStandaloneSetup().createInjectorAndDoEMFRegistration();
         Main main = injector.getInstance(Main.class);
+        return main.run(args);
+    }
 
+    private int run(String[] args) {
         CommandLine commandLine = parseCommandLine(args);
         if (commandLine == null) return 1;
 
+        if (commandLine.hasOption(OPTION_SERVER)) {
+            if (server != null) {
+                err.println("Option -" + OPTION_SERVER + " is not supported in a request to the server.");
+                return EXIT_CODE_INVALID_ARGUMENTS;
+            }
+            return runServer(commandLine.getOptionValue(OPTION_SERVER));
+        }
+
         if (commandLine.getArgs().length == 0) {
-            System.err.println("No input files specified.");
+            err.println("No input files specified.");
             return 1;
         }
-        if (commandLine.getArgs().length > 1) {
-            System.err.println("Only 1 input file is supported.");
-            return 1;
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (commandLine.hasOption(OPTION_THREADS)) {
+            try {
+                threads = Integer.parseInt(commandLine.getOptionValue(OPTION_THREADS));
+            } catch (NumberFormatException ex) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                err.println("Invalid value for option -" + OPTION_THREADS + ": "
+                        + commandLine.getOptionValue(OPTION_THREADS));
+                return EXIT_CODE_INVALID_ARGUMENTS;
+            }
         }
 
         final boolean genericOutputPath = commandLine.hasOption(OPTION_OUTPUT_PATH);
@@ -103,7 +140,7 @@ public class Main {
                 || commandLine.hasOption(OPTION_JAVA_OUTPUT_PATH) || commandLine.hasOption(OPTION_DOTNET_OUTPUT_PATH);
 
         if (genericOutputPath == specificOutputPath) {
-            System.err.println("You must specify *either* a generic output path using -" + OPTION_OUTPUT_PATH
+            err.println("You must specify *either* a generic output path using -" + OPTION_OUTPUT_PATH
                     + ", or one or more technology-specific output paths using -" + OPTION_CPP_OUTPUT_PATH + ", -"
                     + OPTION_JAVA_OUTPUT_PATH + ", -" + OPTION_DOTNET_OUTPUT_PATH);
             return EXIT_CODE_INVALID_ARGUMENTS;
@@ -129,7 +166,7 @@ public class Main {
             }
         }
 
-        final boolean res = main.tryRunGenerator(commandLine.getArgs(), outputPaths,
+        final boolean res = tryRunGenerator(commandLine.getArgs(), outputPaths,
                 commandLine.hasOption(OPTION_CPP_PROJECT_SYSTEM) ? commandLine.getOptionValue(OPTION_CPP_PROJECT_SYSTEM)
                         : null,
                 commandLine.hasOption(OPTION_VERSIONS) ? commandLine.getOptionValue(OPTION_VERSIONS) : null,
@@ -137,11 +174,51 @@ public class Main {
                         : null,
                 commandLine.hasOption(OPTION_PROJECT_SET) ? commandLine.getOptionValue(OPTION_PROJECT_SET) : null,
                 commandLine.hasOption(OPTION_MATURITY) ? commandLine.getOptionValue(OPTION_MATURITY) : null,
-                commandLine.hasOption(OPTION_IMPORT) ? commandLine.getOptionValues(OPTION_IMPORT) : new String[] {});
+                commandLine.hasOption(OPTION_IMPORT) ? commandLine.getOptionValues(OPTION_IMPORT) : new String[] {},
+                commandLine.hasOption(OPTION_CACHE_FILE) ? commandLine.getOptionValue(OPTION_CACHE_FILE) : null,
+                threads);
 
         return res ? EXIT_CODE_GOOD : EXIT_CODE_GENERATION_FAILED;
     }
 
+    /**
+     * Runs the generator for a request to the server, which reports to the given output stream of the request.
+     */
+    private int runRequest(String[] args, PrintStream output) {
+        PrintStream serverOut = out;
+        PrintStream serverErr = err;
+        out = output;
+        err = output;
+        try {
+            return run(args);
+        } finally {
+            out = serverOut;
+            err = serverErr;
+        }
+    }
+
+    private int runServer(String portString) {
+        int port;
+        try {
+            port = Integer.parseInt(portString);
+        } catch (NumberFormatException ex) {
+            err.println("Invalid value for option -" + OPTION_SERVER + ": " + portString);
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        }
+
+        try {
+            server = new GeneratorServer(port, this::runRequest);
+            out.println("Generator server listening on port " + server.getPort() + ".");
+            server.serve();
+            return EXIT_CODE_GOOD;
+        } catch (IOException ex) {
+            err.println("Error in generator server: " + ex);
+            return EXIT_CODE_GENERATION_FAILED;
+        } finally {
+            server = null;
+        }
+    }
+
     private static Options createOptions() {
         Options options = new Options();
         options.addOption(OPTION_OUTPUT_PATH, true, "base path for generated output files (all technologies)");
@@ -153,22 +230,51 @@ public class Main {
         options.addOption(OPTION_VERSIONS, true, "target Version overrides");
         options.addOption(OPTION_PROJECT_SET, true, "set of projects to generate ("
                 + String.join(",", DefaultGenerationSettingsProvider.PROJECT_SET_MAPPING.keySet()) + "), default is "
-                + DefaultGenerationSettingsProvider.OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON);
+                + DefaultGenerationSettingsProvider.OPTION_VALUE_PROJECT_SET_FULL_WITH_SKELETON + "; "
+                + DefaultGenerationSettingsProvider.OPTION_VALUE_PROJECT_SET_FULL_WITH_BENCHMARK
+                + " adds benchmark projects");
         options.addOption(OPTION_MATURITY, true, "maturity (snapshot, release) (default is snapshot)");
         options.addOption(OPTION_IMPORT, true,
                 "absolute path to imported IDL file (optional; may be provided multiple times)");
+        options.addOption(OPTION_THREADS, true,
+                "number of input files to validate and generate concurrently (default is the number of processors)");
+        options.addOption(OPTION_CACHE_FILE, true,
+                "file to store content hashes of the inputs in; input files which did not change since the last run, including their imports and the generation settings, are skipped (optional)");
+        options.addOption(OPTION_SERVER, true,
+                "run as a server on the given local port, which accepts requests with the other options from "
+                        + GeneratorClient.class.getName() + " and keeps the imported IDL files loaded (optional)");
         options.addOption(OPTION_GENERATOR_OPTIONS, true,
-                "known values: " + OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS
-                        + "for C++ proxies, specifies the timeout for requests in seconds (optional)");
+                "known values: " + GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS
+                        + " for C++ proxies, specifies the timeout for requests in seconds (optional); "
+                        + GeneratorOptions.CPP_DIRECT_SEQUENCE_DECODING
+                        + " (true/false) for C++ codecs, decodes sequences directly into an owning collection instead of an asynchronous insertable (optional); "
+                        + GeneratorOptions.PROTOBUF_PACKED_REPEATED
+                        + " (true/false) for .proto files, uses the packed encoding for repeated scalar fields (optional); "
+                        + GeneratorOptions.METRICS
+                        + " (true/false) for Java dispatchers and proxies and C++ and .NET dispatchers, records the duration of each phase of an operation (optional); "
+                        + GeneratorOptions.QUERY_CACHE_SIZE
+                        + " for Java, C++ and .NET proxies, caches the responses of up to this number of distinct query requests (optional); "
+                        + GeneratorOptions.QUERY_CACHE_TTL_MILLIS
+                        + " specifies how long a cached query response is used in milliseconds, 1000 by default (optional); "
+                        + GeneratorOptions.EVENT_BATCH_WINDOW_MILLIS
+                        + " for C++ dispatchers, publishes the events of this time window in milliseconds as a single message, which Java and .NET proxies unpack (optional); "
+                        + GeneratorOptions.EVENT_BATCH_MAX_EVENTS
+                        + " specifies the maximum number of events in a batch, 1000 by default (optional); "
+                        + GeneratorOptions.EVENT_BATCH_COALESCE
+                        + " (true/false) publishes only the last event of each key in a batch (optional); "
+                        + GeneratorOptions.JAVA_ZERO_COPY
+                        + " (true/false) for Java dispatchers and proxies, parses messages without copying their bytes fields and serializes responses directly into an array of their exact size (optional); "
+                        + GeneratorOptions.PROTOBUF_ARENAS
+                        + " (true/false) for .proto files, enables arena allocation, which C++ dispatchers use for the messages of each request and event (optional)");
         return options;
     }
 
-    private static CommandLine parseCommandLine(String[] args) {
+    private CommandLine parseCommandLine(String[] args) {
         CommandLineParser parser = new GnuParser();
         try {
             return parser.parse(createOptions(), args);
         } catch (ParseException exp) {
-            System.err.println("Parsing command line failed.  Reason: " + exp.getMessage());
+            err.println("Parsing command line failed.  Reason: " + exp.getMessage());
             return null;
         }
     }
@@ -180,62 +286,113 @@ public class Main {
     private IResourceValidator validator;
 
     @Inject
-    private GeneratorDelegate generator;
+    private Provider<IdlGenerator> generatorProvider;
 
     @Inject
-    private JavaIoFileSystemAccess fileAccess;
+    private Provider<JavaIoFileSystemAccess> fileAccessProvider;
 
     @Inject
     private IGenerationSettingsProvider generationSettingsProvider;
 
+    // the streams the generator reports to, which are those of the current request in server mode
+    private PrintStream out = System.out;
+    private PrintStream err = System.err;
+
+    // only set in server mode, where the imported IDL files are kept loaded across requests as long as they do not
+    // change on disk
+    private GeneratorServer server;
+    private ResourceSet     importResourceSet;
+    private Map<URI, Long>  importTimestamps;
+
     private boolean tryRunGenerator(String[] inputFiles, Map<ArtifactNature, IPath> outputPaths,
             String cppProjectSystem, String versions, String generatorOptions, String projectSet, String maturityString,
-            String[] importFiles) {
+            String[] importFiles, String cacheFile, int threads) {
 
         // validate import file paths
         for (String importFile : importFiles) {
             File file = new File(importFile);
             if (!file.isAbsolute()) {
-                System.err.println("Provide absolute path: " + importFile);
+                err.println("Provide absolute path: " + importFile);
                 return false;
             }
             if (!file.exists()) {
-                System.err.println("Import file does not exist: " + importFile);
+                err.println("Import file does not exist: " + importFile);
                 return false;
             }
         }
 
-        Set<URI> inputURIs = Arrays.stream(inputFiles).map(URI::createFileURI).collect(Collectors.toSet());
+        Set<URI> inputURIs = Arrays.stream(inputFiles).map(URI::createFileURI)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
         Set<URI> importURIs = Arrays.stream(importFiles).map(URI::createFileURI).collect(Collectors.toSet());
 
         // Load the resource
-        ResourceSet set = resourceSetProvider.get();
+        ResourceSet set = getResourceSet(importFiles);
         inputURIs.stream().forEach(e -> set.getResource(e, true));
         importURIs.stream().forEach(e -> set.getResource(e, true));
 
-        System.out.println("Validating IDL input.");
-        for (Resource resource : set.getResources()) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // resolve all cross references up front, afterwards the resources are only read concurrently
+            EcoreUtil2.resolveAll(set);
+            List<Resource> resources = new ArrayList<Resource>(set.getResources());
+
+            return validateAndGenerate(resources, inputURIs, importURIs, cacheFile, executor, outputPaths,
+                    cppProjectSystem, versions, generatorOptions, projectSet, maturityString);
+        } finally {
+            executor.shutdown();
+            if (set == importResourceSet) {
+                // keep only the imported IDL files for the next request
+                set.getResources().removeIf(e -> !importURIs.contains(e.getURI()));
+            }
+        }
+    }
+
+    private ResourceSet getResourceSet(String[] importFiles) {
+        if (server == null) return resourceSetProvider.get();
 
-            // Validate the resources
-            List<Issue> list = validator.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl);
-            if (!list.isEmpty()) {
-                boolean hasError = false;
-                for (Issue issue : list) {
-                    System.err.println(issue);
-                    hasError |= issue.getSeverity() == Severity.ERROR;
-                }
-                if (hasError) {
-                    System.err.println("Errors in IDL input, terminating.");
-                    return false;
-                }
+        Map<URI, Long> timestamps = Arrays.stream(importFiles)
+                .collect(Collectors.toMap(URI::createFileURI, e -> new File(e).lastModified(), (a, b) -> a));
+        if (importResourceSet == null || !timestamps.equals(importTimestamps)) {
+            importResourceSet = resourceSetProvider.get();
+            importTimestamps = timestamps;
+        } else if (!timestamps.isEmpty()) {
+            out.println("Reusing " + timestamps.size() + " loaded import file(s).");
+        }
+        return importResourceSet;
+    }
+
+    private boolean validateAndGenerate(List<Resource> resources, Set<URI> inputURIs, Set<URI> importURIs,
+            String cacheFile, ExecutorService executor, Map<ArtifactNature, IPath> outputPaths,
+            String cppProjectSystem, String versions, String generatorOptions, String projectSet,
+            String maturityString) {
+        out.println("Validating IDL input.");
+        List<Future<List<Issue>>> validations = new ArrayList<Future<List<Issue>>>();
+        for (Resource resource : resources) {
+            validations.add(
+                    executor.submit(() -> validator.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl)));
+        }
+
+        boolean hasError = false;
+        for (Future<List<Issue>> validation : validations) {
+            Optional<List<Issue>> list = awaitResult(validation);
+            if (!list.isPresent()) return false;
+
+            for (Issue issue : list.get()) {
+                err.println(issue);
+                hasError |= issue.getSeverity() == Severity.ERROR;
             }
         }
-        System.out.println("IDL input is valid.");
+        if (hasError) {
+            err.println("Errors in IDL input, terminating.");
+            return false;
+        }
+        out.println("IDL input is valid.");
 
+        // a fresh file system access per run, such that no output path of a previous request to the server is used
+        JavaIoFileSystemAccess fileAccess = fileAccessProvider.get();
         for (ArtifactNature artifactNature : outputPaths.keySet()) {
             final IPath outputPath = outputPaths.get(artifactNature);
-            System.out
-                    .println("Configuring generation of " + artifactNature.getLabel() + " artifacts to " + outputPath);
+            out.println("Configuring generation of " + artifactNature.getLabel() + " artifacts to " + outputPath);
             fileAccess.setOutputPath(artifactNature.getLabel(), outputPath.toOSString());
         }
 
@@ -253,7 +410,7 @@ public class Main {
 
         // determine required package dependencies for imported IDLs
         List<PackageInfo> dependencies = new ArrayList<PackageInfo>();
-        for (Resource resource : set.getResources()) {
+        for (Resource resource : resources) {
             if (importURIs.contains(resource.getURI())) // only for imported IDLs, not for input IDLs!
                 dependencies.add(PackageInfoProvider.getPackageInfo(resource));
         }
@@ -262,23 +419,172 @@ public class Main {
             configureGenerationSettings(cppProjectSystem, versions, generatorOptions, outputPaths.keySet(), projectSet,
                     maturity, dependencies);
         } catch (Exception ex) {
-            System.err.println("Error when configuring generation settings: " + ex);
+            err.println("Error when configuring generation settings: " + ex);
+            return false;
+        }
+
+        // every input is hashed together with all imports, since these determine the package dependencies
+        List<Resource> importResources = resources.stream().filter(e -> importURIs.contains(e.getURI()))
+                .collect(Collectors.toList());
+        String settingsFingerprint;
+        try {
+            settingsFingerprint = String.join("\n", GenerationCache.getGeneratorFingerprint(),
+                    new TreeMap<ArtifactNature, IPath>(outputPaths).toString(), cppProjectSystem, versions,
+                    generatorOptions, projectSet, maturity.toString());
+        } catch (IOException ex) {
+            err.println("Error when computing the fingerprint of the generator: " + ex);
+            return false;
+        }
+
+        // each input generates a Java parent POM that lists only its own modules, so with several inputs, the parent
+        // POM is merged from the modules of all inputs and written once after all inputs have been generated
+        boolean mergeParentPOM = outputPaths.containsKey(ArtifactNature.JAVA) && inputURIs.size() > 1;
+
+        GenerationCache cache = null;
+        List<Resource> inputResources = new ArrayList<Resource>();
+        try {
+            if (cacheFile != null) cache = GenerationCache.load(new File(cacheFile));
+
+            for (Resource resource : resources) {
+                if (!inputURIs.contains(resource.getURI())) continue; // only for input IDLs, not for imported IDLs!
+
+                if (cache != null
+                        && cache.isUpToDate(resource, computeHash(resource, importResources, settingsFingerprint))
+                        && cache.areOutputsUnchanged(resource, fileAccess)
+                        && (!mergeParentPOM || cache.getParentPOMModules(resource) != null)) {
+                    out.println("Skipping unchanged input " + resource.getURI().toFileString());
+                    continue;
+                }
+                inputResources.add(resource);
+            }
+        } catch (IOException ex) {
+            err.println("Error when reading generation cache: " + ex);
+            return false;
+        }
+
+        // everything which modifies the model or reads the mutable settings provider is done up front on this thread,
+        // afterwards each generation task only reads the model and its own settings
+        Map<Resource, IGenerationSettings> inputSettings = new HashMap<Resource, IGenerationSettings>();
+        try {
+            for (Resource resource : resources) {
+                if (GuidMapper.assignMissingGuids(resource) && inputResources.contains(resource))
+                    resource.save(Collections.emptyMap());
+            }
+            for (Resource resource : inputResources) {
+                inputSettings.put(resource, generationSettingsProvider.getSettings(resource, out));
+            }
+        } catch (IOException ex) {
+            err.println("Error when saving generated GUIDs: " + ex);
+            return false;
+        } catch (Exception ex) {
+            err.println("Error when configuring generation settings: " + ex);
             return false;
         }
 
-        // Start the generator
-        GeneratorContext context = new GeneratorContext();
-        context.setCancelIndicator(CancelIndicator.NullImpl);
+        // generate the input resources concurrently, but write the output in the order of the input files, such
+        // that files common to several inputs are written the same way as in a sequential run
+        List<Future<BufferedFileSystemAccess>> generations = new ArrayList<Future<BufferedFileSystemAccess>>();
+        for (Resource resource : inputResources) {
+            IGenerationSettings settings = inputSettings.get(resource);
+            generations.add(executor.submit(() -> {
+                BufferedFileSystemAccess buffer = new BufferedFileSystemAccess();
+                generatorProvider.get().doGenerate(resource, buffer, settings);
+                return buffer;
+            }));
+        }
 
-        for (Resource resource : set.getResources()) {
-            if (inputURIs.contains(resource.getURI())) // only for input IDLs, not for imported IDLs!
-                generator.generate(resource, fileAccess, context);
+        Map<Resource, List<String>> parentPOMModules = new HashMap<Resource, List<String>>();
+        for (int i = 0; i < generations.size(); i++) {
+            Optional<BufferedFileSystemAccess> buffer = awaitResult(generations.get(i));
+            if (!buffer.isPresent()) return false;
+
+            if (mergeParentPOM) {
+                String parentPOM = buffer.get().removeFile(ParentPOMGenerator.FILE_NAME,
+                        ArtifactNature.JAVA.getLabel());
+                parentPOMModules.put(inputResources.get(i), parentPOM != null
+                        ? ParentPOMGenerator.readModules(parentPOM) : Collections.<String> emptyList());
+            }
+            buffer.get().writeTo(fileAccess);
+            if (cache != null) cache.putOutputs(inputResources.get(i), buffer.get().getFiles());
+        }
+
+        if (mergeParentPOM
+                && (!inputResources.isEmpty() || cache == null || !cache.isMergedParentPOMUnchanged(fileAccess))) {
+            writeParentPOM(resources, inputURIs, parentPOMModules, cache, fileAccess);
+        }
+
+        if (cache != null) {
+            try {
+                // hash again, since generating GUIDs may have modified the inputs
+                for (Resource resource : inputResources) {
+                    cache.put(resource, computeHash(resource, importResources, settingsFingerprint));
+                    if (mergeParentPOM) cache.putParentPOMModules(resource, parentPOMModules.get(resource));
+                }
+                cache.save();
+            } catch (IOException ex) {
+                err.println("Error when writing generation cache: " + ex);
+                return false;
+            }
         }
 
-        System.out.println("Code generation finished.");
+        out.println("Code generation finished.");
         return true;
     }
 
+    /**
+     * Writes the Java parent POM listing the modules of all input IDLs. Its coordinates are those of the first input.
+     * The modules of inputs which were skipped as unchanged are taken from the cache.
+     */
+    private void writeParentPOM(List<Resource> resources, Set<URI> inputURIs,
+            Map<Resource, List<String>> parentPOMModules, GenerationCache cache, JavaIoFileSystemAccess fileAccess) {
+        Set<String> modules = new LinkedHashSet<String>();
+        IDLSpecification firstInput = null;
+        for (Resource resource : resources) {
+            if (!inputURIs.contains(resource.getURI())) continue;
+
+            List<String> inputModules = parentPOMModules.get(resource);
+            modules.addAll(inputModules != null ? inputModules : cache.getParentPOMModules(resource));
+            if (firstInput == null) firstInput = resource.getContents().stream().filter(IDLSpecification.class::isInstance)
+                    .map(IDLSpecification.class::cast).findFirst().orElse(null);
+        }
+        if (firstInput == null) return;
+
+        BufferedFileSystemAccess buffer = new BufferedFileSystemAccess();
+        new ParentPOMGenerator(generationSettingsProvider.getSettings(firstInput.eResource(), out), buffer, firstInput,
+                modules, GeneratorUtil.getReleaseUnitName(firstInput, ArtifactNature.JAVA)).generate();
+        buffer.writeTo(fileAccess);
+        if (cache != null) cache.putMergedParentPOM(buffer.getFiles());
+    }
+
+    /**
+     * Computes the cache hash of an input, which covers the input, all imports, the configuration files of the input
+     * and the settings given on the command line.
+     */
+    private static String computeHash(Resource resource, List<Resource> importResources, String settingsFingerprint)
+            throws IOException {
+        List<Resource> resources = new ArrayList<Resource>(importResources);
+        resources.add(resource);
+        return GenerationCache.computeHash(resources,
+                DefaultGenerationSettingsProvider.getConfigurationFileCandidates(resource), settingsFingerprint);
+    }
+
+    /**
+     * Waits for the given task and returns its result, or an empty optional if it failed.
+     */
+    private <T> Optional<T> awaitResult(Future<T> future) {
+        try {
+            return Optional.of(future.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted, terminating.");
+            return Optional.empty();
+        } catch (ExecutionException ex) {
+            err.println("Error when processing IDL input: " + ex.getCause());
+            ex.getCause().printStackTrace(err);
+            return Optional.empty();
+        }
+    }
+
     private void configureGenerationSettings(String cppProjectSystem, String versions, String generatorOptions,
             Iterable<ArtifactNature> languages, String projectSet, Maturity maturity,
             Iterable<PackageInfo> dependencies) {
@@ -0,0 +1,56 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.common
+
+import com.btc.serviceidl.generator.GeneratorOptions
+import com.btc.serviceidl.generator.IGenerationSettings
+import java.util.Optional
+import org.eclipse.xtend.lib.annotations.Data
+
+/**
+ * Settings of the batched publishing of events, which is enabled by the generator option eventBatchWindowMillis.
+ * 
+ * A batching publisher collects the events of a time window, but at most maxEvents, into a single message of the
+ * Protobuf type named by Util#asEventBatch, and sends it under the batch event type. Its GUID is the GUID of the
+ * event type with the last 8 bytes inverted. With coalesce, a pending event is replaced by a later event of the
+ * same key, see Extensions#filterKeys. Subscribers subscribe to both event types, such that they receive the
+ * events of batching and non-batching publishers alike.
+ */
+@Data
+class EventBatchSettings
+{
+    public static val DEFAULT_MAX_EVENTS = 1000
+
+    val long windowMillis
+    val int maxEvents
+    val boolean coalesce
+
+    /**
+     * Returns the settings if batching is enabled.
+     */
+    static def Optional<EventBatchSettings> get(IGenerationSettings generationSettings)
+    {
+        if (!generationSettings.hasGeneratorOption(GeneratorOptions.EVENT_BATCH_WINDOW_MILLIS))
+            return Optional.empty
+
+        val windowMillis = Long.parseLong(
+            generationSettings.getGeneratorOption(GeneratorOptions.EVENT_BATCH_WINDOW_MILLIS))
+        if (windowMillis <= 0)
+            return Optional.empty
+
+        val maxEvents = if (generationSettings.hasGeneratorOption(GeneratorOptions.EVENT_BATCH_MAX_EVENTS))
+                Integer.parseInt(generationSettings.getGeneratorOption(GeneratorOptions.EVENT_BATCH_MAX_EVENTS))
+            else
+                DEFAULT_MAX_EVENTS
+        val coalesce = generationSettings.isGeneratorOptionEnabled(GeneratorOptions.EVENT_BATCH_COALESCE)
+        Optional.of(new EventBatchSettings(windowMillis, Math.max(maxEvents, 1), coalesce))
+    }
+}
@@ -27,6 +27,7 @@ import com.btc.serviceidl.idl.PrimitiveType
 import com.btc.serviceidl.idl.SequenceDeclaration
 import com.btc.serviceidl.idl.StructDeclaration
 import com.btc.serviceidl.util.Constants
+import com.btc.serviceidl.util.ModelIndex
 import com.btc.serviceidl.util.Util
 import com.google.common.base.CaseFormat
 import java.util.ArrayList
@@ -94,6 +95,11 @@ class GeneratorUtil
     }
 
     static def Iterable<AbstractTypeReference> getFailableTypes(AbstractContainerDeclaration container)
+    {
+        ModelIndex.get(container).getFailableTypes(container, [computeFailableTypes])
+    }
+
+    private static def Iterable<AbstractTypeReference> computeFailableTypes(AbstractContainerDeclaration container)
     {
         var objects = new ArrayList<Iterable<AbstractTypeReference>>
 
@@ -149,6 +155,21 @@ class GeneratorUtil
         return nestedTypes.unmodifiableView        
     }
 
+    /**
+     * Difference between the Protobuf number of an enumeration value and its ordinal in the API enumerations
+     * of all target languages, which declare their values in IDL order starting from 0. The codecs map between
+     * both by adding or subtracting this offset instead of comparing the values one by one.
+     */
+    public static val PROTOBUF_ENUM_NUMBER_OFFSET = 1
+
+    /**
+     * Number of the given value of an enumeration in the generated .proto file.
+     */
+    static def int getProtobufEnumNumber(EnumDeclaration element, String identifier)
+    {
+        element.containedIdentifiers.indexOf(identifier) + PROTOBUF_ENUM_NUMBER_OFFSET
+    }
+
     static def String getClassName(ArtifactNature artifactNature, ProjectType projectType, String basicName)
     {
         projectType.getClassName(artifactNature, basicName)
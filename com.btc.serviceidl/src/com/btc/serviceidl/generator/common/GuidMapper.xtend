@@ -15,21 +15,56 @@
  */
 package com.btc.serviceidl.generator.common
 
+import com.btc.serviceidl.idl.EventDeclaration
+import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.UniquelyIdentifiedDeclaration
-import java.util.HashMap
 import java.util.UUID
+import org.eclipse.emf.ecore.resource.Resource
 
+/**
+ * The GUIDs are kept in the model itself, so that they are the same for all resources generated in one run, no matter
+ * in which order or on which thread they are generated. Declarations without a GUID get a random one, which is
+ * assigned before generating; the command-line generator does this for all resources before generating concurrently.
+ */
 class GuidMapper
 {
-    static val guidMap = new HashMap<UniquelyIdentifiedDeclaration, String>
-
-    def static void put(UniquelyIdentifiedDeclaration object, String guid)
+    /**
+     * Assigns a random GUID to each interface and event of the given resource which does not declare one.
+     * 
+     * @return whether any GUID was assigned, i.e. the resource was modified
+     */
+    def static synchronized boolean assignMissingGuids(Resource resource)
     {
-        guidMap.put(object, guid)
+        var boolean resourceChanged = false
+        for (interfaceDeclaration : resource.allContents.toIterable.filter(InterfaceDeclaration).filter [
+            guid === null
+        ])
+        {
+            interfaceDeclaration.guid = UUID.randomUUID.toString.toUpperCase
+            resourceChanged = true
+        }
+        for (event : resource.allContents.toIterable.filter(EventDeclaration).filter[guid === null])
+        {
+            event.guid = UUID.randomUUID.toString.toUpperCase
+            resourceChanged = true
+        }
+        resourceChanged
     }
 
     def static String get(UniquelyIdentifiedDeclaration object)
     {
-        guidMap.computeIfAbsent(object, [UUID.randomUUID.toString.toUpperCase])
+        if (object.declaredGuid === null)
+            assignMissingGuids(object.eResource)
+        object.declaredGuid.toUpperCase
+    }
+
+    private def static dispatch String getDeclaredGuid(InterfaceDeclaration object)
+    {
+        object.guid
+    }
+
+    private def static dispatch String getDeclaredGuid(EventDeclaration object)
+    {
+        object.guid
     }
 }
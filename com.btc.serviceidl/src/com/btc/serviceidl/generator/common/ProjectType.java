@@ -28,7 +28,9 @@ public enum ProjectType {
     TEST(Constants.PROJECT_NAME_TEST),
     SERVER_RUNNER(Constants.PROJECT_NAME_SERVER_RUNNER),
     CLIENT_CONSOLE(Constants.PROJECT_NAME_CLIENT_CONSOLE),
-    EXTERNAL_DB_IMPL(Constants.PROJECT_NAME_EXTERNAL_DB_IMPL);
+    EXTERNAL_DB_IMPL(Constants.PROJECT_NAME_EXTERNAL_DB_IMPL),
+    /** Benchmarks of the codecs and the dispatcher (JMH, Google Benchmark or BenchmarkDotNet) */
+    BENCHMARK(Constants.PROJECT_NAME_BENCHMARK);
 
     public final static ProjectType from(final String name) {
         for (final ProjectType p : ProjectType.values()) {
@@ -58,7 +60,8 @@ public enum ProjectType {
             return "I";
         } else if (name.equals(Constants.PROJECT_NAME_PROTOBUF) || name.equals(Constants.PROJECT_NAME_COMMON)
                 || name.equals(Constants.PROJECT_NAME_TEST) || name.equals(Constants.PROJECT_NAME_SERVER_RUNNER)
-                || name.equals(Constants.PROJECT_NAME_CLIENT_CONSOLE)) {
+                || name.equals(Constants.PROJECT_NAME_CLIENT_CONSOLE)
+                || name.equals(Constants.PROJECT_NAME_BENCHMARK)) {
             return "";
         } else {
             if (artifact_nature == ArtifactNature.CPP) {
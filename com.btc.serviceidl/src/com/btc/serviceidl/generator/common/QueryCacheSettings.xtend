@@ -0,0 +1,54 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.common
+
+import com.btc.serviceidl.generator.GeneratorOptions
+import com.btc.serviceidl.generator.IGenerationSettings
+import com.btc.serviceidl.idl.InterfaceDeclaration
+import java.util.Optional
+import org.eclipse.xtend.lib.annotations.Data
+
+import static extension com.btc.serviceidl.util.Extensions.*
+
+/**
+ * Settings of the client-side cache for the responses of query operations, which is enabled by the generator
+ * option queryCacheSize.
+ */
+@Data
+class QueryCacheSettings
+{
+    public static val DEFAULT_TTL_MILLIS = 1000L
+
+    val int maxEntries
+    val long ttlMillis
+
+    /**
+     * Returns the settings if the cache is enabled and the interface has any query operation.
+     */
+    static def Optional<QueryCacheSettings> get(IGenerationSettings generationSettings,
+        InterfaceDeclaration interfaceDeclaration)
+    {
+        if (!generationSettings.hasGeneratorOption(GeneratorOptions.QUERY_CACHE_SIZE) ||
+            !interfaceDeclaration.functions.exists[query])
+            return Optional.empty
+
+        val maxEntries = Integer.parseInt(
+            generationSettings.getGeneratorOption(GeneratorOptions.QUERY_CACHE_SIZE))
+        if (maxEntries <= 0)
+            return Optional.empty
+
+        val ttlMillis = if (generationSettings.hasGeneratorOption(GeneratorOptions.QUERY_CACHE_TTL_MILLIS))
+                Long.parseLong(generationSettings.getGeneratorOption(GeneratorOptions.QUERY_CACHE_TTL_MILLIS))
+            else
+                DEFAULT_TTL_MILLIS
+        Optional.of(new QueryCacheSettings(maxEntries, ttlMillis))
+    }
+}
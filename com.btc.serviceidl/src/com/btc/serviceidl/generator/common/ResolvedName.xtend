@@ -62,6 +62,14 @@ class ResolvedName
         qualifiedName.skipLast(1).toString
     }
 
+    /**
+     * Returns the name of a sibling in the same namespace.
+     */
+    def ResolvedName withShortName(String shortName)
+    {
+        new ResolvedName(qualifiedName.skipLast(1).append(shortName), transformType, fullyQualified)
+    }
+
     /**
      * By default, return the fully qualified name.
      */
@@ -0,0 +1,235 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.cpp
+
+import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.GeneratorUtil
+import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.generator.common.ProtobufType
+import com.btc.serviceidl.idl.FunctionDeclaration
+import com.btc.serviceidl.idl.InterfaceDeclaration
+import com.btc.serviceidl.idl.ParameterDirection
+import com.btc.serviceidl.idl.StructDeclaration
+import com.btc.serviceidl.idl.VoidType
+import org.eclipse.xtend.lib.annotations.Accessors
+
+import static extension com.btc.serviceidl.generator.cpp.ProtobufUtil.*
+import static extension com.btc.serviceidl.generator.cpp.Util.*
+import static extension com.btc.serviceidl.util.Extensions.*
+import static extension com.btc.serviceidl.util.Util.*
+
+@Accessors
+class BenchmarkGenerator extends BasicCppGenerator
+{
+    def generateCppBenchmark(InterfaceDeclaration interfaceDeclaration)
+    {
+        // the benchmarks of all interfaces of a module are linked into one executable, so the main function is taken
+        // from the library instead of emitting BENCHMARK_MAIN() per file
+        addLibraryDependency(new ExternalDependency("benchmark_main"))
+
+        val structs = GeneratorUtil.getEncodableTypes(interfaceDeclaration).filter(StructDeclaration)
+        // the ServiceComm 0.10 dispatcher works on multi-part messages, which are only created by the endpoint, so
+        // only the codecs are benchmarked there
+        val benchmarkDispatcher = targetVersion != ServiceCommVersion.V0_10
+
+        '''
+            «IF benchmarkDispatcher»
+                «generateDispatchee(interfaceDeclaration)»
+
+                «generateDispatcherContainer(interfaceDeclaration)»
+
+            «ENDIF»
+            «FOR struct : structs»
+                «generateCodecBenchmarks(interfaceDeclaration, struct)»
+
+            «ENDFOR»
+            «IF benchmarkDispatcher»
+                «FOR function : interfaceDeclaration.functions»
+                    «generateDispatchBenchmark(interfaceDeclaration, function)»
+
+                «ENDFOR»
+            «ENDIF»
+        '''
+    }
+
+    private def generateCodecBenchmarks(InterfaceDeclaration interfaceDeclaration, StructDeclaration struct)
+    {
+        val apiType = resolve(struct)
+        val protobufType = typeResolver.resolveProtobuf(struct, ProtobufType.REQUEST)
+        val codec = typeResolver.resolveCodecNS(paramBundle, struct)
+
+        '''
+            void «interfaceDeclaration.name»_Encode«struct.name»( «resolveSymbol("benchmark::State")»& state )
+            {
+               «apiType» const plain{};
+               for (auto _ : state)
+               {
+                  «protobufType» encoded;
+                  «codec»::Encode( plain, &encoded );
+                  «resolveSymbol("benchmark::DoNotOptimize")»( encoded );
+               }
+            }
+            «resolveSymbol("BENCHMARK")»( «interfaceDeclaration.name»_Encode«struct.name» );
+
+            void «interfaceDeclaration.name»_Decode«struct.name»( «resolveSymbol("benchmark::State")»& state )
+            {
+               «protobufType» encoded;
+               «codec»::Encode( «apiType»{}, &encoded );
+               for (auto _ : state)
+                  «resolveSymbol("benchmark::DoNotOptimize")»( «codec»::Decode( encoded ) );
+            }
+            «resolveSymbol("BENCHMARK")»( «interfaceDeclaration.name»_Decode«struct.name» );
+        '''
+    }
+
+    private def getDispatcheeName(InterfaceDeclaration interfaceDeclaration)
+    {
+        interfaceDeclaration.name + "BenchmarkDispatchee"
+    }
+
+    private def getContainerName(InterfaceDeclaration interfaceDeclaration)
+    {
+        interfaceDeclaration.name + "BenchmarkContainer"
+    }
+
+    private def generateDispatchee(InterfaceDeclaration interfaceDeclaration)
+    {
+        val anonymousEvent = interfaceDeclaration.anonymousEvent
+        val eventTypes = #[interfaceDeclaration.events.filter[name !== null].map[toText(it.data, it)],
+            if (anonymousEvent !== null) #[toText(anonymousEvent.data, anonymousEvent)] else #[]].flatten
+
+        '''
+            /**
+               Returns default values immediately, such that only the dispatching and the encoding are measured.
+            */
+            class «interfaceDeclaration.dispatcheeName» : virtual public «resolve(interfaceDeclaration, ProjectType.SERVICE_API)»
+            {
+            public:
+               «FOR function : interfaceDeclaration.functions»
+                   «IF !function.isSync»«resolveSymbol("BTC::Commons::CoreExtras::Future")»<«ENDIF»«toText(function.returnedType, interfaceDeclaration)»«IF !function.isSync»>«ENDIF» «function.name»(«generateParameters(function)»)«IF function.isQuery» const«ENDIF» override
+                   {
+                      «IF !function.isSync»
+                          return «resolveSymbol("BTC::Commons::CoreExtras::MakeReadyFuture")»«IF !(function.returnedType instanceof VoidType)»( «makeDefaultResult(function, interfaceDeclaration)» )«ELSE»()«ENDIF»;
+                      «ELSEIF !(function.returnedType instanceof VoidType)»
+                          return «makeDefaultResult(function, interfaceDeclaration)»;
+                      «ENDIF»
+                   }
+
+               «ENDFOR»
+               «FOR eventType : eventTypes»
+                   «resolveSymbol("BTC::Commons::Core::UniquePtr")»<«resolveSymbol("BTC::Commons::Core::Disposable")»> Subscribe( «resolveSymbol("BTC::Commons::CoreExtras::IObserver")»<«eventType»> &observer ) override
+                   {  return {}; }
+
+               «ENDFOR»
+            };
+        '''
+    }
+
+    private def makeDefaultResult(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        val returnedType = function.returnedType
+        if (returnedType.isSequenceType)
+        {
+            val isFailable = returnedType.isFailable
+            val elementType = '''«IF isFailable»«resolveSymbol("BTC::Commons::CoreExtras::FailableHandle")»< «ENDIF»«resolve(returnedType.actualType.ultimateType)»«IF isFailable» >«ENDIF»'''
+            '''«resolveSymbol("BTC::Commons::CoreExtras::MakeOwningForwardConstIterator")»< «elementType» >( «resolveSymbol("BTC::Commons::Core::CreateAuto")»< «resolveSymbol("BTC::Commons::CoreStd::Collection")»< «elementType» > >() )'''
+        }
+        else
+            '''«toText(returnedType, interfaceDeclaration)»{}'''
+    }
+
+    private def generateDispatcherContainer(InterfaceDeclaration interfaceDeclaration)
+    {
+        val containerName = interfaceDeclaration.containerName
+        val loggerFactory = resolveSymbol("BTC::Performance::CommonsTestSupport::GetTestLoggerFactory")
+
+        '''
+            /**
+               Provides the dispatcher with the service fault handling of an in-process server endpoint; requests are
+               passed to ProcessRequest directly, so no transport is measured.
+            */
+            struct «containerName»
+            {
+               «containerName»() :
+               m_connection(
+                  «resolveSymbol("BTC::ServiceComm::SQ::ZeroMQTestSupport::ZeroMQTestConnectionBuilder")»{m_context, «loggerFactory»()}.Create()
+               )
+               ,m_dispatcher(
+                   «loggerFactory»()
+                  ,m_connection->GetServerEndpoint().GetServiceFaultHandlerManagerFactory()
+                  ,«resolveSymbol("BTC::Commons::Core::CreateAuto")»<«interfaceDeclaration.dispatcheeName»>()
+               )
+               {}
+
+               ~«containerName»()
+               {
+               m_connection->GetClientEndpoint().InitiateShutdown();
+               m_connection->GetClientEndpoint().Wait();
+               }
+
+               «resolve(interfaceDeclaration, ProjectType.DISPATCHER)»& GetDispatcher()
+               {  return m_dispatcher; }
+
+               «resolveSymbol("BTC::ServiceComm::Commons::CMessagePartPool")»& GetMessagePartPool()
+               {  return m_pool; }
+
+            private:
+               «resolveSymbol("BTC::Commons::CoreYacl::Context")» m_context;
+               «IF targetVersion == ServiceCommVersion.V0_11»
+                 «resolveSymbol("BTC::Commons::Core::UniquePtr")»< «resolveSymbol("BTC::ServiceComm::TestBase::ITestConnection")» >
+               «ELSE»
+                 «resolveSymbol("BTC::Commons::Core::UniquePtr")»< «resolveSymbol("BTC::ServiceComm::TestSupport::ITestConnection")» >
+               «ENDIF» m_connection;
+               «resolve(interfaceDeclaration, ProjectType.DISPATCHER)» m_dispatcher;
+               «resolveSymbol("BTC::ServiceComm::Commons::CMessagePartPool")» m_pool;
+            };
+        '''
+    }
+
+    private def generateDispatchBenchmark(InterfaceDeclaration interfaceDeclaration, FunctionDeclaration function)
+    {
+        val protobufRequestMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.REQUEST)
+        // sequences are left empty, which needs no code, since an empty repeated field encodes an empty sequence
+        val inParams = function.parameters.filter[direction == ParameterDirection.PARAM_IN && !paramType.isSequenceType]
+
+        '''
+            void «interfaceDeclaration.name»_Dispatch«function.name»( «resolveSymbol("benchmark::State")»& state )
+            {
+               «interfaceDeclaration.containerName» container;
+
+               «protobufRequestMessage» request;
+               «IF inParams.empty»
+                   request.mutable_«function.name.asRequest.asCppProtobufName»();
+               «ELSE»
+                   auto * const concreteRequest( request.mutable_«function.name.asRequest.asCppProtobufName»() );
+               «ENDIF»
+               «FOR param : inParams»
+                   «toText(param.paramType, param)» const «param.paramName»{};
+                   «IF GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.CPP) && !(param.paramType.isByte || param.paramType.isInt16 || param.paramType.isChar)»
+                       «IF param.paramType.isEnumType»
+                           concreteRequest->set_«param.paramName.asCppProtobufName»( «typeResolver.resolveCodecNS(paramBundle, param.paramType.actualType)»::Encode(«param.paramName») );
+                       «ELSE»
+                           «typeResolver.resolveCodecNS(paramBundle, param.paramType.actualType)»::Encode( «param.paramName», concreteRequest->mutable_«param.paramName.asCppProtobufName»() );
+                       «ENDIF»
+                   «ELSE»
+                       concreteRequest->set_«param.paramName.asCppProtobufName»(«param.paramName»);
+                   «ENDIF»
+               «ENDFOR»
+               auto const requestPart( «resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart( container.GetMessagePartPool(), request ) );
+               «resolveSymbol("BTC::ServiceComm::Commons::EndpointIdentity")» const clientIdentity;
+
+               for (auto _ : state)
+                  «resolveSymbol("benchmark::DoNotOptimize")»( container.GetDispatcher().ProcessRequest( requestPart, clientIdentity ) );
+            }
+            «resolveSymbol("BENCHMARK")»( «interfaceDeclaration.name»_Dispatch«function.name» );
+        '''
+    }
+}
@@ -10,6 +10,7 @@
  **********************************************************************/
 package com.btc.serviceidl.generator.cpp
 
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ProjectType
@@ -101,35 +102,44 @@ class CodecGenerator extends BasicCppGenerator
             template<typename PROTOBUF_TYPE, typename API_TYPE>
             inline «forwardConstIterator»< API_TYPE > Decode(google::protobuf::RepeatedPtrField< PROTOBUF_TYPE > const& protobufInput)
             {
-               typedef «insertableTraits»< API_TYPE > APITypeTraits;
-               auto entries = «createDefaultAsyncInsertable»< API_TYPE >();
-               auto future = entries->GetFuture();
-               
-               «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
-               {  entries->OnNext( Decode(protobufEntry) ); } );
-               
-               entries->OnCompleted();
-               return future.Get();
+               «IF directSequenceDecoding»
+                   «makeDirectSequenceDecode("API_TYPE", "PROTOBUF_TYPE", "Decode(protobufEntry)")»
+               «ELSE»
+                   typedef «insertableTraits»< API_TYPE > APITypeTraits;
+                   auto entries = «createDefaultAsyncInsertable»< API_TYPE >();
+                   auto future = entries->GetFuture();
+                   
+                   «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
+                   {  entries->OnNext( Decode(protobufEntry) ); } );
+                   
+                   entries->OnCompleted();
+                   return future.Get();
+               «ENDIF»
             }
             
             template<typename PROTOBUF_TYPE, typename API_TYPE>
             inline «forwardConstIterator»< API_TYPE > Decode(google::protobuf::RepeatedField< PROTOBUF_TYPE > const& protobufInput)
             {
-               typedef «insertableTraits»< API_TYPE > APITypeTraits;
-               auto entries = «createDefaultAsyncInsertable»< API_TYPE >();
-               auto future = entries->GetFuture();
-               
-               «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
-               {  entries->OnNext( Decode(protobufEntry) ); } );
-               
-               entries->OnCompleted();
-               return future.Get();
+               «IF directSequenceDecoding»
+                   «makeDirectSequenceDecode("API_TYPE", "PROTOBUF_TYPE", "Decode(protobufEntry)")»
+               «ELSE»
+                   typedef «insertableTraits»< API_TYPE > APITypeTraits;
+                   auto entries = «createDefaultAsyncInsertable»< API_TYPE >();
+                   auto future = entries->GetFuture();
+                   
+                   «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
+                   {  entries->OnNext( Decode(protobufEntry) ); } );
+                   
+                   entries->OnCompleted();
+                   return future.Get();
+               «ENDIF»
             }
             
             template<typename PROTOBUF_TYPE, typename API_TYPE>
             inline «stdVector»< API_TYPE > DecodeToVector(google::protobuf::RepeatedPtrField< PROTOBUF_TYPE > const& protobufInput)
             {
                «stdVector»< API_TYPE > entries;
+               entries.reserve( protobufInput.size() );
                
                «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
                {  entries.push_back( Decode(protobufEntry) ); } );
@@ -140,6 +150,7 @@ class CodecGenerator extends BasicCppGenerator
             inline «stdVector»< API_TYPE > DecodeToVector(google::protobuf::RepeatedField< PROTOBUF_TYPE > const& protobufInput)
             {
                «stdVector»< API_TYPE > entries;
+               entries.reserve( protobufInput.size() );
                
                «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
                {  entries.push_back( Decode(protobufEntry) ); } );
@@ -222,6 +233,7 @@ class CodecGenerator extends BasicCppGenerator
                typedef «failableHandle»<API_TYPE> ResultType;
             
                «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «cabVector»< ResultType > > result( new «cabVector»< ResultType >() );
+               result->Reserve( protobufInput.size() );
                «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &result ]( PROTOBUF_TYPE const& protobufEntry )
                {
                if (protobufEntry.has_exception())
@@ -272,6 +284,7 @@ class CodecGenerator extends BasicCppGenerator
             inline «stdVector»< «failableHandle»< API_TYPE > > DecodeFailableToVector(google::protobuf::RepeatedPtrField< PROTOBUF_TYPE > const& protobufInput)
             {
                «stdVector»< «failableHandle»< API_TYPE > > entries;
+               entries.reserve( protobufInput.size() );
                
                «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( PROTOBUF_TYPE const& protobufEntry )
                {
@@ -290,6 +303,7 @@ class CodecGenerator extends BasicCppGenerator
             template<typename API_TYPE, typename PROTOBUF_TYPE>
             inline void EncodeFailable(«stdVector»< «failableHandle»< API_TYPE > > const& apiInput, google::protobuf::RepeatedPtrField< PROTOBUF_TYPE >* const protobufOutput)
             {
+               protobufOutput->Reserve( static_cast< int >( apiInput.size() ) );
                for ( auto const& failableItem : apiInput )
                {
                   PROTOBUF_TYPE* const protobufItem( protobufOutput->Add() );
@@ -340,6 +354,7 @@ class CodecGenerator extends BasicCppGenerator
             template<typename API_TYPE, typename PROTOBUF_TYPE>
             inline void Encode(«stdVector»< API_TYPE > const& apiInput, google::protobuf::RepeatedPtrField< PROTOBUF_TYPE >* const protobufOutput)
             {
+               protobufOutput->Reserve( static_cast< int >( apiInput.size() ) );
                for ( auto const& apiItem : apiInput )
                {
                   PROTOBUF_TYPE* const protobufItem( protobufOutput->Add() );
@@ -350,6 +365,7 @@ class CodecGenerator extends BasicCppGenerator
             template<typename API_TYPE, typename PROTOBUF_TYPE>
             inline void Encode(«stdVector»< API_TYPE > const& apiInput, google::protobuf::RepeatedField< PROTOBUF_TYPE >* protobufOutput)
             {
+               protobufOutput->Reserve( static_cast< int >( apiInput.size() ) );
                for ( auto const& apiItem : apiInput )
                {
                   PROTOBUF_TYPE* const protobufItem( protobufOutput->Add() );
@@ -378,15 +394,19 @@ class CodecGenerator extends BasicCppGenerator
             template<typename PROTOBUF_ENUM_TYPE, typename API_ENUM_TYPE>
             inline «forwardConstIterator»< API_ENUM_TYPE > Decode(google::protobuf::RepeatedField< google::protobuf::int32 > const& protobufInput)
             {
-               typedef «insertableTraits»< API_ENUM_TYPE > APITypeTraits;
-               auto entries = «createDefaultAsyncInsertable»< API_ENUM_TYPE >();
-               auto future = entries->GetFuture();
-               
-               «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( google::protobuf::int32 const& protobufEntry )
-               {  entries->OnNext( Decode(static_cast<PROTOBUF_ENUM_TYPE>(protobufEntry)) ); } );
-               
-               entries->OnCompleted();
-               return future.Get();      
+               «IF directSequenceDecoding»
+                   «makeDirectSequenceDecode("API_ENUM_TYPE", "google::protobuf::int32", "Decode(static_cast<PROTOBUF_ENUM_TYPE>(protobufEntry))")»
+               «ELSE»
+                   typedef «insertableTraits»< API_ENUM_TYPE > APITypeTraits;
+                   auto entries = «createDefaultAsyncInsertable»< API_ENUM_TYPE >();
+                   auto future = entries->GetFuture();
+                   
+                   «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( google::protobuf::int32 const& protobufEntry )
+                   {  entries->OnNext( Decode(static_cast<PROTOBUF_ENUM_TYPE>(protobufEntry)) ); } );
+                   
+                   entries->OnCompleted();
+                   return future.Get();      
+               «ENDIF»
             }
             
             template<typename IDENTICAL_TYPE>
@@ -410,6 +430,7 @@ class CodecGenerator extends BasicCppGenerator
             inline «stdVector»< «cabUuid» > DecodeUUIDToVector(google::protobuf::RepeatedPtrField< «stdString» > const& protobufInput)
             {
                «stdVector»< «cabUuid» > entries;
+               entries.reserve( protobufInput.size() );
                «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( «stdString» const& protobufEntry )
                {  entries.push_back( DecodeUUID(protobufEntry) ); } );
                return entries;
@@ -417,15 +438,19 @@ class CodecGenerator extends BasicCppGenerator
             
             inline «forwardConstIterator»< «cabUuid» > DecodeUUID(google::protobuf::RepeatedPtrField< «stdString» > const& protobufInput)
             {
-               typedef «insertableTraits»< «cabUuid» > APITypeTraits;
-               APITypeTraits::AutoPtrType entries( «createDefaultAsyncInsertable»< «cabUuid» >() );
-               APITypeTraits::FutureType future( entries->GetFuture() );
-            
-               «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( «stdString» const& protobufEntry )
-               {  entries->OnNext(DecodeUUID(protobufEntry)); });
-            
-               entries->OnCompleted();
-               return future.Get();
+               «IF directSequenceDecoding»
+                   «makeDirectSequenceDecode(cabUuid, stdString, "DecodeUUID(protobufEntry)")»
+               «ELSE»
+                   typedef «insertableTraits»< «cabUuid» > APITypeTraits;
+                   APITypeTraits::AutoPtrType entries( «createDefaultAsyncInsertable»< «cabUuid» >() );
+                   APITypeTraits::FutureType future( entries->GetFuture() );
+                   
+                   «stdForEach»( protobufInput.begin(), protobufInput.end(), [ &entries ]( «stdString» const& protobufEntry )
+                   {  entries->OnNext(DecodeUUID(protobufEntry)); });
+                   
+                   entries->OnCompleted();
+                   return future.Get();
+               «ENDIF»
             }
             
             inline void DecodeUUID(google::protobuf::RepeatedPtrField< «stdString» > const& protobufInput, «insertableTraits»< «cabUuid» >::Type &apiOutput)
@@ -466,15 +491,15 @@ class CodecGenerator extends BasicCppGenerator
             {
                «resolveSymbol("assert")»( protobufInput.size() == 16 ); // lower half + upper half = 16 bytes!
                
-               «resolveSymbol("std::array")»<unsigned char, 16> rawBytes = {0};
-               «resolveSymbol("std::copy")»( protobufInput.begin(), protobufInput.end(), rawBytes.begin() );
+               // read the components in place instead of copying the raw bytes first
+               «resolveSymbol("BTC::Commons::Core::UInt8")» const* const rawBytes = reinterpret_cast< BTC::Commons::Core::UInt8 const* >( protobufInput.data() );
             
                «resolveSymbol("BTC::Commons::Core::UInt32")» param1 = (rawBytes[0] << 0 | rawBytes[1] << 8 | rawBytes[2] << 16 | rawBytes[3] << 24);
                «resolveSymbol("BTC::Commons::Core::UInt16")» param2 = (rawBytes[4] << 0 | rawBytes[5] << 8);
                BTC::Commons::Core::UInt16 param3 = (rawBytes[6] << 0 | rawBytes[7] << 8);
             
-               std::array<«resolveSymbol("BTC::Commons::Core::UInt8")», 8> param4 = {0};
-               std::copy(rawBytes.begin() + 8, rawBytes.end(), param4.begin());
+               «resolveSymbol("std::array")»<BTC::Commons::Core::UInt8, 8> param4 = {0};
+               «resolveSymbol("std::copy")»(rawBytes + 8, rawBytes + 16, param4.begin());
             
                return «cabUuid»::MakeFromComponents(param1, param2, param3, param4.data());
             }
@@ -531,6 +556,29 @@ class CodecGenerator extends BasicCppGenerator
         '''
     }
     
+    private def isDirectSequenceDecoding()
+    {
+        generationSettings.isGeneratorOptionEnabled(GeneratorOptions.CPP_DIRECT_SEQUENCE_DECODING)
+    }
+
+    /**
+     * Decodes all entries of protobufInput in a single pass into an owning collection,
+     * instead of pushing them through an asynchronous insertable and waiting for its future.
+     */
+    private def String makeDirectSequenceDecode(String apiType, String protobufEntryType, String decodeEntry)
+    {
+        val cabVector = resolveSymbol("BTC::Commons::CoreStd::Collection")
+        '''
+            «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «cabVector»< «apiType» > > entries( new «cabVector»< «apiType» >() );
+            entries->Reserve( protobufInput.size() );
+            
+            «resolveSymbol("std::for_each")»( protobufInput.begin(), protobufInput.end(), [ &entries ]( «protobufEntryType» const& protobufEntry )
+            {  entries->Add( «decodeEntry» ); } );
+            
+            return «resolveSymbol("BTC::Commons::CoreExtras::MakeOwningForwardConstIterator")»< «apiType» >( entries.Move() );
+        '''
+    }
+
     private def dispatch String makeDecode(StructDeclaration element, AbstractContainerDeclaration container)
     {
         '''
@@ -558,13 +606,14 @@ class CodecGenerator extends BasicCppGenerator
 
     private def dispatch String makeDecode(EnumDeclaration element, AbstractContainerDeclaration container)
     {
+        val offset = GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET
+
         '''
-            «FOR enumValue : element.containedIdentifiers»
-                «IF enumValue != element.containedIdentifiers.head»else «ENDIF»if (protobufInput == «typeResolver.resolveProtobuf(element, ProtobufType.REQUEST)»::«enumValue»)
-                   return «resolve(element)»::«enumValue»;
-            «ENDFOR»
+            const int protobufNumber = static_cast< int >( protobufInput );
+            if (protobufNumber < «offset» || protobufNumber >= «element.containedIdentifiers.size + offset»)
+               «resolveSymbol("CABTHROW_V2")»(«resolveSymbol("BTC::Commons::Core::InvalidArgumentException")»("Unknown enum value!"));
             
-            «resolveSymbol("CABTHROW_V2")»(«resolveSymbol("BTC::Commons::Core::InvalidArgumentException")»("Unknown enum value!"));
+            return static_cast< «resolve(element)» >( protobufNumber - «offset» );
         '''
     }
 
@@ -610,13 +659,13 @@ class CodecGenerator extends BasicCppGenerator
 
     private def dispatch String makeEncode(EnumDeclaration element)
     {
+
         '''
-            «FOR enumValue : element.containedIdentifiers»
-                «IF enumValue != element.containedIdentifiers.head»else «ENDIF»if (apiInput == «resolve(element)»::«enumValue»)
-                   return «typeResolver.resolveProtobuf(element, ProtobufType.RESPONSE)»::«enumValue»;
-            «ENDFOR»
+            const int apiOrdinal = static_cast< int >( apiInput );
+            if (apiOrdinal < 0 || apiOrdinal >= «element.containedIdentifiers.size»)
+               «resolveSymbol("CABTHROW_V2")»(«resolveSymbol("BTC::Commons::Core::InvalidArgumentException")»("Unknown enum value!"));
             
-            «resolveSymbol("CABTHROW_V2")»(«resolveSymbol("BTC::Commons::Core::InvalidArgumentException")»("Unknown enum value!"));
+            return static_cast< «typeResolver.resolveProtobuf(element, ProtobufType.RESPONSE)» >( apiOrdinal + «GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET» );
         '''
     }
 
@@ -629,6 +678,7 @@ class CodecGenerator extends BasicCppGenerator
         '''
             «IF optional»if (apiInput.«element.name.asMember»«IF isPointer» != nullptr«ELSE».GetIsPresent()«ENDIF»)«ENDIF»
             «IF useCodec && !(element.type.isByte || element.type.isInt16 || element.type.isChar || isEnum)»
+                «IF !optional»«makeReserve(element.type, '''protobufOutput->mutable_«element.name.asCppProtobufName»()''')»«ENDIF»
                 «IF optional»   «ENDIF»«resolveEncode(element.type)»( «IF optional»*( «ENDIF»apiInput.«element.name.asMember»«IF optional && !isPointer».GetValue()«ENDIF»«IF optional» )«ENDIF», protobufOutput->mutable_«element.name.asCppProtobufName»() );
             «ELSE»
                 «IF optional»   «ENDIF»protobufOutput->set_«element.name.asCppProtobufName»(«IF isEnum»«resolveEncode(element.type)»( «ENDIF»«IF optional»*«ENDIF»apiInput.«element.name.asMember»«IF optional && !isPointer».GetValue()«ENDIF» «IF isEnum»)«ENDIF»);
@@ -119,7 +119,8 @@ class CppGenerator
                     ProjectType.IMPL,
                     ProjectType.PROXY,
                     ProjectType.DISPATCHER,
-                    ProjectType.TEST
+                    ProjectType.TEST,
+                    ProjectType.BENCHMARK
                 }))
                 {
                     new LegacyProjectGenerator(
@@ -10,7 +10,9 @@
  **********************************************************************/
 package com.btc.serviceidl.generator.cpp
 
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.EventBatchSettings
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ParameterBundle
 import com.btc.serviceidl.generator.common.ProjectType
@@ -23,6 +25,7 @@ import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ParameterDirection
 import com.btc.serviceidl.idl.VoidType
+import com.btc.serviceidl.util.Constants
 import java.util.Optional
 import org.eclipse.core.runtime.Path
 import org.eclipse.xtend.lib.annotations.Accessors
@@ -35,6 +38,8 @@ import static extension com.btc.serviceidl.util.Util.*
 @Accessors
 class DispatcherGenerator extends BasicCppGenerator
 {
+    static val ARENA_INITIAL_BLOCK_SIZE = 4096
+
     def generateImplementationFileBody(InterfaceDeclaration interfaceDeclaration)
     {
         val className = resolve(interfaceDeclaration, paramBundle.projectType)
@@ -46,7 +51,21 @@ class DispatcherGenerator extends BasicCppGenerator
                 new ParameterBundle.Builder(paramBundle).with(ProjectType.SERVICE_API).build, ArtifactNature.CPP,
                 TransformType.NAMESPACE))
 
+        val eventBatchSettings = EventBatchSettings.get(generationSettings)
+
         '''
+            «IF interfaceDeclaration.events.exists[!filterKeys.empty]»
+                «generateKeyRemoteEventPublisher(className.shortName)»
+                
+            «ENDIF»
+            «IF eventBatchSettings.present && !interfaceDeclaration.events.empty»
+                «generateBatchingRemoteEventPublisher»
+                
+            «ENDIF»
+            «IF interfaceDeclaration.functions.exists[chunked]»
+                «generateChunkedResults(className.shortName)»
+                
+            «ENDIF»
             «className.shortName»::«className.shortName»
             (
                «resolveSymbol("BTC::Commons::Core::Context")»& context
@@ -56,6 +75,7 @@ class DispatcherGenerator extends BasicCppGenerator
             ) :
             «resolveSymbol("BTC_CAB_LOGGING_API_INIT_LOGGERAWARE")»(loggerFactory)
             , «interfaceDeclaration.asBaseName»( serviceEndpoint.GetServiceFaultHandlerManagerFactory(), «resolveSymbol("std::move")»(dispatchee) )
+            «makeChunksInitializers(interfaceDeclaration)»
             { «getRegisterServiceFaults(interfaceDeclaration, moduleNamespace)»( GetServiceFaultHandlerManager() ); }
             
             «className.shortName»::«className.shortName»
@@ -63,9 +83,16 @@ class DispatcherGenerator extends BasicCppGenerator
                «resolveSymbol("BTC::Logging::API::LoggerFactory")»& loggerFactory
                ,«resolveSymbol("BTC::ServiceComm::API::IServiceFaultHandlerManagerFactory")» &serviceFaultHandlerManagerFactory
                ,«resolveSymbol("BTC::Commons::Core::AutoPtr")»< «apiClassName» > dispatchee
+               «IF metrics»
+                   ,«resolveSymbol("BTC::Commons::Core::AutoPtr")»< IMetrics > metrics
+               «ENDIF»
             ) :
             «resolveSymbol("BTC_CAB_LOGGING_API_INIT_LOGGERAWARE")»(loggerFactory)
             , «interfaceDeclaration.asBaseName»( serviceFaultHandlerManagerFactory, «resolveSymbol("std::move")»(dispatchee) )
+            «makeChunksInitializers(interfaceDeclaration)»
+            «IF metrics»
+                , m_metrics( std::move(metrics) )
+            «ENDIF»
             { «getRegisterServiceFaults(interfaceDeclaration, moduleNamespace)»( GetServiceFaultHandlerManager() ); }
             
             «generateCppDestructor(interfaceDeclaration)»
@@ -87,30 +114,80 @@ class DispatcherGenerator extends BasicCppGenerator
                «ENDIF»
                
                // parse raw message into Protocol Buffers message object
-               «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «protobufRequestMessage» > protoBufRequest( BorrowRequestMessage() );
+               «IF metrics»
+                   auto const parseStart( «resolveSymbol("std::chrono::steady_clock")»::now() );
+               «ENDIF»
+               «IF arenas»
+                   «makeArena»
+                   auto * const protoBufRequest( google::protobuf::Arena::CreateMessage< «protobufRequestMessage» >(&arena) );
+               «ELSE»
+                   «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «protobufRequestMessage» > protoBufRequest( BorrowRequestMessage() );
+               «ENDIF»
                ParseRequestOrLogAndThrow( «className.shortName»::GetLogger(), *protoBufRequest, «IF targetVersion == ServiceCommVersion.V0_10»(*request)[0]«ELSE»*request«ENDIF» );
                
-               «FOR function : interfaceDeclaration.functions»
-                  «generateFunctionHandler(function, interfaceDeclaration)»                  
-               «ENDFOR»
-               
+               «IF !interfaceDeclaration.functions.empty || !interfaceDeclaration.keyedEvents.empty»
+                   switch ( protoBufRequest->«Constants.PROTOBUF_REQUEST_ONEOF»_case() )
+                   {
+                   «FOR function : interfaceDeclaration.functions»
+                       case «protobufRequestMessage»::«function.name.asRequest.asCppProtobufCaseName»:
+                          «IF metrics»
+                              RecordMetrics( "«function.name»", IMetrics::Phase::Parse, parseStart );
+                          «ENDIF»
+                          return «function.handlerName»( *protoBufRequest );
+                   «ENDFOR»
+                   «FOR event : interfaceDeclaration.keyedEvents»
+                       case «protobufRequestMessage»::«event.data.name.asKeySubscription.asRequest.asCppProtobufCaseName»:
+                          return «event.keySubscriptionHandlerName»( *protoBufRequest );
+                   «ENDFOR»
+                   default:
+                      break;
+                   }
+                   
+               «ENDIF»
                «resolveSymbol("CABLOG_ERROR")»("Invalid request: " << protoBufRequest->DebugString().c_str());
                «resolveSymbol("CABTHROW_V2")»( «resolveSymbol("BTC::ServiceComm::API::InvalidRequestReceivedException")»(«resolveSymbol("BTC::Commons::Core::String")»("«interfaceDeclaration.name»_Request is invalid, unknown request type")));
             }
             
+            «FOR function : interfaceDeclaration.functions»
+                «generateFunctionHandler(function, interfaceDeclaration)»
+                
+                «IF function.chunked»
+                    «generateChunkEncoder(function, interfaceDeclaration)»
+                    
+                «ENDIF»
+            «ENDFOR»
+            «FOR event : interfaceDeclaration.keyedEvents»
+                «generateKeySubscriptionHandler(event, interfaceDeclaration)»
+                
+            «ENDFOR»
+            «IF metrics»
+                «generateRecordMetrics(className.shortName)»
+                
+            «ENDIF»
+            
             void «className.shortName»::AttachEndpoint(BTC::ServiceComm::API::IServerEndpoint &endpoint)
             {
                «interfaceDeclaration.asBaseName»::AttachEndpoint( endpoint );
                
               «FOR event : interfaceDeclaration.events»
-                 «event.publisherName» = Create«resolve(event.data).shortName»RemoteEventPublisher(endpoint);
+                 «IF event.publishesAllEventsSeparately»
+                     «event.publisherName» = Create«resolve(event.data).shortName»RemoteEventPublisher(endpoint);
+                 «ENDIF»
+                 «IF !event.filterKeys.empty»
+                     «event.keyPublisherName» = Create«resolve(event.data).shortName»KeyRemoteEventPublisher(endpoint);
+                 «ENDIF»
               «ENDFOR» 
             }
             
             void «className.shortName»::DetachEndpoint(BTC::ServiceComm::API::IServerEndpoint &endpoint)
             {
               «FOR event : interfaceDeclaration.events»
-                 «event.publisherName».Clear();
+                 «IF !event.filterKeys.empty»
+                     «event.keyPublisherName».Clear();
+                 «ENDIF»
+                 «IF event.publishesAllEventsSeparately»
+                     «event.publisherName».Clear();
+                 «ENDIF»
               «ENDFOR» 
             
                «interfaceDeclaration.asBaseName»::DetachEndpoint(endpoint);
@@ -153,28 +230,58 @@ class DispatcherGenerator extends BasicCppGenerator
             
               «FOR event : interfaceDeclaration.events»
                  «val eventObserverPtrType = event.observerPtrType»
-                «/* TODO remove ProtobufType argument */»
-                «val eventProtobufType = typeResolver.resolveProtobuf(event.data, ProtobufType.REQUEST)»
+                «/* see makeEventEncoder for the encoding of the events */»
                 «val eventType = resolve(event.data)»
+                «IF event.publishesAllEventsSeparately»
                
                 «eventObserverPtrType» «className.shortName»::Create«eventType.shortName»RemoteEventPublisher(«resolveSymbol("BTC::ServiceComm::API::IServerEndpoint")»& endpoint)
                 {
-                    return «resolveSymbol("BTC::ServiceComm::Util::CreateRemoteEventPublisher")»<«eventType»>(
-                        GetDispatchee(),
-                        endpoint.GetEventRegistry(),
-                        [this](const «eventType»& serviceEvent) {
-                          auto eventProtobuf = «eventProtobufType»{};
-                          «typeResolver.resolveCodecNS(paramBundle, event.data)»::Encode(serviceEvent, &eventProtobuf);
-                          «IF targetVersion == ServiceCommVersion.V0_10»
-                             auto message = GetMessagePool().Borrow();
-                             message->PushBack(«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(GetMessagePartPool(), eventProtobuf));
-                             return message;
-                          «ELSE»
-                             return «resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(GetMessagePartPool(), eventProtobuf);
-                          «ENDIF»
-                        },
-                        «eventType»::EVENT_TYPE_GUID());
+                    «IF eventBatchSettings.present»
+                        auto publisher = «resolveSymbol("BTC::Commons::Core::CreateUnique")»<CBatchingRemoteEventPublisher<«eventType»>>(
+                            [this, &endpoint](«resolveSymbol("BTC::Commons::CoreExtras::IObservableRegistration")»<«resolveSymbol("std::vector")»<«eventType»>>& source) {
+                              return «resolveSymbol("BTC::ServiceComm::Util::CreateRemoteEventPublisher")»<std::vector<«eventType»>>(
+                                  source,
+                                  endpoint.GetEventRegistry(),
+                                  «makeEventBatchEncoder(event, interfaceDeclaration)»,
+                                  MakeBatchEventTypeGuid(«eventType»::EVENT_TYPE_GUID()));
+                            },
+                            «eventBatchSettings.get.maxEvents»,
+                            «resolveSymbol("std::chrono::milliseconds")»(«eventBatchSettings.get.windowMillis»)«IF eventBatchSettings.get.coalesce && !event.filterKeys.empty»,
+                            «makeKeyHashFunction(event)»«ENDIF»);
+                        publisher->SubscribeTo(GetDispatchee());
+                        return «resolveSymbol("std::move")»(publisher);
+                    «ELSE»
+                        return «resolveSymbol("BTC::ServiceComm::Util::CreateRemoteEventPublisher")»<«eventType»>(
+                            GetDispatchee(),
+                            endpoint.GetEventRegistry(),
+                            «makeEventEncoder(event)»,
+                            «eventType»::EVENT_TYPE_GUID());
+                    «ENDIF»
                 }
+                «ENDIF»
+                «IF !event.filterKeys.empty»
+                    «val messagePartPtr = resolveSymbol("BTC::ServiceComm::Commons::ConstMessagePartPtr")»
+                    
+                    «event.getKeyPublisherPtrType(className.shortName + "::")» «className.shortName»::Create«eventType.shortName»KeyRemoteEventPublisher(«resolveSymbol("BTC::ServiceComm::API::IServerEndpoint")»& endpoint)
+                    {
+                        auto publisher = «resolveSymbol("BTC::Commons::Core::CreateUnique")»<CKeyRemoteEventPublisher<«eventType»>>(
+                            «makeKeyHashFunction(event)»,
+                            «makeEventPartEncoder(event)»,
+                            [this, &endpoint](«resolveSymbol("BTC::Commons::CoreExtras::IObservableRegistration")»<«messagePartPtr»>& source, «resolveSymbol("BTC::Commons::CoreExtras::UUID")» const& eventTypeGuid) {
+                              return «resolveSymbol("BTC::ServiceComm::Util::CreateRemoteEventPublisher")»<«messagePartPtr»>(
+                                  source,
+                                  endpoint.GetEventRegistry(),
+                                  [«IF targetVersion == ServiceCommVersion.V0_10»this«ENDIF»](«messagePartPtr» const& eventPart) {
+                                    return «makeToMessagePtrType("eventPart")»;
+                                  },
+                                  eventTypeGuid);
+                            },
+                            «eventType»::EVENT_TYPE_GUID(),
+                            «!event.publishesAllEventsSeparately»);
+                        publisher->SubscribeTo(GetDispatchee());
+                        return publisher;
+                    }
+                «ENDIF»
               «ENDFOR»            
             
         '''
@@ -187,84 +294,283 @@ class DispatcherGenerator extends BasicCppGenerator
         val isVoid = function.returnedType instanceof VoidType
         val protobufResponseMethod = function.name.asResponse.asCppProtobufName
         val outputParameters = function.parameters.filter[direction == ParameterDirection.PARAM_OUT]
+        val protobufRequestMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.REQUEST)
         val protobufResponseMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.RESPONSE)
+        val className = resolve(interfaceDeclaration, paramBundle.projectType)
         '''
-            if ( protoBufRequest->has_«protobufRequestMethod»() )
+            «messagePtrType» «className.shortName»::«function.handlerName»( «protobufRequestMessage» const& protoBufRequest )
             {
-           // decode request -->
-           auto const& concreteRequest( protoBufRequest->«protobufRequestMethod»() );
-           «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
-               «IF GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.CPP)»
-                   «IF param.paramType.isSequenceType»
-                       «val ulimateType = param.paramType.ultimateType»
-                       «val isUuid = ulimateType.isUUIDType»
-                       «val isFailable = param.paramType.isFailable»
-                       auto «param.paramName»( «typeResolver.resolveCodecNS(paramBundle, ulimateType, isFailable, Optional.of(interfaceDeclaration))»::Decode«IF isFailable»Failable«ELSEIF isUuid»UUID«ENDIF»
-                          «IF !isUuid || isFailable»
-                              «val protobufType = typeResolver.resolveProtobuf(ulimateType, ProtobufType.REQUEST).fullyQualifiedName»
-                              < «IF isFailable»«typeResolver.resolveFailableProtobufType(param.paramType.actualType, interfaceDeclaration)»«ELSE»«protobufType»«ENDIF», «resolve(ulimateType)» >
-                          «ENDIF»
-                          (concreteRequest.«param.paramName.asCppProtobufName»()) );
+               «IF metrics»
+                   auto phaseStart( «resolveSymbol("std::chrono::steady_clock")»::now() );
+                   
+               «ENDIF»
+               // decode request -->
+               auto const& concreteRequest( protoBufRequest.«protobufRequestMethod»() );
+               «IF function.chunked»
+                   if (concreteRequest.«Constants.PROTOBUF_CHUNK_CURSOR»() != 0)
+                   {
+                      // continue the chunked transfer of an earlier result
+                      «resolveSymbol("std::vector")»< «resolve(function.returnedType.actualType.ultimateType)» > chunk;
+                      auto const cursor( «function.chunksName»->Next(concreteRequest.«Constants.PROTOBUF_CHUNK_CURSOR»(), chunk) );
+                      return «function.chunkEncoderName»( chunk, cursor );
+                   }
+               «ENDIF»
+               «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
+                   «IF GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.CPP)»
+                       «IF param.paramType.isSequenceType»
+                           «val ulimateType = param.paramType.ultimateType»
+                           «val isUuid = ulimateType.isUUIDType»
+                           «val isFailable = param.paramType.isFailable»
+                           auto «param.paramName»( «typeResolver.resolveCodecNS(paramBundle, ulimateType, isFailable, Optional.of(interfaceDeclaration))»::Decode«IF isFailable»Failable«ELSEIF isUuid»UUID«ENDIF»
+                              «IF !isUuid || isFailable»
+                                  «val protobufType = typeResolver.resolveProtobuf(ulimateType, ProtobufType.REQUEST).fullyQualifiedName»
+                                  < «IF isFailable»«typeResolver.resolveFailableProtobufType(param.paramType.actualType, interfaceDeclaration)»«ELSE»«protobufType»«ENDIF», «resolve(ulimateType)» >
+                              «ENDIF»
+                              (concreteRequest.«param.paramName.asCppProtobufName»()) );
+                       «ELSE»
+                           auto «param.paramName»( «typeResolver.resolveCodecNS(paramBundle, param.paramType.actualType)»::Decode«IF param.paramType.isUUIDType»UUID«ENDIF»(concreteRequest.«param.paramName.asCppProtobufName»()) );
+                       «ENDIF»
                    «ELSE»
-                       auto «param.paramName»( «typeResolver.resolveCodecNS(paramBundle, param.paramType.actualType)»::Decode«IF param.paramType.isUUIDType»UUID«ENDIF»(concreteRequest.«param.paramName.asCppProtobufName»()) );
+                       auto «param.paramName»( concreteRequest.«param.paramName.asCppProtobufName»() );
                    «ENDIF»
+               «ENDFOR»
+               // decode request <--
+               «IF metrics»
+                   phaseStart = RecordMetrics( "«function.name»", IMetrics::Phase::Decode, phaseStart );
+               «ENDIF»
+
+               «IF !outputParameters.empty»
+                   // prepare [out] parameters
+                   «FOR param : outputParameters»
+                       «IF param.paramType.isSequenceType»
+                           «val typeName = resolve(param.paramType.ultimateType)»
+                           «val isFailable = param.paramType.isFailable»
+                           «if (isFailable) addCabInclude(new Path("Commons/FutureUtil/include/FailableHandleAsyncInsertable.h")).alias("") /* necessary to use InsertableTraits with FailableHandle */»
+                           «val effectiveTypename = if (isFailable) '''«resolveSymbol("BTC::Commons::CoreExtras::FailableHandle")»< «typeName» >''' else typeName»
+                           auto «param.paramName» =
+                              «resolveSymbol("BTC::Commons::FutureUtil::GetOrCreateDefaultInsertable")»(«resolveSymbol("BTC::Commons::CoreExtras::InsertableTraits")»< «effectiveTypename» >::MakeEmptyInsertablePtr());
+                           auto «param.paramName»Future = «param.paramName»->GetFuture();
+                       «ELSE»
+                           «toText(param.paramType, param)» «param.paramName»;
+                       «ENDIF»
+                   «ENDFOR»
+               «ENDIF»
+
+               // call actual method
+               «IF !isVoid»auto result( «ENDIF»GetDispatchee().«function.name»(
+                     «FOR p : function.parameters SEPARATOR ", "»
+                         «val isSequenceType = p.paramType.isSequenceType»
+                         «IF p.direction == ParameterDirection.PARAM_OUT && isSequenceType»*«ENDIF»
+                         «IF p.direction == ParameterDirection.PARAM_IN && isSequenceType»«resolveSymbol("std::move")»(«ENDIF»
+                         «p.paramName»
+                         «IF p.direction == ParameterDirection.PARAM_IN && isSequenceType»)«ENDIF»
+                     «ENDFOR»)«IF !isSync».Get()«ENDIF»«IF !isVoid» )«ENDIF»;
+               «IF metrics»
+                   phaseStart = RecordMetrics( "«function.name»", IMetrics::Phase::Invoke, phaseStart );
+               «ENDIF»
+
+               «IF function.chunked»
+                   if (concreteRequest.has_«Constants.PROTOBUF_CHUNK_CURSOR»())
+                   {
+                      std::vector< «resolve(function.returnedType.actualType.ultimateType)» > chunk;
+                      auto const cursor( «function.chunksName»->Open(«resolveSymbol("std::move")»(result), chunk) );
+                      return «function.chunkEncoderName»( chunk, cursor );
+                   }
+
+               «ENDIF»
+               // prepare response
+               «IF arenas»
+                   auto * const response( google::protobuf::Arena::CreateMessage< «protobufResponseMessage» >(protoBufRequest.GetArena()) );
                «ELSE»
-                   auto «param.paramName»( concreteRequest.«param.paramName.asCppProtobufName»() );
+                   «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «protobufResponseMessage» > response( BorrowReplyMessage() );
                «ENDIF»
-           «ENDFOR»
-           // decode request <--
-           
-           «IF !outputParameters.empty»
-               // prepare [out] parameters
-               «FOR param : outputParameters»
-                   «IF param.paramType.isSequenceType»
-                       «val typeName = resolve(param.paramType.ultimateType)»
-                       «val isFailable = param.paramType.isFailable»
-                       «if (isFailable) addCabInclude(new Path("Commons/FutureUtil/include/FailableHandleAsyncInsertable.h")).alias("") /* necessary to use InsertableTraits with FailableHandle */»
-                       «val effectiveTypename = if (isFailable) '''«resolveSymbol("BTC::Commons::CoreExtras::FailableHandle")»< «typeName» >''' else typeName»
-                       auto «param.paramName» =
-                          «resolveSymbol("BTC::Commons::FutureUtil::GetOrCreateDefaultInsertable")»(«resolveSymbol("BTC::Commons::CoreExtras::InsertableTraits")»< «effectiveTypename» >::MakeEmptyInsertablePtr());
-                       auto «param.paramName»Future = «param.paramName»->GetFuture();
-                   «ELSE»
-                       «toText(param.paramType, param)» «param.paramName»;
+
+               «IF !isVoid || !outputParameters.empty»
+                   // encode response -->
+                   auto * const concreteResponse( response->mutable_«protobufResponseMethod»() );
+                   «IF !isVoid»«makeEncodeResponse(function.returnedType.actualType, interfaceDeclaration, function.name.asCppProtobufName, Optional.empty)»«ENDIF»
+                   «IF !outputParameters.empty»
+                       // handle [out] parameters
+                       «FOR param : outputParameters»
+                           «makeEncodeResponse(param.paramType.actualType, interfaceDeclaration, param.paramName.asCppProtobufName, Optional.of(param.paramName))»
+                       «ENDFOR»
                    «ENDIF»
-               «ENDFOR»
-           «ENDIF»
-           
-           // call actual method
-        «IF !isVoid»auto result( «ENDIF»GetDispatchee().«function.name»(
-                 «FOR p : function.parameters SEPARATOR ", "»
-                     «val isSequenceType = p.paramType.isSequenceType»
-                     «IF p.direction == ParameterDirection.PARAM_OUT && isSequenceType»*«ENDIF»
-                     «IF p.direction == ParameterDirection.PARAM_IN && isSequenceType»«resolveSymbol("std::move")»(«ENDIF»
-                     «p.paramName»
-                     «IF p.direction == ParameterDirection.PARAM_IN && isSequenceType»)«ENDIF»
-                 «ENDFOR»)«IF !isSync».Get()«ENDIF»«IF !isVoid» )«ENDIF»;
-        
-        // prepare response
-        «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «protobufResponseMessage» > response( BorrowReplyMessage() );
-        
-        «IF !isVoid || !outputParameters.empty»
-            // encode response -->
-            auto * const concreteResponse( response->mutable_«protobufResponseMethod»() );
-            «IF !isVoid»«makeEncodeResponse(function.returnedType.actualType, interfaceDeclaration, function.name.asCppProtobufName, Optional.empty)»«ENDIF»
-            «IF !outputParameters.empty»
-                // handle [out] parameters
-                «FOR param : outputParameters»
-                    «makeEncodeResponse(param.paramType.actualType, interfaceDeclaration, param.paramName.asCppProtobufName, Optional.of(param.paramName))»
-                «ENDFOR»
-            «ENDIF»
-            // encode response <--
-        «ENDIF»
-        
-        // send return message
-        return «makeToMessagePtrType('''«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(
-                 GetMessagePartPool()
-                ,*response )''')»;
+                   // encode response <--
+               «ENDIF»
+
+               // send return message
+               «IF metrics»
+                   phaseStart = RecordMetrics( "«function.name»", IMetrics::Phase::Encode, phaseStart );
+                   auto responseMessage( «makeToMessagePtrType('''«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(
+                         GetMessagePartPool()
+                        ,*response )''')» );
+                   RecordMetrics( "«function.name»", IMetrics::Phase::Serialize, phaseStart );
+                   return responseMessage;
+               «ELSE»
+                   return «makeToMessagePtrType('''«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(
+                         GetMessagePartPool()
+                        ,*response )''')»;
+               «ENDIF»
             }
         '''
     }
 
+    private def generateRecordMetrics(String className)
+    {
+        val steadyClock = resolveSymbol("std::chrono::steady_clock")
+
+        '''
+            «steadyClock»::time_point «className»::RecordMetrics( char const* operation, IMetrics::Phase phase, «steadyClock»::time_point start )
+            {
+               auto const end( «steadyClock»::now() );
+               if (m_metrics)
+                  m_metrics->Record( operation, phase, «resolveSymbol("std::chrono::duration_cast")»< «resolveSymbol("std::chrono::nanoseconds")» >(end - start) );
+               return end;
+            }
+        '''
+    }
+
+    private static def getHandlerName(FunctionDeclaration function)
+    {
+        "Handle" + function.name.asRequest
+    }
+
+    private def generateChunkEncoder(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        val className = resolve(interfaceDeclaration, paramBundle.projectType)
+        val ulimateType = function.returnedType.actualType.ultimateType
+        val protobufResponseMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.RESPONSE)
+        val protobufType = typeResolver.resolveProtobuf(ulimateType, ProtobufType.RESPONSE).fullyQualifiedName
+        '''
+            «messagePtrType» «className.shortName»::«function.chunkEncoderName»( «resolveSymbol("std::vector")»< «resolve(ulimateType)» > const& chunk, «resolveSymbol("uint64_t")» cursor )
+            {
+               «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «protobufResponseMessage» > response( BorrowReplyMessage() );
+               
+               auto * const concreteResponse( response->mutable_«function.name.asResponse.asCppProtobufName»() );
+               concreteResponse->mutable_«function.name.asCppProtobufName»()->Reserve( static_cast<int>(chunk.size()) );
+               «typeResolver.resolveCodecNS(paramBundle, ulimateType, false, Optional.of(interfaceDeclaration))»::Encode< «resolve(ulimateType)», «protobufType» >
+                  ( chunk, concreteResponse->mutable_«function.name.asCppProtobufName»() );
+               concreteResponse->set_«Constants.PROTOBUF_CHUNK_CURSOR»( cursor );
+               
+               return «makeToMessagePtrType('''«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(
+                     GetMessagePartPool()
+                    ,*response )''')»;
+            }
+        '''
+    }
+
+    private def makeChunksInitializers(InterfaceDeclaration interfaceDeclaration)
+    {
+        '''
+            «FOR function : interfaceDeclaration.functions.filter[chunked]»
+                , «function.chunksName»( «resolveSymbol("BTC::Commons::Core::CreateUnique")»< CChunkedResults< «resolve(function.returnedType.actualType.ultimateType)» > >( «function.chunkSize.get» ) )
+            «ENDFOR»
+        '''
+    }
+
+    private static def getChunksName(FunctionDeclaration function)
+    {
+        function.name + "Chunks"
+    }
+
+    private static def getChunkEncoderName(FunctionDeclaration function)
+    {
+        "Encode" + function.name + "Chunk"
+    }
+
+    /**
+     * Holds the results which are transferred in chunks, see com.btc.serviceidl.util.Util#getChunkSize.
+     */
+    private def generateChunkedResults(String className)
+    {
+        val forwardConstIterator = resolveSymbol("BTC::Commons::Core::ForwardConstIterator")
+        val vector = resolveSymbol("std::vector")
+        val uint64 = resolveSymbol("uint64_t")
+        val size = resolveSymbol("std::size_t")
+        val steadyClock = resolveSymbol("std::chrono::steady_clock")
+        val mutex = resolveSymbol("std::mutex")
+
+        '''
+            /**
+               Holds the results of an operation which are transferred in chunks, between the requests for their
+               chunks. A result is dropped after its last chunk was taken, or if its next chunk was not requested
+               within a fixed time.
+            */
+            template<typename T>
+            class «className»::CChunkedResults
+            {
+            public:
+               explicit CChunkedResults(«size» chunkSize)
+                  : m_chunkSize(chunkSize)
+                  , m_random(«resolveSymbol("std::random_device")»()())
+               {}
+               
+               /**
+                  Takes the first chunk of the result; the remaining elements are held under the returned cursor,
+                  which is 0 if this is the last chunk.
+               */
+               «uint64» Open(«forwardConstIterator»<T> result, «vector»<T>& chunk)
+               {
+                  return Take(«resolveSymbol("std::move")»(result), chunk);
+               }
+               
+               /**
+                  Takes the next chunk of the result held under the cursor.
+               */
+               «uint64» Next(«uint64» cursor, «vector»<T>& chunk)
+               {
+                  «resolveSymbol("std::unique_lock")»<«mutex»> lock(m_mutex);
+                  auto const entry = m_results.find(cursor);
+                  if (entry == m_results.end())
+                     «resolveSymbol("CABTHROW_V2")»( «resolveSymbol("BTC::ServiceComm::API::InvalidRequestReceivedException")»(«resolveSymbol("BTC::Commons::Core::String")»("Unknown or expired chunk cursor")) );
+                  
+                  auto result( std::move(entry->second.result) );
+                  m_results.erase(entry);
+                  lock.unlock();
+                  return Take(std::move(result), chunk);
+               }
+               
+            private:
+               struct Entry
+               {
+                  «forwardConstIterator»<T> result;
+                  «steadyClock»::time_point lastAccess;
+               };
+               
+               «uint64» Take(«forwardConstIterator»<T> result, «vector»<T>& chunk)
+               {
+                  chunk.reserve(m_chunkSize);
+                  for ( ; result && chunk.size() < m_chunkSize; ++result )
+                     chunk.push_back(*result);
+                  if (!result)
+                     return 0;
+                  
+                  auto const now = «steadyClock»::now();
+                  «resolveSymbol("std::lock_guard")»<«mutex»> lock(m_mutex);
+                  for (auto entry = m_results.begin(); entry != m_results.end(); )
+                  {
+                     if (now - entry->second.lastAccess >= «resolveSymbol("std::chrono::seconds")»(60))
+                        entry = m_results.erase(entry);
+                     else
+                        ++entry;
+                  }
+                  «uint64» cursor;
+                  do
+                  {
+                     cursor = m_random();
+                  } while (cursor == 0 || m_results.count(cursor) != 0);
+                  m_results.emplace(cursor, Entry{ std::move(result), now });
+                  return cursor;
+               }
+               
+               «size» const m_chunkSize;
+               «mutex» m_mutex;
+               «resolveSymbol("std::mt19937_64")» m_random;
+               «resolveSymbol("std::unordered_map")»<«uint64», Entry> m_results;
+            };
+        '''
+    }
+
     def makeToMessagePtrType(String messagePart)
     {
         if (targetVersion == ServiceCommVersion.V0_10)
@@ -286,6 +592,7 @@ class DispatcherGenerator extends BasicCppGenerator
                     «val ulimateType = type.ultimateType»
                     «val isFailable = type.isFailable»
                     «val protobufType = typeResolver.resolveProtobuf(ulimateType, ProtobufType.RESPONSE).fullyQualifiedName»
+                    «makeReserve(type, '''concreteResponse->mutable_«protobufName»()''')»
                     «typeResolver.resolveCodecNS(paramBundle, ulimateType, isFailable, Optional.of(container))»::Encode«IF isFailable»Failable«ENDIF»< «resolve(ulimateType)», «IF isFailable»«typeResolver.resolveFailableProtobufType(type, container)»«ELSE»«protobufType»«ENDIF» >
                        ( «resolveSymbol("std::move")»(«apiInput»«IF outputParam.present»Future.Get()«ENDIF»), concreteResponse->mutable_«protobufName»() );
                 «ELSEIF type.isEnumType»
@@ -328,13 +635,25 @@ class DispatcherGenerator extends BasicCppGenerator
             , public «interfaceDeclaration.asBaseName»
             {
             public:
+               «IF metrics»
+                   «generateMetricsInterface»
+                   
+               «ENDIF»
                «generateHConstructor(interfaceDeclaration)»
                
+               «IF metrics»
+                   /**
+                      \param metrics receives the duration of each phase of the dispatched operations, if not null
+                   */
+               «ENDIF»
                «className»
                (
                   «resolveSymbol("BTC::Logging::API::LoggerFactory")» &loggerFactory
                   ,«resolveSymbol("BTC::ServiceComm::API::IServiceFaultHandlerManagerFactory")» &serviceFaultHandlerManagerFactory
                   ,«resolveSymbol("BTC::Commons::Core::AutoPtr")»< «resolve(interfaceDeclaration)» > dispatchee
+                  «IF metrics»
+                      ,«resolveSymbol("BTC::Commons::Core::AutoPtr")»< IMetrics > metrics = BTC::Commons::Core::AutoPtr< IMetrics >()
+                  «ENDIF»
                );
                
                «generateHDestructor(interfaceDeclaration)»
@@ -369,14 +688,44 @@ class DispatcherGenerator extends BasicCppGenerator
                   ,«resolveSymbol("BTC::Commons::Core::String")» const &instanceName = BTC::Commons::Core::String()
                );
             private:
+              «FOR function : interfaceDeclaration.functions AFTER System.lineSeparator»
+                 «messagePtrType» «function.handlerName»( «typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.REQUEST)» const& protoBufRequest );
+              «ENDFOR»
+              «FOR event : interfaceDeclaration.keyedEvents AFTER System.lineSeparator»
+                 «messagePtrType» «event.keySubscriptionHandlerName»( «typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.REQUEST)» const& protoBufRequest );
+              «ENDFOR»
+              «IF interfaceDeclaration.events.exists[!filterKeys.empty]»
+                 template<typename EventType> class CKeyRemoteEventPublisher;
+                 
+              «ENDIF»
               «FOR event : interfaceDeclaration.events AFTER System.lineSeparator»
                  «val eventPublisherName = event.publisherName»
                  «val eventObserverPtrType = event.observerPtrType»
+                «IF event.publishesAllEventsSeparately»
 
                 «eventObserverPtrType» «eventPublisherName»;
                 
                 «eventObserverPtrType» Create«resolve(event.data).shortName»RemoteEventPublisher(«resolveSymbol("BTC::ServiceComm::API::IServerEndpoint")»& endpoint);
+                «ENDIF»
+                «IF !event.filterKeys.empty»
+                    
+                    «event.keyPublisherPtrType» «event.keyPublisherName»;
+                    
+                    «event.keyPublisherPtrType» Create«resolve(event.data).shortName»KeyRemoteEventPublisher(«resolveSymbol("BTC::ServiceComm::API::IServerEndpoint")»& endpoint);
+                «ENDIF»
               «ENDFOR»
+              «FOR function : interfaceDeclaration.functions.filter[chunked] BEFORE "template<typename T> class CChunkedResults;" + System.lineSeparator»
+                 «val elementType = resolve(function.returnedType.actualType.ultimateType)»
+
+                 «resolveSymbol("BTC::Commons::Core::UniquePtr")»< CChunkedResults< «elementType» > > «function.chunksName»;
+                 «messagePtrType» «function.chunkEncoderName»( «resolveSymbol("std::vector")»< «elementType» > const& chunk, «resolveSymbol("uint64_t")» cursor );
+              «ENDFOR»
+              «IF metrics»
+                  // records the duration since start and returns the end of the phase
+                  «resolveSymbol("std::chrono::steady_clock")»::time_point RecordMetrics( char const* operation, IMetrics::Phase phase, std::chrono::steady_clock::time_point start );
+                  
+                  «resolveSymbol("BTC::Commons::Core::AutoPtr")»< IMetrics > m_metrics;
+              «ENDIF»
             };
         '''
     }
@@ -392,6 +741,534 @@ class DispatcherGenerator extends BasicCppGenerator
         resolve(event.data).shortName + "Publisher"
     }
 
+    def getKeyPublisherName(EventDeclaration event)
+    {
+        resolve(event.data).shortName + "KeyPublisher"
+    }
+
+    private def getKeyPublisherPtrType(EventDeclaration event)
+    {
+        event.getKeyPublisherPtrType("")
+    }
+
+    private def getKeyPublisherPtrType(EventDeclaration event, String classScope)
+    {
+        resolveSymbol("BTC::Commons::Core::UniquePtr") + "< " + classScope + "CKeyRemoteEventPublisher< " +
+            resolve(event.data) + " > >"
+    }
+
+    private static def getKeySubscriptionHandlerName(EventDeclaration event)
+    {
+        "Handle" + event.data.name.asKeySubscription.asRequest
+    }
+
+    /**
+     * Whether all events are published by a publisher of their own. Otherwise, the key publisher publishes them
+     * as well, such that each event is encoded once for both event types.
+     */
+    private def publishesAllEventsSeparately(EventDeclaration event)
+    {
+        event.filterKeys.empty || EventBatchSettings.get(generationSettings).present
+    }
+
+    private def generateKeySubscriptionHandler(EventDeclaration event, InterfaceDeclaration interfaceDeclaration)
+    {
+        val className = resolve(interfaceDeclaration, paramBundle.projectType)
+        val protobufRequestMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.REQUEST)
+        val protobufResponseMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.RESPONSE)
+        val messageName = event.data.name.asKeySubscription
+        '''
+            «messagePtrType» «className.shortName»::«event.keySubscriptionHandlerName»( «protobufRequestMessage» const& protoBufRequest )
+            {
+               auto const& concreteRequest( protoBufRequest.«messageName.asRequest.asCppProtobufName»() );
+               if («event.keyPublisherName»)
+               {
+                  for (auto const keyHash : concreteRequest.«Constants.PROTOBUF_SUBSCRIBED_KEY_HASHES»())
+                     «event.keyPublisherName»->SubscribeKey( keyHash );
+                  for (auto const keyHash : concreteRequest.«Constants.PROTOBUF_UNSUBSCRIBED_KEY_HASHES»())
+                     «event.keyPublisherName»->UnsubscribeKey( keyHash );
+               }
+               
+               «resolveSymbol("BTC::Commons::Core::AutoPtr")»< «protobufResponseMessage» > response( BorrowReplyMessage() );
+               response->mutable_«messageName.asResponse.asCppProtobufName»();
+               return «makeToMessagePtrType('''«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(
+                     GetMessagePartPool()
+                    ,*response )''')»;
+            }
+        '''
+    }
+
+    private def makeEventEncoder(EventDeclaration event)
+    {
+        '''
+            [this](const «resolve(event.data)»& serviceEvent) {
+              «makeEncodeEvent(event)»
+              «makeReturnEventMessage("eventProtobuf")»
+            }'''
+    }
+
+    /**
+     * Encodes an event into a single message part, which can be published under several event types.
+     */
+    private def makeEventPartEncoder(EventDeclaration event)
+    {
+        '''
+            [this](const «resolve(event.data)»& serviceEvent) {
+              «makeEncodeEvent(event)»
+              return «resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(GetMessagePartPool(), eventProtobuf);
+            }'''
+    }
+
+    private def makeEncodeEvent(EventDeclaration event)
+    {
+        // TODO remove ProtobufType argument
+        '''
+            «IF arenas»
+                «makeArena»
+                auto& eventProtobuf = *google::protobuf::Arena::CreateMessage< «typeResolver.resolveProtobuf(event.data, ProtobufType.REQUEST)» >(&arena);
+            «ELSE»
+                auto eventProtobuf = «typeResolver.resolveProtobuf(event.data, ProtobufType.REQUEST)»{};
+            «ENDIF»
+            «typeResolver.resolveCodecNS(paramBundle, event.data)»::Encode(serviceEvent, &eventProtobuf);
+        '''
+    }
+
+    private def makeEventBatchEncoder(EventDeclaration event, InterfaceDeclaration interfaceDeclaration)
+    {
+        '''
+            [this](const «resolveSymbol("std::vector")»<«resolve(event.data)»>& serviceEvents) {
+              «IF arenas»
+                  «makeArena»
+                  auto& batchProtobuf = *google::protobuf::Arena::CreateMessage< «typeResolver.resolveProtobufEventBatch(interfaceDeclaration, event)» >(&arena);
+              «ELSE»
+                  auto batchProtobuf = «typeResolver.resolveProtobufEventBatch(interfaceDeclaration, event)»{};
+              «ENDIF»
+              batchProtobuf.mutable_events()->Reserve(static_cast<int>(serviceEvents.size()));
+              for (auto const& serviceEvent : serviceEvents)
+                 «typeResolver.resolveCodecNS(paramBundle, event.data)»::Encode(serviceEvent, batchProtobuf.add_events());
+              «makeReturnEventMessage("batchProtobuf")»
+            }'''
+    }
+
+    private def isMetrics()
+    {
+        generationSettings.isGeneratorOptionEnabled(GeneratorOptions.METRICS)
+    }
+
+    /**
+     * The metrics interface is nested in the dispatcher, since no other C++ project uses it, such that the
+     * dispatchers of several interfaces in the same namespace do not collide.
+     */
+    private def generateMetricsInterface()
+    {
+        '''
+            /**
+               Receives the durations of the phases of each dispatched operation. Implementations are called on the
+               request path from arbitrary threads, so they must be thread-safe and cheap.
+            */
+            class IMetrics
+            {
+            public:
+               enum class Phase
+               {
+                  Parse,      ///< parsing the received message
+                  Decode,     ///< decoding the parameters into API types
+                  Invoke,     ///< executing the operation
+                  Encode,     ///< encoding the result into Protobuf messages
+                  Serialize   ///< serializing the response
+               };
+               
+               virtual ~IMetrics() {}
+               
+               virtual void Record( char const* operation, Phase phase, «resolveSymbol("std::chrono::nanoseconds")» duration ) = 0;
+            };
+        '''
+    }
+
+    private def isArenas()
+    {
+        generationSettings.isGeneratorOptionEnabled(GeneratorOptions.PROTOBUF_ARENAS)
+    }
+
+    /**
+     * Declares the arena for the messages of a single request or event, which frees them all at once when it
+     * goes out of scope. Its first block is on the stack, such that typical messages need no heap allocation.
+     */
+    private def makeArena()
+    {
+        '''
+            alignas(8) char arenaBlock[«ARENA_INITIAL_BLOCK_SIZE»];
+            google::protobuf::ArenaOptions arenaOptions;
+            arenaOptions.initial_block = arenaBlock;
+            arenaOptions.initial_block_size = sizeof(arenaBlock);
+            google::protobuf::Arena arena(arenaOptions);
+        '''
+    }
+
+    private def makeReturnEventMessage(String protobufName)
+    {
+        '''
+            «IF targetVersion == ServiceCommVersion.V0_10»
+               auto message = GetMessagePool().Borrow();
+               message->PushBack(«resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(GetMessagePartPool(), «protobufName»));
+               return message;
+            «ELSE»
+               return «resolveSymbol("BTC::ServiceComm::ProtobufUtil::ProtobufSupport")»::ProtobufToMessagePart(GetMessagePartPool(), «protobufName»);
+            «ENDIF»
+        '''
+    }
+
+    /**
+     * Computes the hash of the key of an event, see com.btc.serviceidl.util.Extensions#filterKeys.
+     */
+    private def makeKeyHashFunction(EventDeclaration event)
+    {
+        '''
+            [](const «resolve(event.data)»& serviceEvent) {
+              auto hash = UINT64_C(0xcbf29ce484222325);
+              «FOR key : event.filterKeys»
+                  hash = HashKey(hash, serviceEvent.«key.keyName.asMember»«IF key.type.primitiveType.stringType === null», «key.keySize»«ENDIF»);
+              «ENDFOR»
+              return hash;
+            }'''
+    }
+
+    /**
+     * Publishes the events of keyed subscriptions under the event types of their keys, see
+     * com.btc.serviceidl.util.Extensions#filterKeys.
+     */
+    private def generateKeyRemoteEventPublisher(String className)
+    {
+        val uuid = resolveSymbol("BTC::Commons::CoreExtras::UUID")
+        val uniquePtr = resolveSymbol("BTC::Commons::Core::UniquePtr")
+        val observer = resolveSymbol("BTC::Commons::CoreExtras::IObserver")
+        val observableRegistration = resolveSymbol("BTC::Commons::CoreExtras::IObservableRegistration")
+        val disposable = resolveSymbol("BTC::Commons::Core::Disposable")
+        val messagePartPtr = resolveSymbol("BTC::ServiceComm::Commons::ConstMessagePartPtr")
+        val lockGuard = resolveSymbol("std::lock_guard")
+        val mutex = resolveSymbol("std::mutex")
+        val uint64 = resolveSymbol("uint64_t")
+
+        '''
+            namespace // anonymous namespace to avoid naming collisions
+            {
+               «uint64» HashKey(«uint64» hash, «resolveSymbol("std::string")» const& value)
+               {
+                  for (unsigned char const c : value)
+                     hash = (hash ^ c) * UINT64_C(0x100000001b3);
+                  return hash * UINT64_C(0x100000001b3); // terminating zero byte
+               }
+               
+               «uint64» HashKey(«uint64» hash, «resolveSymbol("int64_t")» value, int size)
+               {
+                  for (int i = 0; i < size; ++i)
+                     hash = (hash ^ ((static_cast<«uint64»>(value) >> (8 * i)) & 0xff)) * UINT64_C(0x100000001b3);
+                  return hash;
+               }
+               
+               «uuid» MakeKeyEventTypeGuid(«uuid» const& eventTypeGuid, «uint64» keyHash)
+               {
+                  «resolveSymbol("BTC::Commons::Core::UInt32")» data1 = 0;
+                  «resolveSymbol("BTC::Commons::Core::UInt16")» data2 = 0;
+                  BTC::Commons::Core::UInt16 data3 = 0;
+                  «resolveSymbol("std::array")»<«resolveSymbol("BTC::Commons::Core::UInt8")», 8> data4 = {0};
+                  eventTypeGuid.ExtractComponents(&data1, &data2, &data3, data4.data());
+                  for (int i = 0; i < 8; ++i)
+                     data4[i] ^= static_cast<BTC::Commons::Core::UInt8>(keyHash >> (56 - 8 * i));
+                  return «uuid»::MakeFromComponents(data1, data2, data3, data4.data());
+               }
+            }
+            
+            /**
+               Publishes each event under the event type of its key, such that the event registry delivers it to
+               the subscribers of that key only. The publisher of a key is created when the first subscription of
+               the key is registered, and released when its last subscription is unregistered. If all events are
+               published as well, each event is encoded once for both event types.
+            */
+            template<typename EventType>
+            class «className»::CKeyRemoteEventPublisher : public «observer»<EventType>
+            {
+            public:
+               typedef «resolveSymbol("std::function")»<«uint64»(EventType const&)> KeyHashFunction;
+               typedef std::function<«messagePartPtr»(EventType const&)> EventEncoder;
+               typedef std::function<«uniquePtr»<«observer»<«messagePartPtr»>>(«observableRegistration»<«messagePartPtr»>&, «uuid» const&)> PublisherFactory;
+               
+               CKeyRemoteEventPublisher(KeyHashFunction hashKey, EventEncoder encode, PublisherFactory createPublisher,
+                  «uuid» const& eventTypeGuid, bool publishAllEvents)
+                  : m_hashKey(«resolveSymbol("std::move")»(hashKey))
+                  , m_encode(std::move(encode))
+                  , m_createPublisher(std::move(createPublisher))
+                  , m_eventTypeGuid(eventTypeGuid)
+               {
+                  if (publishAllEvents)
+                     m_allEventsPublisher = m_createPublisher(m_noEvents, m_eventTypeGuid);
+               }
+               
+               void SubscribeTo(«observableRegistration»<EventType>& source)
+               {
+                  m_subscription = source.Subscribe(*this);
+               }
+               
+               void SubscribeKey(«uint64» keyHash)
+               {
+                  «lockGuard»<«mutex»> lock(m_mutex);
+                  auto& key = m_keys[keyHash];
+                  if (key.subscriptions++ == 0)
+                     key.publisher = m_createPublisher(m_noEvents, MakeKeyEventTypeGuid(m_eventTypeGuid, keyHash));
+               }
+               
+               void UnsubscribeKey(«uint64» keyHash)
+               {
+                  «lockGuard»<«mutex»> lock(m_mutex);
+                  auto const key = m_keys.find(keyHash);
+                  if (key != m_keys.end() && --key->second.subscriptions == 0)
+                     m_keys.erase(key);
+               }
+               
+               void OnNext(EventType const& value) override
+               {
+                  auto const keyHash = m_hashKey(value);
+                  if (!m_allEventsPublisher && !HasSubscriptions(keyHash))
+                     return;
+                  
+                  auto const eventPart = m_encode(value);
+                  if (m_allEventsPublisher)
+                     m_allEventsPublisher->OnNext(eventPart);
+                  
+                  // published under the lock, such that the publisher is not released meanwhile
+                  «lockGuard»<«mutex»> lock(m_mutex);
+                  auto const key = m_keys.find(keyHash);
+                  if (key != m_keys.end())
+                     key->second.publisher->OnNext(eventPart);
+               }
+               
+               void OnError(«resolveSymbol("BTC::Commons::Core::AutoPtr")»<«resolveSymbol("BTC::Commons::Core::Exception")»> error) override
+               {
+                  if (m_allEventsPublisher)
+                     m_allEventsPublisher->OnError(error);
+                  
+                  «lockGuard»<«mutex»> lock(m_mutex);
+                  for (auto const& key : m_keys)
+                     key.second.publisher->OnError(error);
+               }
+               
+               void OnCompleted() override
+               {
+                  if (m_allEventsPublisher)
+                     m_allEventsPublisher->OnCompleted();
+                  
+                  «lockGuard»<«mutex»> lock(m_mutex);
+                  for (auto const& key : m_keys)
+                     key.second.publisher->OnCompleted();
+               }
+               
+            private:
+               // the publishers are fed directly instead of through their source
+               class CNoEvents : public «observableRegistration»<«messagePartPtr»>
+               {
+               public:
+                  «uniquePtr»<«disposable»> Subscribe(«observer»<«messagePartPtr»>&) override
+                  {
+                     return «uniquePtr»<«disposable»>();
+                  }
+               };
+               
+               struct Key
+               {
+                  Key() : subscriptions(0) {}
+                  
+                  «resolveSymbol("std::size_t")» subscriptions;
+                  «uniquePtr»<«observer»<«messagePartPtr»>> publisher;
+               };
+               
+               bool HasSubscriptions(«uint64» keyHash)
+               {
+                  «lockGuard»<«mutex»> lock(m_mutex);
+                  return m_keys.count(keyHash) != 0;
+               }
+               
+               KeyHashFunction const m_hashKey;
+               EventEncoder const m_encode;
+               PublisherFactory const m_createPublisher;
+               «uuid» const m_eventTypeGuid;
+               CNoEvents m_noEvents;
+               «uniquePtr»<«observer»<«messagePartPtr»>> m_allEventsPublisher;
+               «mutex» m_mutex;
+               «resolveSymbol("std::unordered_map")»<«uint64», Key> m_keys;
+               // declared last, such that no events are delivered while the publishers are destroyed
+               «uniquePtr»<«disposable»> m_subscription;
+            };
+        '''
+    }
+
+    /**
+     * Publishes the events in batches, see com.btc.serviceidl.generator.common.EventBatchSettings.
+     */
+    private def generateBatchingRemoteEventPublisher()
+    {
+        val uniquePtr = resolveSymbol("BTC::Commons::Core::UniquePtr")
+        val observer = resolveSymbol("BTC::Commons::CoreExtras::IObserver")
+        val observableRegistration = resolveSymbol("BTC::Commons::CoreExtras::IObservableRegistration")
+        val disposable = resolveSymbol("BTC::Commons::Core::Disposable")
+        val lockGuard = resolveSymbol("std::lock_guard")
+        val mutex = resolveSymbol("std::mutex")
+        val uniqueLock = resolveSymbol("std::unique_lock")
+        val size = resolveSymbol("std::size_t")
+        val uuid = resolveSymbol("BTC::Commons::CoreExtras::UUID")
+
+        '''
+            namespace // anonymous namespace to avoid naming collisions
+            {
+               /**
+                  Collects the events of a time window, but at most a maximum number of events, and publishes them
+                  as a single batch. If a key hash function is given, an event replaces the pending event of the same
+                  key, such that only the last value of each key is published.
+               */
+               template<typename EventType>
+               class CBatchingRemoteEventPublisher : public «observer»<EventType>
+               {
+               public:
+                  typedef «resolveSymbol("std::vector")»<EventType> BatchType;
+                  typedef «resolveSymbol("std::function")»<«resolveSymbol("uint64_t")»(EventType const&)> KeyHashFunction;
+                  typedef std::function<«uniquePtr»<«observer»<BatchType>>(«observableRegistration»<BatchType>&)> PublisherFactory;
+                  
+                  CBatchingRemoteEventPublisher(PublisherFactory const& createPublisher, «size» maxEvents,
+                     «resolveSymbol("std::chrono::milliseconds")» window, KeyHashFunction hashKey = KeyHashFunction())
+                     : m_publisher(createPublisher(m_noEvents))
+                     , m_maxEvents(maxEvents)
+                     , m_window(window)
+                     , m_hashKey(«resolveSymbol("std::move")»(hashKey))
+                     , m_stopped(false)
+                     , m_flushThread([this] { RunFlushThread(); })
+                  {}
+                  
+                  ~CBatchingRemoteEventPublisher()
+                  {
+                     m_subscription.Clear();
+                     {
+                        «lockGuard»<«mutex»> lock(m_mutex);
+                        m_stopped = true;
+                     }
+                     m_condition.notify_one();
+                     m_flushThread.join();
+                     
+                     «uniqueLock»<«mutex»> lock(m_mutex);
+                     Flush(lock);
+                  }
+                  
+                  void SubscribeTo(«observableRegistration»<EventType>& source)
+                  {
+                     m_subscription = source.Subscribe(*this);
+                  }
+                  
+                  void OnNext(EventType const& value) override
+                  {
+                     auto const keyHash = m_hashKey ? m_hashKey(value) : 0;
+                     «uniqueLock»<«mutex»> lock(m_mutex);
+                     if (m_hashKey)
+                     {
+                        auto const position = m_positions.emplace(keyHash, m_pending.size());
+                        if (!position.second)
+                        {
+                           m_pending[position.first->second] = value;
+                           return;
+                        }
+                     }
+                     
+                     m_pending.push_back(value);
+                     if (m_pending.size() >= m_maxEvents)
+                        Flush(lock);
+                     else if (m_pending.size() == 1)
+                        m_condition.notify_one();
+                  }
+                  
+                  void OnError(«resolveSymbol("BTC::Commons::Core::AutoPtr")»<«resolveSymbol("BTC::Commons::Core::Exception")»> error) override
+                  {
+                     «uniqueLock»<«mutex»> lock(m_mutex);
+                     Flush(lock);
+                     m_publisher->OnError(std::move(error));
+                  }
+                  
+                  void OnCompleted() override
+                  {
+                     «uniqueLock»<«mutex»> lock(m_mutex);
+                     Flush(lock);
+                     m_publisher->OnCompleted();
+                  }
+                  
+               private:
+                  // the batch publisher is fed directly instead of through its source
+                  class CNoEvents : public «observableRegistration»<BatchType>
+                  {
+                  public:
+                     «uniquePtr»<«disposable»> Subscribe(«observer»<BatchType>&) override
+                     {
+                        return «uniquePtr»<«disposable»>();
+                     }
+                  };
+                  
+                  void RunFlushThread()
+                  {
+                     «uniqueLock»<«mutex»> lock(m_mutex);
+                     while (!m_stopped)
+                     {
+                        if (m_pending.empty())
+                        {
+                           m_condition.wait(lock);
+                        }
+                        else if (!m_condition.wait_for(lock, m_window, [this] { return m_stopped; }))
+                        {
+                           Flush(lock);
+                           lock.lock();
+                        }
+                     }
+                  }
+                  
+                  // publishes the pending events and releases the given lock of m_mutex
+                  void Flush(«uniqueLock»<«mutex»>& lock)
+                  {
+                     BatchType batch;
+                     batch.swap(m_pending);
+                     m_positions.clear();
+                     // acquired before m_mutex is released, such that the batches are published in order
+                     «lockGuard»<«mutex»> publishLock(m_publishMutex);
+                     lock.unlock();
+                     if (!batch.empty())
+                        m_publisher->OnNext(batch);
+                  }
+                  
+                  CNoEvents m_noEvents;
+                  «uniquePtr»<«observer»<BatchType>> m_publisher;
+                  «size» const m_maxEvents;
+                  std::chrono::milliseconds const m_window;
+                  KeyHashFunction const m_hashKey;
+                  «mutex» m_mutex;
+                  «resolveSymbol("std::condition_variable")» m_condition;
+                  std::mutex m_publishMutex;
+                  bool m_stopped;
+                  BatchType m_pending;
+                  // the positions of the pending events by the hash of their key, if they are coalesced
+                  «resolveSymbol("std::unordered_map")»<uint64_t, «size»> m_positions;
+                  // declared after all members used by the thread, such that they are initialized when it starts
+                  «resolveSymbol("std::thread")» m_flushThread;
+                  «uniquePtr»<«disposable»> m_subscription;
+               };
+               
+               «uuid» MakeBatchEventTypeGuid(«uuid» const& eventTypeGuid)
+               {
+                  «resolveSymbol("BTC::Commons::Core::UInt32")» data1 = 0;
+                  «resolveSymbol("BTC::Commons::Core::UInt16")» data2 = 0;
+                  BTC::Commons::Core::UInt16 data3 = 0;
+                  «resolveSymbol("std::array")»<«resolveSymbol("BTC::Commons::Core::UInt8")», 8> data4 = {0};
+                  eventTypeGuid.ExtractComponents(&data1, &data2, &data3, data4.data());
+                  for (auto& data : data4)
+                     data = static_cast<BTC::Commons::Core::UInt8>(~data);
+                  return «uuid»::MakeFromComponents(data1, data2, data3, data4.data());
+               }
+            }
+        '''
+    }
+
     private def String makeDispatcherBaseTemplate(InterfaceDeclaration interfaceDeclaration)
     {
         val apiClassName = resolve(interfaceDeclaration, ProjectType.SERVICE_API)
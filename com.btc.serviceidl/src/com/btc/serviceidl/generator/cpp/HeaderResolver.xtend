@@ -38,23 +38,41 @@ class HeaderResolver
         "std::begin" -> "iterator",
         "std::bind" -> "functional",
         "std::call_once" -> "mutex",
+        "std::chrono::duration_cast" -> "chrono",
+        "std::chrono::milliseconds" -> "chrono",
+        "std::chrono::nanoseconds" -> "chrono",
         "std::chrono::seconds" -> "chrono",
+        "std::chrono::steady_clock" -> "chrono",
+        "std::condition_variable" -> "condition_variable",
         "std::copy" -> "algorithm",
+        "std::current_exception" -> "exception",
         "std::end" -> "iterator",
         "std::find_if" -> "algorithm",
         "std::for_each" -> "algorithm",
         "std::function" -> "functional",
+        "std::list" -> "list",
+        "std::lock_guard" -> "mutex",
         "std::make_shared" -> "memory",
         "std::map" -> "map",
         "std::memcpy" -> "cstring",
         "std::move" -> "utility",
+        "std::mt19937_64" -> "random",
+        "std::mutex" -> "mutex",
         "std::once_flag" -> "mutex",
         "std::pair" -> "utility",
+        "std::promise" -> "future",
+        "std::random_device" -> "random",
+        "std::shared_future" -> "future",
         "std::shared_ptr" -> "memory",
+        "std::size_t" -> "cstddef",
         "std::string" -> "string",
+        "std::thread" -> "thread",
         "std::tuple" -> "tuple",
+        "std::unique_lock" -> "mutex",
         "std::unique_ptr" -> "memory",
-        "std::vector" -> "vector"
+        "std::unordered_map" -> "unordered_map",
+        "std::vector" -> "vector",
+        "uint64_t" -> "cstdint"
     }
 
     // ******************************* PLEASE ALWAYS KEEP THIS LIST ALPHABETICALLY SORTED !!! ******************************* //
@@ -88,6 +106,7 @@ class HeaderResolver
         "BTC::Commons::CoreExtras::Optional" -> "Commons/CoreExtras/include/Optional.h",
         "BTC::Commons::CoreExtras::MakeOwningForwardConstIterator" ->
             "Commons/CoreExtras/include/OwningForwardConstIterator.h",
+        "BTC::Commons::CoreExtras::MakeReadyFuture" -> "Commons/CoreExtras/include/Future.h",
         "BTC::Commons::CoreExtras::ReflectedClass" -> "Commons/CoreExtras/include/ReflectedClass.h",
         "BTC::Commons::CoreExtras::StringBuilder" -> "Commons/CoreExtras/include/StringBuilder.h",
         "BTC::Commons::CoreExtras::UUID" -> "Commons/CoreExtras/include/UUID.h",
@@ -197,6 +216,13 @@ class HeaderResolver
         "boost::bimap" -> "boost/bimap.hpp"
     }
 
+    // ******************************* PLEASE ALWAYS KEEP THIS LIST ALPHABETICALLY SORTED !!! ******************************* //
+    static val benchmarkHeaderMapper = #{
+        "BENCHMARK" -> "benchmark/benchmark.h",
+        "benchmark::DoNotOptimize" -> "benchmark/benchmark.h",
+        "benchmark::State" -> "benchmark/benchmark.h"
+    }
+
     // ******************************* PLEASE ALWAYS KEEP THIS LIST ALPHABETICALLY SORTED !!! ******************************* //
 	static val odbHeaderMapper = #{
         "id_binary" -> "odb/mssql/traits.hxx",
@@ -262,7 +288,8 @@ class HeaderResolver
         {
             builder.withGroup(stlHeaderMapper, TypeResolver.STL_INCLUDE_GROUP).withGroup(boostHeaderMapper,
                 TypeResolver.BOOST_INCLUDE_GROUP).withGroup(cabHeaderMapper, TypeResolver.CAB_INCLUDE_GROUP).
-                withImplementationGroup(cabImplHeaderMapper, TypeResolver.CAB_INCLUDE_GROUP).withGroup(odbHeaderMapper, TypeResolver.ODB_INCLUDE_GROUP)
+                withImplementationGroup(cabImplHeaderMapper, TypeResolver.CAB_INCLUDE_GROUP).withGroup(odbHeaderMapper, TypeResolver.ODB_INCLUDE_GROUP).
+                withGroup(benchmarkHeaderMapper, TypeResolver.BENCHMARK_INCLUDE_GROUP)
         }
 
         def configureGroup(Iterable<TypeResolver.IncludeGroup> includeGroups, int precedence, String prefix,
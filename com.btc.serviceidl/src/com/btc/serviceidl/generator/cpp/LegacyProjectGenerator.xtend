@@ -63,6 +63,9 @@ class LegacyProjectGenerator extends ProjectGeneratorBase
                 case TEST:
                     generateCppTest(basicCppGenerator.typeResolver, basicCppGenerator.generationSettings,
                         basicCppGenerator.paramBundle, interfaceDeclaration)
+                case BENCHMARK:
+                    generateCppBenchmark(basicCppGenerator.typeResolver, basicCppGenerator.generationSettings,
+                        basicCppGenerator.paramBundle, interfaceDeclaration)
                 // TODO check that this is generated otherwise
 //            case SERVER_RUNNER:
 //                generateCppServerRunner(interfaceDeclaration)
@@ -129,6 +132,13 @@ class LegacyProjectGenerator extends ProjectGeneratorBase
             new TestGenerator(typeResolver, generationSettings, paramBundle).generateCppTest(interfaceDeclaration)
         }
 
+        private def generateCppBenchmark(TypeResolver typeResolver, IGenerationSettings generationSettings,
+            ParameterBundle paramBundle, InterfaceDeclaration interfaceDeclaration)
+        {
+            new BenchmarkGenerator(typeResolver, generationSettings, paramBundle).generateCppBenchmark(
+                interfaceDeclaration)
+        }
+
         private def generateCppDispatcher(TypeResolver typeResolver, IGenerationSettings generationSettings,
             ParameterBundle paramBundle, InterfaceDeclaration interfaceDeclaration)
         {
@@ -81,7 +81,7 @@ abstract class ProjectGeneratorBase extends ProjectGeneratorBaseBase
             interfaceDeclaration.name).cpp
 
         // include sub-folder
-        if (pt != ProjectType.TEST)
+        if (pt != ProjectType.TEST && pt != ProjectType.BENCHMARK)
         {
             fileSystemAccess.generateFile(includePath.append(mainHeaderFileName).toString,
                 ArtifactNature.CPP.label,
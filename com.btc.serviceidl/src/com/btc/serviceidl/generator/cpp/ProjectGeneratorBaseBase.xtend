@@ -124,7 +124,8 @@ class ProjectGeneratorBaseBase
         // TODO This should be done differently, the PROTOBUF project should have a resolved
         // dependency on libprotobuf, and should export this dependency to its dependents
         if (paramBundle.projectType == ProjectType.PROTOBUF || paramBundle.projectType == ProjectType.DISPATCHER ||
-            paramBundle.projectType == ProjectType.PROXY || paramBundle.projectType == ProjectType.SERVER_RUNNER)
+            paramBundle.projectType == ProjectType.PROXY || paramBundle.projectType == ProjectType.SERVER_RUNNER ||
+            paramBundle.projectType == ProjectType.BENCHMARK)
         {
             cabLibs.add(new ExternalDependency("libprotobuf"))
         }
@@ -21,6 +21,7 @@ import com.btc.serviceidl.generator.common.TransformType
 import com.btc.serviceidl.idl.AbstractContainerDeclaration
 import com.btc.serviceidl.idl.AbstractType
 import com.btc.serviceidl.idl.AbstractTypeReference
+import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.MemberElement
@@ -71,6 +72,17 @@ class ProtobufUtil
         return new ResolvedName(result, TransformType.NAMESPACE)
     }
 
+    /**
+     * Resolves the message for a batch of the given event in the .proto file of the interface, see
+     * com.btc.serviceidl.generator.common.EventBatchSettings.
+     */
+    static def ResolvedName resolveProtobufEventBatch(extension TypeResolver typeResolver,
+        InterfaceDeclaration interfaceDeclaration, EventDeclaration event)
+    {
+        resolveProtobuf(typeResolver, interfaceDeclaration, ProtobufType.REQUEST).withShortName(
+            event.data.name.asEventBatch)
+    }
+
     static def String resolveDecode(extension TypeResolver typeResolver, ParameterBundle paramBundle,
         AbstractTypeReference element, AbstractContainerDeclaration container)
     {
@@ -167,4 +179,13 @@ class ProtobufUtil
     {
         name.asProtobufName(CaseFormat.LOWER_UNDERSCORE)
     }
+
+    /**
+     * Returns the enumerator of the generated *Case enum which represents the
+     * given field of a oneof.
+     */
+    static def asCppProtobufCaseName(String name)
+    {
+        "k" + name.asProtobufName(CaseFormat.UPPER_CAMEL)
+    }
 }
@@ -10,12 +10,13 @@
  **********************************************************************/
 package com.btc.serviceidl.generator.cpp
 
-import com.btc.serviceidl.generator.Main
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ParameterBundle
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.common.ProtobufType
+import com.btc.serviceidl.generator.common.QueryCacheSettings
 import com.btc.serviceidl.generator.common.TransformType
 import com.btc.serviceidl.idl.AbstractContainerDeclaration
 import com.btc.serviceidl.idl.AbstractTypeReference
@@ -41,8 +42,13 @@ class ProxyGenerator extends BasicCppGenerator {
       // the class name is not used explicitly in the following code, but
       // we need to include this *.impl.h file to avoid linker errors
       resolveSymbolWithImplementation("BTC::ServiceComm::Util::CDefaultObservableRegistrationProxy")
+      val queryCacheSettings = QueryCacheSettings.get(generationSettings, interfaceDeclaration)
       
       '''
+      «IF queryCacheSettings.present»
+         «generateQueryCache(interfaceDeclaration)»
+         
+      «ENDIF»
       «className.shortName»::«className.shortName»
       (
          «resolveSymbol("BTC::Commons::Core::Context")» &context
@@ -53,8 +59,8 @@ class ProxyGenerator extends BasicCppGenerator {
       m_context(context)
       , «resolveSymbol("BTC_CAB_LOGGING_API_INIT_LOGGERAWARE")»(loggerFactory)
       , «interfaceDeclaration.asBaseName»(context, localEndpoint, «apiClassName»::TYPE_GUID(), serverServiceInstanceGuid
-      «IF generationSettings.hasGeneratorOption(Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS)»
-        «val proxyTimeoutSeconds = Integer.parseInt(generationSettings.getGeneratorOption(Main.OPTION_GENERATOR_OPTION_CPP_PROXY_TIMEOUT_SECONDS))»
+      «IF generationSettings.hasGeneratorOption(GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS)»
+        «val proxyTimeoutSeconds = Integer.parseInt(generationSettings.getGeneratorOption(GeneratorOptions.CPP_PROXY_TIMEOUT_SECONDS))»
         ,
         «IF targetVersion == ServiceCommVersion.V0_10 || targetVersion == ServiceCommVersion.V0_11»
           «resolveSymbol("BTC::Commons::Core::TimeSpan")»::Seconds(«proxyTimeoutSeconds»)
@@ -66,6 +72,9 @@ class ProxyGenerator extends BasicCppGenerator {
       «FOR event : interfaceDeclaration.events»
       , «event.observableRegistrationName»(context, localEndpoint.GetEventRegistry(), «event.eventParamsName»())
       «ENDFOR»
+      «IF queryCacheSettings.present»
+      , m_queryCache( «resolveSymbol("BTC::Commons::Core::CreateUnique")»< CQueryCache >( «queryCacheSettings.get.maxEntries», «resolveSymbol("std::chrono::milliseconds")»( «queryCacheSettings.get.ttlMillis» ) ) )
+      «ENDIF»
       { «getRegisterServiceFaults(interfaceDeclaration, Optional.of(GeneratorUtil.getTransformedModuleName(new ParameterBundle.Builder(paramBundle).with(ProjectType.SERVICE_API).build, ArtifactNature.CPP, TransformType.NAMESPACE)))»( GetClientServiceReference().GetServiceFaultHandlerManager() ); }
       
       «generateCppDestructor(interfaceDeclaration)»
@@ -139,6 +148,7 @@ class ProxyGenerator extends BasicCppGenerator {
                     «val ulimateType = param.paramType.ultimateType»
                     «val isFailable = param.paramType.isFailable»
                     «val protobufType = typeResolver.resolveProtobuf(ulimateType, ProtobufType.RESPONSE).fullyQualifiedName»
+                    «makeReserve(param.paramType, '''concreteRequest->mutable_«param.paramName.asCppProtobufName»()''')»
                     «typeResolver.resolveCodecNS(paramBundle, ulimateType, isFailable, Optional.of(interfaceDeclaration))»::Encode«IF isFailable»Failable«ENDIF»< «resolve(ulimateType)», «IF isFailable»«typeResolver.resolveFailableProtobufType(param.paramType.actualType, interfaceDeclaration)»«ELSE»«protobufType»«ENDIF» >
                        ( «resolveSymbol("std::move")»(«param.paramName»), concreteRequest->mutable_«param.paramName.asCppProtobufName»() );
                  «ELSEIF param.paramType.isEnumType»
@@ -154,29 +164,244 @@ class ProxyGenerator extends BasicCppGenerator {
            
            «IF function.returnedType instanceof VoidType»
               return Request«IF function.isSync»Sync«ELSE»Async«ENDIF»UnmarshalVoid( *request );
+           «ELSEIF function.query && QueryCacheSettings.get(generationSettings, interfaceDeclaration).present»
+              «makeCachedRequest(interfaceDeclaration, function)»
            «ELSE»
               return RequestAsyncUnmarshal< «toText(function.returnedType, interfaceDeclaration)» >( *request, [&]( «resolveSymbol("BTC::Commons::Core::UniquePtr")»< «protobufResponseMessage» > response )
               {
-                 // decode response -->
-                 auto const& concreteResponse( response->«function.name.asResponse.asCppProtobufName»() );
-                 «val outputParameters = function.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
-                 «IF !outputParameters.empty»
-                    // handle [out] parameters
-                    «FOR param : outputParameters»
-                       «IF param.paramType.isSequenceType»
-                          «typeResolver.resolveDecode(paramBundle, param.paramType.actualType, interfaceDeclaration)»( concreteResponse.«param.paramName.asCppProtobufName»(), «param.paramName» );
-                       «ELSE»
-                          «param.paramName» = «makeDecodeResponse(param.paramType.actualType, interfaceDeclaration, param.paramName.asCppProtobufName)»
-                       «ENDIF»
-                    «ENDFOR»
-                 «ENDIF»
-                 return «makeDecodeResponse(function.returnedType.actualType, interfaceDeclaration, function.name.asCppProtobufName)»
-                 // decode response <--
+                 «makeDecodeResponseBody(interfaceDeclaration, function)»
               } )«IF function.isSync».Get()«ENDIF»;
            «ENDIF»
         '''
     }
 
+    private def makeDecodeResponseBody(InterfaceDeclaration interfaceDeclaration, FunctionDeclaration function)
+    {
+        val outputParameters = function.parameters.filter[direction == ParameterDirection.PARAM_OUT]
+
+        '''
+           // decode response -->
+           auto const& concreteResponse( response->«function.name.asResponse.asCppProtobufName»() );
+           «IF !outputParameters.empty»
+              // handle [out] parameters
+              «FOR param : outputParameters»
+                 «IF param.paramType.isSequenceType»
+                    «typeResolver.resolveDecode(paramBundle, param.paramType.actualType, interfaceDeclaration)»( concreteResponse.«param.paramName.asCppProtobufName»(), «param.paramName» );
+                 «ELSE»
+                    «param.paramName» = «makeDecodeResponse(param.paramType.actualType, interfaceDeclaration, param.paramName.asCppProtobufName)»
+                 «ENDIF»
+              «ENDFOR»
+           «ENDIF»
+           return «makeDecodeResponse(function.returnedType.actualType, interfaceDeclaration, function.name.asCppProtobufName)»
+           // decode response <--
+        '''
+    }
+
+    /**
+     * The cache holds the parsed responses, which each call decodes into values of its own, since the decoded
+     * results of sequences are single-pass iterators, and callers may modify the others. Blocking calls share an
+     * identical call in flight, while asynchronous calls only use received responses, so that they never block.
+     */
+    private def makeCachedRequest(InterfaceDeclaration interfaceDeclaration, FunctionDeclaration function)
+    {
+        val returnType = toText(function.returnedType, interfaceDeclaration)
+
+        '''
+           auto const decode = [&]( CQueryCache::ResponsePtr const& response ) -> «returnType»
+           {
+              «makeDecodeResponseBody(interfaceDeclaration, function)»
+           };
+           
+           // identical queries are answered from the cache
+           «IF function.isSync»
+              return decode( m_queryCache->Get( request->SerializeAsString(), [&]
+              {
+                 return RequestAsyncUnmarshal< CQueryCache::ResponsePtr >( *request, &CQueryCache::Share ).Get();
+              } ) );
+           «ELSE»
+              auto requestBytes( request->SerializeAsString() );
+              if (auto const response = m_queryCache->Find( requestBytes ))
+                 return «resolveSymbol("BTC::Commons::CoreExtras::MakeReadyFuture")»( decode( response ) );
+              
+              return RequestAsyncUnmarshal< «returnType» >( *request, [this, requestBytes, decode]( «resolveSymbol("BTC::Commons::Core::UniquePtr")»< «typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.RESPONSE)» > response )
+              {
+                 auto const sharedResponse( CQueryCache::Share( «resolveSymbol("std::move")»(response) ) );
+                 m_queryCache->Put( requestBytes, sharedResponse );
+                 return decode( sharedResponse );
+              } );
+           «ENDIF»
+        '''
+    }
+
+    private def generateQueryCache(InterfaceDeclaration interfaceDeclaration)
+    {
+        val className = resolve(interfaceDeclaration, paramBundle.projectType)
+        val protobufResponseMessage = typeResolver.resolveProtobuf(interfaceDeclaration, ProtobufType.RESPONSE)
+        val string = resolveSymbol("std::string")
+        val mutex = resolveSymbol("std::mutex")
+        val steadyClock = resolveSymbol("std::chrono::steady_clock")
+        val sharedFuture = resolveSymbol("std::shared_future")
+        val promise = resolveSymbol("std::promise")
+        val uint64 = resolveSymbol("uint64_t")
+
+        '''
+           /**
+              Caches the parsed responses of query operations by their encoded request. It holds at most a fixed number
+              of requests, evicting the least recently used one first, and uses a response for a fixed time after it was
+              received. Identical requests share a single call while it is in flight, and failed calls are not cached.
+           */
+           class «className.shortName»::CQueryCache
+           {
+           public:
+              typedef «resolveSymbol("std::shared_ptr")»< «protobufResponseMessage» const > ResponsePtr;
+              
+              CQueryCache(«resolveSymbol("std::size_t")» maxEntries, «resolveSymbol("std::chrono::milliseconds")» ttl)
+                 : m_maxEntries(maxEntries)
+                 , m_ttl(ttl)
+                 , m_nextId(0)
+              {}
+              
+              static ResponsePtr Share(«resolveSymbol("BTC::Commons::Core::UniquePtr")»< «protobufResponseMessage» > response)
+              {
+                 auto sharedResponse( «resolveSymbol("std::make_shared")»< «protobufResponseMessage» >() );
+                 sharedResponse->Swap( response.get() );
+                 return sharedResponse;
+              }
+              
+              /**
+                 Returns the cached or in-flight response to the request, or else the response of the given call.
+              */
+              template<typename Call>
+              ResponsePtr Get(«string» const& request, Call const& call)
+              {
+                 «resolveSymbol("std::unique_lock")»<«mutex»> lock(m_mutex);
+                 auto const entry = Lookup(request);
+                 if (entry != m_entries.end())
+                 {
+                    auto response( entry->second.response );
+                    lock.unlock();
+                    return response.get();
+                 }
+                 
+                 «promise»<ResponsePtr> response;
+                 auto const id = Insert(request, response.get_future().share(), «steadyClock»::time_point::max());
+                 lock.unlock();
+                 
+                 try
+                 {
+                    auto result( call() );
+                    response.set_value(result);
+                    Complete(request, id);
+                    return result;
+                 }
+                 catch (...)
+                 {
+                    response.set_exception(«resolveSymbol("std::current_exception")»());
+                    Remove(request, id);
+                    throw;
+                 }
+              }
+              
+              /**
+                 Returns the response to the request if it was received, or else null.
+              */
+              ResponsePtr Find(«string» const& request)
+              {
+                 «resolveSymbol("std::lock_guard")»<«mutex»> lock(m_mutex);
+                 auto const entry = Lookup(request);
+                 if (entry == m_entries.end() || entry->second.expiry == «steadyClock»::time_point::max())
+                    return ResponsePtr();
+                 return entry->second.response.get();
+              }
+              
+              /**
+                 Caches the response to the request, unless the request is already cached or in flight.
+              */
+              void Put(«string» const& request, ResponsePtr response)
+              {
+                 std::lock_guard<«mutex»> lock(m_mutex);
+                 if (Lookup(request) != m_entries.end())
+                    return;
+                 
+                 «promise»<ResponsePtr> received;
+                 received.set_value(«resolveSymbol("std::move")»(response));
+                 Insert(request, received.get_future().share(), «steadyClock»::now() + m_ttl);
+              }
+              
+           private:
+              struct Entry
+              {
+                 «sharedFuture»<ResponsePtr> response;
+                 // the maximum while the call is in flight
+                 «steadyClock»::time_point expiry;
+                 «resolveSymbol("std::list")»<«string»>::iterator usage;
+                 «uint64» id;
+              };
+              
+              typedef «resolveSymbol("std::unordered_map")»<«string», Entry> Entries;
+              
+              // drops the entry of the request if it expired, or else marks it as the most recently used one;
+              // m_mutex must be held
+              Entries::iterator Lookup(«string» const& request)
+              {
+                 auto const entry = m_entries.find(request);
+                 if (entry == m_entries.end())
+                    return entry;
+                 
+                 if (entry->second.expiry <= «steadyClock»::now())
+                 {
+                    m_usage.erase(entry->second.usage);
+                    m_entries.erase(entry);
+                    return m_entries.end();
+                 }
+                 m_usage.splice(m_usage.begin(), m_usage, entry->second.usage);
+                 return entry;
+              }
+              
+              // m_mutex must be held, and the request must not be cached
+              «uint64» Insert(«string» const& request, «sharedFuture»<ResponsePtr> response, «steadyClock»::time_point expiry)
+              {
+                 m_usage.push_front(request);
+                 auto const id = ++m_nextId;
+                 m_entries.emplace(request, Entry{ std::move(response), expiry, m_usage.begin(), id });
+                 while (m_entries.size() > m_maxEntries)
+                 {
+                    m_entries.erase(m_usage.back());
+                    m_usage.pop_back();
+                 }
+                 return id;
+              }
+              
+              void Complete(«string» const& request, «uint64» id)
+              {
+                 std::lock_guard<«mutex»> lock(m_mutex);
+                 auto const entry = m_entries.find(request);
+                 if (entry != m_entries.end() && entry->second.id == id)
+                    entry->second.expiry = «steadyClock»::now() + m_ttl;
+              }
+              
+              void Remove(«string» const& request, «uint64» id)
+              {
+                 std::lock_guard<«mutex»> lock(m_mutex);
+                 auto const entry = m_entries.find(request);
+                 if (entry != m_entries.end() && entry->second.id == id)
+                 {
+                    m_usage.erase(entry->second.usage);
+                    m_entries.erase(entry);
+                 }
+              }
+              
+              std::size_t const m_maxEntries;
+              std::chrono::milliseconds const m_ttl;
+              «mutex» m_mutex;
+              Entries m_entries;
+              // most recently used first
+              std::list<«string»> m_usage;
+              «uint64» m_nextId;
+           };
+        '''
+    }
+
    private def String makeDecodeResponse(AbstractTypeReference type, AbstractContainerDeclaration container, String protobufName)
    {
       val useCodec = GeneratorUtil.useCodec(type, ArtifactNature.CPP)
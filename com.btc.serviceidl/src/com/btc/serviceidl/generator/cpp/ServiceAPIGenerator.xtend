@@ -16,6 +16,7 @@ import com.btc.serviceidl.generator.common.GuidMapper
 import com.btc.serviceidl.generator.common.Names
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.common.ProtobufType
+import com.btc.serviceidl.generator.common.QueryCacheSettings
 import com.btc.serviceidl.idl.AbstractException
 import com.btc.serviceidl.idl.ExceptionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
@@ -149,6 +150,11 @@ class ServiceAPIGenerator extends BasicCppGenerator {
                   };
                   «resolveSymbol("BTC::ServiceComm::Util::CDefaultObservableRegistrationProxy")»<«eventParamsName»> «event.observableRegistrationName»;
                «ENDFOR»
+               «IF QueryCacheSettings.get(generationSettings, interfaceDeclaration).present»
+                  
+                  class CQueryCache;
+                  «resolveSymbol("BTC::Commons::Core::UniquePtr")»< CQueryCache > m_queryCache;
+               «ENDIF»
             «ENDIF»
             «IF isImpl»
                «FOR event : interfaceDeclaration.events»
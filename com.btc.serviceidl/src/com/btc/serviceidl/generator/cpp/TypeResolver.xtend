@@ -100,6 +100,7 @@ class TypeResolver
     public static val BOOST_INCLUDE_GROUP = new IncludeGroup("boost")
     public static val CAB_INCLUDE_GROUP = new IncludeGroup("BTC.CAB")
     public static val ODB_INCLUDE_GROUP = new IncludeGroup("odb")
+    public static val BENCHMARK_INCLUDE_GROUP = new IncludeGroup("benchmark")
 
     val LibResolver libResolver
     @Accessors(PACKAGE_GETTER) val HeaderResolver headerResolver
@@ -159,6 +160,8 @@ class TypeResolver
             // do nothing
             {
             }
+            case BENCHMARK_INCLUDE_GROUP:
+                cabLibs.add(new ExternalDependency("benchmark"))
             case PrinsHeaderResolver.ODB_INCLUDE_GROUP:
             // TODO remove this here, make a subclass in prins.* or so
             // do nothing
@@ -6,6 +6,7 @@ import com.btc.serviceidl.idl.StructDeclaration
 import com.btc.serviceidl.util.MemberElementWrapper
 import java.util.HashSet
 import java.util.Optional
+import org.eclipse.emf.ecore.EObject
 
 import static extension com.btc.serviceidl.util.Extensions.*
 import static extension com.btc.serviceidl.util.Util.*
@@ -67,6 +68,16 @@ class Util
         asMember(name) // currently the same convention
     }
 
+    /**
+     * Make a statement reserving space in the given repeated protobuf field according to
+     * the "typical sequence length" hint of the given element; empty if there is no hint.
+     */
+    static def String makeReserve(EObject element, String repeatedField)
+    {
+        val typicalLength = element.typicalLength
+        if (typicalLength.present) '''«repeatedField»->Reserve( «typicalLength.get» );''' else ""
+    }
+
     static def String asBaseName(InterfaceDeclaration interfaceDeclaration)
     {
         '''«interfaceDeclaration.name»Base'''
@@ -45,6 +45,7 @@ class CABModuleStructureStrategy implements IModuleStructureStrategy
             .configureGroup(TypeResolver.TARGET_INCLUDE_GROUP, 10, "", "", false)
             .configureGroup(TypeResolver.CAB_INCLUDE_GROUP, 20, "", "", true)
             .configureGroup(TypeResolver.ODB_INCLUDE_GROUP, 30, "", "", true)
+            .configureGroup(TypeResolver.BENCHMARK_INCLUDE_GROUP, 35, "", "", true)
             .configureGroup(TypeResolver.STL_INCLUDE_GROUP, 40, "", "", true).build
     }
 
@@ -105,6 +105,8 @@ class CMakeGenerator
             CMAKE_CAB_NAMESPACE + libName
         else if (libName == "libprotobuf")
             "protobuf::libprotobuf"
+        else if (libName == "benchmark" || libName == "benchmark_main")
+            "benchmark::" + libName
         else
             throw new IllegalArgumentException(
                 "Don't know how to map library to a cmake target: " + libName
@@ -184,7 +186,12 @@ class CMakeGenerator
 
     static def getCmakeTargetType(ProjectType projectType)
     {
-        if (projectType == ProjectType.PROTOBUF) "STATIC_LIB" else "SHARED_LIB"
+        switch (projectType)
+        {
+            case PROTOBUF: "STATIC_LIB"
+            case BENCHMARK: "EXECUTABLE"
+            default: "SHARED_LIB"
+        }
     }
 
 }
@@ -97,6 +97,7 @@ class CMakeTopLevelProjectFileGenerator
         val odbTargetVersion = "2.5.0-b.9"
         val libodbTargetVersion = "2.5.0-b.9"
         val odbdependencyChannel = "extern"
+        val benchmarkTargetVersion = "1.5.0"
 
         // TODO the transitive dependencies do not need to be specified here
         '''
@@ -124,12 +125,15 @@ class CMakeTopLevelProjectFileGenerator
                             ("BTC.CAB.IoC/«iocTargetVersion».latest@cab/«dependencyChannel»"),
                             ("BTC.CAB.Logging/«loggingTargetVersion».latest@cab/«dependencyChannel»"),
                             ("BTC.CAB.ServiceComm/«serviceCommTargetVersion.label».latest@cab/«serviceCommDependencyChannel»"),
-                            «IF projectSet.projects.exists[it.projectType == ProjectType.TEST]»
+                            «IF projectSet.projects.exists[it.projectType == ProjectType.TEST || it.projectType == ProjectType.BENCHMARK]»
                                 ("BTC.CAB.ServiceComm.SQ/«serviceCommTargetVersion.label».latest@cab/«serviceCommDependencyChannel»"),
                                 «IF serviceCommTargetVersion == ServiceCommVersion.V0_11»
                                     ("libzmq/4.2.3@cab/extern", "private"),
                                 «ENDIF»
                             «ENDIF»
+                            «IF projectSet.projects.exists[it.projectType == ProjectType.BENCHMARK]»
+                                ("benchmark/«benchmarkTargetVersion»@cab/extern", "private"),
+                            «ENDIF»
                             «FOR dependency : generationSettings.dependencies.sortBy[getID(ArtifactNature.CPP)]»
                                 ("«dependency.getID(ArtifactNature.CPP)»/«dependency.version»«versionSuffix»@cab/«dependencyChannel»"),
                             «ENDFOR»
@@ -271,9 +275,12 @@ class CMakeTopLevelProjectFileGenerator
                 find_package(Protobuf REQUIRED)
                 find_package(Boost COMPONENTS thread program_options regex REQUIRED)
                 find_package(BTC.CAB.ServiceComm REQUIRED)
-                «IF projectSet.projects.exists[it.projectType == ProjectType.TEST]»
+                «IF projectSet.projects.exists[it.projectType == ProjectType.TEST || it.projectType == ProjectType.BENCHMARK]»
                 find_package(BTC.CAB.ServiceComm.SQ REQUIRED)
                 «ENDIF»
+                «IF projectSet.projects.exists[it.projectType == ProjectType.BENCHMARK]»
+                find_package(benchmark REQUIRED)
+                «ENDIF»
             «ENDIF»
             «FOR dependency : generationSettings.dependencies.sortBy[getID(ArtifactNature.CPP)]»
                 find_package(«dependency.getID(ArtifactNature.CPP)» REQUIRED)
@@ -38,6 +38,8 @@ class PrinsHeaderResolver
 
          ''', true).configureGroup(ODB_INCLUDE_GROUP, 30, "// ODB" + System.lineSeparator, '''
 
+         ''', true).configureGroup(TypeResolver.BENCHMARK_INCLUDE_GROUP, 35, "// Google Benchmark" + System.lineSeparator, '''
+
          ''', true).configureGroup(TypeResolver.STL_INCLUDE_GROUP, 40,
                 '''#include "modules/Commons/include/BeginStdInclude.h"     // STD -->''' + System.lineSeparator, '''#include "modules/Commons/include/EndStdInclude.h"       // <-- STD
 
@@ -53,7 +53,8 @@ class VSProjectFileGenerator
             generateVcxprojFilters()
         )
         // *.vcxproj.user file for executable projects
-        if (projectType == ProjectType.TEST || projectType == ProjectType.SERVER_RUNNER)
+        if (projectType == ProjectType.TEST || projectType == ProjectType.SERVER_RUNNER ||
+            projectType == ProjectType.BENCHMARK)
         {
             fileSystemAccess.generateFile(
                 projectPath + Constants.SEPARATOR_FILE + projectName.vcxproj.user,
@@ -47,6 +47,7 @@ class VcxProjGenerator
         val isProtobuf = (paramBundle.projectType == ProjectType.PROTOBUF)
         val isServerRunner = (paramBundle.projectType == ProjectType.SERVER_RUNNER)
         val isTest = (paramBundle.projectType == ProjectType.TEST)
+        val isBenchmark = (paramBundle.projectType == ProjectType.BENCHMARK)
         val isProxy = (paramBundle.projectType == ProjectType.PROXY)
         val isDispatcher = (paramBundle.projectType == ProjectType.DISPATCHER)
         val isExternalDbImpl = (paramBundle.projectType == ProjectType.EXTERNAL_DB_IMPL)
@@ -90,21 +91,21 @@ class VcxProjGenerator
           </PropertyGroup>
           <Import Project="$(VCTargetsPath)\Microsoft.Cpp.Default.props" />
           <PropertyGroup Condition="'$(Configuration)|$(Platform)'=='Release|Win32'" Label="Configuration">
-            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
+            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner || isBenchmark»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
             <PlatformToolset>v140</PlatformToolset>
             <WholeProgramOptimization>true</WholeProgramOptimization>
           </PropertyGroup>
           <PropertyGroup Condition="'$(Configuration)|$(Platform)'=='Release|x64'" Label="Configuration">
-            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
+            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner || isBenchmark»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
             <PlatformToolset>v140</PlatformToolset>
             <WholeProgramOptimization>true</WholeProgramOptimization>
           </PropertyGroup>
           <PropertyGroup Condition="'$(Configuration)|$(Platform)'=='Debug|Win32'" Label="Configuration">
-            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
+            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner || isBenchmark»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
             <PlatformToolset>v140</PlatformToolset>
           </PropertyGroup>
           <PropertyGroup Condition="'$(Configuration)|$(Platform)'=='Debug|x64'" Label="Configuration">
-            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
+            <ConfigurationType>«IF isProtobuf»StaticLibrary«ELSEIF isServerRunner || isBenchmark»Application«ELSE»DynamicLibrary«ENDIF»</ConfigurationType>
             <PlatformToolset>v140</PlatformToolset>
           </PropertyGroup>
           <Import Project="$(VCTargetsPath)\Microsoft.Cpp.props" />
@@ -113,26 +114,30 @@ class VcxProjGenerator
           <ImportGroup Condition="'$(Configuration)|$(Platform)'=='Release|Win32'" Label="PropertySheets">
             <Import Project="$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props" Condition="exists('$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props')" Label="LocalAppDataPlatform" />
             <Import Project="$(SolutionDir)\vsprops\modules.props" />
-            «IF isProtobuf || isProxy || isDispatcher || isServerRunner»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
+            «IF isProtobuf || isProxy || isDispatcher || isServerRunner || isBenchmark»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
             «IF isTest»<Import Project="$(SolutionDir)\vsprops\unit_test.props" />«ENDIF»
+            «IF isBenchmark»<Import Project="$(SolutionDir)\vsprops\benchmark.props" />«ENDIF»
           </ImportGroup>
           <ImportGroup Condition="'$(Configuration)|$(Platform)'=='Release|x64'" Label="PropertySheets">
             <Import Project="$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props" Condition="exists('$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props')" Label="LocalAppDataPlatform" />
             <Import Project="$(SolutionDir)\vsprops\modules.props" />
-            «IF isProtobuf || isProxy || isDispatcher || isServerRunner»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
+            «IF isProtobuf || isProxy || isDispatcher || isServerRunner || isBenchmark»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
             «IF isTest»<Import Project="$(SolutionDir)\vsprops\unit_test.props" />«ENDIF»
+            «IF isBenchmark»<Import Project="$(SolutionDir)\vsprops\benchmark.props" />«ENDIF»
           </ImportGroup>
           <ImportGroup Condition="'$(Configuration)|$(Platform)'=='Debug|Win32'" Label="PropertySheets">
             <Import Project="$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props" Condition="exists('$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props')" Label="LocalAppDataPlatform" />
             <Import Project="$(SolutionDir)\vsprops\modules.props" />
-            «IF isProtobuf || isProxy || isDispatcher || isServerRunner»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
+            «IF isProtobuf || isProxy || isDispatcher || isServerRunner || isBenchmark»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
             «IF isTest»<Import Project="$(SolutionDir)\vsprops\unit_test.props" />«ENDIF»
+            «IF isBenchmark»<Import Project="$(SolutionDir)\vsprops\benchmark.props" />«ENDIF»
           </ImportGroup>
           <ImportGroup Condition="'$(Configuration)|$(Platform)'=='Debug|x64'" Label="PropertySheets">
             <Import Project="$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props" Condition="exists('$(UserRootDir)\Microsoft.Cpp.$(Platform).user.props')" Label="LocalAppDataPlatform" />
             <Import Project="$(SolutionDir)\vsprops\modules.props" />
-            «IF isProtobuf || isProxy || isDispatcher || isServerRunner»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
+            «IF isProtobuf || isProxy || isDispatcher || isServerRunner || isBenchmark»<Import Project="$(SolutionDir)\vsprops\protobuf_paths.props" />«ENDIF»
             «IF isTest»<Import Project="$(SolutionDir)\vsprops\unit_test.props" />«ENDIF»
+            «IF isBenchmark»<Import Project="$(SolutionDir)\vsprops\benchmark.props" />«ENDIF»
           </ImportGroup>
           <PropertyGroup Label="UserMacros" />
           <PropertyGroup>
@@ -164,7 +169,7 @@ class VcxProjGenerator
             </ClCompile>
             <Link>
               <GenerateDebugInformation>true</GenerateDebugInformation>
-              <SubSystem>«IF isServerRunner»Console«ELSE»Windows«ENDIF»</SubSystem>
+              <SubSystem>«IF isServerRunner || isBenchmark»Console«ELSE»Windows«ENDIF»</SubSystem>
               <TargetMachine>MachineX86</TargetMachine>
               <LargeAddressAware>true</LargeAddressAware>
             </Link>
@@ -188,7 +193,7 @@ class VcxProjGenerator
             </ClCompile>
             <Link>
               <GenerateDebugInformation>true</GenerateDebugInformation>
-              <SubSystem>«IF isServerRunner»Console«ELSE»Windows«ENDIF»</SubSystem>
+              <SubSystem>«IF isServerRunner || isBenchmark»Console«ELSE»Windows«ENDIF»</SubSystem>
             </Link>
             «IF isServerRunner»
                 <PreBuildEvent>
@@ -210,7 +215,7 @@ class VcxProjGenerator
             </ClCompile>
             <Link>
               <GenerateDebugInformation>true</GenerateDebugInformation>
-              <SubSystem>«IF isServerRunner»Console«ELSE»Windows«ENDIF»</SubSystem>
+              <SubSystem>«IF isServerRunner || isBenchmark»Console«ELSE»Windows«ENDIF»</SubSystem>
               <OptimizeReferences>true</OptimizeReferences>
               <EnableCOMDATFolding>true</EnableCOMDATFolding>
               <TargetMachine>MachineX86</TargetMachine>
@@ -237,7 +242,7 @@ class VcxProjGenerator
             </ClCompile>
             <Link>
               <GenerateDebugInformation>true</GenerateDebugInformation>
-              <SubSystem>«IF isServerRunner»Console«ELSE»Windows«ENDIF»</SubSystem>
+              <SubSystem>«IF isServerRunner || isBenchmark»Console«ELSE»Windows«ENDIF»</SubSystem>
               <OptimizeReferences>true</OptimizeReferences>
               <EnableCOMDATFolding>true</EnableCOMDATFolding>
             </Link>
@@ -476,9 +481,12 @@ class VcxProjGenerator
         // Those indents (2 whitespaces) follow the Visual Studio 2012 standard formatting!!!
         val path = if (projectType == ProjectType.TEST) "$(UnitTestLibraryPaths)" else "$(CabBin)"
         val command = if (projectType == ProjectType.TEST) "$(UnitTestRunner)" else "$(TargetPath)"
-        val args = if (projectType ==
-                ProjectType.
-                    TEST) "$(UnitTestDefaultArguments)" else '''--connection tcp://127.0.0.1:«Constants.DEFAULT_PORT» --ioc $(ProjectDir)etc\ServerFactory.xml'''
+        val args = switch (projectType)
+        {
+            case TEST: "$(UnitTestDefaultArguments)"
+            case BENCHMARK: ""
+            default: '''--connection tcp://127.0.0.1:«Constants.DEFAULT_PORT» --ioc $(ProjectDir)etc\ServerFactory.xml'''
+        }
 
         '''
             <?xml version="1.0" encoding="utf-8"?>
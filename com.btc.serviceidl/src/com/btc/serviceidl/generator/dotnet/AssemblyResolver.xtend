@@ -19,6 +19,8 @@ class AssemblyResolver
 {
     // ******************************* PLEASE ALWAYS KEEP THIS LIST ALPHABETICALLY SORTED !!! ******************************* //
     static val assembliesMapper = #{
+        "BenchmarkDotNet.Attributes" -> "BenchmarkDotNet",
+        "BenchmarkDotNet.Running" -> "BenchmarkDotNet",
         "BTC.CAB.ServiceComm.NET.API.DTO" -> "BTC.CAB.ServiceComm.NET.API",
         "CommandLine.Text" -> "CommandLine",
         "log4net.Config" -> "log4net",
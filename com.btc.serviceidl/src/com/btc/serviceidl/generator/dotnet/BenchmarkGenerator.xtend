@@ -0,0 +1,186 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.dotnet
+
+import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.GeneratorUtil
+import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.idl.FunctionDeclaration
+import com.btc.serviceidl.idl.InterfaceDeclaration
+import com.btc.serviceidl.idl.ParameterDirection
+import com.btc.serviceidl.idl.StructDeclaration
+import com.btc.serviceidl.idl.VoidType
+import org.eclipse.xtend.lib.annotations.Accessors
+
+import static extension com.btc.serviceidl.generator.dotnet.ProtobufUtil.*
+import static extension com.btc.serviceidl.generator.dotnet.Util.*
+import static extension com.btc.serviceidl.util.Extensions.*
+
+@Accessors(NONE)
+class BenchmarkGenerator extends ProxyDispatcherGeneratorBase
+{
+    def generate(String className, InterfaceDeclaration interfaceDeclaration)
+    {
+        val structs = GeneratorUtil.getEncodableTypes(interfaceDeclaration).filter(StructDeclaration)
+        // the ServiceComm 0.6 dispatcher works on IMessageBuffer, which is consumed when parsed, so only the codecs are
+        // benchmarked there
+        val benchmarkDispatcher = targetVersion != ServiceCommVersion.V0_6
+        val dispatcherName = resolve(interfaceDeclaration, ProjectType.DISPATCHER)
+
+        '''
+            /// <summary>
+            /// Measures the encoding and decoding of the data types of «interfaceDeclaration.name» and the round trip
+            /// of requests through the generated dispatcher, without any transport.
+            /// </summary>
+            public class «className»
+            {
+               «FOR struct : structs»
+                   private «resolve(struct)» _plain«struct.name»;
+                   private «resolve(struct, ProjectType.PROTOBUF)» _encoded«struct.name»;
+               «ENDFOR»
+               «IF benchmarkDispatcher»
+                   private «dispatcherName» _dispatcher;
+                   «FOR function : interfaceDeclaration.functions»
+                       private byte[] _«function.name.toFirstLower»Request;
+                   «ENDFOR»
+               «ENDIF»
+
+               [«resolve("BenchmarkDotNet.Attributes.GlobalSetup")»]
+               public void Setup()
+               {
+                  «FOR struct : structs»
+                      _plain«struct.name» = «basicCSharpSourceGenerator.makeDefaultValue(struct)»;
+                      _encoded«struct.name» = («resolve(struct, ProjectType.PROTOBUF)») «resolveCodec(typeResolver, parameterBundle, struct)».encode(_plain«struct.name»);
+                  «ENDFOR»
+                  «IF benchmarkDispatcher»
+                      _dispatcher = new «dispatcherName»(new BenchmarkDispatchee(), new «resolve("BTC.CAB.ServiceComm.NET.ProtobufUtil.ProtoBufServerHelper")»());
+                      «FOR function : interfaceDeclaration.functions»
+                          _«function.name.toFirstLower»Request = Make«function.name»Request();
+                      «ENDFOR»
+                  «ENDIF»
+               }
+               «FOR struct : structs»
+
+                   [«resolve("BenchmarkDotNet.Attributes.Benchmark")»]
+                   public object Encode«struct.name»()
+                   {
+                      return «resolveCodec(typeResolver, parameterBundle, struct)».encode(_plain«struct.name»);
+                   }
+
+                   [«resolve("BenchmarkDotNet.Attributes.Benchmark")»]
+                   public object Decode«struct.name»()
+                   {
+                      return «resolveCodec(typeResolver, parameterBundle, struct)».decode(_encoded«struct.name»);
+                   }
+               «ENDFOR»
+               «IF benchmarkDispatcher»
+                   «FOR function : interfaceDeclaration.functions»
+
+                       [«resolve("BenchmarkDotNet.Attributes.Benchmark")»]
+                       public byte[] Dispatch«function.name»()
+                       {
+                          return _dispatcher.ProcessRequest(_«function.name.toFirstLower»Request, null);
+                       }
+                   «ENDFOR»
+                   «FOR function : interfaceDeclaration.functions»
+
+                       «generateMakeRequest(function, interfaceDeclaration)»
+                   «ENDFOR»
+
+                   «generateDispatchee(interfaceDeclaration)»
+               «ENDIF»
+            }
+        '''
+    }
+
+    def generateProgram(String className)
+    {
+        '''
+            /// <summary>
+            /// Runs the benchmarks of this assembly, which are selected by the command line arguments.
+            /// </summary>
+            public class «className»
+            {
+               public static void Main(«resolve("System.string")»[] args)
+               {
+                  «resolve("BenchmarkDotNet.Running.BenchmarkSwitcher")».FromAssembly(typeof(«className»).Assembly).Run(args);
+               }
+            }
+        '''
+    }
+
+    private def generateMakeRequest(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        val apiRequestName = getProtobufRequestClassName(interfaceDeclaration)
+
+        '''
+            private static byte[] Make«function.name»Request()
+            {
+               var methodRequestBuilder = «apiRequestName».Types.«com.btc.serviceidl.util.Util.asRequest(function.name)».CreateBuilder();
+               «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
+                   «val isSequence = com.btc.serviceidl.util.Util.isSequenceType(param.paramType)»
+                   «val isFailable = isSequence && com.btc.serviceidl.util.Util.isFailable(param.paramType)»
+                   «val useCodec = isFailable || GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.DOTNET)»
+                   «val encodeMethod = getEncodeMethod(param.paramType.actualType, interfaceDeclaration)»
+                   «val codec = resolveCodec(typeResolver, parameterBundle, param.paramType.actualType)»
+                   «val useCast = useCodec && !isFailable»
+                   var «param.paramName.asParameter» = «basicCSharpSourceGenerator.makeDefaultValue(param.paramType)»;
+                   methodRequestBuilder.«IF isSequence»AddRange«ELSE»Set«ENDIF»«param.paramName.asDotNetProtobufName»(«IF useCodec»«IF useCast»(«resolveEncode(param.paramType.actualType)») «ENDIF»«codec».«encodeMethod»(«ENDIF»«param.paramName.asParameter»«IF useCodec»)«ENDIF»);
+               «ENDFOR»
+               var requestBuilder = «apiRequestName».CreateBuilder();
+               requestBuilder.Set«function.name.asDotNetProtobufName»Request(methodRequestBuilder.BuildPartial());
+               return requestBuilder.BuildPartial().ToByteArray();
+            }
+        '''
+    }
+
+    private def generateDispatchee(InterfaceDeclaration interfaceDeclaration)
+    {
+        val apiName = resolve(interfaceDeclaration)
+        val anonymousEvent = com.btc.serviceidl.util.Util.getAnonymousEvent(interfaceDeclaration)
+
+        '''
+            /// <summary>
+            /// Returns default values immediately, such that only the dispatching and the encoding are measured.
+            /// </summary>
+            private class BenchmarkDispatchee : «IF anonymousEvent !== null»«resolve("BTC.CAB.ServiceComm.NET.Base.ABasicObservable")»<«resolve(anonymousEvent.data)»>, «ENDIF»«apiName.shortName»
+            {
+               «FOR function : interfaceDeclaration.functions SEPARATOR System.lineSeparator»
+                   «val isVoid = function.returnedType instanceof VoidType»
+                   «val result = if (isVoid) null else basicCSharpSourceGenerator.makeDefaultValue(function.returnedType.actualType)»
+                   public «typeResolver.makeReturnType(function)» «function.name»(
+                      «FOR param : function.parameters SEPARATOR ","»
+                          «IF param.direction == ParameterDirection.PARAM_OUT»out «ENDIF»«toText(param.paramType, function)» «toText(param, function).asParameter»
+                      «ENDFOR»
+                   )
+                   {
+                      «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
+                          «param.paramName.asParameter» = «basicCSharpSourceGenerator.makeDefaultValue(param.paramType)»;
+                      «ENDFOR»
+                      «IF !function.sync»
+                          return «resolve("System.Threading.Tasks.Task")».FromResult(«IF isVoid»true«ELSE»«result»«ENDIF»);
+                      «ELSEIF !isVoid»
+                          return «result»;
+                      «ENDIF»
+                   }
+               «ENDFOR»
+               «FOR event : interfaceDeclaration.events.filter[name !== null]»
+                   «val eventName = toText(event, interfaceDeclaration)»
+
+                   public «eventName» Get«eventName»()
+                   {
+                      «makeDefaultMethodStub(typeResolver)»
+                   }
+               «ENDFOR»
+            }
+        '''
+    }
+}
@@ -14,6 +14,7 @@ import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.PackageInfo
 import com.btc.serviceidl.generator.common.ParameterBundle
+import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.common.TransformType
 import java.util.Set
 
@@ -34,6 +35,8 @@ class CSProjGenerator {
       
       val projectGuid = vsSolution.getCsprojGUID(paramBundle)
       val isExe = isExecutable(paramBundle.projectType)
+      // benchmarks are console applications as well, but without the configuration files of the server and client
+      val isBenchmark = paramBundle.projectType == ProjectType.BENCHMARK
       val prins = false
       '''
       <?xml version="1.0" encoding="utf-8"?>
@@ -41,7 +44,7 @@ class CSProjGenerator {
         «IF isExe && prins»<Import Project="$(SolutionDir)Net.ProjectSettings" />«ENDIF»
         <PropertyGroup>
           <ProjectGuid>{«projectGuid»}</ProjectGuid>
-          <OutputType>«IF isExe»Exe«ELSE»Library«ENDIF»</OutputType>
+          <OutputType>«IF isExe || isBenchmark»Exe«ELSE»Library«ENDIF»</OutputType>
           <RootNamespace>«projectName»</RootNamespace>
           <AssemblyName>«projectName»</AssemblyName>
           <TargetFrameworkVersion>v«DotNetGenerator.DOTNET_FRAMEWORK_VERSION.toString»</TargetFrameworkVersion>
@@ -11,8 +11,10 @@
 package com.btc.serviceidl.generator.dotnet
 
 import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ModuleDeclaration
+import com.btc.serviceidl.idl.ParameterElement
 import com.btc.serviceidl.idl.ParameterDirection
 import com.btc.serviceidl.idl.VoidType
 import org.eclipse.xtend.lib.annotations.Accessors
@@ -66,7 +68,14 @@ class ClientConsoleProgramGenerator
                       «val proxyName = interfaceDeclaration.name.toFirstLower + "Proxy"»
                       // «interfaceDeclaration.name» proxy
                       var «proxyName» = «typeResolver.resolve(interfaceDeclaration, ProjectType.PROXY).alias(getProxyFactoryName(interfaceDeclaration))».CreateProtobufProxy(client.ClientEndpoint);
-                      TestRequestResponse«interfaceDeclaration.name»(«proxyName»);
+                      if (options.Load)
+                      {
+                         GenerateLoad«interfaceDeclaration.name»(«proxyName», options);
+                      }
+                      else
+                      {
+                         TestRequestResponse«interfaceDeclaration.name»(«proxyName»);
+                      }
                       
                   «ENDFOR»
                   
@@ -106,7 +115,19 @@ class ClientConsoleProgramGenerator
                «console».WriteLine("Press any key to exit...");
                «console».ReadLine();
                }
+               
+               private static void GenerateLoad«interfaceDeclaration.name»(«typeResolver.resolve(interfaceDeclaration)» proxy, Options options)
+               {
+                  var operations = new «typeResolver.resolve("System.Collections.Generic.Dictionary")»<string, «typeResolver.resolve("System.Action")»>();
+                  «FOR function : interfaceDeclaration.functions»
+                      «generateLoadOperation(function)»
+                  «ENDFOR»
+                  
+                  RunLoad("«apiName»", operations, options);
+               }
                «ENDFOR»
+               
+               «generateLoadDriver»
             
                private class Options
                {
@@ -118,6 +139,26 @@ class ClientConsoleProgramGenerator
                      HelpText = "file that contains an alternative spring configuration. By default this is taken from the application configuration.")]
                   public string ConfigurationFile { get; set; }
                   
+                  [Option('l', "load", DefaultValue = false,
+                     HelpText = "calls the operations repeatedly from concurrent workers and reports the throughput and the latency percentiles, instead of calling each operation once.")]
+                  public bool Load { get; set; }
+                  
+                  [Option("concurrency", DefaultValue = 1,
+                     HelpText = "number of concurrent workers in load mode.")]
+                  public int Concurrency { get; set; }
+                  
+                  [Option("duration", DefaultValue = 10,
+                     HelpText = "duration of the load in seconds.")]
+                  public int Duration { get; set; }
+                  
+                  [Option("rate", DefaultValue = 0.0,
+                     HelpText = "target rate in calls per second over all workers in load mode, 0 for unlimited.")]
+                  public double Rate { get; set; }
+                  
+                  [Option("mix", DefaultValue = null,
+                     HelpText = "weights of the operations in load mode, e.g. Get:3,Put:1. By default, all operations have the same weight.")]
+                  public string Mix { get; set; }
+                  
                   [ParserState]
                   public «typeResolver.resolve("CommandLine.IParserState")» LastParserState { get; set; }
                   
@@ -132,4 +173,253 @@ class ClientConsoleProgramGenerator
         '''
     }
 
+    /**
+     * The input parameters are built once outside of the call, such that their construction is not measured; the
+     * output parameters are declared for each call, since the calls of concurrent workers must not share them.
+     */
+    private def generateLoadOperation(FunctionDeclaration function)
+    {
+        '''
+            {
+               «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
+                   var «param.paramName.asParameter» = «makeLoadValue(param)»;
+               «ENDFOR»
+               operations.Add("«function.name»", () =>
+               {
+                  «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
+                      var «param.paramName.asParameter» = «makeLoadValue(param)»;
+                  «ENDFOR»
+                  proxy.«function.name»(«function.parameters.map[ (if (direction == ParameterDirection.PARAM_OUT) "out " else "") + paramName.asParameter].join(", ")»)«IF !function.sync».Wait()«ENDIF»;
+               });
+            }
+        '''
+    }
+
+    /**
+     * Input sequences with a "typical sequence length" hint are filled with that many default elements, such that
+     * the size of the requests resembles the production load.
+     */
+    private def makeLoadValue(ParameterElement param)
+    {
+        val sequence = param.paramType.tryGetSequence
+        if (param.direction == ParameterDirection.PARAM_IN && sequence.present && !sequence.get.failable &&
+            !sequence.get.type.isSequenceType && sequence.get.typicalLength.present)
+        {
+            val elementType = basicCSharpSourceGenerator.toText(sequence.get.type, sequence.get)
+            '''«typeResolver.resolve("System.Linq.Enumerable")».Repeat<«elementType»>(«makeDefaultValue(basicCSharpSourceGenerator, sequence.get.type)», «sequence.get.typicalLength.get»).ToList()'''
+        }
+        else
+            makeDefaultValue(basicCSharpSourceGenerator, param.paramType)
+    }
+
+    private def generateLoadDriver()
+    {
+        val console = typeResolver.resolve("System.Console")
+        val stopwatch = typeResolver.resolve("System.Diagnostics.Stopwatch")
+        val thread = typeResolver.resolve("System.Threading.Thread")
+        val dictionary = typeResolver.resolve("System.Collections.Generic.Dictionary")
+        val iDictionary = typeResolver.resolve("System.Collections.Generic.IDictionary")
+        val list = typeResolver.resolve("System.Collections.Generic.List")
+        val action = typeResolver.resolve("System.Action")
+
+        '''
+            /// <summary>
+            /// Calls the operations from concurrent workers, and reports the throughput and the latency percentiles
+            /// of each operation. With a target rate, the latency is measured from the time a call was scheduled, so
+            /// that a slow service does not hide its queueing delay by slowing down the load.
+            /// </summary>
+            private static void RunLoad(string serviceName, «iDictionary»<string, «action»> operations, Options options)
+            {
+               if (options.Concurrency < 1 || options.Duration < 1 || options.Rate < 0)
+               {
+                  «console».WriteLine("Concurrency and duration must be positive, rate must not be negative.");
+                  return;
+               }
+               
+               var weights = ParseMix(options.Mix);
+               var schedule = new «list»<string>();
+               foreach (var name in operations.Keys)
+               {
+                  var weight = weights.Count == 0 ? 1 : (weights.ContainsKey(name) ? weights[name] : 0);
+                  schedule.AddRange(«typeResolver.resolve("System.Linq.Enumerable")».Repeat(name, weight));
+               }
+               if (schedule.Count == 0)
+               {
+                  «console».WriteLine("No operation of " + serviceName + " is selected by the mix.");
+                  return;
+               }
+               
+               var intervalTicks = options.Rate > 0 ? (long) (options.Concurrency * «stopwatch».Frequency / options.Rate) : 0;
+               var start = «stopwatch».GetTimestamp();
+               var deadline = start + options.Duration * «stopwatch».Frequency;
+               
+               var recorders = new «list»<«dictionary»<string, LatencyRecorder>>();
+               var workers = new «list»<«thread»>();
+               for (var i = 0; i < options.Concurrency; i++)
+               {
+                  var workerRecorders = new «dictionary»<string, LatencyRecorder>();
+                  var firstCall = start + i * intervalTicks / options.Concurrency;
+                  var random = new «typeResolver.resolve("System.Random")»(unchecked(«typeResolver.resolve("System.Environment")».TickCount + i * 7919));
+                  recorders.Add(workerRecorders);
+                  workers.Add(new «thread»(() => RunLoadWorker(operations, schedule, firstCall, intervalTicks, deadline, random, workerRecorders)));
+               }
+               workers.ForEach(worker => worker.Start());
+               workers.ForEach(worker => worker.Join());
+               var elapsedSeconds = (double) («stopwatch».GetTimestamp() - start) / «stopwatch».Frequency;
+               
+               var total = new LatencyRecorder();
+               foreach (var name in operations.Keys)
+               {
+                  var merged = new LatencyRecorder();
+                  foreach (var workerRecorders in recorders)
+                  {
+                     LatencyRecorder recorder;
+                     if (workerRecorders.TryGetValue(name, out recorder))
+                        merged.Add(recorder);
+                  }
+                  if (merged.Count > 0)
+                  {
+                     ReportLoad(serviceName + "." + name, merged, elapsedSeconds);
+                     total.Add(merged);
+                  }
+               }
+               ReportLoad(serviceName, total, elapsedSeconds);
+            }
+            
+            private static void RunLoadWorker(«iDictionary»<string, «action»> operations, «list»<string> schedule, long firstCall,
+               long intervalTicks, long deadline, «typeResolver.resolve("System.Random")» random, «iDictionary»<string, LatencyRecorder> recorders)
+            {
+               var scheduled = firstCall;
+               while (true)
+               {
+                  long callStart;
+                  if (intervalTicks > 0)
+                  {
+                     long wait;
+                     while ((wait = scheduled - «stopwatch».GetTimestamp()) > 0)
+                     {
+                        if (wait * 1000 / «stopwatch».Frequency > 1)
+                           «thread».Sleep(1);
+                        else
+                           «thread».Yield();
+                     }
+                     callStart = scheduled;
+                     scheduled += intervalTicks;
+                  }
+                  else
+                  {
+                     callStart = «stopwatch».GetTimestamp();
+                  }
+                  if (callStart >= deadline)
+                     break;
+                  
+                  var name = schedule[random.Next(schedule.Count)];
+                  var failed = false;
+                  try
+                  {
+                     operations[name]();
+                  }
+                  catch («typeResolver.resolve("System.Exception")»)
+                  {
+                     failed = true;
+                  }
+                  
+                  LatencyRecorder recorder;
+                  if (!recorders.TryGetValue(name, out recorder))
+                  {
+                     recorder = new LatencyRecorder();
+                     recorders[name] = recorder;
+                  }
+                  recorder.Record(«stopwatch».GetTimestamp() - callStart, failed);
+               }
+            }
+            
+            private static void ReportLoad(string name, LatencyRecorder recorder, double elapsedSeconds)
+            {
+               «console».WriteLine("{0}: {1} calls, {2} errors, {3:F1} calls/s, latency p50 {4:F1} us, p99 {5:F1} us, p999 {6:F1} us",
+                  name, recorder.Count, recorder.Errors, recorder.Count / elapsedSeconds,
+                  recorder.Percentile(0.5) * 1e6 / «stopwatch».Frequency, recorder.Percentile(0.99) * 1e6 / «stopwatch».Frequency,
+                  recorder.Percentile(0.999) * 1e6 / «stopwatch».Frequency);
+            }
+            
+            private static «iDictionary»<string, int> ParseMix(string mix)
+            {
+               var weights = new «dictionary»<string, int>();
+               if (string.IsNullOrEmpty(mix))
+                  return weights;
+               
+               foreach (var entry in mix.Split(','))
+               {
+                  var nameWeight = entry.Split(':');
+                  weights[nameWeight[0]] = nameWeight.Length > 1 ? int.Parse(nameWeight[1]) : 1;
+               }
+               return weights;
+            }
+            
+            /// <summary>
+            /// Counts the latencies in a histogram of fixed size, with 16 linear buckets per power of two ticks, such
+            /// that a percentile is reported with a relative error of at most 1/16.
+            /// </summary>
+            private class LatencyRecorder
+            {
+               private const int SubBucketBits = 4;
+               private const int SubBucketCount = 1 << SubBucketBits;
+               
+               private readonly long[] _buckets = new long[(64 - SubBucketBits) * SubBucketCount];
+               public long Count;
+               public long Errors;
+               
+               public void Record(long latencyTicks, bool failed)
+               {
+                  _buckets[BucketOf(Math.Max(0, latencyTicks))]++;
+                  Count++;
+                  if (failed)
+                     Errors++;
+               }
+               
+               public void Add(LatencyRecorder other)
+               {
+                  for (var i = 0; i < _buckets.Length; i++)
+                     _buckets[i] += other._buckets[i];
+                  Count += other.Count;
+                  Errors += other.Errors;
+               }
+               
+               /// <returns>the upper bound of the bucket which holds the latency of the given quantile</returns>
+               public long Percentile(double quantile)
+               {
+                  var rank = Math.Max(1, (long) Math.Ceiling(quantile * Count));
+                  long seen = 0;
+                  for (var i = 0; i < _buckets.Length; i++)
+                  {
+                     seen += _buckets[i];
+                     if (seen >= rank)
+                        return UpperBoundOf(i);
+                  }
+                  return 0;
+               }
+               
+               private static int BucketOf(long latencyTicks)
+               {
+                  if (latencyTicks < SubBucketCount)
+                     return (int) latencyTicks;
+                  var exponent = 0;
+                  while ((latencyTicks >> (exponent + 1)) != 0)
+                     exponent++;
+                  var shift = exponent - SubBucketBits;
+                  return (shift + 1) * SubBucketCount + (int) (latencyTicks >> shift) - SubBucketCount;
+               }
+               
+               private static long UpperBoundOf(int bucket)
+               {
+                  if (bucket < SubBucketCount)
+                     return bucket;
+                  var shift = bucket / SubBucketCount - 1;
+                  var lowerBound = (long) (bucket % SubBucketCount + SubBucketCount) << shift;
+                  return lowerBound + (1L << shift) - 1;
+               }
+            }
+        '''
+    }
+
 }
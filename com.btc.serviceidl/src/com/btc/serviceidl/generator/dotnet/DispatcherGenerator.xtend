@@ -13,8 +13,10 @@ package com.btc.serviceidl.generator.dotnet
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ParameterDirection
+import com.btc.serviceidl.idl.ParameterElement
 import com.btc.serviceidl.idl.VoidType
 import com.btc.serviceidl.util.Constants
 import org.eclipse.xtend.lib.annotations.Accessors
@@ -27,6 +29,14 @@ import static extension com.btc.serviceidl.util.Extensions.*
 @Accessors(NONE)
 class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
     
+    val boolean withMetrics
+
+    new(BasicCSharpSourceGenerator basicCSharpSourceGenerator, boolean withMetrics)
+    {
+        super(basicCSharpSourceGenerator)
+        this.withMetrics = withMetrics
+    }
+
     def generate(String dispatcherClassName, InterfaceDeclaration interfaceDeclaration) {
       val apiClassName = resolve(interfaceDeclaration).shortName
             
@@ -52,15 +62,30 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
         
         private readonly «resolve("BTC.CAB.ServiceComm.NET.API.IServiceFaultHandlerManager")» _faultHandlerManager;
         
+        «IF withMetrics»
+            private readonly «MetricsGenerator.METRICS_INTERFACE_NAME» _metrics;
+            
+        «ENDIF»
         «FOR event : events»
         private «resolve("System.Collections.Generic.List")»<«resolve("BTC.CAB.ServiceComm.NET.API.IEventPublisherRegistration")»> _remote«event.data.name»Publishers;
         private «resolve("System.Collections.Generic.List")»<«resolve("System.IDisposable")»> _local«event.data.name»Subscriptions;
         «ENDFOR»
+        «FOR event : interfaceDeclaration.keyedEvents»
+        private «event.data.name»KeyObserver _«event.data.name.toFirstLower»KeyObserver;
+        «ENDFOR»
         
-        public «dispatcherClassName»(«apiClassName» dispatchee, ProtoBufServerHelper protoBufHelper)
+        «IF withMetrics»
+            /// <param name="metrics">receives the duration of each phase of the dispatched operations, if not null</param>
+            public «dispatcherClassName»(«apiClassName» dispatchee, ProtoBufServerHelper protoBufHelper, «MetricsGenerator.METRICS_INTERFACE_NAME» metrics = null)
+        «ELSE»
+            public «dispatcherClassName»(«apiClassName» dispatchee, ProtoBufServerHelper protoBufHelper)
+        «ENDIF»
         {
            _dispatchee = dispatchee;
            _protoBufHelper = protoBufHelper;
+           «IF withMetrics»
+               _metrics = metrics;
+           «ENDIF»
 
            «FOR event : events»
            _remote«event.data.name»Publishers = new List<IEventPublisherRegistration>();
@@ -90,6 +115,9 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
             public override «resolve("System.Byte[]")» ProcessRequest(byte[] requestBuffer, «resolve("BTC.CAB.ServiceComm.NET.Common.IPeerIdentity")» peerIdentity)
         «ENDIF»
         {
+           «IF withMetrics»
+               var parseStart = «resolve("System.Diagnostics.Stopwatch")».GetTimestamp();
+           «ENDIF»
            «IF serviceCommVersion_V0_6»
                var request = «protobufRequest».ParseFrom(requestBuffer.PopFront());
            «ELSE»
@@ -97,9 +125,33 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
            «ENDIF»
            
            «FOR func : interfaceDeclaration.functions»
+           «IF func != interfaceDeclaration.functions.head»else «ENDIF»if (request.Has«func.name.asDotNetProtobufName + Constants.PROTOBUF_REQUEST»)
+           «IF withMetrics»
+               {
+                  RecordMetrics("«func.name»", ServiceMetricsPhase.Parse, parseStart);
+                  return «func.handlerName»(request);
+               }
+           «ELSE»
+              return «func.handlerName»(request);
+           «ENDIF»
+           «ENDFOR»
+           «FOR event : interfaceDeclaration.keyedEvents»
+           «val requestName = com.btc.serviceidl.util.Util.asRequest(event.keySubscriptionName).asDotNetProtobufName»
+           «IF !interfaceDeclaration.functions.empty || event != interfaceDeclaration.keyedEvents.head»else «ENDIF»if (request.Has«requestName»)
+              return Handle«requestName»(request);
+           «ENDFOR»
+
+           throw new InvalidRequestReceivedException("Unknown or invalid request");
+        }
+        
+        «FOR func : interfaceDeclaration.functions»
            «val requestName = func.name.asDotNetProtobufName + Constants.PROTOBUF_REQUEST»
            «val isVoid = func.returnedType instanceof VoidType»
-           «IF func != interfaceDeclaration.functions.head»else «ENDIF»if (request.Has«requestName»)
+           «IF serviceCommVersion_V0_6»
+               private IMessageBuffer «func.handlerName»(«protobufRequest» request)
+           «ELSE»
+               private byte[] «func.handlerName»(«protobufRequest» request)
+           «ENDIF»
            {
               «val outParams = func.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
               «IF !outParams.empty»
@@ -108,23 +160,29 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
                     var «param.paramName.asParameter» = «basicCSharpSourceGenerator.makeDefaultValue(param.paramType)»;
                  «ENDFOR»
                  
+              «ENDIF»
+              «IF withMetrics»
+                  var phaseStart = «resolve("System.Diagnostics.Stopwatch")».GetTimestamp();
+                  «FOR param : func.parameters.filter[direction == ParameterDirection.PARAM_IN]»
+                     var «param.paramName.asParameter» = «makeDecodeInParameter(param, interfaceDeclaration, requestName)»;
+                  «ENDFOR»
+                  phaseStart = RecordMetrics("«func.name»", ServiceMetricsPhase.Decode, phaseStart);
+                  
               «ENDIF»
               // call actual method
               «IF !isVoid»var result = «ENDIF»_dispatchee.«func.name»
                  (
                     «FOR param : func.parameters SEPARATOR ","»
-                       «val isInput = (param.direction == ParameterDirection.PARAM_IN)»
-                       «val isFailable = com.btc.serviceidl.util.Util.isFailable(param)»
-                       «val useCodec = isFailable || GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.DOTNET)»
-                       «val decodeMethod = getDecodeMethod(param.paramType.actualType, interfaceDeclaration)»
-                       «val useCast = useCodec && !isFailable»
-                       «IF isInput»
-                          «IF useCodec»«IF useCast»(«resolveDecode(param.paramType.actualType)») «ENDIF»«resolveCodec(typeResolver, parameterBundle, param.paramType.actualType)».«decodeMethod»(«ENDIF»«IF useCodec»«resolve(param.paramType, ProjectType.PROTOBUF).alias("request")»«ELSE»request«ENDIF».«requestName».«param.paramName.asDotNetProtobufName»«IF (com.btc.serviceidl.util.Util.isSequenceType(param.paramType))»List«ENDIF»«IF useCodec»)«ENDIF»
+                       «IF param.direction == ParameterDirection.PARAM_IN»
+                          «IF withMetrics»«param.paramName.asParameter»«ELSE»«makeDecodeInParameter(param, interfaceDeclaration, requestName)»«ENDIF»
                        «ELSE»
                           out «param.paramName.asParameter»
                        «ENDIF»
                     «ENDFOR»
                  )«IF !func.sync».«IF isVoid»Wait()«ELSE»Result«ENDIF»«ENDIF»;«IF !func.sync» // «IF isVoid»await«ELSE»retrieve«ENDIF» the result in order to trigger exceptions«ENDIF»
+              «IF withMetrics»
+                  phaseStart = RecordMetrics("«func.name»", ServiceMetricsPhase.Invoke, phaseStart);
+              «ENDIF»
 
               // deliver response
               var responseBuilder = «protobuf_response».Types.«com.btc.serviceidl.util.Util.asResponse(func.name)».CreateBuilder()
@@ -147,17 +205,63 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
                  ;
               
               var response = «protobuf_response».CreateBuilder().Set«func.name.asDotNetProtobufName»Response(responseBuilder).Build();
+              «IF withMetrics»
+                  phaseStart = RecordMetrics("«func.name»", ServiceMetricsPhase.Encode, phaseStart);
+                  var serializedResponse = response.ToByteArray();
+                  RecordMetrics("«func.name»", ServiceMetricsPhase.Serialize, phaseStart);
+                  «IF serviceCommVersion_V0_6»
+                      return new «resolve("BTC.CAB.ServiceComm.NET.Common.MessageBuffer")»(serializedResponse);
+                  «ELSE»
+                      return serializedResponse;
+                  «ENDIF»
+              «ELSEIF serviceCommVersion_V0_6»
+                  return new «resolve("BTC.CAB.ServiceComm.NET.Common.MessageBuffer")»(response.ToByteArray());
+              «ELSE»
+                  return response.ToByteArray();
+              «ENDIF»
+           }
+
+        «ENDFOR»
+        «FOR event : interfaceDeclaration.keyedEvents»
+           «val requestName = com.btc.serviceidl.util.Util.asRequest(event.keySubscriptionName).asDotNetProtobufName»
+           «val responseName = com.btc.serviceidl.util.Util.asResponse(event.keySubscriptionName)»
+           «IF serviceCommVersion_V0_6»
+               private IMessageBuffer Handle«requestName»(«protobufRequest» request)
+           «ELSE»
+               private byte[] Handle«requestName»(«protobufRequest» request)
+           «ENDIF»
+           {
+              var keyObserver = _«event.data.name.toFirstLower»KeyObserver;
+              if (keyObserver != null)
+              {
+                 foreach (var keyHash in request.«requestName».«Constants.PROTOBUF_SUBSCRIBED_KEY_HASHES.asDotNetProtobufName»List)
+                    keyObserver.SubscribeKey(keyHash);
+                 foreach (var keyHash in request.«requestName».«Constants.PROTOBUF_UNSUBSCRIBED_KEY_HASHES.asDotNetProtobufName»List)
+                    keyObserver.UnsubscribeKey(keyHash);
+              }
+
+              var response = «protobuf_response».CreateBuilder().Set«responseName.asDotNetProtobufName»(«protobuf_response».Types.«responseName».CreateBuilder()).Build();
               «IF serviceCommVersion_V0_6»
                   return new «resolve("BTC.CAB.ServiceComm.NET.Common.MessageBuffer")»(response.ToByteArray());
               «ELSE»
                   return response.ToByteArray();
               «ENDIF»
            }
-           «ENDFOR»
 
-           throw new InvalidRequestReceivedException("Unknown or invalid request");
-        }
-        
+        «ENDFOR»
+        «IF withMetrics»
+            /// <summary>
+            /// Records the duration since the given timestamp and returns the end of the phase.
+            /// </summary>
+            private long RecordMetrics(string operation, ServiceMetricsPhase phase, long start)
+            {
+               var end = «resolve("System.Diagnostics.Stopwatch")».GetTimestamp();
+               if (_metrics != null)
+                  _metrics.Record(operation, phase, «resolve("System.TimeSpan")».FromTicks((end - start) * TimeSpan.TicksPerSecond / Stopwatch.Frequency));
+               return end;
+            }
+            
+        «ENDIF»
         /// <see cref="BTC.CAB.ServiceComm.NET.API.IServiceDispatcher.ServiceFaultHandlerManager"/>
         public override IServiceFaultHandlerManager ServiceFaultHandlerManager
         {
@@ -178,9 +282,17 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
               var remote«eventType.name»Publisher = endpoint.EventRegistry.PublisherManager.RegisterPublisher(
                           «eventApiClassName».«eventTypeGuidProperty»);
               _remote«eventType.name»Publishers.Add(remote«eventType.name»Publisher);
-              var local«eventType.name»Subscription = _dispatchee«IF event.name !== null».Get«getObservableName(event)»()«ENDIF».Subscribe(
-              new «eventType.name»Observer(remote«eventType.name»Publisher));
-              _local«eventType.name»Subscriptions.Add(local«eventType.name»Subscription);
+              «IF event.filterKeys.empty»
+                  var local«eventType.name»Subscription = _dispatchee«IF event.name !== null».Get«getObservableName(event)»()«ENDIF».Subscribe(
+                  new «eventType.name»Observer(remote«eventType.name»Publisher));
+                  _local«eventType.name»Subscriptions.Add(local«eventType.name»Subscription);
+              «ELSE»
+                  // publishes all events as well, such that each event is encoded once for both event types
+                  var «eventType.name.toFirstLower»KeyObserver = new «eventType.name»KeyObserver(endpoint, remote«eventType.name»Publisher);
+                  _local«eventType.name»Subscriptions.Add(_dispatchee«IF event.name !== null».Get«getObservableName(event)»()«ENDIF».Subscribe(«eventType.name.toFirstLower»KeyObserver));
+                  _local«eventType.name»Subscriptions.Add(«eventType.name.toFirstLower»KeyObserver);
+                  _«eventType.name.toFirstLower»KeyObserver = «eventType.name.toFirstLower»KeyObserver;
+              «ENDIF»
            «ENDFOR»
         }
         
@@ -224,7 +336,125 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
                 throw new NotSupportedException();
             }
         }
+        «IF !event.filterKeys.empty»
+        «val messageBuffer = if (serviceCommVersion_V0_6) "IMessageBuffer" else "byte[]"»
+
+        /// <summary>
+        /// Publishes each event under the event type of its key, such that the event registry delivers it to the
+        /// subscribers of that key only, and under the event type of all events. The publisher of a key is created
+        /// when the first subscription of the key is registered, and released when its last subscription is
+        /// unregistered. Each event is encoded once for both event types.
+        /// </summary>
+        class «eventType.name»KeyObserver : IObserver<«eventApiClassName»>, IDisposable
+        {
+            private readonly IServerEndpoint _endpoint;
+            private readonly IObserver<«messageBuffer»> _allEventsPublisher;
+            private readonly «resolve("System.Collections.Generic.Dictionary")»<ulong, KeyPublisher> _keyPublishers = new Dictionary<ulong, KeyPublisher>();
+
+            public «eventType.name»KeyObserver(IServerEndpoint endpoint, IObserver<«messageBuffer»> allEventsPublisher)
+            {
+                _endpoint = endpoint;
+                _allEventsPublisher = allEventsPublisher;
+            }
+
+            public void SubscribeKey(ulong keyHash)
+            {
+                lock (_keyPublishers)
+                {
+                    KeyPublisher keyPublisher;
+                    if (!_keyPublishers.TryGetValue(keyHash, out keyPublisher))
+                    {
+                        var eventTypeGuid = MakeKeyEventTypeGuid(«eventApiClassName».«eventTypeGuidProperty», keyHash);
+                        _endpoint.EventRegistry.CreateEventRegistration(eventTypeGuid, EventKind.EventKindPublishSubscribe, eventTypeGuid.ToString());
+                        keyPublisher = new KeyPublisher(_endpoint.EventRegistry.PublisherManager.RegisterPublisher(eventTypeGuid));
+                        _keyPublishers.Add(keyHash, keyPublisher);
+                    }
+                    ++keyPublisher.Subscriptions;
+                }
+            }
+
+            public void UnsubscribeKey(ulong keyHash)
+            {
+                lock (_keyPublishers)
+                {
+                    KeyPublisher keyPublisher;
+                    if (_keyPublishers.TryGetValue(keyHash, out keyPublisher) && --keyPublisher.Subscriptions == 0)
+                    {
+                        _keyPublishers.Remove(keyHash);
+                        keyPublisher.Publisher.Dispose();
+                    }
+                }
+            }
+
+            public void OnNext(«eventApiClassName» value)
+            {
+                «makeKeyHash(event, "value")»
+                «eventProtobufClassName» protobufEvent = «resolveCodec(typeResolver, parameterBundle, event.data)».encode(value) as «eventProtobufClassName»;
+                byte[] serializedEvent = protobufEvent.ToByteArray();
+                «IF serviceCommVersion_V0_6»
+                    _allEventsPublisher.OnNext(new MessageBuffer(serializedEvent));
+                «ELSE»
+                    _allEventsPublisher.OnNext(serializedEvent);
+                «ENDIF»
+
+                // published under the lock, such that the publisher is not disposed meanwhile
+                lock (_keyPublishers)
+                {
+                    KeyPublisher keyPublisher;
+                    if (_keyPublishers.TryGetValue(keyHash, out keyPublisher))
+                        keyPublisher.Publisher.OnNext(«IF serviceCommVersion_V0_6»new MessageBuffer(serializedEvent)«ELSE»serializedEvent«ENDIF»);
+                }
+            }
+
+            public void OnError(Exception error)
+            {
+                _allEventsPublisher.OnError(error);
+                lock (_keyPublishers)
+                {
+                    foreach (var keyPublisher in _keyPublishers.Values)
+                        keyPublisher.Publisher.OnError(error);
+                }
+            }
+
+            public void OnCompleted()
+            {
+                _allEventsPublisher.OnCompleted();
+                lock (_keyPublishers)
+                {
+                    foreach (var keyPublisher in _keyPublishers.Values)
+                        keyPublisher.Publisher.OnCompleted();
+                }
+            }
+
+            public void Dispose()
+            {
+                lock (_keyPublishers)
+                {
+                    foreach (var keyPublisher in _keyPublishers.Values)
+                    {
+                        keyPublisher.Publisher.Dispose();
+                    }
+                    _keyPublishers.Clear();
+                }
+            }
+
+            class KeyPublisher
+            {
+                public readonly IEventPublisherRegistration Publisher;
+                public int Subscriptions;
+
+                public KeyPublisher(IEventPublisherRegistration publisher)
+                {
+                    Publisher = publisher;
+                }
+            }
+        }
+        «ENDIF»
         «ENDFOR»
+        «IF events.exists[!filterKeys.empty]»
+
+        «makeKeyEventTypeGuidFunctions»
+        «ENDIF»
         
         /// <see cref="BTC.CAB.ServiceComm.NET.API.IServiceDispatcher.DetachEndpoint"/>
         public override void DetachEndpoint(IServerEndpoint endpoint)
@@ -243,9 +473,27 @@ class DispatcherGenerator extends ProxyDispatcherGeneratorBase {
               eventPublisher.Dispose();
            }
            «ENDFOR»
+           «FOR event : interfaceDeclaration.keyedEvents»
+           _«event.data.name.toFirstLower»KeyObserver = null;
+           «ENDFOR»
         }
      }
      '''
     }
     
+    private def makeDecodeInParameter(ParameterElement param, InterfaceDeclaration interfaceDeclaration,
+        String requestName)
+    {
+        val isFailable = com.btc.serviceidl.util.Util.isFailable(param)
+        val useCodec = isFailable || GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.DOTNET)
+        val decodeMethod = getDecodeMethod(param.paramType.actualType, interfaceDeclaration)
+        val useCast = useCodec && !isFailable
+        '''«IF useCodec»«IF useCast»(«resolveDecode(param.paramType.actualType)») «ENDIF»«resolveCodec(typeResolver, parameterBundle, param.paramType.actualType)».«decodeMethod»(«ENDIF»«IF useCodec»«resolve(param.paramType, ProjectType.PROTOBUF).alias("request")»«ELSE»request«ENDIF».«requestName».«param.paramName.asDotNetProtobufName»«IF (com.btc.serviceidl.util.Util.isSequenceType(param.paramType))»List«ENDIF»«IF useCodec»)«ENDIF»'''
+    }
+
+    private static def getHandlerName(FunctionDeclaration function)
+    {
+        "Handle" + function.name.asDotNetProtobufName + Constants.PROTOBUF_REQUEST
+    }
+    
 }
@@ -16,14 +16,17 @@
 
 package com.btc.serviceidl.generator.dotnet
 
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.IGenerationSettings
 import com.btc.serviceidl.generator.Maturity
 import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.EventBatchSettings
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.Names
 import com.btc.serviceidl.generator.common.PackageInfo
 import com.btc.serviceidl.generator.common.ParameterBundle
 import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.generator.common.QueryCacheSettings
 import com.btc.serviceidl.generator.common.TransformType
 import com.btc.serviceidl.idl.AbstractContainerDeclaration
 import com.btc.serviceidl.idl.AbstractType
@@ -45,6 +48,7 @@ import java.util.Arrays
 import java.util.HashMap
 import java.util.HashSet
 import java.util.Map
+import java.util.Optional
 import java.util.Set
 import org.eclipse.core.runtime.IPath
 import org.eclipse.emf.ecore.EObject
@@ -148,7 +152,8 @@ class DotNetGenerator
             ProjectType.IMPL,
             ProjectType.PROXY,
             ProjectType.DISPATCHER,
-            ProjectType.TEST
+            ProjectType.TEST,
+            ProjectType.BENCHMARK
         ))).forEach[generateProjectStructure(it, module)]
    }
    
@@ -192,6 +197,11 @@ class DotNetGenerator
       {
          generateTest(projectRootPath, interfaceDeclaration)
       }
+      case BENCHMARK:
+      {
+         addGoogleProtocolBuffersReferences()
+         generateBenchmark(projectRootPath, interfaceDeclaration)
+      }
       default:
          throw new IllegalArgumentException("Project type currently not supported: " + paramBundle.projectType)
       }
@@ -358,7 +368,8 @@ class DotNetGenerator
       generateProjectSourceFile(
         projectRootPath,
         dispatcherClassName,
-        new DispatcherGenerator(basicCSharpSourceGenerator).generate(dispatcherClassName, interfaceDeclaration)
+        new DispatcherGenerator(basicCSharpSourceGenerator, metricsEnabled).generate(dispatcherClassName,
+            interfaceDeclaration)
       )
    }
    
@@ -550,6 +561,31 @@ class DotNetGenerator
             generateCsZeroMQIntegrationTest(zmqIntegrationTestName, interfaceDeclaration))        
     }
    
+   private def void generateBenchmark(IPath projectRootPath, InterfaceDeclaration interfaceDeclaration)
+   {
+      val benchmarkName = GeneratorUtil.getClassName(ArtifactNature.DOTNET, ProjectType.BENCHMARK, interfaceDeclaration.name)
+      generateProjectSourceFile(projectRootPath, benchmarkName, generateCsBenchmark(benchmarkName, interfaceDeclaration))
+
+      // the benchmarks of all interfaces of the module share one entry point
+      val programName = "Program"
+      if (!csFiles.contains(programName))
+      {
+         generateProjectSourceFile(projectRootPath, programName, generateCsBenchmarkProgram(programName))
+      }
+   }
+
+   private def generateCsBenchmark(String className, InterfaceDeclaration interfaceDeclaration)
+   {
+      reinitializeFile
+      new BenchmarkGenerator(basicCSharpSourceGenerator).generate(className, interfaceDeclaration)
+   }
+
+   private def generateCsBenchmarkProgram(String className)
+   {
+      reinitializeFile
+      new BenchmarkGenerator(basicCSharpSourceGenerator).generateProgram(className)
+   }
+
    private def generateCsTest(String className, InterfaceDeclaration interfaceDeclaration)
    {
       reinitializeFile
@@ -584,15 +620,24 @@ class DotNetGenerator
 
       
       val proxyClassName = GeneratorUtil.getClassName(ArtifactNature.DOTNET, ProjectType.PROXY, interfaceDeclaration.name)
+      val queryCacheSettings = QueryCacheSettings.get(generationSettings, interfaceDeclaration)
+      val eventBatching = EventBatchSettings.get(generationSettings).present
       generateProjectSourceFile(projectRootPath, proxyClassName,
-            generateProxyImplementation(proxyClassName, interfaceDeclaration))
+            generateProxyImplementation(proxyClassName, interfaceDeclaration, queryCacheSettings, eventBatching))
+      
+      if (queryCacheSettings.present && !csFiles.contains(QueryCacheGenerator.QUERY_CACHE_NAME))
+      {
+         reinitializeFile
+         generateProjectSourceFile(projectRootPath, QueryCacheGenerator.QUERY_CACHE_NAME,
+            new QueryCacheGenerator(basicCSharpSourceGenerator).generate)
+      }
       
       // generate named events
       for (event : interfaceDeclaration.events.filter[name !== null])
       {
          val fileName = toText(event, interfaceDeclaration) + "Impl"
          generateProjectSourceFile(projectRootPath, fileName,
-            new ProxyEventGenerator(basicCSharpSourceGenerator).generateProxyEvent(event, interfaceDeclaration))         
+            new ProxyEventGenerator(basicCSharpSourceGenerator, eventBatching).generateProxyEvent(event, interfaceDeclaration))         
       }
    }
       
@@ -602,11 +647,12 @@ class DotNetGenerator
       new ProxyFactoryGenerator(basicCSharpSourceGenerator).generate(interfaceDeclaration, className)
    }
    
-   private def generateProxyImplementation(String className, InterfaceDeclaration interfaceDeclaration)
+   private def generateProxyImplementation(String className, InterfaceDeclaration interfaceDeclaration,
+      Optional<QueryCacheSettings> queryCacheSettings, boolean eventBatching)
    {
       reinitializeFile
       
-      new ProxyGenerator(basicCSharpSourceGenerator).generate(className, interfaceDeclaration)
+      new ProxyGenerator(basicCSharpSourceGenerator, queryCacheSettings, eventBatching).generate(className, interfaceDeclaration)
    }
    
    private def void generateServiceAPI(IPath projectRootPath, InterfaceDeclaration interfaceDeclaration)
@@ -645,6 +691,19 @@ class DotNetGenerator
       fileName = GeneratorUtil.getClassName(ArtifactNature.DOTNET, ProjectType.SERVICE_API, interfaceDeclaration.name)
       generateProjectSourceFile(projectRootPath, fileName,
           new ServiceAPIGenerator(basicCSharpSourceGenerator).generateInterface(interfaceDeclaration, fileName))
+      
+      // the metrics interface is shared by the dispatchers of all interfaces of the module
+      if (metricsEnabled && !csFiles.contains(MetricsGenerator.METRICS_INTERFACE_NAME))
+      {
+         reinitializeFile
+         generateProjectSourceFile(projectRootPath, MetricsGenerator.METRICS_INTERFACE_NAME,
+            new MetricsGenerator(basicCSharpSourceGenerator).generate)
+      }
+   }
+   
+   private def isMetricsEnabled()
+   {
+      generationSettings.isGeneratorOptionEnabled(GeneratorOptions.METRICS)
    }
    
    private def generateSourceFile(CharSequence mainContent)
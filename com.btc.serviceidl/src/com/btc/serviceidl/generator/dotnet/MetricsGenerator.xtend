@@ -0,0 +1,50 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.dotnet
+
+import org.eclipse.xtend.lib.annotations.Accessors
+
+@Accessors(NONE)
+class MetricsGenerator extends GeneratorBase
+{
+    public static val METRICS_INTERFACE_NAME = "IServiceMetrics"
+
+    def generate()
+    {
+        '''
+            /// <summary>
+            /// Phases of an operation, whose durations are recorded by <see cref="«METRICS_INTERFACE_NAME»"/>.
+            /// </summary>
+            public enum ServiceMetricsPhase
+            {
+               /// <summary>parsing the received message</summary>
+               Parse,
+               /// <summary>decoding the parameters into API types</summary>
+               Decode,
+               /// <summary>executing the operation</summary>
+               Invoke,
+               /// <summary>encoding the result into Protobuf messages</summary>
+               Encode,
+               /// <summary>serializing the response</summary>
+               Serialize
+            }
+
+            /// <summary>
+            /// Receives the durations of the phases of each operation from the generated dispatcher. Implementations
+            /// are called on the request path from arbitrary threads, so they must be thread-safe and cheap.
+            /// </summary>
+            public interface «METRICS_INTERFACE_NAME»
+            {
+               void Record(string operation, ServiceMetricsPhase phase, «resolve("System.TimeSpan")» duration);
+            }
+        '''
+    }
+}
@@ -32,6 +32,7 @@ class NuGetPackageResolver
     // ******************************* PLEASE ALWAYS KEEP THIS LIST ALPHABETICALLY SORTED !!! ******************************* //
     // ServiceComm 0.6
     static val versionMapperCommon = #{
+        "BenchmarkDotNet" -> "0.11.5",
         "BTC.CAB.Commons" -> "1.8.7",
         "BTC.CAB.Logging" -> "1.7.2",
         "CommandLineParser" -> "1.9.71",
@@ -53,6 +54,7 @@ class NuGetPackageResolver
 
     // ******************************* PLEASE ALWAYS KEEP THIS LIST ALPHABETICALLY SORTED !!! ******************************* //
     static val packageMapper = #{
+        "BenchmarkDotNet" -> #["BenchmarkDotNet"],
         "BTC.CAB.Commons.Core.NET" -> #["BTC.CAB.Commons"],
         "BTC.CAB.Logging.API.NET" -> #["BTC.CAB.Logging"],
         "BTC.CAB.Logging.Log4NET" -> #["BTC.CAB.Logging"],
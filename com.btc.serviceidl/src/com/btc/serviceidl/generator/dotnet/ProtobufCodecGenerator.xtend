@@ -53,14 +53,27 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
         '''
             public static class «className»
             {
+               // creates the result list of a sequence codec, presized to the number of elements if it is known
+               private static List<TOut> newList<TOut, TIn>(IEnumerable<TIn> data)
+               {
+                  var collection = data as ICollection<TIn>;
+                  return collection != null ? new List<TOut>(collection.Count) : new List<TOut>();
+               }
+               
                public static IEnumerable<TOut> encodeEnumerable<TOut, TIn>(IEnumerable<TIn> plainData)
                {
-                  return plainData.Select(item => (TOut) encode(item)).ToList();
+                  var encodedData = newList<TOut, TIn>(plainData);
+                  foreach (var item in plainData)
+                     encodedData.Add((TOut) encode(item));
+                  return encodedData;
                }
                
                public static «enumerable»<TOut> encodeFailable<TOut, TIn>(«enumerable»<«task»<TIn>> plainData)
                {
-                  return plainData.Select(item => encodeFailable<TOut, TIn>(item)).ToList();
+                  var encodedData = newList<TOut, «task»<TIn>>(plainData);
+                  foreach (var item in plainData)
+                     encodedData.Add(encodeFailable<TOut, TIn>(item));
+                  return encodedData;
                }
                
                private static TOut encodeFailable<TOut, TIn>(«task»<TIn> plainData)
@@ -112,25 +125,38 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
                // TOut and TIn are necessary here to be able to generate the same calling code as for the generic method above.
                public static IEnumerable<int> encodeEnumerable<TOut, TIn>(IEnumerable<byte> plainData)
                {
-               return plainData.Select(item => (int)item).ToList();
+                  var encodedData = newList<int, byte>(plainData);
+                  foreach (var item in plainData)
+                     encodedData.Add(item);
+                  return encodedData;
                }
             
                // TOut and TIn are necessary here to be able to generate the same calling code as for the generic method above.
                public static IEnumerable<int> encodeEnumerable<TOut, TIn>(IEnumerable<short> plainData)
                {
-                return plainData.Select(item => (int)item).ToList();
+                  var encodedData = newList<int, short>(plainData);
+                  foreach (var item in plainData)
+                     encodedData.Add(item);
+                  return encodedData;
                }
                
                // TOut and TIn are necessary here to be able to generate the same calling code as for the generic method above.
                public static IEnumerable<int> encodeEnumerable<TOut, TIn>(IEnumerable<char> plainData)
                {
-                   return plainData.Select(item => (int)item).ToList();
+                  var encodedData = newList<int, char>(plainData);
+                  foreach (var item in plainData)
+                     encodedData.Add(item);
+                  return encodedData;
                }
                
                // TOut and TIn are necessary here to be able to generate the same calling code as for the generic method above.
                public static IEnumerable<«resolve(TypeResolver.PROTOBUF_UUID_TYPE)»> encodeEnumerable<TOut, TIn>(IEnumerable<«resolve("System.Guid")»> plainData)
                {
-                   return plainData.Select(item => encodeUUID(item)).ToList();
+                   var plainCollection = plainData as ICollection<System.Guid>;
+                   var encodedData = plainCollection != null ? new List<«resolve(TypeResolver.PROTOBUF_UUID_TYPE)»>(plainCollection.Count) : new List<«resolve(TypeResolver.PROTOBUF_UUID_TYPE)»>();
+                   foreach (var item in plainData)
+                      encodedData.Add(encodeUUID(item));
+                   return encodedData;
                }
                
                public static «resolve("System.object")» encode(object plainData)
@@ -150,12 +176,18 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
                
                public static IEnumerable<TOut> decodeEnumerable<TOut, TIn>(IEnumerable<TIn> encodedData)
                {
-                  return encodedData.Select(item => (TOut) decode(item)).ToList();
+                  var plainData = newList<TOut, TIn>(encodedData);
+                  foreach (var item in encodedData)
+                     plainData.Add((TOut) decode(item));
+                  return plainData;
                }
                
                public static «enumerable»<«task»<TOut>> decodeFailable<TOut, TIn>(«enumerable»<TIn> encodedData)
                {
-                  return encodedData.Select(item => decodeFailable<TOut, TIn>(item)).ToList();
+                  var plainData = newList<«task»<TOut>, TIn>(encodedData);
+                  foreach (var item in encodedData)
+                     plainData.Add(decodeFailable<TOut, TIn>(item));
+                  return plainData;
                }
                
                private static «task»<TOut> decodeFailable<TOut, TIn>(TIn encodedData)
@@ -185,22 +217,35 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
                
                public static IEnumerable<byte> decodeEnumerableByte(IEnumerable<int> encodedData)
                {
-                  return encodedData.Select(item => (byte) item).ToList();
+                  var plainData = newList<byte, int>(encodedData);
+                  foreach (var item in encodedData)
+                     plainData.Add((byte) item);
+                  return plainData;
                }
                
                public static IEnumerable<short> decodeEnumerableShort (IEnumerable<int> encodedData)
                {
-                  return encodedData.Select(item => (short)item).ToList();
+                  var plainData = newList<short, int>(encodedData);
+                  foreach (var item in encodedData)
+                     plainData.Add((short) item);
+                  return plainData;
                }
                
                public static IEnumerable<char> decodeEnumerableChar (IEnumerable<int> encodedData)
                {
-                  return encodedData.Select(item => (char)item).ToList();
+                  var plainData = newList<char, int>(encodedData);
+                  foreach (var item in encodedData)
+                     plainData.Add((char) item);
+                  return plainData;
                }
                
                public static IEnumerable<«resolve("System.Guid")»> decodeEnumerableUUID (IEnumerable<«resolve(TypeResolver.PROTOBUF_UUID_TYPE)»> encodedData)
                {
-                  return encodedData.Select(item => decodeUUID(item)).ToList();
+                  var encodedCollection = encodedData as ICollection<«resolve(TypeResolver.PROTOBUF_UUID_TYPE)»>;
+                  var plainData = encodedCollection != null ? new List<System.Guid>(encodedCollection.Count) : new List<System.Guid>();
+                  foreach (var item in encodedData)
+                     plainData.Add(decodeUUID(item));
+                  return plainData;
                }
                
                public static byte decodeByte(int encodedData)
@@ -220,7 +265,13 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
                
                public static «resolve("System.Guid")» decodeUUID(«resolve(TypeResolver.PROTOBUF_UUID_TYPE)» encodedData)
                {
-                  return new System.Guid(encodedData.ToByteArray());
+                  // read the components in place instead of copying the raw bytes first; the layout is the one of Guid.ToByteArray
+                  return new System.Guid(
+                     encodedData[0] | encodedData[1] << 8 | encodedData[2] << 16 | encodedData[3] << 24,
+                     (short) (encodedData[4] | encodedData[5] << 8),
+                     (short) (encodedData[6] | encodedData[7] << 8),
+                     encodedData[8], encodedData[9], encodedData[10], encodedData[11],
+                     encodedData[12], encodedData[13], encodedData[14], encodedData[15]);
                }
                
                public static object decode(object encodedData)
@@ -246,14 +297,13 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
         val apiTypeName = resolve(element)
         val protobufTypeName = resolve(element, ProjectType.PROTOBUF)
 
+
         '''
             «apiTypeName» typedData = («apiTypeName») plainData;
-            «FOR item : element.containedIdentifiers»
-                «IF item != element.containedIdentifiers.head»else «ENDIF»if (typedData == «apiTypeName».«item»)
-                   return «protobufTypeName».«item»;
-            «ENDFOR»
-            else
+            int apiOrdinal = (int) typedData;
+            if (apiOrdinal < 0 || apiOrdinal >= «element.containedIdentifiers.size»)
                throw new «resolve("System.ArgumentOutOfRangeException")»("Unknown value " + typedData.ToString() + " for enumeration «element.name»");
+            return («protobufTypeName») (apiOrdinal + «GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET»);
         '''
     }
 
@@ -338,14 +388,14 @@ class ProtobufCodecGenerator extends ProxyDispatcherGeneratorBase
         val apiTypeName = resolve(element)
         val protobufTypeName = resolve(element, ProjectType.PROTOBUF)
 
+        val offset = GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET
+
         '''
             «protobufTypeName» typedData = («protobufTypeName») encodedData;
-            «FOR item : element.containedIdentifiers»
-                «IF item != element.containedIdentifiers.head»else «ENDIF»if (typedData == «protobufTypeName».«item»)
-                   return «apiTypeName».«item»;
-            «ENDFOR»
-            else
+            int protobufNumber = (int) typedData;
+            if (protobufNumber < «offset» || protobufNumber >= «element.containedIdentifiers.size + offset»)
                throw new «resolve("System.ArgumentOutOfRangeException")»("Unknown value " + typedData.ToString() + " for enumeration «element.name»");
+            return («apiTypeName») (protobufNumber - «offset»);
         '''
     }
 
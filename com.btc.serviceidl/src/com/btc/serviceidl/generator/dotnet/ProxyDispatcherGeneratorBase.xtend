@@ -18,6 +18,7 @@ import com.btc.serviceidl.generator.common.ResolvedName
 import com.btc.serviceidl.generator.common.TransformType
 import com.btc.serviceidl.idl.AbstractContainerDeclaration
 import com.btc.serviceidl.idl.AbstractTypeReference
+import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.PrimitiveType
 import com.btc.serviceidl.util.Constants
@@ -45,6 +46,15 @@ class ProxyDispatcherGeneratorBase extends GeneratorBase
             com.btc.serviceidl.util.Util.asResponse(interfaceDeclaration.name)
     }
 
+    protected def String getProtobufEventBatchClassName(InterfaceDeclaration interfaceDeclaration,
+        EventDeclaration event)
+    {
+        resolve(interfaceDeclaration, ProjectType.PROTOBUF)
+        return GeneratorUtil.getTransformedModuleName(new ParameterBundle.Builder(parameterBundle).with(ProjectType.PROTOBUF).build,
+            ArtifactNature.DOTNET, TransformType.PACKAGE) + Constants.SEPARATOR_PACKAGE +
+            com.btc.serviceidl.util.Util.asEventBatch(event.data.name)
+    }
+
     protected def String getEncodeMethod(AbstractTypeReference type, AbstractContainerDeclaration container)
     {
         val isSequence = com.btc.serviceidl.util.Util.isSequenceType(type)
@@ -153,4 +163,176 @@ class ProxyDispatcherGeneratorBase extends GeneratorBase
         '''
     }
 
+    /**
+     * Computes the hash of the key of an event into keyHash, see
+     * com.btc.serviceidl.util.Extensions#filterKeys.
+     */
+    protected def String makeKeyHash(EventDeclaration event, String value)
+    {
+        '''
+            var keyHash = 0xcbf29ce484222325UL;
+            «FOR key : event.filterKeys»
+                «val keyValue = value + "." + Util.asProperty(key.keyName)»
+                «IF key.type.primitiveType.stringType !== null»
+                    keyHash = HashKey(keyHash, «keyValue»);
+                «ELSEIF key.type.primitiveType.booleanType !== null»
+                    keyHash = HashKey(keyHash, «keyValue» ? 1 : 0, «key.keySize»);
+                «ELSE»
+                    keyHash = HashKey(keyHash, «keyValue», «key.keySize»);
+                «ENDIF»
+            «ENDFOR»
+        '''
+    }
+
+    /**
+     * The base name of the Protobuf messages by which subscribers register the keys of the given event, see
+     * com.btc.serviceidl.util.Extensions#filterKeys.
+     */
+    protected static def String getKeySubscriptionName(EventDeclaration event)
+    {
+        com.btc.serviceidl.util.Util.asKeySubscription(event.data.name)
+    }
+
+    protected def String makeKeyEventTypeGuidFunctions()
+    {
+        '''
+            /// <summary>
+            /// Derives the event type under which the events of a key are published, from the FNV-1a hash of the key.
+            /// </summary>
+            private static «resolve("System.Guid")» MakeKeyEventTypeGuid(Guid eventTypeGuid, ulong keyHash)
+            {
+               var bytes = eventTypeGuid.ToByteArray();
+               for (var i = 0; i < 8; ++i)
+                  bytes[8 + i] ^= (byte) (keyHash >> (56 - 8 * i));
+               return new Guid(bytes);
+            }
+            
+            private static ulong HashKey(ulong hash, string value)
+            {
+               unchecked
+               {
+                  foreach (var b in «resolve("System.Text.Encoding")».UTF8.GetBytes(value))
+                     hash = (hash ^ b) * 0x100000001b3UL;
+                  return hash * 0x100000001b3UL; // terminating zero byte
+               }
+            }
+            
+            private static ulong HashKey(ulong hash, long value, int size)
+            {
+               unchecked
+               {
+                  for (var i = 0; i < size; ++i)
+                     hash = (hash ^ ((ulong) (value >> (8 * i)) & 0xff)) * 0x100000001b3UL;
+                  return hash;
+               }
+            }
+        '''
+    }
+
+    /**
+     * Subscribes the subscriber to both the single events and the batches of events, see
+     * com.btc.serviceidl.generator.common.EventBatchSettings.
+     */
+    protected def String makeEventBatchSubscribe(EventDeclaration event, String subscriber)
+    {
+        val eventTypeGuid = toText(event.data, event) + "." + Util.eventTypeGuidProperty
+        val eventKind = resolve("BTC.CAB.ServiceComm.NET.API.EventKind") + ".EventKindPublishSubscribe"
+
+        '''
+            _endpoint.EventRegistry.CreateEventRegistration(«eventTypeGuid», «eventKind», «eventTypeGuid».ToString());
+            var subscription = _endpoint.EventRegistry.SubscriberManager.Subscribe(«eventTypeGuid», new «Util.getDeserializingObserverName(event)»(«subscriber»));
+            var batchEventTypeGuid = MakeBatchEventTypeGuid(«eventTypeGuid»);
+            _endpoint.EventRegistry.CreateEventRegistration(batchEventTypeGuid, «eventKind», batchEventTypeGuid.ToString());
+            var batchSubscription = _endpoint.EventRegistry.SubscriberManager.Subscribe(batchEventTypeGuid, new «Util.getBatchDeserializingObserverName(event)»(«subscriber»));
+            return new Subscriptions(new[] { subscription, batchSubscription });
+        '''
+    }
+
+    protected def String makeBatchEventTypeGuidFunction()
+    {
+        '''
+            /// <summary>
+            /// Derives the event type under which batching publishers send the batches of an event.
+            /// </summary>
+            private static «resolve("System.Guid")» MakeBatchEventTypeGuid(Guid eventTypeGuid)
+            {
+               var bytes = eventTypeGuid.ToByteArray();
+               for (var i = 8; i < 16; ++i)
+                  bytes[i] = (byte) ~bytes[i];
+               return new Guid(bytes);
+            }
+        '''
+    }
+
+    protected def String makeBatchDeserializingObserver(EventDeclaration event,
+        InterfaceDeclaration interfaceDeclaration, boolean useMessageBuffer)
+    {
+        val observerName = Util.getBatchDeserializingObserverName(event)
+        val eventTypeName = toText(event.data, event)
+        val batchClassName = getProtobufEventBatchClassName(interfaceDeclaration, event)
+
+        '''
+            «IF useMessageBuffer»
+                class «observerName» : «resolve("System.IObserver")»<«resolve("BTC.CAB.ServiceComm.NET.Common.IMessageBuffer")»>
+            «ELSE»
+                class «observerName» : «resolve("System.IObserver")»<«resolve("System.Byte[]")»>
+            «ENDIF»
+            {
+                private readonly «resolve("System.IObserver")»<«eventTypeName»> _subscriber;
+
+                public «observerName»(«resolve("System.IObserver")»<«eventTypeName»> subscriber)
+                {
+                    _subscriber = subscriber;
+                }
+
+                «IF useMessageBuffer»
+                    public void OnNext(«resolve("BTC.CAB.ServiceComm.NET.Common.IMessageBuffer")» value)
+                    {
+                        var batch = «batchClassName».ParseFrom(value.PopFront());
+                «ELSE»
+                    public void OnNext(«resolve("System.Byte[]")» value)
+                    {
+                        var batch = «batchClassName».ParseFrom(value);
+                «ENDIF»
+                    foreach (var protobufEvent in batch.EventsList)
+                    {
+                        _subscriber.OnNext((«eventTypeName»)«Util.resolveCodec(typeResolver, parameterBundle, interfaceDeclaration)».decode(protobufEvent));
+                    }
+                }
+
+                public void OnError(Exception error)
+                {
+                    _subscriber.OnError(error);
+                }
+
+                public void OnCompleted()
+                {
+                    _subscriber.OnCompleted();
+                }
+            }
+        '''
+    }
+
+    protected def String makeSubscriptionsClass()
+    {
+        '''
+            class Subscriptions : «resolve("System.IDisposable")»
+            {
+                private readonly «resolve("System.Collections.Generic.IEnumerable")»<IDisposable> _subscriptions;
+                
+                public Subscriptions(IEnumerable<IDisposable> subscriptions)
+                {
+                    _subscriptions = subscriptions;
+                }
+                
+                public void Dispose()
+                {
+                    foreach (var subscription in _subscriptions)
+                    {
+                        subscription.Dispose();
+                    }
+                }
+            }
+        '''
+    }
 }
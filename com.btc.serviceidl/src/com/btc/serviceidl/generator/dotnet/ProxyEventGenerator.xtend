@@ -12,36 +12,144 @@ package com.btc.serviceidl.generator.dotnet
 
 import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
+import com.btc.serviceidl.util.Constants
 import org.eclipse.xtend.lib.annotations.Accessors
 
 import static com.btc.serviceidl.generator.dotnet.Util.*
 
+import static extension com.btc.serviceidl.generator.dotnet.ProtobufUtil.*
+import static extension com.btc.serviceidl.util.Extensions.*
+
 @Accessors(NONE)
 class ProxyEventGenerator extends ProxyDispatcherGeneratorBase
 {
+    val boolean eventBatching
+
+    new(BasicCSharpSourceGenerator basicCSharpSourceGenerator, boolean eventBatching)
+    {
+        super(basicCSharpSourceGenerator)
+        this.eventBatching = eventBatching
+    }
+
     def String generateProxyEvent(EventDeclaration event, InterfaceDeclaration interfaceDeclaration)
     {
         val deserialazingObserver = getDeserializingObserverName(event)
         val serviceCommVersion_V0_6 = getTargetVersion() == ServiceCommVersion.V0_6
 
-        // TODO: Handling for keys.
         '''
             public class «toText(event, event)»Impl : «toText(event, event)»
             {
                   private readonly «resolve("BTC.CAB.ServiceComm.NET.API.IClientEndpoint")» _endpoint;
-                  
-                  public «toText(event, event)»Impl(«resolve("BTC.CAB.ServiceComm.NET.API.IClientEndpoint")» endpoint)
-                  {
-                      _endpoint = endpoint;
-                  }
+                  «IF !event.filterKeys.empty»
+                      private readonly «resolve("BTC.CAB.ServiceComm.NET.API.IClientServiceReference")» _serviceReference;
+                      
+                      public «toText(event, event)»Impl(IClientEndpoint endpoint, IClientServiceReference serviceReference)
+                      {
+                          _endpoint = endpoint;
+                          _serviceReference = serviceReference;
+                      }
+                  «ELSE»
+                      
+                      public «toText(event, event)»Impl(«resolve("BTC.CAB.ServiceComm.NET.API.IClientEndpoint")» endpoint)
+                      {
+                          _endpoint = endpoint;
+                      }
+                  «ENDIF»
                   
                   /// <see cref="IObservable{T}.Subscribe"/>
                   public override «resolve("System.IDisposable")» Subscribe(«resolve("System.IObserver")»<«toText(event.data, event)»> subscriber)
                   {
-                      _endpoint.EventRegistry.CreateEventRegistration(«toText(event.data, event)».«eventTypeGuidProperty», EventKind.EventKindPublishSubscribe, «toText(event.data, event)».«eventTypeGuidProperty».ToString());
-                      return _endpoint.EventRegistry.SubscriberManager.Subscribe(«toText(event.data, event)».«eventTypeGuidProperty», new «deserialazingObserver»(subscriber));
+                      «IF eventBatching»
+                          «makeEventBatchSubscribe(event, "subscriber")»
+                      «ELSE»
+                          _endpoint.EventRegistry.CreateEventRegistration(«toText(event.data, event)».«eventTypeGuidProperty», EventKind.EventKindPublishSubscribe, «toText(event.data, event)».«eventTypeGuidProperty».ToString());
+                          return _endpoint.EventRegistry.SubscriberManager.Subscribe(«toText(event.data, event)».«eventTypeGuidProperty», new «deserialazingObserver»(subscriber));
+                      «ENDIF»
                   }
                   
+                  «IF eventBatching»
+                      «makeBatchEventTypeGuidFunction»
+                      
+                  «ENDIF»
+                  «IF !event.filterKeys.empty»
+                      «val requestName = com.btc.serviceidl.util.Util.asRequest(event.keySubscriptionName)»
+                      «val protobufRequest = getProtobufRequestClassName(interfaceDeclaration)»
+                      /// <summary>
+                      /// Subscribes to the event types of the given keys, to which the publisher sends the matching events only.
+                      /// The keys are registered with the publisher, which publishes the events of a key while it has
+                      /// subscriptions, and unregistered when the subscription is disposed.
+                      /// </summary>
+                      public override IDisposable Subscribe(IObserver<«toText(event.data, event)»> subscriber, «resolve("System.Collections.Generic.IEnumerable")»<KeyType> keys)
+                      {
+                          var keyHashes = new «resolve("System.Collections.Generic.List")»<ulong>(«resolve("System.Linq.Enumerable")».Distinct(keys.Select(key => HashKey(key))));
+                          var subscriptions = new List<IDisposable>();
+                          foreach (var keyHash in keyHashes)
+                          {
+                              var eventTypeGuid = MakeKeyEventTypeGuid(«toText(event.data, event)».«eventTypeGuidProperty», keyHash);
+                              _endpoint.EventRegistry.CreateEventRegistration(eventTypeGuid, EventKind.EventKindPublishSubscribe, eventTypeGuid.ToString());
+                              subscriptions.Add(_endpoint.EventRegistry.SubscriberManager.Subscribe(eventTypeGuid, new «deserialazingObserver»(subscriber)));
+                          }
+                          RequestKeySubscription(keyHashes, new ulong[0]);
+                          subscriptions.Add(new KeySubscription(this, keyHashes));
+                          return new Subscriptions(subscriptions);
+                      }
+                      
+                      private void RequestKeySubscription(IEnumerable<ulong> subscribedKeyHashes, IEnumerable<ulong> unsubscribedKeyHashes)
+                      {
+                          var request = «protobufRequest».CreateBuilder().Set«requestName.asDotNetProtobufName»(«protobufRequest».Types.«requestName».CreateBuilder()
+                             .AddRange«Constants.PROTOBUF_SUBSCRIBED_KEY_HASHES.asDotNetProtobufName»(subscribedKeyHashes)
+                             .AddRange«Constants.PROTOBUF_UNSUBSCRIBED_KEY_HASHES.asDotNetProtobufName»(unsubscribedKeyHashes)).BuildPartial();
+                          «IF serviceCommVersion_V0_6»
+                              _serviceReference.RequestAsync(new «resolve("BTC.CAB.ServiceComm.NET.Common.MessageBuffer")»(request.ToByteArray())).Wait();
+                          «ELSE»
+                              _serviceReference.RequestAsync(request.ToByteArray()).Wait();
+                          «ENDIF»
+                      }
+                      
+                      private static ulong HashKey(KeyType key)
+                      {
+                          «makeKeyHash(event, "key")»
+                          return keyHash;
+                      }
+                      
+                      «makeKeyEventTypeGuidFunctions»
+                      
+                      /// <summary>
+                      /// Unregisters the keys of a subscription with the publisher when it is disposed.
+                      /// </summary>
+                      class KeySubscription : IDisposable
+                      {
+                          private readonly «toText(event, event)»Impl _event;
+                          private readonly IEnumerable<ulong> _keyHashes;
+                          
+                          public KeySubscription(«toText(event, event)»Impl @event, IEnumerable<ulong> keyHashes)
+                          {
+                              _event = @event;
+                              _keyHashes = keyHashes;
+                          }
+                          
+                          public void Dispose()
+                          {
+                              _event.RequestKeySubscription(new ulong[0], _keyHashes);
+                          }
+                      }
+                      
+                  «ELSEIF !event.keys.empty»
+                      /// <see cref="«toText(event, event)».Subscribe"/>
+                      public override IDisposable Subscribe(IObserver<«toText(event.data, event)»> subscriber, «resolve("System.Collections.Generic.IEnumerable")»<KeyType> keys)
+                      {
+                          throw new «resolve("System.NotSupportedException")»();
+                      }
+                      
+                  «ENDIF»
+                  «IF eventBatching || !event.filterKeys.empty»
+                      «makeSubscriptionsClass»
+                      
+                  «ENDIF»
+                  «IF eventBatching»
+                      «makeBatchDeserializingObserver(event, interfaceDeclaration, serviceCommVersion_V0_6)»
+                      
+                  «ENDIF»
                   «IF serviceCommVersion_V0_6»
                       class «deserialazingObserver» : «resolve("System.IObserver")»<«resolve("BTC.CAB.ServiceComm.NET.Common.IMessageBuffer")»>
                   «ELSE»
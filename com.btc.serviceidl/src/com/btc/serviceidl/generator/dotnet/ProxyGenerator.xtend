@@ -13,9 +13,11 @@ package com.btc.serviceidl.generator.dotnet
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.FeatureProfile
 import com.btc.serviceidl.generator.common.GeneratorUtil
+import com.btc.serviceidl.generator.common.QueryCacheSettings
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ParameterDirection
 import com.btc.serviceidl.idl.VoidType
+import java.util.Optional
 import org.eclipse.xtend.lib.annotations.Accessors
 
 import static extension com.btc.serviceidl.generator.dotnet.ProtobufUtil.*
@@ -25,6 +27,17 @@ import static extension com.btc.serviceidl.util.Extensions.*
 @Accessors(NONE)
 class ProxyGenerator extends ProxyDispatcherGeneratorBase {
 
+    val Optional<QueryCacheSettings> queryCacheSettings
+    val boolean eventBatching
+
+    new(BasicCSharpSourceGenerator basicCSharpSourceGenerator, Optional<QueryCacheSettings> queryCacheSettings,
+        boolean eventBatching)
+    {
+        super(basicCSharpSourceGenerator)
+        this.queryCacheSettings = queryCacheSettings
+        this.eventBatching = eventBatching
+    }
+
     def generate(String className, InterfaceDeclaration interfaceDeclaration)
     {
       val apiFullyQualifiedName = resolve(interfaceDeclaration)
@@ -41,6 +54,10 @@ class ProxyGenerator extends ProxyDispatcherGeneratorBase {
       {
          private readonly «resolve("BTC.CAB.ServiceComm.NET.API.IClientEndpoint")» _endpoint;
          private readonly «resolve("BTC.CAB.ServiceComm.NET.API.IClientServiceReference")» _serviceReference;
+         «IF queryCacheSettings.present»
+            «val cachedResponse = if (serviceCommVersion_V0_6) getProtobufResponseClassName(interfaceDeclaration) else "byte[]"»
+            private readonly «QueryCacheGenerator.QUERY_CACHE_NAME»<«cachedResponse»> _queryCache = new «QueryCacheGenerator.QUERY_CACHE_NAME»<«cachedResponse»>(«queryCacheSettings.get.maxEntries», «queryCacheSettings.get.ttlMillis»);
+         «ENDIF»
          
          public «className»(IClientEndpoint endpoint)
          {
@@ -60,6 +77,7 @@ class ProxyGenerator extends ProxyDispatcherGeneratorBase {
             «val isVoid = function.returnedType instanceof VoidType»
             «val returnType = if (isVoid) null else resolveDecode(function.returnedType.actualType)»
             «val isSync = function.isSync»
+            «val isCached = function.query && queryCacheSettings.present»
             /// <see cref="«apiFullyQualifiedName».«function.name»"/>
             public «typeResolver.makeReturnType(function)» «function.name»(
                «FOR param : function.parameters SEPARATOR ","»
@@ -88,13 +106,25 @@ class ProxyGenerator extends ProxyDispatcherGeneratorBase {
                   «ENDFOR»
                   
                «ENDIF»
-               «IF serviceCommVersion_V0_6»
+               «IF serviceCommVersion_V0_6 && isCached»
+                    // identical queries are answered from the cache, which holds the parsed responses, since a
+                    // message buffer is consumed when it is parsed
+                    var requestBytes = protobufRequest.ToByteArray();
+                    var result = _queryCache.Get(requestBytes, () => _serviceReference.RequestAsync(new «resolve("BTC.CAB.ServiceComm.NET.Common.MessageBuffer")»(requestBytes))
+                       .ContinueWith(task => «apiResponseName».ParseFrom(task.Result.PopFront()), «resolve("System.Threading.Tasks.TaskContinuationOptions")».ExecuteSynchronously)).ContinueWith(task =>
+               «ELSEIF serviceCommVersion_V0_6»
                     var result =_serviceReference.RequestAsync(new «resolve("BTC.CAB.ServiceComm.NET.Common.MessageBuffer")»(protobufRequest.ToByteArray())).ContinueWith(task =>
+               «ELSEIF isCached»
+                    // identical queries are answered from the cache
+                    var requestBytes = protobufRequest.ToByteArray();
+                    var result = _queryCache.Get(requestBytes, () => _serviceReference.RequestAsync(requestBytes)).ContinueWith(task =>
                «ELSE»
                     var result =_serviceReference.RequestAsync(protobufRequest.ToByteArray()).ContinueWith(task =>
                «ENDIF»
                {
-                  «IF serviceCommVersion_V0_6»
+                  «IF serviceCommVersion_V0_6 && isCached»
+                     «apiResponseName» response = task.Result;
+                  «ELSEIF serviceCommVersion_V0_6»
                      «apiResponseName» response = «apiResponseName».ParseFrom(task.Result.PopFront());
                   «ELSE»
                      «apiResponseName» response = «apiResponseName».ParseFrom(task.Result);
@@ -140,7 +170,7 @@ class ProxyGenerator extends ProxyDispatcherGeneratorBase {
             /// <see cref="«apiFullyQualifiedName».Get«eventName»"/>
             public «eventName» Get«eventName»()
             {
-               return new «eventName»Impl(_endpoint);
+               return new «eventName»Impl(_endpoint«IF !event.filterKeys.empty», _serviceReference«ENDIF»);
             }
          «ENDFOR»
          «val anonymousEvent = com.btc.serviceidl.util.Util.getAnonymousEvent(interfaceDeclaration)»
@@ -151,10 +181,22 @@ class ProxyGenerator extends ProxyDispatcherGeneratorBase {
             /// <see cref="System.IObservable.Subscribe"/>
             public «resolve("System.IDisposable")» Subscribe(«resolve("System.IObserver")»<«eventTypeName»> observer)
             {
-               _endpoint.EventRegistry.CreateEventRegistration(«eventTypeName».«eventTypeGuidProperty», «resolve("BTC.CAB.ServiceComm.NET.API.EventKind")».EventKindPublishSubscribe, «eventTypeName».«eventTypeGuidProperty».ToString());
-               return _endpoint.EventRegistry.SubscriberManager.Subscribe(«resolve(anonymousEvent.data)».«eventTypeGuidProperty», new «deserializingObserver»(observer));
+               «IF eventBatching»
+                  «makeEventBatchSubscribe(anonymousEvent, "observer")»
+               «ELSE»
+                  _endpoint.EventRegistry.CreateEventRegistration(«eventTypeName».«eventTypeGuidProperty», «resolve("BTC.CAB.ServiceComm.NET.API.EventKind")».EventKindPublishSubscribe, «eventTypeName».«eventTypeGuidProperty».ToString());
+                  return _endpoint.EventRegistry.SubscriberManager.Subscribe(«resolve(anonymousEvent.data)».«eventTypeGuidProperty», new «deserializingObserver»(observer));
+               «ENDIF»
             }
             
+            «IF eventBatching»
+               «makeBatchEventTypeGuidFunction»
+               
+               «makeSubscriptionsClass»
+               
+               «makeBatchDeserializingObserver(anonymousEvent, interfaceDeclaration, true)»
+               
+            «ENDIF»
             class «deserializingObserver» : «resolve("System.IObserver")»<«resolve("BTC.CAB.ServiceComm.NET.Common.IMessageBuffer")»>
             {
                 private readonly «resolve("System.IObserver")»<«toText(anonymousEvent.data, anonymousEvent)»> _subscriber;
@@ -0,0 +1,144 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.dotnet
+
+import org.eclipse.xtend.lib.annotations.Accessors
+
+@Accessors(NONE)
+class QueryCacheGenerator extends GeneratorBase
+{
+    public static val QUERY_CACHE_NAME = "QueryCache"
+
+    def generate()
+    {
+        val stopwatch = resolve("System.Diagnostics.Stopwatch")
+        val task = resolve("System.Threading.Tasks.Task")
+        val linkedList = resolve("System.Collections.Generic.LinkedList")
+        val linkedListNode = resolve("System.Collections.Generic.LinkedListNode")
+
+        '''
+            /// <summary>
+            /// Caches the responses of query operations by their encoded request. It holds at most a fixed number of
+            /// requests, evicting the least recently used one first, and uses a response for a fixed time after it was
+            /// received. Identical requests share a single call while it is in flight, and failed calls are not cached.
+            /// </summary>
+            /// <typeparam name="TResponse">the encoded or the parsed response, which must not be modified by callers</typeparam>
+            public class «QUERY_CACHE_NAME»<TResponse>
+            {
+               private readonly int _maxEntries;
+               private readonly long _ttlTicks;
+               private readonly object _lock = new object();
+               private readonly «resolve("System.Collections.Generic.Dictionary")»<string, «linkedListNode»<Entry>> _entries = new Dictionary<string, LinkedListNode<Entry>>();
+               // most recently used first
+               private readonly «linkedList»<Entry> _usage = new LinkedList<Entry>();
+               
+               public «QUERY_CACHE_NAME»(int maxEntries, long ttlMilliseconds)
+               {
+                  _maxEntries = maxEntries;
+                  _ttlTicks = ttlMilliseconds * «stopwatch».Frequency / 1000;
+               }
+               
+               /// <returns>the cached or in-flight response to the request, or else the response of the given call</returns>
+               public «task»<TResponse> Get(byte[] request, «resolve("System.Func")»<Task<TResponse>> call)
+               {
+                  var key = «resolve("System.Convert")».ToBase64String(request);
+                  Entry entry;
+                  lock (_lock)
+                  {
+                     LinkedListNode<Entry> node;
+                     if (_entries.TryGetValue(key, out node))
+                     {
+                        _usage.Remove(node);
+                        if (node.Value.Expiry > «stopwatch».GetTimestamp())
+                        {
+                           _usage.AddFirst(node);
+                           return node.Value.Response.Task;
+                        }
+                        _entries.Remove(key);
+                     }
+                     
+                     entry = new Entry(key);
+                     _entries[key] = _usage.AddFirst(entry);
+                     while (_entries.Count > _maxEntries)
+                     {
+                        _entries.Remove(_usage.Last.Value.Key);
+                        _usage.RemoveLast();
+                     }
+                  }
+                  
+                  try
+                  {
+                     call().ContinueWith(task =>
+                     {
+                        if (task.IsFaulted || task.IsCanceled)
+                        {
+                           Remove(entry);
+                           if (task.IsFaulted)
+                              entry.Response.SetException(task.Exception.InnerExceptions);
+                           else
+                              entry.Response.SetCanceled();
+                        }
+                        else
+                        {
+                           lock (_lock)
+                           {
+                              entry.Expiry = «stopwatch».GetTimestamp() + _ttlTicks;
+                           }
+                           entry.Response.SetResult(task.Result);
+                        }
+                     }, «resolve("System.Threading.Tasks.TaskContinuationOptions")».ExecuteSynchronously);
+                  }
+                  catch («resolve("System.Exception")» e)
+                  {
+                     Remove(entry);
+                     entry.Response.SetException(e);
+                  }
+                  return entry.Response.Task;
+               }
+               
+               public void Clear()
+               {
+                  lock (_lock)
+                  {
+                     _entries.Clear();
+                     _usage.Clear();
+                  }
+               }
+               
+               private void Remove(Entry entry)
+               {
+                  lock (_lock)
+                  {
+                     LinkedListNode<Entry> node;
+                     if (_entries.TryGetValue(entry.Key, out node) && node.Value == entry)
+                     {
+                        _entries.Remove(entry.Key);
+                        _usage.Remove(node);
+                     }
+                  }
+               }
+               
+               private class Entry
+               {
+                  public readonly string Key;
+                  public readonly «resolve("System.Threading.Tasks.TaskCompletionSource")»<TResponse> Response = new TaskCompletionSource<TResponse>();
+                  // in flight until the response is received
+                  public long Expiry = long.MaxValue;
+                  
+                  public Entry(string key)
+                  {
+                     Key = key;
+                  }
+               }
+            }
+        '''
+    }
+}
@@ -26,6 +26,7 @@ import com.btc.serviceidl.idl.PrimitiveType
 import com.btc.serviceidl.idl.ReturnTypeElement
 import com.btc.serviceidl.util.Constants
 import java.util.HashSet
+import java.util.LinkedHashSet
 import java.util.Set
 import java.util.regex.Pattern
 import org.eclipse.xtend.lib.annotations.Accessors
@@ -45,7 +46,7 @@ class TypeResolver
     val Set<String> namespaceReferences
     val Set<FailableAlias> failableAliases
     val Set<String> referencedAssemblies = new HashSet<String>
-    val Set<ParameterBundle> projectReferences = new HashSet<ParameterBundle>
+    val Set<ParameterBundle> projectReferences = new LinkedHashSet<ParameterBundle>
     val NuGetPackageResolver nugetPackageResolver
     val VSSolution vsSolution
     val ParameterBundle parameterBundle
@@ -133,6 +133,11 @@ class Util
         (event.name ?: "") + "DeserializingObserver"
     }
 
+    def static String getBatchDeserializingObserverName(EventDeclaration event)
+    {
+        (event.name ?: "") + "BatchDeserializingObserver"
+    }
+
     def static String getTestClassName(InterfaceDeclaration interfaceDeclaration)
     {
         interfaceDeclaration.name + "Test"
@@ -206,7 +211,8 @@ class Util
             {
                 type = typeResolver.resolveFailableType(type)
             }
-            return '''new «typeResolver.resolve("System.Collections.Generic.List")»<«type»>()«typeResolver.asEnumerable»'''
+            val typicalLength = element.typicalLength
+            return '''new «typeResolver.resolve("System.Collections.Generic.List")»<«type»>(«IF typicalLength.present»«typicalLength.get»«ENDIF»)«typeResolver.asEnumerable»'''
         }
         else if (element instanceof StructDeclaration)
         {
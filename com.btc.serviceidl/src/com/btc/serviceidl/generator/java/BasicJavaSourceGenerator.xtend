@@ -280,9 +280,10 @@ class BasicJavaSourceGenerator
     {
         val type = toText(element.type)
         val isFailable = element.failable
+        val typicalLength = element.typicalLength
 
         // TODO this should better use Collections.emptyList
-        '''new «typeResolver.resolve("java.util.Vector")»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«type»«IF isFailable»>«ENDIF»>()'''
+        '''new «typeResolver.resolve("java.util.Vector")»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«type»«IF isFailable»>«ENDIF»>(«IF typicalLength.present»«typicalLength.get»«ENDIF»)'''
     }
 
     def dispatch String makeDefaultValue(StructDeclaration element)
@@ -0,0 +1,182 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.java
+
+import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.GeneratorUtil
+import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.generator.common.ProtobufType
+import com.btc.serviceidl.idl.FunctionDeclaration
+import com.btc.serviceidl.idl.InterfaceDeclaration
+import com.btc.serviceidl.idl.ParameterDirection
+import com.btc.serviceidl.idl.StructDeclaration
+import com.btc.serviceidl.idl.VoidType
+import com.btc.serviceidl.util.Constants
+import java.util.Optional
+import org.eclipse.xtend.lib.annotations.Accessors
+
+import static extension com.btc.serviceidl.generator.common.Extensions.*
+import static extension com.btc.serviceidl.generator.java.BasicJavaSourceGenerator.*
+import static extension com.btc.serviceidl.generator.java.ProtobufUtil.*
+import static extension com.btc.serviceidl.util.Extensions.*
+import static extension com.btc.serviceidl.util.Util.*
+
+@Accessors(NONE)
+class BenchmarkGenerator
+{
+    val BasicJavaSourceGenerator basicJavaSourceGenerator
+
+    private def getTypeResolver()
+    {
+        basicJavaSourceGenerator.typeResolver
+    }
+
+    def generateBenchmark(String className, InterfaceDeclaration interfaceDeclaration)
+    {
+        // the annotation processor generates the actual benchmark harness at compile time
+        typeResolver.addDependency(
+            new MavenDependency.Builder().groupId("org.openjdk.jmh").artifactId("jmh-generator-annprocess").version(
+                DependencyVersions.JMH).scope("provided").build)
+
+        val structs = GeneratorUtil.getEncodableTypes(interfaceDeclaration).filter(StructDeclaration)
+        // the ServiceComm 0.3 dispatcher works on IMessageBuffer, which cannot be created without an endpoint, so only
+        // the codecs are benchmarked there
+        val benchmarkDispatcher = basicJavaSourceGenerator.javaTargetVersion != ServiceCommVersion.V0_3
+        val protobufResponse = resolveProtobuf(typeResolver, interfaceDeclaration, Optional.of(ProtobufType.RESPONSE))
+        val dispatcherName = typeResolver.resolve(interfaceDeclaration, ProjectType.DISPATCHER)
+
+        '''
+            /**
+             * Measures the encoding and decoding of the data types of «interfaceDeclaration.name» and the round trip
+             * of requests through the generated dispatcher, without any transport. Run e.g. with
+             * mvn compile exec:java -Dexec.mainClass=org.openjdk.jmh.Main
+             */
+            @«typeResolver.resolve(JavaClassNames.JMH_STATE)»(«typeResolver.resolve(JavaClassNames.JMH_SCOPE)».Benchmark)
+            public class «className» {
+
+               «FOR struct : structs»
+                   private «typeResolver.resolve(struct)» plain«struct.name»;
+                   private «resolveProtobuf(typeResolver, struct, Optional.empty)» encoded«struct.name»;
+               «ENDFOR»
+               «IF benchmarkDispatcher»
+                   private «dispatcherName» dispatcher;
+                   «FOR function : interfaceDeclaration.functions»
+                       private byte[] «function.name.toFirstLower»Request;
+                   «ENDFOR»
+               «ENDIF»
+
+               «typeResolver.resolve(JavaClassNames.JMH_SETUP).alias("@Setup")»
+               public void setUp() throws Exception {
+                  «FOR struct : structs»
+                      plain«struct.name» = «basicJavaSourceGenerator.makeDefaultValue(struct)»;
+                      encoded«struct.name» = («resolveProtobuf(typeResolver, struct, Optional.empty)») «resolveCodec(struct, typeResolver)».encode(plain«struct.name»);
+                  «ENDFOR»
+                  «IF benchmarkDispatcher»
+                      dispatcher = new «dispatcherName»(new BenchmarkDispatchee(), new «typeResolver.resolve("com.btc.cab.servicecomm.protobuf.ProtobufSerializer")»());
+                      «FOR function : interfaceDeclaration.functions»
+                          «function.name.toFirstLower»Request = make«function.name»Request();
+                      «ENDFOR»
+                  «ENDIF»
+               }
+               «FOR struct : structs»
+
+                   «typeResolver.resolve(JavaClassNames.JMH_BENCHMARK).alias("@Benchmark")»
+                   public Object encode«struct.name»() {
+                      return «resolveCodec(struct, typeResolver)».encode(plain«struct.name»);
+                   }
+
+                   «typeResolver.resolve(JavaClassNames.JMH_BENCHMARK).alias("@Benchmark")»
+                   public Object decode«struct.name»() {
+                      return «resolveCodec(struct, typeResolver)».decode(encoded«struct.name»);
+                   }
+               «ENDFOR»
+               «IF benchmarkDispatcher»
+                   «FOR function : interfaceDeclaration.functions»
+
+                       «typeResolver.resolve(JavaClassNames.JMH_BENCHMARK).alias("@Benchmark")»
+                       public «protobufResponse» dispatch«function.name»() throws Exception {
+                          return «protobufResponse».parseFrom(dispatcher.processRequest(«function.name.toFirstLower»Request, null, null));
+                       }
+                   «ENDFOR»
+                   «FOR function : interfaceDeclaration.functions»
+
+                       «generateMakeRequest(function, interfaceDeclaration)»
+                   «ENDFOR»
+
+                   «generateDispatchee(interfaceDeclaration)»
+               «ENDIF»
+            }
+        '''
+    }
+
+    private def generateMakeRequest(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        val protobufRequest = resolveProtobuf(typeResolver, interfaceDeclaration, Optional.of(ProtobufType.REQUEST))
+        val requestMessage = protobufRequest + Constants.SEPARATOR_PACKAGE + function.name.asRequest
+        val inParams = function.parameters.filter[direction == ParameterDirection.PARAM_IN]
+
+        '''
+            private static byte[] make«function.name»Request() {
+               «FOR param : inParams»
+                   «basicJavaSourceGenerator.toText(param.paramType)» «param.paramName.asParameter» = «basicJavaSourceGenerator.makeDefaultValue(param.paramType)»;
+               «ENDFOR»
+               «requestMessage» request«function.name» = «requestMessage».newBuilder()
+               «FOR param : inParams»
+                   «val isSequence = param.paramType.isSequenceType»
+                   «val isFailable = isSequence && param.paramType.isFailable»
+                   «val useCodec = GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.JAVA) || isFailable»
+                   «val codec = resolveCodec(param.paramType.actualType, typeResolver)»
+                   .«IF isSequence»addAll«ELSE»set«ENDIF»«param.paramName.asJavaProtobufName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(typeResolver, param.paramType.actualType, Optional.empty)») «ENDIF»«IF isFailable»«resolveFailableEncode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, param.paramType.actualType, interfaceDeclaration)»«ELSE»«codec».encode«ENDIF»(«ENDIF»«param.paramName.asParameter»«IF useCodec»)«ENDIF»)
+               «ENDFOR»
+               .build();
+
+               return «protobufRequest».newBuilder()
+                  .set«function.name.asJavaProtobufName»«Constants.PROTOBUF_REQUEST»(request«function.name»)
+                  .build()
+                  .toByteArray();
+            }
+        '''
+    }
+
+    private def generateDispatchee(InterfaceDeclaration interfaceDeclaration)
+    {
+        val apiName = typeResolver.resolve(interfaceDeclaration)
+
+        '''
+            /**
+             * Returns default values immediately, such that only the dispatching and the encoding are measured.
+             */
+            private static class BenchmarkDispatchee implements «apiName» {
+               «FOR function : interfaceDeclaration.functions»
+                   «val isVoid = function.returnedType instanceof VoidType»
+                   «val result = if (isVoid) "null" else basicJavaSourceGenerator.makeDefaultValue(function.returnedType)»
+
+                   @Override
+                   public «basicJavaSourceGenerator.makeInterfaceMethodSignature(function)» {
+                      «IF !function.sync»
+                          return «typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)».completedFuture(«result»);
+                      «ELSEIF !isVoid»
+                          return «result»;
+                      «ENDIF»
+                   }
+               «ENDFOR»
+               «FOR event : interfaceDeclaration.namedEvents»
+                   «val observableName = basicJavaSourceGenerator.toText(event)»
+
+                   @Override
+                   public «observableName» get«observableName»() {
+                      «makeDefaultMethodStub»
+                   }
+               «ENDFOR»
+            }
+        '''
+    }
+}
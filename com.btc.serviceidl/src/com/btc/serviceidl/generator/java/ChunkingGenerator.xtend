@@ -0,0 +1,237 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.java
+
+import org.eclipse.xtend.lib.annotations.Accessors
+
+/**
+ * Generates the helpers for results which are transferred in chunks, see
+ * com.btc.serviceidl.util.Util#getChunkSize.
+ */
+@Accessors(NONE)
+class ChunkingGenerator
+{
+    public static val CHUNKED_RESULTS_NAME = "ChunkedResults"
+    public static val CHUNKED_COLLECTION_NAME = "ChunkedCollection"
+
+    val BasicJavaSourceGenerator basicJavaSourceGenerator
+
+    private def getTypeResolver()
+    {
+        basicJavaSourceGenerator.typeResolver
+    }
+
+    def generateChunkedResults()
+    {
+        val iterator = typeResolver.resolve("java.util.Iterator")
+        val list = typeResolver.resolve("java.util.List")
+
+        '''
+            /**
+             * Holds the results of an operation which are transferred in chunks, between the requests for their
+             * chunks. A result is dropped after its last chunk was taken, or if its next chunk was not requested
+             * within a fixed time.
+             */
+            public class «CHUNKED_RESULTS_NAME»<T> {
+
+               public static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+               public static final class Chunk<T> {
+                  private final «list»<T> _elements;
+                  private final long _cursor;
+
+                  Chunk(List<T> elements, long cursor) {
+                     _elements = elements;
+                     _cursor = cursor;
+                  }
+
+                  public List<T> getElements() {
+                     return _elements;
+                  }
+
+                  /**
+                     @return the cursor to request the next chunk with, or 0 if this is the last chunk
+                  */
+                  public long getCursor() {
+                     return _cursor;
+                  }
+               }
+
+               private final int _chunkSize;
+               private final long _timeoutNanos;
+               private final «typeResolver.resolve("java.util.Map")»<Long, Entry<T>> _results = new «typeResolver.resolve("java.util.HashMap")»<>();
+
+               public «CHUNKED_RESULTS_NAME»(int chunkSize) {
+                  this(chunkSize, DEFAULT_TIMEOUT_MILLIS);
+               }
+
+               public «CHUNKED_RESULTS_NAME»(int chunkSize, long timeoutMillis) {
+                  _chunkSize = chunkSize;
+                  _timeoutNanos = «typeResolver.resolve("java.util.concurrent.TimeUnit")».MILLISECONDS.toNanos(timeoutMillis);
+               }
+
+               /**
+                  Takes the first chunk of the result; the remaining elements are held under the cursor of the chunk.
+               */
+               public Chunk<T> open(«iterator»<T> result) {
+                  return take(result);
+               }
+
+               /**
+                  @return the next chunk of the result held under the cursor, or null if there is no such result
+               */
+               public Chunk<T> next(long cursor) {
+                  Entry<T> entry;
+                  synchronized (_results) {
+                     entry = _results.remove(cursor);
+                  }
+                  return (entry == null) ? null : take(entry.result);
+               }
+
+               private Chunk<T> take(Iterator<T> result) {
+                  List<T> elements = new «typeResolver.resolve("java.util.ArrayList")»<>(_chunkSize);
+                  while (elements.size() < _chunkSize && result.hasNext())
+                     elements.add(result.next());
+                  if (!result.hasNext())
+                     return new Chunk<>(elements, 0);
+
+                  long now = System.nanoTime();
+                  long cursor;
+                  synchronized (_results) {
+                     _results.values().removeIf(entry -> now - entry.lastAccess >= _timeoutNanos);
+                     do {
+                        cursor = «typeResolver.resolve("java.util.concurrent.ThreadLocalRandom")».current().nextLong();
+                     } while (cursor == 0 || _results.containsKey(cursor));
+                     _results.put(cursor, new Entry<>(result, now));
+                  }
+                  return new Chunk<>(elements, cursor);
+               }
+
+               private static final class Entry<T> {
+                  final Iterator<T> result;
+                  final long lastAccess;
+
+                  Entry(Iterator<T> result, long lastAccess) {
+                     this.result = result;
+                     this.lastAccess = lastAccess;
+                  }
+               }
+            }
+        '''
+    }
+
+    def generateChunkedCollection()
+    {
+        val collection = typeResolver.resolve(JavaClassNames.COLLECTION)
+        val iterator = typeResolver.resolve("java.util.Iterator")
+
+        '''
+            /**
+             * Result of an operation which the service transfers in chunks. The elements of the first chunk are
+             * available immediately; each further chunk is requested as soon as the one before it arrived, such
+             * that iterating only waits for a chunk which the service has not delivered yet.
+             */
+            public class «CHUNKED_COLLECTION_NAME»<T> extends «typeResolver.resolve("java.util.AbstractCollection")»<T> {
+
+               public static final class Chunk<T> {
+                  private final «collection»<T> _elements;
+                  private final long _cursor;
+
+                  public Chunk(Collection<T> elements, long cursor) {
+                     _elements = elements;
+                     _cursor = cursor;
+                  }
+               }
+
+               @FunctionalInterface
+               public interface ChunkSource<T> {
+                  «typeResolver.resolve("java.util.concurrent.CompletionStage")»<Chunk<T>> fetch(long cursor) throws Exception;
+               }
+
+               private final «typeResolver.resolve("java.util.List")»<T> _elements;
+               private final ChunkSource<T> _source;
+               private «typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<Chunk<T>> _nextChunk;
+
+               public «CHUNKED_COLLECTION_NAME»(Collection<T> elements, long cursor, ChunkSource<T> source) {
+                  _elements = new «typeResolver.resolve("java.util.ArrayList")»<>(elements);
+                  _source = source;
+                  _nextChunk = request(cursor);
+               }
+
+               @Override
+               public «iterator»<T> iterator() {
+                  return new Iterator<T>() {
+                     private int _index;
+
+                     @Override
+                     public boolean hasNext() {
+                        return isAvailable(_index);
+                     }
+
+                     @Override
+                     public T next() {
+                        if (!isAvailable(_index))
+                           throw new «typeResolver.resolve("java.util.NoSuchElementException")»();
+                        return get(_index++);
+                     }
+                  };
+               }
+
+               /**
+                  Requests all remaining chunks.
+               */
+               @Override
+               public int size() {
+                  isAvailable(Integer.MAX_VALUE);
+                  return getReceivedSize();
+               }
+
+               private synchronized boolean isAvailable(int index) {
+                  while (index >= _elements.size() && _nextChunk != null) {
+                     Chunk<T> chunk;
+                     try {
+                        chunk = _nextChunk.join();
+                     } catch («typeResolver.resolve("java.util.concurrent.CompletionException")» e) {
+                        throw new IllegalStateException("Requesting the next chunk failed", e.getCause());
+                     }
+                     _elements.addAll(chunk._elements);
+                     _nextChunk = request(chunk._cursor);
+                  }
+                  return index < _elements.size();
+               }
+
+               /**
+                  @return the chunk under the given cursor, or null if the cursor marks the end of the result
+               */
+               private CompletableFuture<Chunk<T>> request(long cursor) {
+                  if (cursor == 0)
+                     return null;
+
+                  try {
+                     return _source.fetch(cursor).toCompletableFuture();
+                  } catch (Exception e) {
+                     CompletableFuture<Chunk<T>> failed = new CompletableFuture<>();
+                     failed.completeExceptionally(e);
+                     return failed;
+                  }
+               }
+
+               private synchronized T get(int index) {
+                  return _elements.get(index);
+               }
+
+               private synchronized int getReceivedSize() {
+                  return _elements.size();
+               }
+            }
+        '''
+    }
+}
@@ -11,7 +11,10 @@
 package com.btc.serviceidl.generator.java
 
 import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
+import com.btc.serviceidl.idl.ParameterDirection
+import com.btc.serviceidl.idl.ParameterElement
 import com.btc.serviceidl.idl.VoidType
 import com.btc.serviceidl.util.Constants
 import org.eclipse.xtend.lib.annotations.Accessors
@@ -48,6 +51,14 @@ class ClientConsoleGenerator
            
            public static void main(String[] args) {
               
+              LoadOptions loadOptions;
+              try {
+                 loadOptions = LoadOptions.parse(args);
+              } catch (IllegalArgumentException e) {
+                 logger.error(e.getMessage() + "\n" + LoadOptions.USAGE);
+                 return;
+              }
+              
               «typeResolver.resolve(JavaClassNames.CLIENT_ENDPOINT)» client = null;
               «apiName» proxy = null;
               «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
@@ -79,7 +90,12 @@ class ClientConsoleGenerator
                  logger.error("Could not create proxy! Error: " + e.toString());
               }
               
-              if (proxy != null)
+              if (proxy != null && loadOptions != null)
+              {
+                 logger.info("Start generating load...");
+                 generateLoad(proxy, loadOptions);
+              }
+              else if (proxy != null)
               {
                  logger.info("Start calling proxy methods...");
                  callAllProxyMethods(proxy);
@@ -123,7 +139,301 @@ class ClientConsoleGenerator
               
               logger.info("READY! Overall result: " + callCount + " function calls, " + errorCount + " errors.");
            }
+           
+           private static void generateLoad(«apiName» proxy, LoadOptions options) {
+              
+              «typeResolver.resolve("java.util.Map")»<String, LoadOperation> operations = new «typeResolver.resolve("java.util.LinkedHashMap")»<>();
+              «FOR function : interfaceDeclaration.functions»
+                  «generateLoadCall(function)»
+              «ENDFOR»
+              
+              try {
+                 new LoadDriver(options, operations).run();
+              } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+                 logger.error("Load generation was interrupted");
+              } catch (IllegalArgumentException e) {
+                 logger.error(e.getMessage());
+              }
+           }
+           
+           «generateLoadDriver»
+        }
+        '''
+    }
+
+    /**
+     * The input parameters are built once outside of the call, such that their construction is not measured; the
+     * output parameters are created for each call, since the calls of concurrent workers must not share them.
+     */
+    private def generateLoadCall(FunctionDeclaration function)
+    {
+        '''
+            {
+               «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
+                   «makeParameterType(param)» «param.paramName.asParameter» = «makeLoadValue(param)»;
+               «ENDFOR»
+               operations.put("«function.name»", () -> {
+                  «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
+                      «makeParameterType(param)» «param.paramName.asParameter» = «makeLoadValue(param)»;
+                  «ENDFOR»
+                  proxy.«function.name.asMethod»(«function.parameters.map[paramName.asParameter].join(", ")»)«IF !function.sync».get()«ENDIF»;
+               });
+            }
+        '''
+    }
+
+    private def makeParameterType(ParameterElement param)
+    {
+        val isSequence = param.paramType.isSequenceType
+        val isFailable = isSequence && param.paramType.isFailable
+        val basicType = typeResolver.resolve(param.paramType.ultimateType)
+        '''«IF isSequence»«typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«ENDIF»«basicType»«IF isSequence»«IF isFailable»>«ENDIF»>«ENDIF»'''
+    }
+
+    /**
+     * Input sequences with a "typical sequence length" hint are filled with that many default elements, such that
+     * the size of the requests resembles the production load.
+     */
+    private def makeLoadValue(ParameterElement param)
+    {
+        val sequence = param.paramType.tryGetSequence
+        if (param.direction == ParameterDirection.PARAM_IN && sequence.present && !sequence.get.failable &&
+            !sequence.get.type.isSequenceType && sequence.get.typicalLength.present)
+        {
+            val elementType = basicJavaSourceGenerator.toText(sequence.get.type)
+            '''new «typeResolver.resolve("java.util.Vector")»<«elementType»>(«typeResolver.resolve("java.util.Collections")».nCopies(«sequence.get.typicalLength.get», «basicJavaSourceGenerator.makeDefaultValue(sequence.get.type)»))'''
         }
+        else
+            basicJavaSourceGenerator.makeDefaultValue(param.paramType)
+    }
+
+    private def generateLoadDriver()
+    {
+        val timeUnit = typeResolver.resolve("java.util.concurrent.TimeUnit")
+        val list = typeResolver.resolve("java.util.List")
+        val arrayList = typeResolver.resolve("java.util.ArrayList")
+        val hashMap = typeResolver.resolve("java.util.HashMap")
+
+        '''
+            @FunctionalInterface
+            private interface LoadOperation {
+               void call() throws Exception;
+            }
+            
+            /**
+               Options of the load generation mode, which is enabled by --load. Without a --mix, all operations
+               are called with the same weight.
+            */
+            private static final class LoadOptions {
+               
+               static final String USAGE = "Usage: [--load [--concurrency=<threads>] [--duration=<seconds>] "
+                  + "[--rate=<calls per second, 0 for unlimited>] [--mix=<operation>:<weight>,...]]";
+               
+               int concurrency = 1;
+               long durationSeconds = 10;
+               double rate = 0;
+               final Map<String, Integer> mix = new LinkedHashMap<>();
+               
+               /**
+                  Unknown arguments are ignored, such that the console accepts the arguments of its launcher.
+                  
+                  @return the options, or null if the load generation mode is not enabled
+                  @throws IllegalArgumentException if the value of an option is invalid
+               */
+               static LoadOptions parse(String[] args) {
+                  LoadOptions options = new LoadOptions();
+                  boolean load = false;
+                  for (String arg : args) {
+                     String[] keyValue = arg.split("=", 2);
+                     try {
+                        switch (keyValue[0]) {
+                           case "--load":
+                              load = true;
+                              break;
+                           case "--concurrency":
+                              options.concurrency = Integer.parseInt(keyValue[1]);
+                              break;
+                           case "--duration":
+                              options.durationSeconds = Long.parseLong(keyValue[1]);
+                              break;
+                           case "--rate":
+                              options.rate = Double.parseDouble(keyValue[1]);
+                              break;
+                           case "--mix":
+                              for (String entry : keyValue[1].split(",")) {
+                                 String[] nameWeight = entry.split(":", 2);
+                                 options.mix.put(nameWeight[0], nameWeight.length > 1 ? Integer.parseInt(nameWeight[1]) : 1);
+                              }
+                              break;
+                           default:
+                              logger.warn("Ignoring unknown argument: " + arg);
+                              break;
+                        }
+                     } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid argument: " + arg);
+                     }
+                  }
+                  
+                  if (options.concurrency < 1 || options.durationSeconds < 1 || options.rate < 0)
+                     throw new IllegalArgumentException("Concurrency and duration must be positive, rate must not be negative");
+                  
+                  return load ? options : null;
+               }
+            }
+            
+            /**
+               Calls the operations from concurrent workers, and reports the throughput and the latency
+               percentiles of each operation. With a target rate, the latency is measured from the time a call
+               was scheduled, so that a slow service does not hide its queueing delay by slowing down the load.
+            */
+            private static final class LoadDriver {
+               
+               private final LoadOptions _options;
+               private final Map<String, LoadOperation> _operations;
+               private final «list»<String> _schedule = new «arrayList»<>();
+               
+               LoadDriver(LoadOptions options, Map<String, LoadOperation> operations) {
+                  _options = options;
+                  _operations = operations;
+                  
+                  for (String name : options.mix.keySet()) {
+                     if (!operations.containsKey(name))
+                        throw new IllegalArgumentException("Unknown operation in mix: " + name);
+                  }
+                  for (String name : operations.keySet()) {
+                     int weight = options.mix.isEmpty() ? 1 : options.mix.getOrDefault(name, 0);
+                     for (int i = 0; i < weight; i++)
+                        _schedule.add(name);
+                  }
+                  if (_schedule.isEmpty())
+                     throw new IllegalArgumentException("No operation to call");
+               }
+               
+               void run() throws InterruptedException {
+                  long intervalNanos = _options.rate > 0 ? (long) (_options.concurrency * 1e9 / _options.rate) : 0;
+                  long start = System.nanoTime();
+                  long deadline = start + «timeUnit».SECONDS.toNanos(_options.durationSeconds);
+                  
+                  «list»<Map<String, LatencyRecorder>> recorders = new «arrayList»<>();
+                  «list»<Thread> workers = new «arrayList»<>();
+                  for (int i = 0; i < _options.concurrency; i++) {
+                     Map<String, LatencyRecorder> workerRecorders = new «hashMap»<>();
+                     long firstCall = start + i * intervalNanos / _options.concurrency;
+                     recorders.add(workerRecorders);
+                     workers.add(new Thread(() -> work(firstCall, intervalNanos, deadline, workerRecorders)));
+                  }
+                  for (Thread worker : workers)
+                     worker.start();
+                  for (Thread worker : workers)
+                     worker.join();
+                  double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+                  
+                  LatencyRecorder total = new LatencyRecorder();
+                  for (String name : _operations.keySet()) {
+                     LatencyRecorder merged = new LatencyRecorder();
+                     for (Map<String, LatencyRecorder> workerRecorders : recorders) {
+                        if (workerRecorders.containsKey(name))
+                           merged.add(workerRecorders.get(name));
+                     }
+                     if (merged.count > 0) {
+                        report(name, merged, elapsedSeconds);
+                        total.add(merged);
+                     }
+                  }
+                  report("Overall", total, elapsedSeconds);
+               }
+               
+               private void work(long firstCall, long intervalNanos, long deadline, Map<String, LatencyRecorder> recorders) {
+                  long scheduled = firstCall;
+                  while (true) {
+                     long callStart;
+                     if (intervalNanos > 0) {
+                        long wait;
+                        while ((wait = scheduled - System.nanoTime()) > 0)
+                           «typeResolver.resolve("java.util.concurrent.locks.LockSupport")».parkNanos(wait);
+                        callStart = scheduled;
+                        scheduled += intervalNanos;
+                     } else {
+                        callStart = System.nanoTime();
+                     }
+                     if (callStart >= deadline)
+                        break;
+                     
+                     String name = _schedule.get(«typeResolver.resolve("java.util.concurrent.ThreadLocalRandom")».current().nextInt(_schedule.size()));
+                     boolean failed = false;
+                     try {
+                        _operations.get(name).call();
+                     } catch (Exception e) {
+                        failed = true;
+                     }
+                     recorders.computeIfAbsent(name, key -> new LatencyRecorder()).record(System.nanoTime() - callStart, failed);
+                  }
+               }
+               
+               private static void report(String name, LatencyRecorder recorder, double elapsedSeconds) {
+                  logger.info(String.format("%s: %d calls, %d errors, %.1f calls/s, latency p50 %.1f us, p99 %.1f us, p999 %.1f us",
+                     name, recorder.count, recorder.errors, recorder.count / elapsedSeconds,
+                     recorder.percentile(0.5) / 1e3, recorder.percentile(0.99) / 1e3, recorder.percentile(0.999) / 1e3));
+               }
+            }
+            
+            /**
+               Counts the latencies in a histogram of fixed size, with 16 linear buckets per power of two
+               nanoseconds, such that a percentile is reported with a relative error of at most 1/16.
+            */
+            private static final class LatencyRecorder {
+               private static final int SUB_BUCKET_BITS = 4;
+               private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+               
+               final long[] buckets = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT];
+               long count;
+               long errors;
+               
+               void record(long latencyNanos, boolean failed) {
+                  buckets[bucketOf(Math.max(0, latencyNanos))]++;
+                  count++;
+                  if (failed)
+                     errors++;
+               }
+               
+               void add(LatencyRecorder other) {
+                  for (int i = 0; i < buckets.length; i++)
+                     buckets[i] += other.buckets[i];
+                  count += other.count;
+                  errors += other.errors;
+               }
+               
+               /**
+                  @return the upper bound of the bucket which holds the latency of the given quantile
+               */
+               long percentile(double quantile) {
+                  long rank = Math.max(1, (long) Math.ceil(quantile * count));
+                  long seen = 0;
+                  for (int i = 0; i < buckets.length; i++) {
+                     seen += buckets[i];
+                     if (seen >= rank)
+                        return upperBoundOf(i);
+                  }
+                  return 0;
+               }
+               
+               private static int bucketOf(long latencyNanos) {
+                  if (latencyNanos < SUB_BUCKET_COUNT)
+                     return (int) latencyNanos;
+                  int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(latencyNanos);
+                  int shift = exponent - SUB_BUCKET_BITS;
+                  return (shift + 1) * SUB_BUCKET_COUNT + (int) (latencyNanos >>> shift) - SUB_BUCKET_COUNT;
+               }
+               
+               private static long upperBoundOf(int bucket) {
+                  if (bucket < SUB_BUCKET_COUNT)
+                     return bucket;
+                  int shift = bucket / SUB_BUCKET_COUNT - 1;
+                  long lowerBound = (long) (bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+                  return lowerBound + (1L << shift) - 1;
+               }
+            }
         '''
     }
 
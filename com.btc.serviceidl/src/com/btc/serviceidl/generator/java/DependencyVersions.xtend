@@ -23,4 +23,5 @@ class DependencyVersions
     public static val SPRING = "4.3.2.RELEASE"
     public static val COMMONS_COLLECTIONS = "4.0"
     public static val LOG4J = "1.2.17"
+    public static val JMH = "1.21"
 }
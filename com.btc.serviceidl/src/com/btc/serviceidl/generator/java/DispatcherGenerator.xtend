@@ -14,13 +14,17 @@ import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.common.ProtobufType
+import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ParameterDirection
+import com.btc.serviceidl.idl.ParameterElement
 import com.btc.serviceidl.idl.VoidType
+import com.btc.serviceidl.util.Constants
 import java.util.Optional
 import org.eclipse.xtend.lib.annotations.Accessors
 
 import static extension com.btc.serviceidl.generator.java.BasicJavaSourceGenerator.*
+import static extension com.btc.serviceidl.generator.java.MetricsGenerator.*
 import static extension com.btc.serviceidl.generator.java.ProtobufUtil.*
 import static extension com.btc.serviceidl.util.Extensions.*
 import static extension com.btc.serviceidl.util.Util.*
@@ -29,6 +33,8 @@ import static extension com.btc.serviceidl.util.Util.*
 class DispatcherGenerator
 {
     val BasicJavaSourceGenerator basicJavaSourceGenerator
+    val boolean withMetrics
+    val boolean zeroCopy
 
     private def getTypeResolver()
     {
@@ -38,16 +44,13 @@ class DispatcherGenerator
     def generateDispatcherBody(String dispatcherClassName, InterfaceDeclaration interfaceDeclaration)
     {
         val apiClassName = typeResolver.resolve(interfaceDeclaration)
-        val protobufRequest = resolveProtobuf(typeResolver,
-            interfaceDeclaration, Optional.of(ProtobufType.REQUEST))
-        val protobuf_response = resolveProtobuf(typeResolver,
-            interfaceDeclaration, Optional.of(ProtobufType.RESPONSE))
 
         val serializerType = typeResolver.resolve("com.btc.cab.servicecomm.serialization.ISerializer")
         val messageType = if (basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3)
                 typeResolver.resolve("com.btc.cab.servicecomm.common.IMessageBuffer").toString
             else
                 "byte[]"
+        val metricsType = if (withMetrics) MetricsGenerator.resolveMetricsInterface(typeResolver, interfaceDeclaration)
 
         '''
             public class «dispatcherClassName» implements «typeResolver.resolve("com.btc.cab.servicecomm.api.IServiceDispatcher")» {
@@ -62,6 +65,16 @@ class DispatcherGenerator
             
                private final «typeResolver.resolve("com.btc.cab.servicecomm.api.IServiceFaultHandlerManager")» _faultHandlerManager;
                
+               private final «typeResolver.resolve("java.util.concurrent.Executor")» _executor;
+               «FOR function : interfaceDeclaration.functions.filter[chunked]»
+                   
+                   private final «ChunkingGenerator.CHUNKED_RESULTS_NAME»<«typeResolver.resolve(function.returnedType.actualType.ultimateType)»> «function.chunksFieldName» = new «ChunkingGenerator.CHUNKED_RESULTS_NAME»<>(«function.chunkSize.get»);
+               «ENDFOR»
+               «IF withMetrics»
+                   
+                   private final «metricsType» _metrics;
+               «ENDIF»
+               
                public «dispatcherClassName»(«apiClassName» dispatchee, 
                «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
                    ProtoBufServerHelper protoBufHelper
@@ -69,7 +82,46 @@ class DispatcherGenerator
                    «serializerType» serializer
                «ENDIF»
                ) {
+               this(dispatchee, «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»protoBufHelper«ELSE»serializer«ENDIF», newResultExecutor());
+               }
+               «IF withMetrics»
+                   
+                   public «dispatcherClassName»(«apiClassName» dispatchee, 
+                   «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
+                       ProtoBufServerHelper protoBufHelper,
+                   «ELSE»
+                       «serializerType» serializer,
+                   «ENDIF»
+                   Executor executor
+                   ) {
+                   this(dispatchee, «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»protoBufHelper«ELSE»serializer«ENDIF», executor, «metricsType».NONE);
+                   }
+               «ENDIF»
+               
+               /**
+                  @param executor executor used to wait for the results of asynchronous operations if the
+                  dispatchee does not return them as a completion stage; each outstanding result occupies one
+                  of its threads
+                  «IF withMetrics»
+                      @param metrics receives the duration of each phase of the dispatched operations
+                  «ENDIF»
+               */
+               public «dispatcherClassName»(«apiClassName» dispatchee, 
+               «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
+                   ProtoBufServerHelper protoBufHelper,
+               «ELSE»
+                   «serializerType» serializer,
+               «ENDIF»
+               Executor executor«IF withMetrics»,«ENDIF»
+               «IF withMetrics»
+                   «metricsType» metrics
+               «ENDIF»
+               ) {
                _dispatchee = dispatchee;
+               _executor = executor;
+               «IF withMetrics»
+                   _metrics = metrics;
+               «ENDIF»
                «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
                    _protoBufHelper = protoBufHelper;
                «ELSE»
@@ -90,81 +142,24 @@ class DispatcherGenerator
                public «messageType» processRequest(
                   «messageType» requestBuffer, «typeResolver.resolve("com.btc.cab.servicecomm.common.IPeerIdentity")» peerIdentity, «typeResolver.resolve(JavaClassNames.SERVER_ENDPOINT)» serverEndpoint) throws Exception {
                   
-                  byte[] requestByte = 
-                  «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
-                      _protoBufHelper.deserializeRequest(requestBuffer)
-                  «ELSE»
-                      requestBuffer
-                  «ENDIF»;
-                  «protobufRequest» request
-                     = «protobufRequest».parseFrom(requestByte);
-                  
-                  «FOR function : interfaceDeclaration.functions SEPARATOR BasicJavaSourceGenerator.newLine»
-                      «val isSync = function.isSync»
-                      «val isVoid = function.returnedType instanceof VoidType»
-                      «val resultType = typeResolver.resolve(function.returnedType)»
-                      «val resultIsSequence = function.returnedType.isSequenceType»
-                      «val resultIsFailable = resultIsSequence && function.returnedType.isFailable»
-                      «val resultUseCodec = GeneratorUtil.useCodec(function.returnedType.actualType, ArtifactNature.JAVA) || resultIsFailable»
-                      «var resultCodec = if (resultUseCodec) resolveCodec(function.returnedType.actualType, typeResolver) else null»
-                      «val requestMethodName = function.name.asJavaProtobufName + "Request"»
-                      «val responseMethodName = '''«protobuf_response».«function.name.asResponse»'''»
-                      if (request.has«requestMethodName»()) {
-                         «val outParams = function.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
-                         «IF !outParams.empty»
-                             // prepare [out] parameters
-                             «FOR param : outParams»
-                                 «val isSequence = param.paramType.isSequenceType»
-                                 «val isFailable = isSequence && param.paramType.isFailable»
-                             «IF isSequence»«typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«typeResolver.resolve(param.paramType.ultimateType)»«IF isFailable»>«ENDIF»>«ELSE»«typeResolver.resolve(param.paramType)»«ENDIF» «param.paramName.asParameter» = «basicJavaSourceGenerator.makeDefaultValue(param.paramType)»;
-                         «ENDFOR»
-                  «ENDIF»
-                  
-                  // call actual method
-               «IF !isVoid»«IF resultIsSequence»«typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF resultIsFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«typeResolver.resolve(function.returnedType.actualType.ultimateType)»«IF resultIsFailable»>«ENDIF»>«ELSE»«resultType»«ENDIF» result = «ENDIF»_dispatchee.«function.name.asMethod»
-               (
-               «FOR param : function.parameters SEPARATOR ","»
-                «val plainType = typeResolver.resolve(param.paramType)»
-                «val isByte = param.paramType.isByte»
-                «val isShort = param.paramType.isInt16»
-                «val isChar = param.paramType.isChar»
-                «val isInput = (param.direction == ParameterDirection.PARAM_IN)»
-                «val useCodec = GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.JAVA)»
-                «var codec = resolveCodec(param.paramType.actualType, typeResolver)»
-                «val isSequence = param.paramType.isSequenceType»
-               «IF isInput»«IF useCodec»«IF !isSequence»(«plainType») «ENDIF»«codec».decode(«ENDIF»«IF isByte || isShort || isChar»(«IF isByte»byte«ELSEIF isChar»char«ELSE»short«ENDIF») «ENDIF»request.get«requestMethodName»().get«param.paramName.asJavaProtobufName»«IF isSequence»List«ENDIF»()«IF useCodec»)«ENDIF»«ELSE»«param.paramName.asParameter»«ENDIF»
-               «ENDFOR»
-                  )«IF !isSync».get();«IF isVoid» // retrieve the result in order to trigger exceptions«ENDIF»«ELSE»;«ENDIF»
-                  
-                  // deliver response
-                  «responseMethodName» methodResponse
-               = «responseMethodName».newBuilder()
-               «IF !isVoid».«IF resultIsSequence»addAll«function.name.asJavaProtobufName»«ELSE»set«function.name.asJavaProtobufName»«ENDIF»(«IF resultUseCodec»«IF !resultIsSequence»(«resolveProtobuf(typeResolver, function.returnedType.actualType, Optional.empty)»)«ENDIF»«resultCodec».encode«IF resultIsFailable»Failable«ENDIF»(«ENDIF»result«IF resultIsFailable», «resolveFailableProtobufType(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, function.returnedType.actualType, interfaceDeclaration)».class«ENDIF»«IF resultUseCodec»)«ENDIF»)«ENDIF»
-               «FOR outParam : function.parameters.filter[direction == ParameterDirection.PARAM_OUT]»
-                «val isSequence = outParam.paramType.isSequenceType»
-                «val isFailable = isSequence && outParam.paramType.isFailable»
-                «val useCodec = GeneratorUtil.useCodec(outParam.paramType.actualType, ArtifactNature.JAVA) || isFailable»
-                «val codec = resolveCodec(outParam.paramType.actualType, typeResolver)»
-                .«IF isSequence»addAll«outParam.paramName.asJavaProtobufName»«ELSE»set«outParam.paramName.asJavaProtobufName»«ENDIF»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(typeResolver, outParam.paramType.actualType, Optional.empty)») «ENDIF»«codec».encode«IF isFailable»Failable«ENDIF»(«ENDIF»«outParam.paramName.asParameter»«IF isFailable», «resolveFailableProtobufType(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, outParam.paramType.actualType, interfaceDeclaration)».class«ENDIF»«IF useCodec»)«ENDIF»)
-               «ENDFOR»
-               .build();
-               
-               «protobuf_response» response
-               = «protobuf_response».newBuilder()
-               .set«function.name.asJavaProtobufName»Response(methodResponse)
-               .build();
-               
-               «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
-                return _protoBufHelper.serializeResponse(response);
-               «ELSE»
-                return _serializer.serialize(response);
-               «ENDIF»
+                  «generateDispatchRequest(interfaceDeclaration)»
                }
+               
+               «FOR function : interfaceDeclaration.functions SEPARATOR BasicJavaSourceGenerator.newLine»
+                   «generateFunctionHandler(function, interfaceDeclaration, messageType)»
                «ENDFOR»
+               «IF interfaceDeclaration.functions.exists[!sync]»
+                   
+                   «generateAwaitResponse»
+                   
+                   «generateToCompletableFuture»
+               «ENDIF»
                
-               // request could not be processed
-               throw new «typeResolver.resolve("com.btc.cab.servicecomm.api.exceptions.InvalidMessageReceivedException")»("Unknown or invalid request");
-               }
+               «generateResultExecutor(dispatcherClassName)»
+               «IF zeroCopy»
+                   
+                   «generateAliasingInput(typeResolver)»
+               «ENDIF»
             
                /**
                @see com.btc.cab.servicecomm.api.IServiceDispatcher#getServiceFaultHandlerManager
@@ -177,4 +172,311 @@ class DispatcherGenerator
         '''
     }
 
+    private def generateDispatchRequest(InterfaceDeclaration interfaceDeclaration)
+    {
+        val protobufRequest = resolveProtobuf(typeResolver,
+            interfaceDeclaration, Optional.of(ProtobufType.REQUEST))
+
+        '''
+            byte[] requestByte = 
+            «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»
+                _protoBufHelper.deserializeRequest(requestBuffer)
+            «ELSE»
+                requestBuffer
+            «ENDIF»;
+            «IF withMetrics»
+                long parseStart = System.nanoTime();
+            «ENDIF»
+            «protobufRequest» request
+               = «parseProtobuf(protobufRequest.toString, "requestByte", zeroCopy)»;
+            «IF withMetrics»
+                long parseDuration = System.nanoTime() - parseStart;
+            «ENDIF»
+            
+            «IF !interfaceDeclaration.functions.empty»
+                switch (request.get«Constants.PROTOBUF_REQUEST_ONEOF.asJavaProtobufName»Case())
+                {
+                   «FOR function : interfaceDeclaration.functions»
+                       «val handlerCall = '''handle«function.name.asJavaProtobufName»(request.get«function.name.asJavaProtobufName + Constants.PROTOBUF_REQUEST»())'''»
+                       case «function.name.asRequest.asJavaProtobufCaseName»:
+                          «IF withMetrics»
+                              «typeResolver.recordMetrics(function, "PARSE", "parseDuration")»
+                          «ENDIF»
+                          return «IF function.sync»«handlerCall»«ELSE»awaitResponse(«handlerCall»)«ENDIF»;
+                   «ENDFOR»
+                   default:
+                      break;
+                }
+                
+            «ENDIF»
+            // request could not be processed
+            throw new «typeResolver.resolve("com.btc.cab.servicecomm.api.exceptions.InvalidMessageReceivedException")»("Unknown or invalid request");
+        '''
+    }
+
+    private def generateFunctionHandler(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration,
+        String messageType)
+    {
+        val protobufRequest = resolveProtobuf(typeResolver,
+            interfaceDeclaration, Optional.of(ProtobufType.REQUEST))
+        val protobuf_response = resolveProtobuf(typeResolver,
+            interfaceDeclaration, Optional.of(ProtobufType.RESPONSE))
+        val isSync = function.isSync
+        val isVoid = function.returnedType instanceof VoidType
+        val resultType = typeResolver.resolve(function.returnedType)
+        val resultIsSequence = function.returnedType.isSequenceType
+        val resultIsFailable = resultIsSequence && function.returnedType.isFailable
+        val resultUseCodec = GeneratorUtil.useCodec(function.returnedType.actualType, ArtifactNature.JAVA) || resultIsFailable
+        val resultCodec = if (resultUseCodec) resolveCodec(function.returnedType.actualType, typeResolver) else null
+        val requestMessage = protobufRequest + Constants.SEPARATOR_PACKAGE + function.name.asRequest
+        val responseMethodName = '''«protobuf_response».«function.name.asResponse»'''
+        val outParams = function.parameters.filter[direction == ParameterDirection.PARAM_OUT]
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+        val resultDeclarationType = '''«IF resultIsSequence»«typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF resultIsFailable»«completableFuture»<«ENDIF»«typeResolver.resolve(function.returnedType.actualType.ultimateType)»«IF resultIsFailable»>«ENDIF»>«ELSE»«resultType»«ENDIF»'''
+        val encodeResponseName = '''encode«function.name.asJavaProtobufName»Response'''
+        val encodeResponseArguments = '''«IF !isVoid»result«IF !outParams.empty», «ENDIF»«ENDIF»«FOR param : outParams SEPARATOR ", "»«param.paramName.asParameter»«ENDFOR»«IF function.chunked», request.has«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»()«ENDIF»'''
+        val encodeChunkName = '''encode«function.name.asJavaProtobufName»Chunk'''
+
+        '''
+            «IF isSync»
+                private «messageType» handle«function.name.asJavaProtobufName»(«requestMessage» request) throws Exception {
+                   «IF function.chunked»
+                       if (request.get«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»() != 0)
+                          return «encodeChunkName»(«function.chunksFieldName».next(request.get«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»()));
+                   «ENDIF»
+                   «generateDecodeParameters(function, interfaceDeclaration)»
+                   
+                   // call actual method
+                   «IF !isVoid»«resultDeclarationType» result = «ENDIF»«generateDispatcheeCall(function, interfaceDeclaration)»;
+                   «IF withMetrics»
+                       «typeResolver.recordMetrics(function, "INVOKE", "System.nanoTime() - invokeStart")»
+                   «ENDIF»
+                   
+                   return «encodeResponseName»(«encodeResponseArguments»);
+                }
+            «ELSE»
+                private «completableFuture»<«messageType»> handle«function.name.asJavaProtobufName»(«requestMessage» request) throws Exception {
+                   «IF function.chunked»
+                       if (request.get«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»() != 0)
+                          return «completableFuture».completedFuture(«encodeChunkName»(«function.chunksFieldName».next(request.get«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»())));
+                   «ENDIF»
+                   «generateDecodeParameters(function, interfaceDeclaration)»
+                   
+                   // call actual method
+                   return toCompletableFuture(«generateDispatcheeCall(function, interfaceDeclaration)»).thenApply(result -> {
+                      «IF withMetrics»
+                          «typeResolver.recordMetrics(function, "INVOKE", "System.nanoTime() - invokeStart")»
+                      «ENDIF»
+                      try {
+                         return «encodeResponseName»(«encodeResponseArguments»);
+                      } catch (Exception e) {
+                         throw new «typeResolver.resolve("java.util.concurrent.CompletionException")»(e);
+                      }
+                   });
+                }
+            «ENDIF»
+            
+            private «messageType» «encodeResponseName»(«IF !isVoid»«resultDeclarationType» result«IF !outParams.empty», «ENDIF»«ENDIF»«FOR param : outParams SEPARATOR ", "»«makeOutParameterType(param)» «param.paramName.asParameter»«ENDFOR»«IF function.chunked», boolean chunked«ENDIF») throws Exception {
+               «IF function.chunked»
+                   if (chunked)
+                      return «encodeChunkName»(«function.chunksFieldName».open(result.iterator()));
+                   
+               «ENDIF»
+               «IF withMetrics»
+                   long encodeStart = System.nanoTime();
+                   
+               «ENDIF»
+               // deliver response
+               «responseMethodName» methodResponse
+                  = «responseMethodName».newBuilder()
+                  «IF !isVoid».«IF resultIsSequence»addAll«function.name.asJavaProtobufName»«ELSE»set«function.name.asJavaProtobufName»«ENDIF»(«IF resultUseCodec»«IF !resultIsSequence»(«resolveProtobuf(typeResolver, function.returnedType.actualType, Optional.empty)»)«ENDIF»«IF resultIsFailable»«resolveFailableEncode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, function.returnedType.actualType, interfaceDeclaration)»«ELSE»«resultCodec».encode«ENDIF»(«ENDIF»result«IF resultUseCodec»)«ENDIF»)«ENDIF»
+                  «FOR outParam : outParams»
+                      «val isSequence = outParam.paramType.isSequenceType»
+                      «val isFailable = isSequence && outParam.paramType.isFailable»
+                      «val useCodec = GeneratorUtil.useCodec(outParam.paramType.actualType, ArtifactNature.JAVA) || isFailable»
+                      «val codec = resolveCodec(outParam.paramType.actualType, typeResolver)»
+                      .«IF isSequence»addAll«outParam.paramName.asJavaProtobufName»«ELSE»set«outParam.paramName.asJavaProtobufName»«ENDIF»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(typeResolver, outParam.paramType.actualType, Optional.empty)») «ENDIF»«IF isFailable»«resolveFailableEncode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, outParam.paramType.actualType, interfaceDeclaration)»«ELSE»«codec».encode«ENDIF»(«ENDIF»«outParam.paramName.asParameter»«IF useCodec»)«ENDIF»)
+                  «ENDFOR»
+                  .build();
+               
+               «protobuf_response» response
+                  = «protobuf_response».newBuilder()
+                  .set«function.name.asJavaProtobufName»Response(methodResponse)
+                  .build();
+               
+               «IF withMetrics»
+                   long serializeStart = System.nanoTime();
+                   «typeResolver.recordMetrics(function, "ENCODE", "serializeStart - encodeStart")»
+                   
+                   «messageType» responseBuffer = «serializeResponse»;
+                   «typeResolver.recordMetrics(function, "SERIALIZE", "System.nanoTime() - serializeStart")»
+                   return responseBuffer;
+               «ELSE»
+                   return «serializeResponse»;
+               «ENDIF»
+            }
+            «IF function.chunked»
+                
+                private «messageType» «encodeChunkName»(«ChunkingGenerator.CHUNKED_RESULTS_NAME».Chunk<«typeResolver.resolve(function.returnedType.actualType.ultimateType)»> chunk) throws Exception {
+                   if (chunk == null)
+                      throw new «typeResolver.resolve("com.btc.cab.servicecomm.api.exceptions.InvalidMessageReceivedException")»("Unknown or expired chunk cursor");
+                   
+                   «responseMethodName» methodResponse
+                      = «responseMethodName».newBuilder()
+                      .addAll«function.name.asJavaProtobufName»(«IF resultUseCodec»«resultCodec».encode(«ENDIF»chunk.getElements()«IF resultUseCodec»)«ENDIF»)
+                      .set«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»(chunk.getCursor())
+                      .build();
+                   
+                   «protobuf_response» response
+                      = «protobuf_response».newBuilder()
+                      .set«function.name.asJavaProtobufName»Response(methodResponse)
+                      .build();
+                   
+                   return «serializeResponse»;
+                }
+            «ENDIF»
+        '''
+    }
+
+    private def generateDecodeParameters(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        val outParams = function.parameters.filter[direction == ParameterDirection.PARAM_OUT]
+
+        '''
+            «IF !outParams.empty»
+                // prepare [out] parameters
+                «FOR param : outParams»
+                «makeOutParameterType(param)» «param.paramName.asParameter» = «basicJavaSourceGenerator.makeDefaultValue(param.paramType)»;
+                «ENDFOR»
+            «ENDIF»
+            «IF withMetrics»
+                
+                // decode [in] parameters
+                long decodeStart = System.nanoTime();
+                «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
+                    «makeOutParameterType(param)» «param.paramName.asParameter» = «makeDecodeInParameter(param, interfaceDeclaration)»;
+                «ENDFOR»
+                «typeResolver.recordMetrics(function, "DECODE", "System.nanoTime() - decodeStart")»
+                long invokeStart = System.nanoTime();
+            «ENDIF»
+        '''
+    }
+
+    private def generateDispatcheeCall(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        '''
+            _dispatchee.«function.name.asMethod»
+            (
+            «FOR param : function.parameters SEPARATOR ","»
+                «IF param.direction == ParameterDirection.PARAM_IN && !withMetrics»«makeDecodeInParameter(param, interfaceDeclaration)»«ELSE»«param.paramName.asParameter»«ENDIF»
+            «ENDFOR»
+            )'''
+    }
+
+    /**
+     * With zero copy, the response is serialized directly into an array of its exact size, which is handed
+     * over to ServiceComm. As ServiceComm keeps the array, a reused buffer would need one more copy.
+     */
+    private def getSerializeResponse()
+    {
+        if (basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3)
+            "_protoBufHelper.serializeResponse(response)"
+        else if (zeroCopy)
+            "response.toByteArray()"
+        else
+            "_serializer.serialize(response)"
+    }
+
+    private static def getChunksFieldName(FunctionDeclaration function)
+    {
+        '''_«function.name.toFirstLower»Chunks'''
+    }
+
+    private def makeDecodeInParameter(ParameterElement param, InterfaceDeclaration interfaceDeclaration)
+    {
+        val plainType = typeResolver.resolve(param.paramType)
+        val isByte = param.paramType.isByte
+        val isShort = param.paramType.isInt16
+        val isChar = param.paramType.isChar
+        val isSequence = param.paramType.isSequenceType
+        val isFailable = isSequence && param.paramType.isFailable
+        val useCodec = GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.JAVA) || isFailable
+        val codec = resolveCodec(param.paramType.actualType, typeResolver)
+        '''«IF useCodec»«IF !isSequence»(«plainType») «ENDIF»«IF isFailable»«resolveFailableDecode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, param.paramType.actualType, interfaceDeclaration)»«ELSE»«codec».decode«ENDIF»(«ENDIF»«IF isByte || isShort || isChar»(«IF isByte»byte«ELSEIF isChar»char«ELSE»short«ENDIF») «ENDIF»request.get«param.paramName.asJavaProtobufName»«IF isSequence»List«ENDIF»()«IF useCodec»)«ENDIF»'''
+    }
+
+    private def makeOutParameterType(ParameterElement param)
+    {
+        val isSequence = param.paramType.isSequenceType
+        val isFailable = isSequence && param.paramType.isFailable
+        '''«IF isSequence»«typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«typeResolver.resolve(param.paramType.ultimateType)»«IF isFailable»>«ENDIF»>«ELSE»«typeResolver.resolve(param.paramType)»«ENDIF»'''
+    }
+
+    private def generateAwaitResponse()
+    {
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+
+        '''
+            /**
+               Waits for the response to an asynchronous operation, as ServiceComm takes the response from
+               processRequest. The response is encoded by the thread which completes the result.
+            */
+            private static <T> T awaitResponse(«completableFuture»<T> response) throws Exception {
+               try {
+                  return response.join();
+               } catch («typeResolver.resolve("java.util.concurrent.CompletionException")» e) {
+                  throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+               }
+            }
+        '''
+    }
+
+    private def generateResultExecutor(String className)
+    {
+        val executors = typeResolver.resolve("java.util.concurrent.Executors")
+
+        '''
+            /**
+               Waiting for a result which is not a completion stage occupies a thread until the result is
+               available, so the pool is not bounded; idle threads terminate after a minute.
+            */
+            private static «typeResolver.resolve("java.util.concurrent.ExecutorService")» newResultExecutor() {
+               return «executors».newCachedThreadPool(runnable -> {
+                  Thread thread = «executors».defaultThreadFactory().newThread(runnable);
+                  thread.setName("«className»-result-" + thread.getName());
+                  thread.setDaemon(true);
+                  return thread;
+               });
+            }
+        '''
+    }
+
+    private def generateToCompletableFuture()
+    {
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+
+        '''
+            /**
+               Continues on the result of the dispatchee without blocking if it is a completion stage,
+               otherwise waits for the result on the executor of this dispatcher.
+            */
+            @SuppressWarnings("unchecked")
+            private <T> «completableFuture»<T> toCompletableFuture(«typeResolver.resolve("java.util.concurrent.Future")»<T> future) {
+               if (future instanceof «typeResolver.resolve("java.util.concurrent.CompletionStage")»)
+                  return ((CompletionStage<T>) future).toCompletableFuture();
+               
+               return «completableFuture».supplyAsync(() -> {
+                  try {
+                     return future.get();
+                  } catch («typeResolver.resolve("java.util.concurrent.ExecutionException")» e) {
+                     throw new «typeResolver.resolve("java.util.concurrent.CompletionException")»(e.getCause());
+                  } catch (InterruptedException e) {
+                     Thread.currentThread().interrupt();
+                     throw new CompletionException(e);
+                  }
+               }, _executor);
+            }
+        '''
+    }
+
 }
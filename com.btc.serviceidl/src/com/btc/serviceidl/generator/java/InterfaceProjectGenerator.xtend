@@ -10,10 +10,13 @@
  **********************************************************************/
 package com.btc.serviceidl.generator.java
 
+import com.btc.serviceidl.generator.GeneratorOptions
 import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.generator.common.EventBatchSettings
 import com.btc.serviceidl.generator.common.Names
 import com.btc.serviceidl.generator.common.ParameterBundle
 import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.generator.common.QueryCacheSettings
 import com.btc.serviceidl.idl.AbstractTypeDeclaration
 import com.btc.serviceidl.idl.AliasDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
@@ -42,7 +45,8 @@ class InterfaceProjectGenerator extends BasicProjectGenerator
             ProjectType.DISPATCHER,
             ProjectType.TEST,
             ProjectType.SERVER_RUNNER,
-            ProjectType.CLIENT_CONSOLE
+            ProjectType.CLIENT_CONSOLE,
+            ProjectType.BENCHMARK
         })
 
         if (!activeProjectTypes.empty)
@@ -97,6 +101,8 @@ class InterfaceProjectGenerator extends BasicProjectGenerator
                 generateServerRunner(projectSourceRootPath, interfaceDeclaration)
             case CLIENT_CONSOLE:
                 generateClientConsole(projectSourceRootPath, interfaceDeclaration)
+            case BENCHMARK:
+                generateBenchmark(projectSourceRootPath, interfaceDeclaration)
             default:
             { /* no operation */
             }
@@ -147,6 +153,24 @@ class InterfaceProjectGenerator extends BasicProjectGenerator
                     generateServiceFaultHandlerFactory(serviceFaultHandlerFactoryName, interfaceDeclaration)
             ]
         )
+
+        if (metricsEnabled)
+        {
+            generateJavaFile(projectSourceRootPath.append(MetricsGenerator.METRICS_INTERFACE_NAME.java), paramBundle,
+                interfaceDeclaration, [new MetricsGenerator(it).generateMetricsInterface])
+            generateJavaFile(projectSourceRootPath.append(MetricsGenerator.METRICS_IMPLEMENTATION_NAME.java),
+                paramBundle, interfaceDeclaration, [new MetricsGenerator(it).generateMetricsImplementation])
+        }
+    }
+
+    private def isMetricsEnabled()
+    {
+        generationSettings.isGeneratorOptionEnabled(GeneratorOptions.METRICS)
+    }
+
+    private def isZeroCopyEnabled()
+    {
+        generationSettings.isGeneratorOptionEnabled(GeneratorOptions.JAVA_ZERO_COPY)
     }
 
     private def void generateTest(IPath projectSourceRootPath, InterfaceDeclaration interfaceDeclaration)
@@ -260,6 +284,17 @@ class InterfaceProjectGenerator extends BasicProjectGenerator
         }
     }
 
+    private def void generateBenchmark(IPath projectSourceRootPath, InterfaceDeclaration interfaceDeclaration)
+    {
+        val paramBundle = ParameterBundle.createBuilder(interfaceDeclaration.moduleStack).with(ProjectType.BENCHMARK).
+            build
+        val benchmarkName = ProjectType.BENCHMARK.getClassName(ArtifactNature.JAVA, interfaceDeclaration.name)
+
+        generateJavaFile(projectSourceRootPath.append(benchmarkName.java), paramBundle, interfaceDeclaration, [
+            new BenchmarkGenerator(it).generateBenchmark(benchmarkName, interfaceDeclaration)
+        ])
+    }
+
     private def void generateProxy(IPath projectSourceRootPath, InterfaceDeclaration interfaceDeclaration)
     {
         val paramBundle = ParameterBundle.createBuilder(interfaceDeclaration.moduleStack).with(ProjectType.PROXY).build
@@ -269,16 +304,33 @@ class InterfaceProjectGenerator extends BasicProjectGenerator
             projectSourceRootPath.append(proxyFactoryName.java),
             paramBundle,
             interfaceDeclaration,
-            [new ProxyFactoryGenerator(it).generateProxyFactory(proxyFactoryName, interfaceDeclaration)]
+            [new ProxyFactoryGenerator(it, metricsEnabled).generateProxyFactory(proxyFactoryName, interfaceDeclaration)]
         )
 
+        val queryCacheSettings = QueryCacheSettings.get(generationSettings, interfaceDeclaration)
         val proxyClassName = ProjectType.PROXY.getClassName(ArtifactNature.JAVA, interfaceDeclaration.name)
         generateJavaFile(
             projectSourceRootPath.append(proxyClassName.java),
             paramBundle,
             interfaceDeclaration,
-            [new ProxyGenerator(it).generateProxyImplementation(proxyClassName, interfaceDeclaration)]
+            [
+                new ProxyGenerator(it, metricsEnabled, queryCacheSettings,
+                    EventBatchSettings.get(generationSettings).present, zeroCopyEnabled).
+                    generateProxyImplementation(proxyClassName, interfaceDeclaration)
+            ]
         )
+
+        if (queryCacheSettings.present)
+        {
+            generateJavaFile(projectSourceRootPath.append(QueryCacheGenerator.QUERY_CACHE_NAME.java), paramBundle,
+                interfaceDeclaration, [new QueryCacheGenerator(it).generateQueryCache])
+        }
+
+        if (interfaceDeclaration.functions.exists[chunked])
+        {
+            generateJavaFile(projectSourceRootPath.append(ChunkingGenerator.CHUNKED_COLLECTION_NAME.java), paramBundle,
+                interfaceDeclaration, [new ChunkingGenerator(it).generateChunkedCollection])
+        }
     }
 
     private def void generateDispatcher(IPath projectSourceRootPath, InterfaceDeclaration interfaceDeclaration)
@@ -288,8 +340,15 @@ class InterfaceProjectGenerator extends BasicProjectGenerator
         val dispatcherClassName = ProjectType.DISPATCHER.getClassName(ArtifactNature.JAVA, interfaceDeclaration.name)
 
         generateJavaFile(projectSourceRootPath.append(dispatcherClassName.java), paramBundle, interfaceDeclaration, [
-            new DispatcherGenerator(it).generateDispatcherBody(dispatcherClassName, interfaceDeclaration)
+            new DispatcherGenerator(it, metricsEnabled, zeroCopyEnabled).generateDispatcherBody(dispatcherClassName,
+                interfaceDeclaration)
         ])
+
+        if (interfaceDeclaration.functions.exists[chunked])
+        {
+            generateJavaFile(projectSourceRootPath.append(ChunkingGenerator.CHUNKED_RESULTS_NAME.java), paramBundle,
+                interfaceDeclaration, [new ChunkingGenerator(it).generateChunkedResults])
+        }
     }
 
     private def void generateImplementationStub(IPath projectSourceRootPath, InterfaceDeclaration interfaceDeclaration)
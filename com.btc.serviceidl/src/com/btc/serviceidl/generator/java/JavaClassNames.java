@@ -28,4 +28,9 @@ public final class JavaClassNames {
     public static final String JUNIT_IGNORE       = "org.junit.Ignore";
     public static final String JUNIT_ASSERT       = "org.junit.Assert";
     public static final String JUNIT_TEST         = "org.junit.Test";
+
+    public static final String JMH_BENCHMARK = "org.openjdk.jmh.annotations.Benchmark";
+    public static final String JMH_SCOPE     = "org.openjdk.jmh.annotations.Scope";
+    public static final String JMH_SETUP     = "org.openjdk.jmh.annotations.Setup";
+    public static final String JMH_STATE     = "org.openjdk.jmh.annotations.State";
 }
@@ -65,7 +65,8 @@ class JavaGenerator
 
     private def void generateParentPOM()
     {
-        new ParentPOMGenerator(generationSettings, fileSystemAccess, idl, mavenResolver, groupId).generate
+        new ParentPOMGenerator(generationSettings, fileSystemAccess, idl, mavenResolver.registeredPackages, groupId).
+            generate
     }
 
     private def void processModule(ModuleDeclaration module)
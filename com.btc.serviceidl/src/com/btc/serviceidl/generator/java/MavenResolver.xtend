@@ -60,6 +60,10 @@ class MavenResolver
                 return Optional.of(
                     new MavenDependency.Builder().groupId("junit").artifactId("junit").version(
                         DependencyVersions.JUNIT).scope("test").build)
+            case name.startsWith("org.openjdk.jmh."):
+                return Optional.of(
+                    new MavenDependency.Builder().groupId("org.openjdk.jmh").artifactId("jmh-core").version(
+                        DependencyVersions.JMH).build)
             case name.startsWith("org.apache.log4j."):
                 return Optional.of(
                     new MavenDependency.Builder().groupId("log4j").artifactId("log4j").version(
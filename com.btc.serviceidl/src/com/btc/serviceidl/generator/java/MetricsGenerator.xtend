@@ -0,0 +1,144 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.java
+
+import com.btc.serviceidl.generator.common.ProjectType
+import com.btc.serviceidl.generator.common.TransformType
+import com.btc.serviceidl.idl.FunctionDeclaration
+import com.btc.serviceidl.idl.InterfaceDeclaration
+import org.eclipse.xtend.lib.annotations.Accessors
+
+@Accessors(NONE)
+class MetricsGenerator
+{
+    public static val METRICS_INTERFACE_NAME = "IServiceMetrics"
+    public static val METRICS_IMPLEMENTATION_NAME = "ServiceMetrics"
+
+    val BasicJavaSourceGenerator basicJavaSourceGenerator
+
+    private def getTypeResolver()
+    {
+        basicJavaSourceGenerator.typeResolver
+    }
+
+    /**
+     * The metrics interface is generated to the service API package, which both the dispatcher and the proxy
+     * depend on.
+     */
+    static def resolveMetricsInterface(TypeResolver typeResolver, InterfaceDeclaration interfaceDeclaration)
+    {
+        typeResolver.resolve(
+            typeResolver.resolvePackage(interfaceDeclaration, ProjectType.SERVICE_API) +
+                TransformType.PACKAGE.separator + METRICS_INTERFACE_NAME)
+    }
+
+    /**
+     * Statement recording the given duration expression for a phase of the function.
+     */
+    static def recordMetrics(TypeResolver typeResolver, FunctionDeclaration function, String phase, String duration)
+    {
+        val metricsType = resolveMetricsInterface(typeResolver, function.eContainer as InterfaceDeclaration)
+        '''_metrics.record("«function.name»", «metricsType».Phase.«phase», «duration»);'''
+    }
+
+    def generateMetricsInterface()
+    {
+        // generated instead of taken from ServiceComm, which provides no such interface, such that enabling the
+        // metrics adds no dependency; it is generated once per service API package, see resolveMetricsInterface
+        '''
+            /**
+             * Receives the durations of the phases of each operation from the generated dispatcher and proxy.
+             * Implementations are called on the request path from arbitrary threads, so they must be thread-safe
+             * and cheap.
+             */
+            @FunctionalInterface
+            public interface «METRICS_INTERFACE_NAME» {
+            
+               enum Phase {
+                  /** parsing the received message */
+                  PARSE,
+                  /** decoding the parameters or the result into API types */
+                  DECODE,
+                  /** executing the operation; for a proxy, this is the round trip including serialization and transport */
+                  INVOKE,
+                  /** encoding the result or the parameters into Protobuf messages */
+                  ENCODE,
+                  /** serializing the response */
+                  SERIALIZE
+               }
+            
+               «METRICS_INTERFACE_NAME» NONE = (operation, phase, durationNanos) -> {};
+            
+               void record(String operation, Phase phase, long durationNanos);
+            }
+        '''
+    }
+
+    def generateMetricsImplementation()
+    {
+        val concurrentMap = typeResolver.resolve("java.util.concurrent.ConcurrentMap")
+        val atomicLongArray = typeResolver.resolve("java.util.concurrent.atomic.AtomicLongArray")
+
+        '''
+            /**
+             * Counts the recorded durations of each operation and phase in a histogram with a bucket per power of two
+             * nanoseconds.
+             */
+            public class «METRICS_IMPLEMENTATION_NAME» implements «METRICS_INTERFACE_NAME» {
+            
+               public static final int BUCKET_COUNT = 64;
+            
+               private final «concurrentMap»<String, «atomicLongArray»[]> _histograms = new «typeResolver.resolve("java.util.concurrent.ConcurrentHashMap")»<>();
+            
+               @Override
+               public void record(String operation, Phase phase, long durationNanos) {
+                  int bucket = durationNanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(durationNanos);
+                  getHistograms(operation)[phase.ordinal()].incrementAndGet(bucket);
+               }
+            
+               /**
+                  @return number of recorded durations of the given operation and phase
+               */
+               public long getCount(String operation, Phase phase) {
+                  long count = 0;
+                  for (long bucketCount : getHistogram(operation, phase))
+                     count += bucketCount;
+                  return count;
+               }
+            
+               /**
+                  @return histogram of the recorded durations of the given operation and phase, where bucket i
+                  counts the durations d with 2^(i-1) <= d < 2^i nanoseconds, and bucket 0 those of at most 0 ns
+               */
+               public long[] getHistogram(String operation, Phase phase) {
+                  AtomicLongArray histogram = getHistograms(operation)[phase.ordinal()];
+                  long[] result = new long[BUCKET_COUNT];
+                  for (int i = 0; i < BUCKET_COUNT; i++)
+                     result[i] = histogram.get(i);
+                  return result;
+               }
+            
+               private AtomicLongArray[] getHistograms(String operation) {
+                  AtomicLongArray[] histograms = _histograms.get(operation);
+                  if (histograms != null)
+                     return histograms;
+            
+                  return _histograms.computeIfAbsent(operation, key -> {
+                     AtomicLongArray[] newHistograms = new AtomicLongArray[Phase.values().length];
+                     for (int i = 0; i < newHistograms.length; i++)
+                        newHistograms[i] = new AtomicLongArray(BUCKET_COUNT);
+                     return newHistograms;
+                  });
+               }
+            }
+        '''
+    }
+}
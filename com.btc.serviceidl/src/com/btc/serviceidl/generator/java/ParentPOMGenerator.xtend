@@ -14,6 +14,9 @@ import com.btc.serviceidl.generator.IGenerationSettings
 import com.btc.serviceidl.generator.Maturity
 import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.idl.IDLSpecification
+import java.util.ArrayList
+import java.util.List
+import java.util.regex.Pattern
 import org.eclipse.xtend.lib.annotations.Accessors
 import org.eclipse.xtext.generator.IFileSystemAccess
 
@@ -25,12 +28,27 @@ class ParentPOMGenerator
     val IGenerationSettings generationSettings
     val IFileSystemAccess fileSystemAccess
     val IDLSpecification idlSpecification
-    val MavenResolver mavenResolver
+    val Iterable<String> modules
     val String groupId
 
+    public static val FILE_NAME = "pom.xml"
+    static val MODULE_PATTERN = Pattern.compile("<module>([^<]+)</module>")
+
     def generate()
     {
-        this.fileSystemAccess.generateFile("pom.xml", ArtifactNature.JAVA.label, generateContents)
+        this.fileSystemAccess.generateFile(FILE_NAME, ArtifactNature.JAVA.label, generateContents)
+    }
+
+    /**
+     * @return the modules listed in the given parent POM, which must have been generated by this class
+     */
+    static def List<String> readModules(CharSequence contents)
+    {
+        val result = new ArrayList<String>
+        val matcher = MODULE_PATTERN.matcher(contents)
+        while (matcher.find)
+            result.add(matcher.group(1))
+        result
     }
 
     def CharSequence generateContents()
@@ -52,7 +70,7 @@ class ParentPOMGenerator
                     <maven.compiler.target>1.8</maven.compiler.target>
                 </properties>
                 <modules>
-                «FOR packageId : mavenResolver.registeredPackages»
+                «FOR packageId : modules»
                     <module>«packageId»</module>
                 «ENDFOR»
                 </modules>
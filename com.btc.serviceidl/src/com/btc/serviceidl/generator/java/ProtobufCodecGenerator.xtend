@@ -25,6 +25,7 @@ import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ModuleDeclaration
 import com.btc.serviceidl.idl.StructDeclaration
 import com.btc.serviceidl.util.MemberElementWrapper
+import com.google.common.base.CaseFormat
 import java.util.ArrayList
 import java.util.Collection
 import java.util.Optional
@@ -81,12 +82,13 @@ class ProtobufCodecGenerator
     {
         // collect all used data types to avoid duplicates
         val dataTypes = GeneratorUtil.getEncodableTypes(container)
+        val failableTypes = GeneratorUtil.getFailableTypes(container)
 
         resolveAllDependentProtobufTypes(container)
 
         val javaUuid = typeResolver.resolve(JavaClassNames.UUID)
         val byteString = typeResolver.resolve("com.google.protobuf.ByteString")
-        val byteBuffer = typeResolver.resolve("java.nio.ByteBuffer")
+        val arrayList = typeResolver.resolve("java.util.ArrayList")
         val iError = typeResolver.resolve(JavaClassNames.ERROR)
         val serviceFaultHandlerFactory = typeResolver.resolve(
             typeResolver.resolvePackage(container, container.mainProjectType) + TransformType.PACKAGE.separator +
@@ -94,7 +96,6 @@ class ProtobufCodecGenerator
         val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
         val method = typeResolver.resolve("java.lang.reflect.Method")
         val collection = typeResolver.resolve(JavaClassNames.COLLECTION)
-        val collectors = typeResolver.resolve("java.util.stream.Collectors")
 
         '''
             public class «codecName» {
@@ -112,20 +113,22 @@ class ProtobufCodecGenerator
                
                @SuppressWarnings("unchecked")
                public static<TOut, TIn> «collection»<TOut> encode(Collection<TIn> plainData) {
-                  return
-                     plainData
-                     .stream()
-                     .map(item -> (TOut) encode(item))
-                     .collect(«collectors».toList());
+                  // the elements of a sequence have a single type, so UUIDs are recognized by the first one
+                  if (!plainData.isEmpty() && plainData.iterator().next() instanceof «javaUuid»)
+                     return (Collection<TOut>) encodeUUIDs((Collection<«javaUuid»>) plainData);
+                  
+                  «collection»<TOut> encodedData = new «arrayList»<>(plainData.size());
+                  for (TIn item : plainData)
+                     encodedData.add((TOut) encode(item));
+                  return encodedData;
                }
                
                public static<TOut, TIn> «collection»<TOut> encodeFailable(«collection»<«completableFuture»<TIn>> plainData, Class<TOut> targetType)
                {
-                  return
-                     plainData
-                     .stream()
-                     .map(item -> encodeFailableWrapper(item, targetType) )
-                     .collect(«collectors».toList());
+                  «collection»<TOut> encodedData = new «arrayList»<>(plainData.size());
+                  for («completableFuture»<TIn> item : plainData)
+                     encodedData.add(encodeFailableWrapper(item, targetType));
+                  return encodedData;
                }
                
                private static<TOut, TIn> TOut encodeFailableWrapper(«completableFuture»<TIn> failableData, Class<TOut> targetType)
@@ -136,21 +139,42 @@ class ProtobufCodecGenerator
                
                @SuppressWarnings("unchecked")
                public static<TOut, TIn> «collection»<TOut> decode(«collection»<TIn> encodedData) {
-                  return
-                     encodedData
-                     .stream()
-                     .map(item -> (item instanceof «byteString») ? (TOut) decode( («byteString») item) : (TOut) decode(item))
-                     .collect(«collectors».toList());
+                  if (!encodedData.isEmpty() && encodedData.iterator().next() instanceof «byteString»)
+                     return (Collection<TOut>) decodeUUIDs((Collection<«byteString»>) encodedData);
+                  
+                  «collection»<TOut> plainData = new «arrayList»<>(encodedData.size());
+                  for (TIn item : encodedData)
+                     plainData.add((TOut) decode(item));
+                  return plainData;
+               }
+               
+               public static «collection»<«byteString»> encodeUUIDs(«collection»<«javaUuid»> plainData) {
+                  «collection»<«byteString»> encodedData = new «arrayList»<>(plainData.size());
+                  for («javaUuid» item : plainData)
+                     encodedData.add(encode(item));
+                  return encodedData;
+               }
+               
+               public static «collection»<«javaUuid»> decodeUUIDs(«collection»<«byteString»> encodedData) {
+                  «collection»<«javaUuid»> plainData = new «arrayList»<>(encodedData.size());
+                  for («byteString» item : encodedData)
+                     plainData.add(decode(item));
+                  return plainData;
                }
                
                public static «byteString» encode(«javaUuid» plainData) {
                   
-                  byte[] rawBytes = «byteBuffer».allocate(16)
-                     .putLong(plainData.getMostSignificantBits())
-                     .putLong(plainData.getLeastSignificantBits())
-                     .array();
+                  long mostSignificantBits = plainData.getMostSignificantBits();
+                  long leastSignificantBits = plainData.getLeastSignificantBits();
+                  byte[] rawBytes = new byte[16];
+                  for (int i = 0; i < 8; i++)
+                  {
+                     rawBytes[GUID_BYTE_ORDER[i]] = (byte) (mostSignificantBits >>> (56 - 8 * i));
+                     rawBytes[GUID_BYTE_ORDER[i + 8]] = (byte) (leastSignificantBits >>> (56 - 8 * i));
+                  }
             
-                  return «byteString».copyFrom( switchByteOrder(rawBytes) );
+                  // the array is not referenced anywhere else, so it does not need to be copied
+                  return «typeResolver.resolve("com.google.protobuf.UnsafeByteOperations")».unsafeWrap(rawBytes);
                }
                
                @SuppressWarnings( {"boxing", "unchecked"} )
@@ -198,11 +222,10 @@ class ProtobufCodecGenerator
                @SuppressWarnings("unchecked")
                public static<TOut, TIn> «collection»<«completableFuture»<TOut>> decodeFailable(«collection»<TIn> encodedData)
                {
-                  return
-                     encodedData
-                     .stream()
-                     .map( item -> («completableFuture»<TOut>) decodeFailableWrapper(item) )
-                     .collect(«collectors».toList());
+                  «collection»<«completableFuture»<TOut>> plainData = new «arrayList»<>(encodedData.size());
+                  for (TIn item : encodedData)
+                     plainData.add(decodeFailableWrapper(item));
+                  return plainData;
                }
                
                private static<TOut, TIn> «completableFuture»<TOut> decodeFailableWrapper(TIn encodedData)
@@ -252,40 +275,27 @@ class ProtobufCodecGenerator
                }
                
                public static «javaUuid» decode(«byteString» encodedData) {
-                  «byteBuffer» byteBuffer = «byteBuffer».wrap(switchByteOrder(encodedData.toByteArray()));
-                  return new «javaUuid»(byteBuffer.getLong(), byteBuffer.getLong());
+                  long mostSignificantBits = 0;
+                  long leastSignificantBits = 0;
+                  for (int i = 0; i < 8; i++)
+                  {
+                     mostSignificantBits = (mostSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i]) & 0xff);
+                     leastSignificantBits = (leastSignificantBits << 8) | (encodedData.byteAt(GUID_BYTE_ORDER[i + 8]) & 0xff);
+                  }
+                  return new «javaUuid»(mostSignificantBits, leastSignificantBits);
                }
                
                /**
-                * Utility function to change the endianness of the given GUID bytes.
+                * Position of each byte of a Java UUID (in big-endian order) within the encoded GUID. The encoded
+                * GUID has the format AAAAAAAA-BBBB-CCCC-DDDD-EEEEEEEEEEEE, where the AAAAAAAA, BBBB and CCCC groups
+                * are in little-endian order. Swapping the bytes is its own inverse, so this is used in both directions.
                 */
-               private static byte[] switchByteOrder(byte[] rawBytes) {
-                  
-                  // raw GUID data have this format: AAAAAAAA-BBBB-CCCC-DDDD-EEEEEEEEEEEE
-                  byte[] switchedBytes = new byte[16];
-            
-                  // switch AAAAAAAA bytes
-                  switchedBytes[0] = rawBytes[3];
-                  switchedBytes[1] = rawBytes[2];
-                  switchedBytes[2] = rawBytes[1];
-                  switchedBytes[3] = rawBytes[0];
-            
-                  // switch BBBB bytes
-                  switchedBytes[4] = rawBytes[5];
-                  switchedBytes[5] = rawBytes[4];
-            
-                  // switch CCCC bytes
-                  switchedBytes[6] = rawBytes[7];
-                  switchedBytes[7] = rawBytes[6];
-            
-                  // switch EEEEEEEEEEEE bytes
-                  for (int i = 8; i < 16; i++)
-                     switchedBytes[i] = rawBytes[i];
-            
-                  return switchedBytes;
-               }
+               private static final int[] GUID_BYTE_ORDER = { 3, 2, 1, 0, 5, 4, 7, 6, 8, 9, 10, 11, 12, 13, 14, 15 };
                
-               @SuppressWarnings("boxing")
+               /**
+                * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+                * instead, which are bound at compile time.
+                */
                public static Object encode(Object plainData) {
                
                   if (plainData == null)
@@ -296,33 +306,162 @@ class ProtobufCodecGenerator
             
                   «FOR dataType : dataTypes»
                       if (plainData instanceof «typeResolver.resolve(dataType)»)
-                      {
-                         «makeEncode(dataType)»
-                      }
+                         return encode( («typeResolver.resolve(dataType)») plainData );
                       
                   «ENDFOR»
                   return plainData;
                }
                
-               @SuppressWarnings("boxing")
+               /**
+                * Untyped entry point, which is kept for backward compatibility only. Use the typed overloads
+                * instead, which are bound at compile time.
+                */
                public static Object decode(Object encodedData) {
                
                   if (encodedData == null)
                      throw new NullPointerException();
                
                   «FOR dataType : dataTypes»
-                      if (encodedData instanceof «ProtobufUtil.resolveProtobuf(typeResolver, dataType, Optional.empty)»)
-                      {
-                         «makeDecode(dataType)»
-                      }
+                      «val protobufType = ProtobufUtil.resolveProtobuf(typeResolver, dataType, Optional.empty)»
+                      if (encodedData instanceof «protobufType»)
+                         return decode( («protobufType») encodedData );
                   «ENDFOR»
                   
                   return encodedData;
                }
+               «FOR dataType : dataTypes»
+                   «IF dataType instanceof EnumDeclaration»
+                       
+                       private static final «typeResolver.resolve(dataType)»[] «dataType.valuesFieldName» = «typeResolver.resolve(dataType)».values();
+                   «ENDIF»
+                   
+                   @SuppressWarnings("boxing")
+                   public static «ProtobufUtil.resolveProtobuf(typeResolver, dataType, Optional.empty)» encode(«typeResolver.resolve(dataType)» typedData) {
+                   
+                      if (typedData == null)
+                         throw new NullPointerException();
+                   
+                      «makeEncode(dataType)»
+                   }
+                   
+                   @SuppressWarnings("boxing")
+                   public static «typeResolver.resolve(dataType)» decode(«ProtobufUtil.resolveProtobuf(typeResolver, dataType, Optional.empty)» typedData) {
+                   
+                      if (typedData == null)
+                         throw new NullPointerException();
+                   
+                      «makeDecode(dataType)»
+                   }
+               «ENDFOR»
+               «FOR failableType : failableTypes»
+                   
+                   «makeFailableCodec(failableType, container)»
+               «ENDFOR»
+            }
+        '''
+    }
+
+    /**
+     * Typed counterparts of encodeFailable/decodeFailable for a single Failable_* wrapper
+     * message of the given container, which avoid the reflective lookup of the builder and
+     * accessor methods done by the generic variants.
+     */
+    private def String makeFailableCodec(AbstractTypeReference failableType, AbstractContainerDeclaration container)
+    {
+        val failableName = GeneratorUtil.asFailable(failableType, container,
+            basicJavaSourceGenerator.qualifiedNameProvider)
+        val failableProtobufType = resolveFailableProtobufType(typeResolver,
+            basicJavaSourceGenerator.qualifiedNameProvider, failableType, container)
+        val apiType = basicJavaSourceGenerator.toText(failableType)
+        val collection = typeResolver.resolve(JavaClassNames.COLLECTION)
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+        val arrayList = typeResolver.resolve("java.util.ArrayList")
+
+        '''
+            public static «collection»<«failableProtobufType»> encode«failableName»(«collection»<«completableFuture»<«apiType»>> plainData)
+            {
+               «collection»<«failableProtobufType»> encodedData = new «arrayList»<>(plainData.size());
+               for («completableFuture»<«apiType»> item : plainData)
+                  encodedData.add(encode«failableName»(item));
+               return encodedData;
+            }
+            
+            public static «failableProtobufType» encode«failableName»(«completableFuture»<«apiType»> failableData)
+            {
+               if (failableData == null)
+                  throw new NullPointerException();
+            
+               «failableProtobufType».Builder builder = «failableProtobufType».newBuilder();
+               if (failableData.isCompletedExceptionally())
+               {
+                  try
+                  {
+                     failableData.get();
+                  } catch (Exception e) // retrieve and encode underlying exception
+                  {
+                     «typeResolver.resolve(JavaClassNames.ERROR)» error = encodeException(e);
+                     return builder
+                        .setException(error.getServerErrorType())
+                        .setMessage(error.getMessage())
+                        .setStacktrace(error.getServerContextInformation())
+                        .build();
+                  }
+               }
+               
+               return builder.setValue(«makeEncodeFailableValue(failableType, "failableData.join()")»).build();
+            }
+            
+            public static «collection»<«completableFuture»<«apiType»>> decode«failableName»(«collection»<«failableProtobufType»> encodedData)
+            {
+               «collection»<«completableFuture»<«apiType»>> plainData = new «arrayList»<>(encodedData.size());
+               for («failableProtobufType» item : encodedData)
+                  plainData.add(decode«failableName»(item));
+               return plainData;
+            }
+            
+            public static «completableFuture»<«apiType»> decode«failableName»(«failableProtobufType» encodedData)
+            {
+               if (encodedData == null)
+                  throw new NullPointerException();
+            
+               «completableFuture»<«apiType»> result = new «completableFuture»<«apiType»>();
+               if (encodedData.hasValue())
+                  result.complete(«makeDecodeFailableValue(failableType, "encodedData.getValue()")»);
+               else if (encodedData.hasException())
+                  result.completeExceptionally(decodeException(encodedData.getException(), encodedData.getMessage(), encodedData.getStacktrace()));
+               else
+                  throw new IllegalArgumentException("Failed to decode the type: " + encodedData.getClass().getCanonicalName());
+               return result;
             }
         '''
     }
 
+    private def String makeEncodeFailableValue(AbstractTypeReference failableType, String value)
+    {
+        if (failableType.isUUIDType)
+            '''encode(«value»)'''
+        else if (failableType.isPrimitive)
+            value
+        else
+            '''(«resolveProtobuf(failableType, Optional.empty)») «resolveCodec(failableType, typeResolver)».encode(«value»)'''
+    }
+
+    private def String makeDecodeFailableValue(AbstractTypeReference failableType, String value)
+    {
+        if (failableType.isUUIDType)
+            '''decode(«value»)'''
+        else if (failableType.isByte)
+            '''(byte) «value»'''
+        else if (failableType.isInt16)
+            '''(short) «value»'''
+        else if (failableType.isChar)
+            '''(char) «value»'''
+        else if (failableType.isPrimitive)
+            value
+        else
+            '''(«basicJavaSourceGenerator.toText(failableType)») «resolveCodec(failableType, typeResolver)».decode(«value»)'''
+    }
+
     private def dispatch String makeDecode(AbstractType element)
     {
         if (element.referenceType !== null)
@@ -331,20 +470,17 @@ class ProtobufCodecGenerator
 
     private def dispatch String makeDecode(EnumDeclaration element)
     {
-        val apiTypeName = typeResolver.resolve(element)
-        val protobufTypeName = resolveProtobuf(element, Optional.empty)
 
         '''
-            «protobufTypeName» typedData = («protobufTypeName») encodedData;
-            «FOR item : element.containedIdentifiers»
-                «IF item != element.containedIdentifiers.head»else «ENDIF»if (typedData == «protobufTypeName».«item»)
-                   return «apiTypeName».«item»;
-            «ENDFOR»
-            else
-               throw new «typeResolver.resolve("java.util.NoSuchElementException")»("Unknown value " + typedData.toString() + " for enumeration «element.name»");
+            return «element.valuesFieldName»[typedData.getNumber() - «GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET»];
         '''
     }
 
+    private static def String getValuesFieldName(EnumDeclaration element)
+    {
+        CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, element.name) + "_VALUES"
+    }
+
     private def dispatch String makeDecode(StructDeclaration element)
     {
         makeDecodeStructOrException(element, element.allMembers, Optional.of(element.typeDecls))
@@ -359,7 +495,6 @@ class ProtobufCodecGenerator
         Iterable<MemberElementWrapper> members, Optional<Collection<AbstractTypeDeclaration>> typeDeclarations)
     {
         val apiTypeName = typeResolver.resolve(element)
-        val protobufTypeName = resolveProtobuf(element, Optional.empty)
 
         val allTypes = new ArrayList<MemberElementWrapper>
         allTypes.addAll(members)
@@ -370,7 +505,6 @@ class ProtobufCodecGenerator
             ]
 
         '''
-            «protobufTypeName» typedData = («protobufTypeName») encodedData;
             «FOR member : members»
                 «val codec = resolveCodec(member.type, typeResolver)»
                 «val isSequence = member.type.isSequenceType»
@@ -378,11 +512,11 @@ class ProtobufCodecGenerator
                 «val isByte = member.type.isByte»
                 «val isShort = member.type.isInt16»
                 «val isChar = member.type.isChar»
-                «val useCodec = GeneratorUtil.useCodec(member.type, ArtifactNature.JAVA)»
+                «val useCodec = GeneratorUtil.useCodec(member.type, ArtifactNature.JAVA) || isFailable»
                 «val isOptional = member.optional»
                 «val apiType = basicJavaSourceGenerator.toText(member.type)»
                 «val parameterName = member.name.asParameter»
-                «basicJavaSourceGenerator.formatMaybeOptional(isOptional, apiType)» «parameterName» = «IF isOptional»(typedData.«IF isSequence»get«ELSE»has«ENDIF»«member.name.asJavaProtobufName»«IF isSequence»Count«ENDIF»()«IF isSequence» > 0«ENDIF») ? «ENDIF»«IF isOptional»Optional.of(«ENDIF»«IF useCodec»«IF !isSequence»(«apiType») «ENDIF»«codec».decode«IF isFailable»Failable«ENDIF»(«ENDIF»«IF isShort || isByte || isChar»(«IF isByte»byte«ELSEIF isChar»char«ELSE»short«ENDIF») «ENDIF»typedData.get«member.name.asJavaProtobufName»«IF isSequence»List«ENDIF»()«IF useCodec»)«ENDIF»«IF isOptional»)«ENDIF»«IF isOptional» : Optional.empty()«ENDIF»;
+                «basicJavaSourceGenerator.formatMaybeOptional(isOptional, apiType)» «parameterName» = «IF isOptional»(typedData.«IF isSequence»get«ELSE»has«ENDIF»«member.name.asJavaProtobufName»«IF isSequence»Count«ENDIF»()«IF isSequence» > 0«ENDIF») ? «ENDIF»«IF isOptional»Optional.of(«ENDIF»«IF useCodec»«IF !isSequence»(«apiType») «ENDIF»«IF isFailable»«resolveFailableDecode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, member.type, member.type.scopeDeterminant)»«ELSE»«codec».decode«ENDIF»(«ENDIF»«IF isShort || isByte || isChar»(«IF isByte»byte«ELSEIF isChar»char«ELSE»short«ENDIF») «ENDIF»typedData.get«member.name.asJavaProtobufName»«IF isSequence»List«ENDIF»()«IF useCodec»)«ENDIF»«IF isOptional»)«ENDIF»«IF isOptional» : Optional.empty()«ENDIF»;
             «ENDFOR»
             
             return new «apiTypeName» (
@@ -401,17 +535,9 @@ class ProtobufCodecGenerator
 
     private def dispatch String makeEncode(EnumDeclaration element)
     {
-        val apiTypeName = typeResolver.resolve(element)
-        val protobufTypeName = resolveProtobuf(element, Optional.empty)
 
         '''
-            «apiTypeName» typedData = («apiTypeName») plainData;
-            «FOR item : element.containedIdentifiers»
-                «IF item != element.containedIdentifiers.head»else «ENDIF»if (typedData == «apiTypeName».«item»)
-                   return «protobufTypeName».«item»;
-            «ENDFOR»
-            else
-               throw new «typeResolver.resolve("java.util.NoSuchElementException")»("Unknown value " + typedData.toString() + " for enumeration «element.name»");
+            return «resolveProtobuf(element, Optional.empty)».forNumber(typedData.ordinal() + «GeneratorUtil.PROTOBUF_ENUM_NUMBER_OFFSET»);
         '''
     }
 
@@ -429,26 +555,25 @@ class ProtobufCodecGenerator
         Iterable<MemberElementWrapper> members, Optional<Collection<AbstractTypeDeclaration>> typeDeclarations)
     {
         val protobufType = resolveProtobuf(element, Optional.empty)
-        val plainType = typeResolver.resolve(element)
 
         '''
-            «IF !members.empty»«plainType» typedData = («plainType») plainData;«ENDIF»
             «protobufType».Builder builder
                = «protobufType».newBuilder();
             «FOR member : members»
-                «val useCodec = GeneratorUtil.useCodec(member.type, ArtifactNature.JAVA)»
                 «val isSequence = member.type.isSequenceType»
                 «val isFailable = isSequence && member.type.isFailable»
+                «val useCodec = GeneratorUtil.useCodec(member.type, ArtifactNature.JAVA) || isFailable»
                 «val protobufName = member.name.asJavaProtobufName»
                 «val commonName = member.commonName»
                 «val methodName = '''«IF isSequence»addAll«ELSE»set«ENDIF»«protobufName»'''»
+                «val encode = '''«IF isFailable»«resolveFailableEncode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, member.type, member.type.scopeDeterminant)»«ELSE»«resolveCodec(member.type, typeResolver)».encode«ENDIF»'''»
                 «IF member.optional»
                     if (typedData.get«typeResolver.resolve(JavaClassNames.OPTIONAL).alias(commonName)»().isPresent())
                     {
-                    builder.«methodName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(member.type, Optional.empty)») «ENDIF»encode«IF isFailable»Failable«ENDIF»(«ENDIF»typedData.get«protobufName»().get()«IF isFailable», «resolveFailableProtobufType(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, member.type, member.type.scopeDeterminant)».class«ENDIF»«IF useCodec»)«ENDIF»);
+                    builder.«methodName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(member.type, Optional.empty)») «ENDIF»«encode»(«ENDIF»typedData.get«protobufName»().get()«IF useCodec»)«ENDIF»);
                     }
                 «ELSE»
-                builder.«methodName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(member.type, Optional.empty)») «ENDIF»encode«IF isFailable»Failable«ENDIF»(«ENDIF»typedData.get«commonName»()«IF isFailable», «resolveFailableProtobufType(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, member.type, member.type.scopeDeterminant)».class«ENDIF»«IF useCodec»)«ENDIF»);
+                builder.«methodName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(member.type, Optional.empty)») «ENDIF»«encode»(«ENDIF»typedData.get«commonName»()«IF useCodec»)«ENDIF»);
                «ENDIF»
             «ENDFOR»
             return builder.build();
@@ -19,6 +19,7 @@ import com.btc.serviceidl.generator.common.TransformType
 import com.btc.serviceidl.idl.AbstractContainerDeclaration
 import com.btc.serviceidl.idl.AbstractType
 import com.btc.serviceidl.idl.AbstractTypeReference
+import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ModuleDeclaration
@@ -65,6 +66,17 @@ class ProtobufUtil
         }
     }
 
+    /**
+     * Resolves the message for a batch of the given event in the .proto file of the interface, see
+     * com.btc.serviceidl.generator.common.EventBatchSettings.
+     */
+    def static ResolvedName resolveProtobufEventBatch(TypeResolver typeResolver,
+        InterfaceDeclaration interfaceDeclaration, EventDeclaration event)
+    {
+        resolveProtobuf(typeResolver, interfaceDeclaration, Optional.of(ProtobufType.REQUEST)).withShortName(
+            event.data.name.asEventBatch)
+    }
+
     private static def String getLocalName(EObject object, Optional<ProtobufType> optProtobufType)
     {
         if (object instanceof InterfaceDeclaration && com.btc.serviceidl.util.Util.ensurePresentOrThrow(optProtobufType))
@@ -109,6 +121,48 @@ class ProtobufUtil
         asProtobufName(name, CaseFormat.UPPER_CAMEL)
     }
 
+    /**
+     * Returns the name of the constant of the generated *Case enum which represents
+     * the given field of a oneof.
+     */
+    static def String asJavaProtobufCaseName(String name)
+    {
+        asProtobufName(name, CaseFormat.UPPER_UNDERSCORE)
+    }
+
+    /**
+     * Generates a method which opens a received buffer for parsing a message from it, such that the bytes
+     * fields of the message refer to the buffer instead of copies of it. The buffer must not be modified
+     * after parsing.
+     */
+    def static String generateAliasingInput(TypeResolver typeResolver)
+    {
+        val codedInputStream = typeResolver.resolve("com.google.protobuf.CodedInputStream")
+
+        '''
+            /**
+               Opens the buffer for parsing without copying the bytes fields of the message, which refer to
+               the buffer instead; the buffer must not be modified afterwards.
+            */
+            private static «codedInputStream» «ALIASING_INPUT_NAME»(byte[] buffer) {
+               «codedInputStream» input = «codedInputStream».newInstance(buffer);
+               input.enableAliasing(true);
+               return input;
+            }
+        '''
+    }
+
+    public static val ALIASING_INPUT_NAME = "newAliasingInput"
+
+    /**
+     * @return the expression which parses a message of the given type from the buffer, see
+     * #generateAliasingInput
+     */
+    def static String parseProtobuf(String messageType, String buffer, boolean zeroCopy)
+    {
+        '''«messageType».parseFrom(«IF zeroCopy»«ALIASING_INPUT_NAME»(«buffer»)«ELSE»«buffer»«ENDIF»)'''
+    }
+
     // TODO reconsider placement of this method
     def static String resolveCodec(AbstractTypeReference object, TypeResolver typeResolver)
     {
@@ -128,6 +182,37 @@ class ProtobufUtil
                 GeneratorUtil.asFailable(element, container, qualifiedNameProvider)])
     }
 
+    /**
+     * Returns the typed encode method for the Failable_* wrapper of the given element,
+     * which is generated into the codec of the container owning the wrapper message.
+     */
+    def static String resolveFailableEncode(TypeResolver typeResolver,
+        IQualifiedNameProvider qualifiedNameProvider, AbstractTypeReference element,
+        AbstractContainerDeclaration container)
+    {
+        resolveFailableCodecMethod(typeResolver, qualifiedNameProvider, element, container, "encode")
+    }
+
+    /**
+     * Returns the typed decode method for the Failable_* wrapper of the given element,
+     * which is generated into the codec of the container owning the wrapper message.
+     */
+    def static String resolveFailableDecode(TypeResolver typeResolver,
+        IQualifiedNameProvider qualifiedNameProvider, AbstractTypeReference element,
+        AbstractContainerDeclaration container)
+    {
+        resolveFailableCodecMethod(typeResolver, qualifiedNameProvider, element, container, "decode")
+    }
+
+    private static def String resolveFailableCodecMethod(TypeResolver typeResolver,
+        IQualifiedNameProvider qualifiedNameProvider, AbstractTypeReference element,
+        AbstractContainerDeclaration container, String prefix)
+    {
+        String.join(Constants.SEPARATOR_PACKAGE,
+            #[typeResolver.resolvePackage(container, ProjectType.PROTOBUF), container.codecName,
+                prefix + GeneratorUtil.asFailable(element, container, qualifiedNameProvider)])
+    }
+
     private static def String getContainerName(AbstractContainerDeclaration container)
     {
         if (container instanceof ModuleDeclaration) Constants.FILE_NAME_TYPES else container.name
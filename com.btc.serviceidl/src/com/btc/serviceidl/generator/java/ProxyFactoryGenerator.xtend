@@ -20,6 +20,7 @@ import org.eclipse.xtend.lib.annotations.Accessors
 class ProxyFactoryGenerator
 {
     val BasicJavaSourceGenerator basicJavaSourceGenerator
+    val boolean withMetrics
 
     private def getTypeResolver()
     {
@@ -37,6 +38,18 @@ class ProxyFactoryGenerator
            {
               return new «GeneratorUtil.getClassName(ArtifactNature.JAVA, ProjectType.PROXY, interfaceDeclaration.name)»(endpoint);
            }
+           
+           public static «apiType» createDirectProtobufProxy(IClientEndpoint endpoint, «typeResolver.resolve("java.util.concurrent.Executor")» executor) throws Exception
+           {
+              return new «GeneratorUtil.getClassName(ArtifactNature.JAVA, ProjectType.PROXY, interfaceDeclaration.name)»(endpoint, executor);
+           }
+           «IF withMetrics»
+               
+               public static «apiType» createDirectProtobufProxy(IClientEndpoint endpoint, Executor executor, «MetricsGenerator.resolveMetricsInterface(typeResolver, interfaceDeclaration)» metrics) throws Exception
+               {
+                  return new «GeneratorUtil.getClassName(ArtifactNature.JAVA, ProjectType.PROXY, interfaceDeclaration.name)»(endpoint, executor, metrics);
+               }
+           «ENDIF»
         }
         '''
     }
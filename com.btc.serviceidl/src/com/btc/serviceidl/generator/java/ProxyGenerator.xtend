@@ -14,6 +14,7 @@ import com.btc.serviceidl.generator.common.ArtifactNature
 import com.btc.serviceidl.generator.common.GeneratorUtil
 import com.btc.serviceidl.generator.common.ProjectType
 import com.btc.serviceidl.generator.common.ProtobufType
+import com.btc.serviceidl.generator.common.QueryCacheSettings
 import com.btc.serviceidl.generator.common.ResolvedName
 import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.FunctionDeclaration
@@ -27,6 +28,7 @@ import java.util.Optional
 import org.eclipse.xtend.lib.annotations.Accessors
 
 import static extension com.btc.serviceidl.generator.java.BasicJavaSourceGenerator.*
+import static extension com.btc.serviceidl.generator.java.MetricsGenerator.*
 import static extension com.btc.serviceidl.generator.java.ProtobufUtil.*
 import static extension com.btc.serviceidl.util.Extensions.*
 import static extension com.btc.serviceidl.util.Util.*
@@ -35,6 +37,10 @@ import static extension com.btc.serviceidl.util.Util.*
 class ProxyGenerator
 {
     val BasicJavaSourceGenerator basicJavaSourceGenerator
+    val boolean withMetrics
+    val Optional<QueryCacheSettings> queryCacheSettings
+    val boolean eventBatching
+    val boolean zeroCopy
 
     private def getTypeResolver()
     {
@@ -53,9 +59,10 @@ class ProxyGenerator
                 null
             else
                 typeResolver.resolve("com.btc.cab.servicecomm.serialization.IDeserializer")
+        val metricsType = if (withMetrics) MetricsGenerator.resolveMetricsInterface(typeResolver, interfaceDeclaration)
 
         '''
-            public class «className» implements «apiName» {
+            public class «className» implements «apiName», AutoCloseable {
                
                private final «typeResolver.resolve(JavaClassNames.CLIENT_ENDPOINT)» _endpoint;
                private final «typeResolver.resolve("com.btc.cab.servicecomm.api.IServiceReference")» _serviceReference;
@@ -63,9 +70,45 @@ class ProxyGenerator
                «IF deserializerType !== null»
                private final «deserializerType» _deserializer;
                «ENDIF»
+               private final «typeResolver.resolve("java.util.concurrent.Executor")» _executor;
+               private «typeResolver.resolve("java.util.concurrent.ExecutorService")» _ownedExecutor;
+               «IF withMetrics»
+                   private final «metricsType» _metrics;
+               «ENDIF»
+               «IF queryCacheSettings.present»
+                   private final «QueryCacheGenerator.QUERY_CACHE_NAME» _queryCache = new «QueryCacheGenerator.QUERY_CACHE_NAME»(«queryCacheSettings.get.maxEntries», «queryCacheSettings.get.ttlMillis»L);
+               «ENDIF»
                
+               /**
+                  Creates the proxy with an executor of its own to wait for replies, which {@link #close} shuts down.
+               */
                public «className»(IClientEndpoint endpoint) throws Exception {
+                  this(endpoint, newReplyExecutor());
+                  _ownedExecutor = (ExecutorService) _executor;
+               }
+               «IF withMetrics»
+                   
+                   public «className»(IClientEndpoint endpoint, Executor executor) throws Exception {
+                      this(endpoint, executor, «metricsType».NONE);
+                   }
+               «ENDIF»
+               
+               /**
+                  @param executor executor used to wait for replies if the endpoint does not deliver them as
+                  a completion stage; each outstanding call occupies one of its threads, so it must not be
+                  bounded below the number of concurrent calls. Blocking calls are executed on the thread of
+                  the caller in any case. The executor is left to the caller by {@link #close}.
+                  «IF withMetrics»
+                      @param metrics receives the duration of each phase of the calls; the serialization of
+                      requests is included in the INVOKE phase
+                  «ENDIF»
+               */
+               public «className»(IClientEndpoint endpoint, Executor executor«IF withMetrics», «metricsType» metrics«ENDIF») throws Exception {
                   _endpoint = endpoint;
+                  _executor = executor;
+                  «IF withMetrics»
+                      _metrics = metrics;
+                  «ENDIF»
             
                   _serviceReference = _endpoint
                .connectService(«apiName».TypeGuid);
@@ -113,9 +156,25 @@ class ProxyGenerator
                «FOR function : interfaceDeclaration.functions SEPARATOR BasicJavaSourceGenerator.newLine»
                    «generateFunction(function, apiName, interfaceDeclaration)»
                «ENDFOR»
+               «IF interfaceDeclaration.functions.exists[!sync || chunked || query && queryCacheSettings.present]»
+                   
+                   «generateToCompletableFuture»
+               «ENDIF»
+               «IF interfaceDeclaration.functions.exists[sync]»
+                   
+                   «generateAwaitReply»
+               «ENDIF»
+               
+               «generateReplyExecutor(className)»
+               
+               «generateClose»
+               «IF zeroCopy && (!interfaceDeclaration.functions.empty || subscribesBatches && anonymousEvent !== null)»
+                   
+                   «generateAliasingInput(typeResolver)»
+               «ENDIF»
                
                «IF anonymousEvent !== null»
-                   «outputAnonymousEvent(anonymousEvent)»
+                   «outputAnonymousEvent(anonymousEvent, interfaceDeclaration)»
                «ENDIF»
                «FOR event : interfaceDeclaration.namedEvents»
                    «val observableName = basicJavaSourceGenerator.toText(event)»
@@ -151,29 +210,53 @@ class ProxyGenerator
                «val responseMessage = protobuf_response + Constants.SEPARATOR_PACKAGE + function.name.asResponse»
                «val responseName = '''response«function.name»'''»
                «val protobufFunctionName = function.name.asJavaProtobufName»
+               «IF withMetrics»
+                   long encodeStart = System.nanoTime();
+               «ENDIF»
                «requestMessage» request«function.name» = 
                   «requestMessage».newBuilder()
                   «FOR param : function.parameters.filter[direction == ParameterDirection.PARAM_IN]»
-                      «val useCodec = GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.JAVA)»
-                      «var codec = resolveCodec(param.paramType.actualType, typeResolver)»
                       «val isSequence = param.paramType.isSequenceType»
                       «val isFailable = isSequence && param.paramType.isFailable»
+                      «val useCodec = GeneratorUtil.useCodec(param.paramType.actualType, ArtifactNature.JAVA) || isFailable»
+                      «var codec = resolveCodec(param.paramType.actualType, typeResolver)»
                       «val methodName = '''«IF isSequence»addAll«ELSE»set«ENDIF»«param.paramName.asJavaProtobufName»'''»
-                  .«methodName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(typeResolver, param.paramType.actualType, Optional.empty)») «ENDIF»«codec».encode«IF isFailable»Failable«ENDIF»(«ENDIF»«param.paramName»«IF isFailable», «resolveFailableProtobufType(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, param.paramType.actualType, interfaceDeclaration)».class«ENDIF»«IF useCodec»)«ENDIF»)
+                  .«methodName»(«IF useCodec»«IF !isSequence»(«resolveProtobuf(typeResolver, param.paramType.actualType, Optional.empty)») «ENDIF»«IF isFailable»«resolveFailableEncode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, param.paramType.actualType, interfaceDeclaration)»«ELSE»«codec».encode«ENDIF»(«ENDIF»«param.paramName»«IF useCodec»)«ENDIF»)
                «ENDFOR»
+                  «IF function.chunked»
+                  .set«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»(0)
+               «ENDIF»
                .build();
                
                «protobufRequest» request = «protobufRequest».newBuilder()
               .set«protobufFunctionName»«Constants.PROTOBUF_REQUEST»(request«function.name»)
               .build();
+               «IF withMetrics»
+                   «typeResolver.recordMetrics(function, "ENCODE", "System.nanoTime() - encodeStart")»
+                   long invokeStart = System.nanoTime();
+               «ENDIF»
                
-               «typeResolver.resolve("java.util.concurrent.Future")»<byte[]> requestFuture 
-                 = «typeResolver.resolve("com.btc.cab.servicecomm.util.ClientEndpointExtensions")».
-                   «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»RequestAsync«ELSE»requestAsync«ENDIF»
-                   (_endpoint, _serviceReference, _serializer, request);
-               «typeResolver.resolve("java.util.concurrent.Callable")»<«returnType»> returnCallable = () -> {
-                   byte[] bytes = requestFuture.get();
-                   «protobuf_response» response = «protobuf_response».parseFrom(bytes);
+               «IF function.query && queryCacheSettings.present && !function.chunked»
+                   // identical queries are answered from the cache
+                   «typeResolver.resolve("java.util.concurrent.Future")»<byte[]> requestFuture = _queryCache.get(request.toByteString(), () -> toCompletableFuture(
+                      «typeResolver.resolve("com.btc.cab.servicecomm.util.ClientEndpointExtensions")».«IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»RequestAsync«ELSE»requestAsync«ENDIF»(_endpoint, _serviceReference, _serializer, request)));
+               «ELSE»
+                   «typeResolver.resolve("java.util.concurrent.Future")»<byte[]> requestFuture 
+                     = «typeResolver.resolve("com.btc.cab.servicecomm.util.ClientEndpointExtensions")».
+                       «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»RequestAsync«ELSE»requestAsync«ENDIF»
+                       (_endpoint, _serviceReference, _serializer, request);
+               «ENDIF»
+               «typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«returnType»> resultFuture = «IF isSync»awaitReply«ELSE»toCompletableFuture«ENDIF»(requestFuture).thenApply(bytes -> {
+                  «IF withMetrics»
+                      long parseStart = System.nanoTime();
+                      «typeResolver.recordMetrics(function, "INVOKE", "parseStart - invokeStart")»
+                  «ENDIF»
+                  try {
+                   «protobuf_response» response = «parseProtobuf(protobuf_response.toString, "bytes", zeroCopy)»;
+                     «IF withMetrics»
+                         long decodeStart = System.nanoTime();
+                         «typeResolver.recordMetrics(function, "PARSE", "decodeStart - parseStart")»
+                     «ENDIF»
                      «IF !isVoid || !outParams.empty»«responseMessage» «responseName» = «ENDIF»response.get«protobufFunctionName»«Constants.PROTOBUF_RESPONSE»();
                      «IF !outParams.empty»
                          
@@ -188,7 +271,7 @@ class ProxyGenerator
                                  «handleOutputParameter(outParam, tempParamName, paramName)»
                              «ELSE»
                                  «val isFailable = outParam.paramType.isFailable»
-                                 «typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«basicJavaSourceGenerator.toText(outParam.paramType.ultimateType)»«IF isFailable»>«ENDIF»> «tempParamName» = «codec».decode«IF isFailable»Failable«ENDIF»( «responseName».get«outParam.paramName.asJavaProtobufName»List() );
+                                 «typeResolver.resolve(JavaClassNames.COLLECTION)»<«IF isFailable»«typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ENDIF»«basicJavaSourceGenerator.toText(outParam.paramType.ultimateType)»«IF isFailable»>«ENDIF»> «tempParamName» = «IF isFailable»«resolveFailableDecode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, outParam.paramType.actualType, interfaceDeclaration)»«ELSE»«codec».decode«ENDIF»( «responseName».get«outParam.paramName.asJavaProtobufName»List() );
                                  «paramName».addAll( «tempParamName» );
                              «ENDIF»
                              
@@ -201,46 +284,335 @@ class ProxyGenerator
                      «val useCodec = GeneratorUtil.useCodec(function.returnedType.actualType, ArtifactNature.JAVA) || isSequence»
                      «val codec = if (useCodec) resolveCodec(function.returnedType.actualType, typeResolver) else null»
                      «val isFailable = isSequence && function.returnedType.isFailable»
-                     «IF isSequence»
-                         «returnType» result = «codec».decode«IF isFailable»Failable«ENDIF»(«responseName».get«protobufFunctionName»List());
+                     «IF function.chunked»
+                         «returnType» result = new «ChunkingGenerator.CHUNKED_COLLECTION_NAME»<>(«codec».decode(«responseName».get«protobufFunctionName»List()),
+                            «responseName».get«Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName»(), cursor -> fetch«function.name»Chunk(request«function.name», cursor));
+                     «ELSEIF isSequence»
+                         «returnType» result = «IF isFailable»«resolveFailableDecode(typeResolver, basicJavaSourceGenerator.qualifiedNameProvider, function.returnedType.actualType, interfaceDeclaration)»«ELSE»«codec».decode«ENDIF»(«responseName».get«protobufFunctionName»List());
                      «ELSEIF isVoid»
+                         «IF withMetrics»
+                             «typeResolver.recordMetrics(function, "DECODE", "System.nanoTime() - decodeStart")»
+                         «ENDIF»
                          return null; // it's a Void!
                      «ELSE»
                      «returnType» result = «IF useCodec»(«returnType») «codec».decode(«ENDIF»«IF isByte || isShort || isChar»(«IF isByte»byte«ELSEIF isChar»char«ELSE»short«ENDIF») «ENDIF»«responseName».get«protobufFunctionName»()«IF useCodec»)«ENDIF»;
                «ENDIF»
+               «IF withMetrics && !isVoid»
+                   «typeResolver.recordMetrics(function, "DECODE", "System.nanoTime() - decodeStart")»
+               «ENDIF»
                «IF !isVoid»return result;«ENDIF»
-                  };
+                  } catch (Exception e) {
+                     throw new «typeResolver.resolve("java.util.concurrent.CompletionException")»(e);
+                  }
+               });
+            
+               «IF isSync»«IF !isVoid»return «ENDIF»resultFuture.get();«ELSE»return resultFuture;«ENDIF»
+            }
+            «IF function.chunked»
+                «generateFetchChunk(function, interfaceDeclaration)»
+            «ENDIF»
+        '''
+    }
+
+    private def generateFetchChunk(FunctionDeclaration function, InterfaceDeclaration interfaceDeclaration)
+    {
+        val protobufRequest = resolveProtobuf(typeResolver, interfaceDeclaration, Optional.of(ProtobufType.REQUEST))
+        val protobufResponse = resolveProtobuf(typeResolver, interfaceDeclaration, Optional.of(ProtobufType.RESPONSE))
+        val requestMessage = protobufRequest + Constants.SEPARATOR_PACKAGE + function.name.asRequest
+        val responseMessage = protobufResponse + Constants.SEPARATOR_PACKAGE + function.name.asResponse
+        val protobufFunctionName = function.name.asJavaProtobufName
+        val cursorName = Constants.PROTOBUF_CHUNK_CURSOR.asJavaProtobufName
+
+        '''
             
-               «IF !isVoid || !isSync»return «ENDIF»«typeResolver.resolve("com.btc.cab.commons.helper.AsyncHelper")».createAndRunFutureTask(returnCallable)«IF isSync».get()«ENDIF»;
+            /**
+               Requests the chunk of the result of «function.name.toFirstLower» under the given cursor.
+            */
+            private «typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)»<«ChunkingGenerator.CHUNKED_COLLECTION_NAME».Chunk<«typeResolver.resolve(function.returnedType.actualType.ultimateType)»>> fetch«function.name»Chunk(«requestMessage» request«function.name», long cursor) throws Exception {
+               «protobufRequest» request = «protobufRequest».newBuilder()
+                  .set«protobufFunctionName»«Constants.PROTOBUF_REQUEST»(request«function.name».toBuilder().set«cursorName»(cursor))
+                  .build();
+               return toCompletableFuture(«typeResolver.resolve("com.btc.cab.servicecomm.util.ClientEndpointExtensions")».«IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»RequestAsync«ELSE»requestAsync«ENDIF»(
+                  _endpoint, _serviceReference, _serializer, request)).thenApply(bytes -> {
+                  try {
+                     «responseMessage» response«function.name» = «parseProtobuf(protobufResponse.toString, "bytes", zeroCopy)».get«protobufFunctionName»«Constants.PROTOBUF_RESPONSE»();
+                     return new «ChunkingGenerator.CHUNKED_COLLECTION_NAME».Chunk<>(«resolveCodec(function.returnedType.actualType, typeResolver)».decode(response«function.name».get«protobufFunctionName»List()),
+                        response«function.name».get«cursorName»());
+                  } catch (Exception e) {
+                     throw new «typeResolver.resolve("java.util.concurrent.CompletionException")»(e);
+                  }
+               });
             }
         '''
     }
 
-    private def outputAnonymousEvent(EventDeclaration anonymousEvent)
-    '''«IF anonymousEvent.keys.empty»
-       «val eventTypeName = typeResolver.resolve(anonymousEvent.data)»
-       /**
-          @see com.btc.cab.commons.IObservable#subscribe
-       */
-       @Override
-       public «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«typeResolver.resolve(anonymousEvent.data)»> observer) throws Exception {
-          _endpoint.getEventRegistry().createEventRegistration(
-                «eventTypeName».EventTypeGuid,
-                «typeResolver.resolve("com.btc.cab.servicecomm.api.EventKind")».EVENTKINDPUBLISHSUBSCRIBE,
-                «eventTypeName».EventTypeGuid.toString());
-          return «typeResolver.resolve("com.btc.cab.servicecomm.util.EventRegistryExtensions")».subscribe(_endpoint.getEventRegistry()
-                .getSubscriberManager(), «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»_serializerDeserializer«ELSE»_deserializer«ENDIF»,
-                «eventTypeName».EventTypeGuid,
-                EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer);
-       }
-     «ELSE»
-       /**
-          @see ???
-       */
-       public «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«typeResolver.resolve(anonymousEvent.data)»> observer, Iterable<KeyType> keys) throws Exception {
-          «makeDefaultMethodStub»
-       }
-    «ENDIF»'''
+    private def generateToCompletableFuture()
+    {
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+
+        '''
+            /**
+               Chains onto the reply without blocking if the endpoint delivers it as a completion stage,
+               otherwise waits for the reply on the executor of this proxy.
+            */
+            @SuppressWarnings("unchecked")
+            private «completableFuture»<byte[]> toCompletableFuture(«typeResolver.resolve("java.util.concurrent.Future")»<byte[]> requestFuture) {
+               if (requestFuture instanceof «typeResolver.resolve("java.util.concurrent.CompletionStage")»)
+                  return ((CompletionStage<byte[]>) requestFuture).toCompletableFuture();
+               
+               return «completableFuture».supplyAsync(() -> {
+                  try {
+                     return requestFuture.get();
+                  } catch («typeResolver.resolve("java.util.concurrent.ExecutionException")» e) {
+                     throw new «typeResolver.resolve("java.util.concurrent.CompletionException")»(e.getCause());
+                  } catch (InterruptedException e) {
+                     Thread.currentThread().interrupt();
+                     throw new CompletionException(e);
+                  }
+               }, _executor);
+            }
+        '''
+    }
+
+    private def generateAwaitReply()
+    {
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+
+        '''
+            /**
+               Waits for the reply on the calling thread, which blocks anyway for synchronous operations.
+            */
+            private static «completableFuture»<byte[]> awaitReply(«typeResolver.resolve("java.util.concurrent.Future")»<byte[]> requestFuture) throws InterruptedException {
+               «completableFuture»<byte[]> reply = new «completableFuture»<>();
+               try {
+                  reply.complete(requestFuture.get());
+               } catch («typeResolver.resolve("java.util.concurrent.ExecutionException")» e) {
+                  reply.completeExceptionally(e.getCause());
+               }
+               return reply;
+            }
+        '''
+    }
+
+    private def generateReplyExecutor(String className)
+    {
+        val executors = typeResolver.resolve("java.util.concurrent.Executors")
+
+        '''
+            /**
+               Waiting for a reply occupies a thread until the reply arrives, so the pool is not bounded,
+               such that calls do not queue up behind outstanding ones; idle threads terminate after a
+               minute.
+            */
+            private static «typeResolver.resolve("java.util.concurrent.ExecutorService")» newReplyExecutor() {
+               return «executors».newCachedThreadPool(runnable -> {
+                  Thread thread = «executors».defaultThreadFactory().newThread(runnable);
+                  thread.setName("«className»-reply-" + thread.getName());
+                  thread.setDaemon(true);
+                  return thread;
+               });
+            }
+        '''
+    }
+
+    private def generateClose()
+    {
+        '''
+            /**
+               Shuts down the executor which this proxy created to wait for replies, once the outstanding
+               calls have received their replies.
+            */
+            @Override
+            public void close() {
+               if (_ownedExecutor != null)
+                  _ownedExecutor.shutdown();
+            }
+        '''
+    }
+
+    private def getSubscribesBatches()
+    {
+        // TODO the ServiceComm 0.3 proxy deserializes events from message buffers
+        eventBatching && basicJavaSourceGenerator.javaTargetVersion != ServiceCommVersion.V0_3
+    }
+
+    private def outputAnonymousEvent(EventDeclaration anonymousEvent, InterfaceDeclaration interfaceDeclaration)
+    {
+        val eventTypeName = typeResolver.resolve(anonymousEvent.data)
+        '''
+            /**
+               @see com.btc.cab.commons.IObservable#subscribe
+            */
+            @Override
+            public «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«typeResolver.resolve(anonymousEvent.data)»> observer) throws Exception {
+               _endpoint.getEventRegistry().createEventRegistration(
+                     «eventTypeName».EventTypeGuid,
+                     «typeResolver.resolve("com.btc.cab.servicecomm.api.EventKind")».EVENTKINDPUBLISHSUBSCRIBE,
+                     «eventTypeName».EventTypeGuid.toString());
+               «IF subscribesBatches»
+                   «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscription = «typeResolver.resolve("com.btc.cab.servicecomm.util.EventRegistryExtensions")».subscribe(_endpoint.getEventRegistry()
+                         .getSubscriberManager(), _deserializer,
+                         «eventTypeName».EventTypeGuid,
+                         EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer);
+                   Closeable batchSubscription = subscribeBatches(observer);
+                   return () -> {
+                      subscription.close();
+                      batchSubscription.close();
+                   };
+               «ELSE»
+                   return «typeResolver.resolve("com.btc.cab.servicecomm.util.EventRegistryExtensions")».subscribe(_endpoint.getEventRegistry()
+                         .getSubscriberManager(), «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»_serializerDeserializer«ELSE»_deserializer«ENDIF»,
+                         «eventTypeName».EventTypeGuid,
+                         EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer);
+               «ENDIF»
+            }
+            «IF subscribesBatches»
+            «val batchTypeName = resolveProtobufEventBatch(typeResolver, interfaceDeclaration, anonymousEvent)»
+            «val uuid = typeResolver.resolve(JavaClassNames.UUID)»
+
+            /**
+               Subscribes to the batches of events, which batching publishers send under a separate event type.
+            */
+            private «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribeBatches(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«eventTypeName»> observer) throws Exception {
+               «uuid» batchEventTypeGuid = new «uuid»(«eventTypeName».EventTypeGuid.getMostSignificantBits(),
+                     ~«eventTypeName».EventTypeGuid.getLeastSignificantBits());
+               _endpoint.getEventRegistry().createEventRegistration(
+                     batchEventTypeGuid,
+                     EventKind.EVENTKINDPUBLISHSUBSCRIBE,
+                     batchEventTypeGuid.toString());
+               «typeResolver.resolve("com.btc.cab.servicecomm.serialization.IDeserializer")» batchDeserializer = new IDeserializer() {
+                  @Override
+                  @SuppressWarnings("unchecked")
+                  public <T> T deserialize(byte[] inputStream, Class<T> deserializeClass) {
+                     try {
+                        return (T) «parseProtobuf(batchTypeName.toString, "inputStream", zeroCopy)»;
+                     } catch («IF zeroCopy»«typeResolver.resolve("java.io.IOException")»«ELSE»«typeResolver.resolve("com.google.protobuf.InvalidProtocolBufferException")»«ENDIF» e) {
+                        throw new IllegalArgumentException(e);
+                     }
+                  }
+               };
+               return EventRegistryExtensions.subscribe(_endpoint.getEventRegistry()
+                     .getSubscriberManager(), batchDeserializer,
+                     batchEventTypeGuid,
+                     EventKind.EVENTKINDPUBLISHSUBSCRIBE, new «typeResolver.resolve(JavaClassNames.OBSERVER)»<«batchTypeName»>() {
+                        @Override
+                        public void onNext(«batchTypeName» batch) {
+                           for («resolveProtobuf(typeResolver, anonymousEvent.data, Optional.empty)» event : batch.getEventsList())
+                              observer.onNext((«eventTypeName») «resolveCodec(anonymousEvent.data, typeResolver)».decode(event));
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                           observer.onError(error);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                           observer.onCompleted();
+                        }
+                     });
+            }
+            «ENDIF»
+            «IF !anonymousEvent.filterKeys.empty»
+            «val uuid = typeResolver.resolve(JavaClassNames.UUID)»
+            «val closeable = typeResolver.resolve(JavaClassNames.CLOSEABLE)»
+            «val protobufRequest = resolveProtobuf(typeResolver, interfaceDeclaration, Optional.of(ProtobufType.REQUEST))»
+            «val requestName = anonymousEvent.data.name.asKeySubscription.asRequest»
+            «val collections = typeResolver.resolve("java.util.Collections")»
+
+            /**
+               Subscribes to the event types of the given keys, to which the publisher sends the matching events only.
+               The keys are registered with the publisher, which publishes the events of a key while it has
+               subscriptions, and unregistered when the subscription is closed.
+            */
+            @Override
+            public «closeable» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«eventTypeName»> observer, Iterable<KeyType> keys) throws Exception {
+               «typeResolver.resolve("java.util.Set")»<Long> keyHashes = new «typeResolver.resolve("java.util.LinkedHashSet")»<>();
+               for (KeyType key : keys)
+                  keyHashes.add(hashKey(key));
+
+               «typeResolver.resolve("java.util.List")»<«closeable»> subscriptions = new «typeResolver.resolve("java.util.ArrayList")»<>();
+               for (long keyHash : keyHashes) {
+                  «uuid» keyEventTypeGuid = makeKeyEventTypeGuid(keyHash);
+                  _endpoint.getEventRegistry().createEventRegistration(
+                        keyEventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE,
+                        keyEventTypeGuid.toString());
+                  subscriptions.add(EventRegistryExtensions.subscribe(_endpoint.getEventRegistry()
+                        .getSubscriberManager(), «IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»_serializerDeserializer«ELSE»_deserializer«ENDIF»,
+                        keyEventTypeGuid,
+                        EventKind.EVENTKINDPUBLISHSUBSCRIBE, observer));
+               }
+               requestKeySubscription(keyHashes, «collections».emptySet());
+               return () -> {
+                  for («closeable» subscription : subscriptions)
+                     subscription.close();
+                  try {
+                     requestKeySubscription(Collections.emptySet(), keyHashes);
+                  } catch (Exception e) {
+                     throw new «typeResolver.resolve("java.io.IOException")»(e);
+                  }
+               };
+            }
+
+            private void requestKeySubscription(Iterable<Long> subscribedKeyHashes, Iterable<Long> unsubscribedKeyHashes) throws Exception {
+               «protobufRequest» request = «protobufRequest».newBuilder()
+                  .set«requestName.asJavaProtobufName»(«protobufRequest».«requestName».newBuilder()
+                     .addAll«Constants.PROTOBUF_SUBSCRIBED_KEY_HASHES.asJavaProtobufName»(subscribedKeyHashes)
+                     .addAll«Constants.PROTOBUF_UNSUBSCRIBED_KEY_HASHES.asJavaProtobufName»(unsubscribedKeyHashes))
+                  .build();
+               «typeResolver.resolve("com.btc.cab.servicecomm.util.ClientEndpointExtensions")».«IF basicJavaSourceGenerator.javaTargetVersion == ServiceCommVersion.V0_3»RequestAsync«ELSE»requestAsync«ENDIF»(
+                  _endpoint, _serviceReference, _serializer, request).get();
+            }
+
+            /**
+               Derives the event type under which the publisher sends the events of the key with the given hash.
+            */
+            private static «uuid» makeKeyEventTypeGuid(long keyHash) {
+               return new «uuid»(«eventTypeName».EventTypeGuid.getMostSignificantBits(),
+                     «eventTypeName».EventTypeGuid.getLeastSignificantBits() ^ keyHash);
+            }
+
+            /**
+               Computes the FNV-1a hash of the key values.
+            */
+            private static long hashKey(KeyType key) {
+               long hash = 0xcbf29ce484222325L;
+               «FOR key : anonymousEvent.filterKeys»
+                   «val value = '''key.get«key.keyName.toFirstUpper»()'''»
+                   «IF key.type.primitiveType.stringType !== null»
+                       hash = hashKey(hash, «value»);
+                   «ELSEIF key.type.primitiveType.booleanType !== null»
+                       hash = hashKey(hash, «value» ? 1 : 0, «key.keySize»);
+                   «ELSE»
+                       hash = hashKey(hash, «value», «key.keySize»);
+                   «ENDIF»
+               «ENDFOR»
+               return hash;
+            }
+
+            private static long hashKey(long hash, String value) {
+               for (byte b : value.getBytes(«typeResolver.resolve("java.nio.charset.StandardCharsets")».UTF_8))
+                  hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+               return hash * 0x100000001b3L; // terminating zero byte
+            }
+
+            private static long hashKey(long hash, long value, int size) {
+               for (int i = 0; i < size; ++i)
+                  hash = (hash ^ ((value >>> (8 * i)) & 0xff)) * 0x100000001b3L;
+               return hash;
+            }
+            «ELSEIF !anonymousEvent.keys.empty»
+
+            /**
+               @see ???
+            */
+            public «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«typeResolver.resolve(anonymousEvent.data)»> observer, Iterable<KeyType> keys) throws Exception {
+               «makeDefaultMethodStub»
+            }
+            «ENDIF»
+        '''
+    }
 
     private def String handleOutputParameter(ParameterElement element, String sourceName, String targetName)
     {
@@ -0,0 +1,117 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package com.btc.serviceidl.generator.java
+
+import org.eclipse.xtend.lib.annotations.Accessors
+
+@Accessors(NONE)
+class QueryCacheGenerator
+{
+    public static val QUERY_CACHE_NAME = "QueryCache"
+
+    val BasicJavaSourceGenerator basicJavaSourceGenerator
+
+    private def getTypeResolver()
+    {
+        basicJavaSourceGenerator.typeResolver
+    }
+
+    def generateQueryCache()
+    {
+        val byteString = typeResolver.resolve("com.google.protobuf.ByteString")
+        val completableFuture = typeResolver.resolve(JavaClassNames.COMPLETABLE_FUTURE)
+        val map = typeResolver.resolve("java.util.Map")
+
+        '''
+            /**
+             * Caches the responses of query operations by their encoded request. It holds at most a fixed number of
+             * requests, evicting the least recently used one first, and uses a response for a fixed time after it was
+             * received. Identical requests share a single call while it is in flight, and failed calls are not cached.
+             */
+            public class «QUERY_CACHE_NAME» {
+            
+               @FunctionalInterface
+               public interface Call {
+                  «completableFuture»<byte[]> send() throws Exception;
+               }
+            
+               private final long _ttlNanos;
+               private final «map»<«byteString», Entry> _entries;
+            
+               public «QUERY_CACHE_NAME»(int maxEntries, long ttlMillis) {
+                  _ttlNanos = «typeResolver.resolve("java.util.concurrent.TimeUnit")».MILLISECONDS.toNanos(ttlMillis);
+                  _entries = new «typeResolver.resolve("java.util.LinkedHashMap")»<«byteString», Entry>(16, 0.75f, true) {
+                     private static final long serialVersionUID = 1L;
+            
+                     @Override
+                     protected boolean removeEldestEntry(Map.Entry<«byteString», Entry> eldest) {
+                        return size() > maxEntries;
+                     }
+                  };
+               }
+            
+               /**
+                  @return the cached or in-flight response to the request, or else the response of the given call
+               */
+               public «completableFuture»<byte[]> get(«byteString» request, Call call) {
+                  Entry entry;
+                  synchronized (_entries) {
+                     Entry cached = _entries.get(request);
+                     if (cached != null && !cached.isExpired(System.nanoTime()))
+                        return cached.response;
+            
+                     entry = new Entry();
+                     _entries.put(request, entry);
+                  }
+            
+                  try {
+                     call.send().whenComplete((response, error) -> {
+                        if (error == null) {
+                           entry.expiry = System.nanoTime() + _ttlNanos;
+                           entry.inFlight = false;
+                           entry.response.complete(response);
+                        } else {
+                           remove(request, entry);
+                           entry.response.completeExceptionally(error);
+                        }
+                     });
+                  } catch (Exception e) {
+                     remove(request, entry);
+                     entry.response.completeExceptionally(e);
+                  }
+                  return entry.response;
+               }
+            
+               public void clear() {
+                  synchronized (_entries) {
+                     _entries.clear();
+                  }
+               }
+            
+               private void remove(«byteString» request, Entry entry) {
+                  synchronized (_entries) {
+                     _entries.remove(request, entry);
+                  }
+               }
+            
+               private static final class Entry {
+                  final «completableFuture»<byte[]> response = new «completableFuture»<>();
+                  long expiry;
+                  volatile boolean inFlight = true;
+            
+                  boolean isExpired(long now) {
+                     return !inFlight && now - expiry >= 0;
+                  }
+               }
+            }
+        '''
+    }
+}
@@ -33,6 +33,20 @@ class ServiceAPIGenerator
     }
 
     def generateEvent(EventDeclaration event)
+    {
+        '''
+        public abstract class «basicJavaSourceGenerator.toText(event)» implements «typeResolver.resolve(JavaClassNames.OBSERVABLE)»<«basicJavaSourceGenerator.toText(event.data)»> {
+           
+           «IF !event.keys.empty»
+               «makeKeyType(event)»
+               
+               public abstract «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«basicJavaSourceGenerator.toText(event.data)»> subscriber, Iterable<KeyType> keys);
+           «ENDIF»
+        }
+        '''
+    }
+
+    private def makeKeyType(EventDeclaration event)
     {
         val keys = new ArrayList<Pair<String, String>>
         for (key : event.keys)
@@ -41,29 +55,22 @@ class ServiceAPIGenerator
         }
 
         '''
-        public abstract class «basicJavaSourceGenerator.toText(event)» implements «typeResolver.resolve(JavaClassNames.OBSERVABLE)»<«basicJavaSourceGenerator.toText(event.data)»> {
+        public class KeyType {
            
-           «IF !keys.empty»
-               public class KeyType {
-                  
-                  «FOR key : keys»
-                      private «key.value» «key.key»;
-                  «ENDFOR»
-                  
-                  public KeyType(«FOR key : keys SEPARATOR ", "»«key.value» «key.key»«ENDFOR»)
-                  {
-                     «FOR key : keys»
-                         this.«key.key» = «key.key»;
-                     «ENDFOR»
-                  }
-                  
-                  «FOR key : keys SEPARATOR System.lineSeparator»
-                      «BasicJavaSourceGenerator.makeGetter(key.value, key.key)»
-                  «ENDFOR»
-               }
-               
-               public abstract «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«basicJavaSourceGenerator.toText(event.data)»> subscriber, Iterable<KeyType> keys);
-           «ENDIF»
+           «FOR key : keys»
+               private «key.value» «key.key»;
+           «ENDFOR»
+           
+           public KeyType(«FOR key : keys SEPARATOR ", "»«key.value» «key.key»«ENDFOR»)
+           {
+              «FOR key : keys»
+                  this.«key.key» = «key.key»;
+              «ENDFOR»
+           }
+           
+           «FOR key : keys SEPARATOR System.lineSeparator»
+               «BasicJavaSourceGenerator.makeGetter(key.value, key.key)»
+           «ENDFOR»
         }
         '''
     }
@@ -80,6 +87,15 @@ class ServiceAPIGenerator
                «basicJavaSourceGenerator.makeInterfaceMethodSignature(function)»;
                
            «ENDFOR»
+           «IF anonymousEvent !== null && !anonymousEvent.keys.empty»
+               «makeKeyType(anonymousEvent)»
+               
+               /**
+                  Subscribes to the events matching any of the given keys only.
+               */
+               «typeResolver.resolve(JavaClassNames.CLOSEABLE)» subscribe(«typeResolver.resolve(JavaClassNames.OBSERVER)»<«basicJavaSourceGenerator.toText(anonymousEvent.data)»> observer, Iterable<KeyType> keys) throws Exception;
+               
+           «ENDIF»
            
            «FOR event : interfaceDeclaration.events.filter[name !== null]»
                «val observableName = basicJavaSourceGenerator.toText(event)»
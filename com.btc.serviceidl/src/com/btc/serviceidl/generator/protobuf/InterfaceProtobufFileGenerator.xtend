@@ -16,7 +16,9 @@ import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.InterfaceDeclaration
 import com.btc.serviceidl.idl.ParameterDirection
 import com.btc.serviceidl.idl.VoidType
+import com.btc.serviceidl.util.Constants
 import com.btc.serviceidl.util.Util
+import java.util.LinkedHashSet
 import org.eclipse.emf.ecore.EObject
 import org.eclipse.xtend.lib.annotations.Accessors
 
@@ -27,12 +29,12 @@ import static extension com.btc.serviceidl.util.Util.*
 @Accessors(NONE)
 final class InterfaceProtobufFileGenerator extends ProtobufFileGeneratorBase
 {
-    def String generateInterface(InterfaceDeclaration interfaceDeclaration)
+    def String generateInterface(InterfaceDeclaration interfaceDeclaration, boolean eventBatching)
     {
         val requestPartId = new Counter
         val responsePartId = new Counter
 
-        val fileBody = '''
+        '''
             «generateFailable(interfaceDeclaration)»
             «generateTypes(interfaceDeclaration, interfaceDeclaration.contains.toList)»
             
@@ -49,13 +51,35 @@ final class InterfaceProtobufFileGenerator extends ProtobufFileGeneratorBase
                               required «resolve(param.paramType.actualType, interfaceDeclaration, interfaceDeclaration)» «param.protoFileAttributeName» = «fieldId.incrementAndGet»;
                           «ENDIF»
                       «ENDFOR»
+                      «IF function.chunked»
+                          «makeChunkCursor(fieldId)»
+                      «ENDIF»
                    }
                «ENDFOR»
-            
-               «FOR function : interfaceDeclaration.functions»
-                   «val messagePart = function.name.asRequest»
-                   optional «messagePart» «messagePart.asProtoFileAttributeName» = «requestPartId.incrementAndGet»;
+               «IF !interfaceDeclaration.functions.empty && !interfaceDeclaration.keyedEvents.empty»
+
+               «ENDIF»
+               «FOR event : interfaceDeclaration.keyedEvents SEPARATOR System.lineSeparator»
+                   message «event.data.name.asKeySubscription.asRequest»
+                   {
+                      repeated uint64 «Constants.PROTOBUF_SUBSCRIBED_KEY_HASHES» = 1;
+                      repeated uint64 «Constants.PROTOBUF_UNSUBSCRIBED_KEY_HASHES» = 2;
+                   }
                «ENDFOR»
+            
+               «IF !interfaceDeclaration.functions.empty || !interfaceDeclaration.keyedEvents.empty»
+                   oneof «Constants.PROTOBUF_REQUEST_ONEOF»
+                   {
+                      «FOR function : interfaceDeclaration.functions»
+                          «val messagePart = function.name.asRequest»
+                          «messagePart» «messagePart.asProtoFileAttributeName» = «requestPartId.incrementAndGet»;
+                      «ENDFOR»
+                      «FOR event : interfaceDeclaration.keyedEvents»
+                          «val messagePart = event.data.name.asKeySubscription.asRequest»
+                          «messagePart» «messagePart.asProtoFileAttributeName» = «requestPartId.incrementAndGet»;
+                      «ENDFOR»
+                   }
+               «ENDIF»
             }
             
             message «interfaceDeclaration.name.asResponse»
@@ -73,6 +97,17 @@ final class InterfaceProtobufFileGenerator extends ProtobufFileGeneratorBase
                           «ENDIF»
                       «ENDFOR»
                       «generateReturnType(function, interfaceDeclaration, interfaceDeclaration, fieldId)»
+                      «IF function.chunked»
+                          «makeChunkCursor(fieldId)»
+                      «ENDIF»
+                   }
+               «ENDFOR»
+               «IF !interfaceDeclaration.functions.empty && !interfaceDeclaration.keyedEvents.empty»
+
+               «ENDIF»
+               «FOR event : interfaceDeclaration.keyedEvents SEPARATOR System.lineSeparator»
+                   message «event.data.name.asKeySubscription.asResponse»
+                   {
                    }
                «ENDFOR»
             
@@ -80,15 +115,30 @@ final class InterfaceProtobufFileGenerator extends ProtobufFileGeneratorBase
                    «val messagePart = function.name.asResponse»                   
                    optional «messagePart» «messagePart.asProtoFileAttributeName» = «responsePartId.incrementAndGet»;
                «ENDFOR»
+               «FOR event : interfaceDeclaration.keyedEvents»
+                   «val messagePart = event.data.name.asKeySubscription.asResponse»
+                   optional «messagePart» «messagePart.asProtoFileAttributeName» = «responsePartId.incrementAndGet»;
+               «ENDFOR»
             }
+            «IF eventBatching»
+                «FOR eventData : new LinkedHashSet(interfaceDeclaration.events.map[data].toList)»
+                    
+                    message «eventData.name.asEventBatch»
+                    {
+                       repeated «resolve(eventData, interfaceDeclaration, interfaceDeclaration)» events = 1;
+                    }
+                «ENDFOR»
+            «ENDIF»
         '''
+    }
 
-        val fileHeader = '''
-            «generatePackageName(interfaceDeclaration)»
-            «generateImports(interfaceDeclaration)»
-        '''
-
-        return fileHeader + fileBody
+    /**
+     * In a request, the cursor is absent to receive the whole result at once, 0 to receive its first chunk,
+     * or else the cursor of the previous chunk. In a response, it is 0 for the last chunk.
+     */
+    private def String makeChunkCursor(Counter id)
+    {
+        '''optional uint64 «Constants.PROTOBUF_CHUNK_CURSOR» = «id.incrementAndGet»;'''
     }
 
     private def String generateReturnType(FunctionDeclaration function, EObject context, AbstractContainerDeclaration container, Counter id)
@@ -0,0 +1,55 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.btc.serviceidl.generator.protobuf
+
+import com.btc.serviceidl.generator.common.ArtifactNature
+import com.btc.serviceidl.idl.AbstractContainerDeclaration
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+import static extension com.btc.serviceidl.generator.protobuf.ProtobufGeneratorUtil.*
+
+/**
+ * Stands in for the language-specific module names of containers, such that the contents of a .proto file
+ * can be rendered once for all languages. The placeholders are replaced for each language by {@link #resolve}.
+ */
+class ModuleNamePlaceholders
+{
+    static val PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{module:(\\d+)\\}")
+
+    val containers = new ArrayList<AbstractContainerDeclaration>
+    val indices = new HashMap<AbstractContainerDeclaration, Integer>
+
+    def String get(AbstractContainerDeclaration container)
+    {
+        val index = indices.computeIfAbsent(container, [
+            containers.add(container)
+            containers.size - 1
+        ])
+        "${module:" + index + "}"
+    }
+
+    def String resolve(String text, ArtifactNature artifactNature)
+    {
+        val matcher = PLACEHOLDER_PATTERN.matcher(text)
+        val result = new StringBuffer
+        while (matcher.find)
+        {
+            val container = containers.get(Integer.parseInt(matcher.group(1)))
+            matcher.appendReplacement(result, Matcher.quoteReplacement(container.getModuleName(artifactNature)))
+        }
+        matcher.appendTail(result)
+        result.toString
+    }
+}
@@ -21,17 +21,10 @@ final class ModuleProtobufFileGenerator extends ProtobufFileGeneratorBase
 {
     def String generateModuleContent(ModuleDeclaration module, Iterable<EObject> moduleContents)
     {
-        val fileBody = '''
+        '''
             «generateFailable(module)»
             «generateTypes(module, module.moduleComponents.reject[it instanceof InterfaceDeclaration].toList)»
         '''
-
-        val fileHeader = '''
-            «generatePackageName(module)»
-            «generateImports(module)»
-        '''
-
-        return fileHeader + fileBody
     }
 
 }
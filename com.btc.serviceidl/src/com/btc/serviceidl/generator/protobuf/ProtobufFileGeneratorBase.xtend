@@ -34,6 +34,7 @@ import com.btc.serviceidl.util.Constants
 import com.btc.serviceidl.util.MemberElementWrapper
 import java.util.Collection
 import java.util.HashSet
+import java.util.LinkedHashSet
 import java.util.Map
 import java.util.Set
 import org.eclipse.core.runtime.IPath
@@ -52,8 +53,10 @@ class ProtobufFileGeneratorBase
     val IModuleStructureStrategy moduleStructureStrategy
     val Map<ParameterBundle, Set<ParameterBundle>> projectReferences
     val Map<String, String> typedefTable // TODO is it correct to share this across files?
-    val ArtifactNature artifactNature
-    val referencedFiles = new HashSet<IPath>
+    val ModuleNamePlaceholders moduleNames
+    val boolean packedRepeated
+    val boolean arenas
+    val referencedContainers = new HashSet<AbstractContainerDeclaration>
 
     static val WRAPPER_SUFFIX = "Wrapper"
 
@@ -102,18 +105,34 @@ class ProtobufFileGeneratorBase
         '''
     }
 
-    protected def String generatePackageName(AbstractContainerDeclaration container)
+    /**
+     * Completes the file body, which was rendered independently of the target language, for the given language.
+     */
+    def String generateFile(AbstractContainerDeclaration container, String fileBody, ArtifactNature artifactNature)
+    {
+        val fileHeader = '''
+            «generatePackageName(container, artifactNature)»
+            «generateImports(artifactNature)»
+        '''
+
+        moduleNames.resolve(fileHeader + fileBody, artifactNature)
+    }
+
+    private def String generatePackageName(AbstractContainerDeclaration container, ArtifactNature artifactNature)
     {
         '''
             syntax = "proto2";
             package «container.getModuleName(artifactNature)»;
+            «IF arenas»
+                option cc_enable_arenas = true;
+            «ENDIF»
         '''
     }
 
-    protected def String generateImports(AbstractContainerDeclaration container)
+    private def String generateImports(ArtifactNature artifactNature)
     {
         '''
-            «FOR importFile : referencedFiles»
+            «FOR importFile : new HashSet<IPath>(referencedContainers.map[importPath(artifactNature)].toList)»
                 import "«importFile.toPortableString»";
             «ENDFOR»
         '''
@@ -223,12 +242,11 @@ class ProtobufFileGeneratorBase
     {
         if (context instanceof AbstractStructuralDeclaration)
         {
-            val fieldId = new Counter
             '''
                 enum «element.name»
                 {
                    «FOR identifier : element.containedIdentifiers»
-                       «identifier» = «fieldId.incrementAndGet»;
+                       «identifier» = «GeneratorUtil.getProtobufEnumNumber(element, identifier)»;
                    «ENDFOR»
                 }
             '''
@@ -289,6 +307,15 @@ class ProtobufFileGeneratorBase
             throw new IllegalArgumentException("Unknown PrimitiveType: " + element.class.toString)
     }
 
+    /**
+     * Only repeated fields of scalar numeric types (including enums) may use the packed encoding.
+     */
+    private static def boolean isPackable(AbstractTypeReference element)
+    {
+        element.isEnumType ||
+            (element instanceof PrimitiveType && !(element as PrimitiveType).isString && !(element as PrimitiveType).isUUID)
+    }
+
     protected static def boolean requiresNewMessageType(AbstractTypeReference element)
     {
         element instanceof TupleDeclaration ||
@@ -303,7 +330,7 @@ class ProtobufFileGeneratorBase
                 «val failableType = resolve(nestedType, context, container).alias(GeneratorUtil.asFailable(nestedType, container, qualifiedNameProvider))»
                 «IF !(context instanceof InterfaceDeclaration || context instanceof AliasDeclaration)»repeated «failableType» «protobufName» = «id.incrementAndGet»;«ENDIF»
             «ELSE»
-                repeated «toText(nestedType, context, container, new Counter)» «protobufName» = «id.incrementAndGet»;
+                repeated «toText(nestedType, context, container, new Counter)» «protobufName» = «id.incrementAndGet»«IF packedRepeated && nestedType.isPackable» [packed=true]«ENDIF»;
             «ENDIF»
         '''
     }
@@ -334,28 +361,27 @@ class ProtobufFileGeneratorBase
         else
             resolveNonPrimitiveImportedType(objectRoot, plainName,
                 new ParameterBundle.Builder().with(context.scopeDeterminant.moduleStack).with(ProjectType.PROTOBUF).
-                    build, artifactNature)
+                    build)
     }
 
     private def resolveNonPrimitiveImportedType(AbstractContainerDeclaration referencedObjectContainer,
-        String referencedObjectContainerPlainName, ParameterBundle referencingModuleParameterBundle,
-        ArtifactNature artifactNature)
+        String referencedObjectContainerPlainName, ParameterBundle referencingModuleParameterBundle)
     {
-        referencedFiles.add(referencedObjectContainer.importPath)
+        referencedContainers.add(referencedObjectContainer)
 
         val referencedModuleStack = referencedObjectContainer.moduleStack
         if (referencingModuleParameterBundle.moduleStack != referencedModuleStack)
         {
             projectReferences.computeIfAbsent(referencingModuleParameterBundle, [
-                new HashSet<ParameterBundle>
+                new LinkedHashSet<ParameterBundle>
             ]).add(ParameterBundle.createBuilder(referencedModuleStack).with(ProjectType.PROTOBUF).build)
         }
 
-        referencedObjectContainer.getModuleName(artifactNature) + TransformType.PACKAGE.separator +
+        moduleNames.get(referencedObjectContainer) + TransformType.PACKAGE.separator +
             referencedObjectContainerPlainName
     }
 
-    def importPath(AbstractContainerDeclaration object)
+    private def importPath(AbstractContainerDeclaration object, ArtifactNature artifactNature)
     {
         makeProtobufPath(object, if (object instanceof InterfaceDeclaration)
             Names.plain(object)
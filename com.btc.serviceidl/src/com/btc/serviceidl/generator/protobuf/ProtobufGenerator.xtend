@@ -40,14 +40,19 @@ final class ProtobufGenerator
    val IFileSystemAccess fileSystemAccess
    val IQualifiedNameProvider qualifiedNameProvider
    val IModuleStructureStrategy moduleStructureStrategy
+   val boolean packedRepeated
+   val boolean arenas
+   val boolean eventBatching
       
    val generatedArtifacts = new HashMap<AbstractContainerDeclaration, String>
    val typedefTable = new HashMap<String, String>
-   val allProjectReferences = new HashMap<ArtifactNature, Map<ParameterBundle, Set<ParameterBundle>>>
+   val moduleNames = new ModuleNamePlaceholders
+   // the project references do not depend on the language
+   val projectReferences = new HashMap<ParameterBundle, Set<ParameterBundle>>
    
-   def Map<ParameterBundle, Set<ParameterBundle>> getProjectReferences(ArtifactNature artifactNature)
+   def Map<ParameterBundle, Set<ParameterBundle>> getProjectReferences()
     {
-        allProjectReferences.computeIfAbsent(artifactNature, [new HashMap<ParameterBundle, Set<ParameterBundle>>])
+        projectReferences
     }
    
    def Map<AbstractContainerDeclaration, String> getGeneratedArtifacts()
@@ -60,10 +65,10 @@ final class ProtobufGenerator
       // handle all interfaces
       for (interfaceDeclaration : resource.allContents.filter(InterfaceDeclaration).toIterable)
       {
+          val fileGenerator = new InterfaceProtobufFileGenerator(qualifiedNameProvider, moduleStructureStrategy,
+              projectReferences, typedefTable, moduleNames, packedRepeated, arenas)
           generateProtobufFileForEachLanguage(languages, interfaceDeclaration, interfaceDeclaration.name,
-                 [language|new InterfaceProtobufFileGenerator(qualifiedNameProvider, moduleStructureStrategy,
-                     getProjectReferences(language), typedefTable, language).generateInterface(
-                     interfaceDeclaration)])
+              fileGenerator, fileGenerator.generateInterface(interfaceDeclaration, eventBatching))
       }
       
       // handle all module contents (excluding interfaces)
@@ -72,20 +77,20 @@ final class ProtobufGenerator
          val moduleContents = module.eContents.reject[it instanceof AbstractContainerDeclaration]
          if ( !moduleContents.empty )
          {
-             generateProtobufFileForEachLanguage(languages, module, Constants.FILE_NAME_TYPES, 
-                 [language|new ModuleProtobufFileGenerator(qualifiedNameProvider, moduleStructureStrategy,
-                            getProjectReferences(language), typedefTable, language).generateModuleContent(module,
-                            moduleContents)])
+             val fileGenerator = new ModuleProtobufFileGenerator(qualifiedNameProvider, moduleStructureStrategy,
+                 projectReferences, typedefTable, moduleNames, packedRepeated, arenas)
+             generateProtobufFileForEachLanguage(languages, module, Constants.FILE_NAME_TYPES, fileGenerator,
+                 fileGenerator.generateModuleContent(module, moduleContents))
          }
       }
    }
    
    private def void generateProtobufFileForEachLanguage(Iterable<ArtifactNature> languages, AbstractContainerDeclaration object,
-        String artifactName, (ArtifactNature)=>CharSequence generateContent)
+        String artifactName, ProtobufFileGeneratorBase fileGenerator, String fileBody)
     {
-         // TODO why is the proto file generated for each language?
+        // the file body is rendered only once, just the package names and import paths differ between the languages
         for (language : languages)
-            generateProtobufFile(language, object, artifactName, generateContent.apply(language))
+            generateProtobufFile(language, object, artifactName, fileGenerator.generateFile(object, fileBody, language))
 
         generatedArtifacts.put(object, artifactName)
     }
@@ -43,10 +43,23 @@ public interface Constants {
     public static final String PROJECT_NAME_SERVER_RUNNER    = "ServerRunner";
     public static final String PROJECT_NAME_CLIENT_CONSOLE   = "ClientConsole";
     public static final String PROJECT_NAME_EXTERNAL_DB_IMPL = "ExternalDBImpl";
+    public static final String PROJECT_NAME_BENCHMARK        = "Benchmark";
 
     // Protobuf message names
     public static final String PROTOBUF_REQUEST  = "Request";
     public static final String PROTOBUF_RESPONSE = "Response";
+    public static final String PROTOBUF_EVENT_BATCH = "Batch";
+    public static final String PROTOBUF_KEY_SUBSCRIPTION = "KeySubscription";
+
+    // name of the oneof holding the per-function request messages
+    public static final String PROTOBUF_REQUEST_ONEOF = "request";
+
+    // name of the field holding the cursor of a result transferred in chunks
+    public static final String PROTOBUF_CHUNK_CURSOR = "chunk_cursor";
+
+    // names of the fields holding the key hashes of a key subscription request
+    public static final String PROTOBUF_SUBSCRIBED_KEY_HASHES   = "subscribed_key_hashes";
+    public static final String PROTOBUF_UNSUBSCRIBED_KEY_HASHES = "unsubscribed_key_hashes";
 
     // File names
     public static final String FILE_NAME_DEPENDENCIES  = "Dependencies";
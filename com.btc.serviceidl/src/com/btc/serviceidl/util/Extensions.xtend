@@ -25,6 +25,7 @@ import com.btc.serviceidl.idl.ExceptionDeclaration
 import com.btc.serviceidl.idl.FunctionDeclaration
 import com.btc.serviceidl.idl.IDLSpecification
 import com.btc.serviceidl.idl.InterfaceDeclaration
+import com.btc.serviceidl.idl.KeyElement
 import com.btc.serviceidl.idl.MemberElement
 import com.btc.serviceidl.idl.ModuleDeclaration
 import com.btc.serviceidl.idl.ParameterDirection
@@ -339,6 +340,63 @@ class Extensions
         return new MemberElementWrapper(enumDeclaration)
     }
 
+    /**
+     * The keys by which subscribers of the given event select the events they receive. Each key has to name a
+     * non-optional member of the event data of the same string, integer or boolean type; otherwise, the event
+     * cannot be filtered by its keys, and the result is empty.
+     * 
+     * Publishers send each event under an event type of its own key, such that the event registry delivers it to
+     * the subscribers of that key only. Its GUID is the GUID of the event type, with the last 8 bytes xored with
+     * the 64-bit FNV-1a hash of the key values in declaration order: strings by their UTF-8 bytes followed by a
+     * zero byte, integers and booleans by their getKeySize lowest bytes in little-endian order. The bytes are
+     * xored in the order of the textual representation of the GUID, most significant byte of the hash first.
+     * 
+     * Publishers create the event type of a key only while it has subscribers: subscribers register the hashes
+     * of their keys with the key subscription request of the event data (see Util#asKeySubscription) before they
+     * subscribe, and unregister them when they unsubscribe. The publisher counts the registrations of each hash
+     * and releases its event type when the count drops to zero.
+     */
+    static def Iterable<KeyElement> filterKeys(EventDeclaration event)
+    {
+        if (event.keys.forall[isFilterKey(event)]) event.keys else #[]
+    }
+
+    /**
+     * The events of the given interface which subscribers can filter by their keys, one for each event data,
+     * see filterKeys.
+     */
+    static def Iterable<EventDeclaration> keyedEvents(InterfaceDeclaration interfaceDeclaration)
+    {
+        val eventData = new HashSet<StructDeclaration>
+        interfaceDeclaration.events.filter[!filterKeys.empty && eventData.add(data)].toList
+    }
+
+    static def boolean isFilterKey(KeyElement key, EventDeclaration event)
+    {
+        val keyType = key.type.primitiveType
+        if (keyType === null ||
+            (keyType.stringType === null && keyType.integerType === null && keyType.booleanType === null))
+            return false
+
+        val member = event.data?.allMembers?.findFirst[name == key.keyName]
+        member !== null && !member.optional && member.type instanceof PrimitiveType &&
+            org.eclipse.emf.ecore.util.EcoreUtil.equals(member.type, keyType)
+    }
+
+    /**
+     * The number of bytes by which the value of the given integer or boolean key is hashed, see filterKeys.
+     */
+    static def int getKeySize(KeyElement key)
+    {
+        switch (key.type.primitiveType.integerType)
+        {
+            case "int16": 2
+            case "int32": 4
+            case "int64": 8
+            default: 1
+        }
+    }
+
     static def namedEvents(InterfaceDeclaration interfaceDeclaration)
     {
         // TODO the events function also includes inherited events, check whether these 
@@ -361,6 +419,11 @@ class Extensions
     }
 
     static def getEffectiveMainModule(IDLSpecification idlSpecification)
+    {
+        ModelIndex.get(idlSpecification).getEffectiveMainModule([computeEffectiveMainModule])
+    }
+
+    private static def ModuleDeclaration computeEffectiveMainModule(IDLSpecification idlSpecification)
     {
         // we can assume here there is a unique main module if explicit, otherwise the IDL file is invalid via checkUniqueMainModule
         val explicitMainModule = idlSpecification.eAllContents.filter(ModuleDeclaration).filter[main].head
@@ -0,0 +1,118 @@
+/*********************************************************************
+ * \author see AUTHORS file
+ * \copyright 2015-2018 BTC Business Technology Consulting AG and others
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+/**
+ * \file       ModelIndex.xtend
+ * 
+ * \brief      Per-resource index for lookups which would otherwise scan the whole model
+ */
+package com.btc.serviceidl.util
+
+import com.btc.serviceidl.idl.AbstractContainerDeclaration
+import com.btc.serviceidl.idl.AbstractException
+import com.btc.serviceidl.idl.AbstractTypeReference
+import com.btc.serviceidl.idl.EventDeclaration
+import com.btc.serviceidl.idl.IDLSpecification
+import com.btc.serviceidl.idl.ModuleDeclaration
+import com.btc.serviceidl.idl.StructDeclaration
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.List
+import java.util.Map
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.xtext.util.OnChangeEvictingCache
+
+import static extension org.eclipse.xtext.EcoreUtil2.*
+
+/**
+ * The index is built once per resource and cached until the resource is changed. Lookups for which the index
+ * does not know how to compute the result themselves (failable types and exceptions) are memoized with the
+ * function passed by the caller.
+ */
+class ModelIndex
+{
+    static val cache = new OnChangeEvictingCache
+
+    val IDLSpecification idlSpecification
+    val relatedEvents = new HashMap<StructDeclaration, List<EventDeclaration>>
+    val failableTypes = new HashMap<AbstractContainerDeclaration, Iterable<AbstractTypeReference>>
+    val failableExceptions = new HashMap<AbstractContainerDeclaration, Iterable<AbstractException>>
+    var ModuleDeclaration effectiveMainModule = null
+    var effectiveMainModuleComputed = false
+
+    private new(IDLSpecification idlSpecification)
+    {
+        this.idlSpecification = idlSpecification
+        for (event : idlSpecification.eAllContents.filter(EventDeclaration).toIterable)
+        {
+            if (event.data !== null)
+                relatedEvents.computeIfAbsent(event.data, [new ArrayList<EventDeclaration>]).add(event)
+        }
+    }
+
+    /**
+     * Returns the index of the IDL specification containing the given element.
+     */
+    static def ModelIndex get(EObject element)
+    {
+        val idlSpecification = element.getContainerOfType(IDLSpecification)
+        val resource = idlSpecification.eResource
+        if (resource === null)
+            return new ModelIndex(idlSpecification)
+
+        // resources may be generated concurrently, and the cache adapter attached to a resource is not thread-safe
+        synchronized (resource)
+        {
+            cache.get(ModelIndex, resource, [new ModelIndex(idlSpecification)])
+        }
+    }
+
+    /**
+     * All events within the IDL specification which use the given structure as their data, in model order.
+     */
+    def synchronized List<EventDeclaration> getRelatedEvents(StructDeclaration struct)
+    {
+        relatedEvents.get(struct) ?: #[]
+    }
+
+    def synchronized ModuleDeclaration getEffectiveMainModule((IDLSpecification)=>ModuleDeclaration compute)
+    {
+        if (!effectiveMainModuleComputed)
+        {
+            effectiveMainModule = compute.apply(idlSpecification)
+            effectiveMainModuleComputed = true
+        }
+        effectiveMainModule
+    }
+
+    def synchronized Iterable<AbstractTypeReference> getFailableTypes(AbstractContainerDeclaration container,
+        (AbstractContainerDeclaration)=>Iterable<AbstractTypeReference> compute)
+    {
+        memoize(failableTypes, container, compute)
+    }
+
+    def synchronized Iterable<AbstractException> getFailableExceptions(AbstractContainerDeclaration container,
+        (AbstractContainerDeclaration)=>Iterable<AbstractException> compute)
+    {
+        memoize(failableExceptions, container, compute)
+    }
+
+    private static def <K, V> V memoize(Map<K, V> map, K key, (K)=>V compute)
+    {
+        // no computeIfAbsent, since the computation might query the index again
+        var result = map.get(key)
+        if (result === null)
+        {
+            result = compute.apply(key)
+            map.put(key, result)
+        }
+        result
+    }
+}
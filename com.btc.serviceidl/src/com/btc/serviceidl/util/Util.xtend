@@ -22,6 +22,7 @@ import com.btc.serviceidl.idl.AbstractException
 import com.btc.serviceidl.idl.AbstractType
 import com.btc.serviceidl.idl.AbstractTypeReference
 import com.btc.serviceidl.idl.AliasDeclaration
+import com.btc.serviceidl.idl.ChunkSizeHint
 import com.btc.serviceidl.idl.DocCommentElement
 import com.btc.serviceidl.idl.EnumDeclaration
 import com.btc.serviceidl.idl.EventDeclaration
@@ -35,6 +36,7 @@ import com.btc.serviceidl.idl.ParameterElement
 import com.btc.serviceidl.idl.PrimitiveType
 import com.btc.serviceidl.idl.SequenceDeclaration
 import com.btc.serviceidl.idl.StructDeclaration
+import com.btc.serviceidl.idl.TypicalLengthHint
 import java.util.ArrayDeque
 import java.util.HashSet
 import java.util.Optional
@@ -83,6 +85,23 @@ class Util
         makeBasicMessageName(name, Constants.PROTOBUF_RESPONSE)
     }
 
+    /**
+     * Converts the given name of event data into the name of the Protobuf message for a batch of these events.
+     */
+    def static String asEventBatch(String name)
+    {
+        makeBasicMessageName(name, Constants.PROTOBUF_EVENT_BATCH)
+    }
+
+    /**
+     * Converts the given name of event data into the base name of the Protobuf request and response messages by
+     * which subscribers register the keys of the events they receive, see Extensions#filterKeys.
+     */
+    def static String asKeySubscription(String name)
+    {
+        makeBasicMessageName(name, Constants.PROTOBUF_KEY_SUBSCRIPTION)
+    }
+
     def static Iterable<ModuleDeclaration> getModuleStack(AbstractContainerDeclaration element)
     {
         val moduleStack = new ArrayDeque<ModuleDeclaration>
@@ -118,7 +137,7 @@ class Util
 
     def static EventDeclaration getRelatedEvent(StructDeclaration object)
     {
-        return object.getParent(IDLSpecification).eAllContents.filter(EventDeclaration).findFirst[data === object]
+        return ModelIndex.get(object).getRelatedEvents(object).head
     }
 
     def static EventDeclaration getAnonymousEvent(InterfaceDeclaration interfaceDeclaration)
@@ -452,6 +471,30 @@ class Util
         return Optional.empty
     }
 
+    /**
+     * Returns the value of the "typical sequence length" hint of the sequence
+     * represented by the given element, if there is one.
+     */
+    def static Optional<Integer> getTypicalLength(EObject element)
+    {
+        tryGetSequence(element).map[sequenceHints.filter(TypicalLengthHint).map[length].head]
+    }
+
+    /**
+     * Returns the value of the "chunk size" hint of the sequence returned by
+     * the given function, if there is one. Such a result is transferred in
+     * chunks of this number of elements, if the client asks for it.
+     */
+    def static Optional<Integer> getChunkSize(FunctionDeclaration function)
+    {
+        tryGetSequence(function.returnedType).map[sequenceHints.filter(ChunkSizeHint).map[size].head]
+    }
+
+    def static boolean isChunked(FunctionDeclaration function)
+    {
+        function.chunkSize.present
+    }
+
     /**
      * Core logic for getUltimateType; the flag "decomposeTypedef" allows us either
      * to get the basic type defined by this typedef (true) or the typedef itself (false).
@@ -500,6 +543,11 @@ class Util
     }
 
     static def Iterable<AbstractException> getFailableExceptions(AbstractContainerDeclaration container)
+    {
+        ModelIndex.get(container).getFailableExceptions(container, [computeFailableExceptions])
+    }
+
+    private static def Iterable<AbstractException> computeFailableExceptions(AbstractContainerDeclaration container)
     {
         var exceptions = new HashSet<AbstractException>
 
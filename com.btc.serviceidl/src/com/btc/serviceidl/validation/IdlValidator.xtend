@@ -17,6 +17,7 @@ package com.btc.serviceidl.validation
 
 import com.btc.serviceidl.idl.AbstractTypeReference
 import com.btc.serviceidl.idl.AliasDeclaration
+import com.btc.serviceidl.idl.ChunkSizeHint
 import com.btc.serviceidl.idl.EnumDeclaration
 import com.btc.serviceidl.idl.EventDeclaration
 import com.btc.serviceidl.idl.ExceptionDeclaration
@@ -35,6 +36,7 @@ import com.btc.serviceidl.idl.StructDeclaration
 import com.btc.serviceidl.idl.TupleDeclaration
 import com.btc.serviceidl.idl.TypicalLengthHint
 import com.btc.serviceidl.idl.TypicalSizeHint
+import com.btc.serviceidl.util.ModelIndex
 import com.btc.serviceidl.util.Util
 import java.util.Collection
 import java.util.HashMap
@@ -91,7 +93,7 @@ class IdlValidator extends AbstractIdlValidator
     }
 
     /**
-     * Verify, that at most 2 sequence hints are allowed and they must have different types.
+     * Verify, that each type of sequence hint is given at most once.
      */
     @Check
     def checkSequenceHints(SequenceDeclaration element)
@@ -115,6 +117,16 @@ class IdlValidator extends AbstractIdlValidator
                 IdlPackage.Literals.TYPICAL_LENGTH_HINT__LENGTH
             )
         }
+
+        val chunkSizeHints = element.sequenceHints.filter(ChunkSizeHint)
+        if (chunkSizeHints.size > 1)
+        {
+            error(
+                "Chunk size already defined",
+                chunkSizeHints.last,
+                IdlPackage.Literals.CHUNK_SIZE_HINT__SIZE
+            )
+        }
     }
 
     /**
@@ -212,9 +224,10 @@ class IdlValidator extends AbstractIdlValidator
     @Check
     def checkRelatedEvents(IDLSpecification idlSpecification)
     {
+        val modelIndex = ModelIndex.get(idlSpecification)
         for (eventData : idlSpecification.eAllContents.filter(StructDeclaration).toIterable)
         {
-            val relatedEvents = idlSpecification.eAllContents.filter(EventDeclaration).filter[data === eventData].toList
+            val relatedEvents = modelIndex.getRelatedEvents(eventData)
             if (relatedEvents.size > 1)
             {
                 for (event : relatedEvents.drop(1))
@@ -580,16 +593,6 @@ class IdlValidator extends AbstractIdlValidator
         }
     }
 
-    @Check
-    def unsupportedFeatureWarning(TypicalLengthHint element)
-    {
-        warning(
-            "The 'typical sequence length' hint has currently no effect on the generated code",
-            element,
-            IdlPackage.Literals.TYPICAL_LENGTH_HINT__LENGTH
-        )
-    }
-
     @Check
     def unsupportedFeatureWarning(TypicalSizeHint element)
     {
@@ -612,14 +615,12 @@ class IdlValidator extends AbstractIdlValidator
             )
         }
 
-        // no ServiceComm support for key-based subscription in Java yet;
-        // see mail from Niels Streekmann on July 2, 2015
-        if (!element.keys.empty)
+        for (key : element.keys.filter[!isFilterKey(element)])
         {
             warning(
-                Messages.FEATURE_NOT_SUPPORED_BY_CAB,
-                element,
-                IdlPackage.Literals.EVENT_DECLARATION__KEYS
+                Messages.EVENT_KEY_NOT_FILTERABLE,
+                key,
+                IdlPackage.Literals.KEY_ELEMENT__KEY_NAME
             )
         }
     }
@@ -676,6 +677,26 @@ class IdlValidator extends AbstractIdlValidator
         }
     }
 
+    /**
+     * Only a result can be transferred in chunks, which requires it to be the only content of the response.
+     */
+    @Check
+    def unsupportedFeatureError(ChunkSizeHint element)
+    {
+        val sequence = element.eContainer as SequenceDeclaration
+        val function = sequence.eContainer?.eContainer
+        if (!(function instanceof FunctionDeclaration) || sequence.failable ||
+            (function as FunctionDeclaration).returnedType !== sequence.eContainer ||
+            (function as FunctionDeclaration).parameters.exists[direction == ParameterDirection.PARAM_OUT])
+        {
+            error(Messages.CHUNK_SIZE_NOT_SUPPORTED, element, IdlPackage.Literals.CHUNK_SIZE_HINT__SIZE)
+        }
+        else if (element.size <= 0)
+        {
+            error("Chunk size must be positive", element, IdlPackage.Literals.CHUNK_SIZE_HINT__SIZE)
+        }
+    }
+
     @Check
     def unsupportedFeatureError(AliasDeclaration element)
     {
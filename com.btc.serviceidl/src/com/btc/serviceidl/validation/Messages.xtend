@@ -23,6 +23,10 @@ class Messages
 
     public static val FEATURE_NOT_SUPPORED_BY_CAB = "Currently there is no CAB support for this feature, so it has no effect on the generated code"
 
+    public static val CHUNK_SIZE_NOT_SUPPORTED = "A chunk size can only be given for a non-failable sequence returned by a function without [out] parameters"
+
+    public static val EVENT_KEY_NOT_FILTERABLE = "The key does not name a non-optional string, integer or boolean member of the same type in the event data, so subscriptions to this event are not filtered by their keys"
+
     public static val TUPLE_TYPE_NOT_SUPPORTED = "The tuple type is currently not supported by the generator! Use a struct instead!"
 
     public static val CIRCULAR_INHERITANCE = "Circular inheritance detected! One of this type's base types is derived from this type itself."